@@ -0,0 +1,20 @@
+#!/bin/sh
+# アプリを起動する
+# 初回（または jar の更新後）は AppCDS の学習実行でクラスのアーカイブを作成し、
+# 以降はそのアーカイブを使ってクラスの読み込みを省き、起動時間を短縮する
+#
+# 使い方: app/run.sh [JVM のオプション...]
+set -e
+cd "$(dirname "$0")"
+
+jar=target/java-swing-undecorated-app-1.0-SNAPSHOT.jar
+archive=target/app-cds.jsa
+
+if [ ! -f "$jar" ]; then
+  (cd .. && mvn -B -q package -DskipTests -pl app)
+fi
+if [ ! -f "$archive" ] || [ "$jar" -nt "$archive" ]; then
+  # 画面の構築まで進めてから終了し、その間に読み込んだクラスをアーカイブに書き出す
+  java -XX:ArchiveClassesAtExit="$archive" -Dstartup.exitAfterFirstPaint=true -jar "$jar"
+fi
+exec java -XX:SharedArchiveFile="$archive" "$@" -jar "$jar"
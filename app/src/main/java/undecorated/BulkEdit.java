@@ -0,0 +1,271 @@
+package undecorated;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+import javax.swing.event.TableModelEvent;
+
+/**
+ * 顧客テーブルの一括編集のトランザクション
+ *
+ * set() で変更を溜めておき、commit() で反映する
+ * 反映はコピーオンライト: ワーカースレッドで変更後の列を新しい配列に作り、
+ * EDT では列の配列を差し替えて、変更範囲をまとめた UPDATE イベントを 1 回だけ通知する
+ * setValueAt でセルごとに書き換えると、セルの数だけイベントが発生し、JTable の再描画や
+ * RowSorter の並べ替えもそのたびに行われる
+ *
+ * 列を作る途中で失敗した場合や、作業中にモデルが変更された場合（読み込みによる追加など）は
+ * 何も反映しない（モデルは commit() 前のまま）
+ * set() / commit() / rollback() は EDT で呼ぶ
+ */
+public class BulkEdit extends SwingWorker<CustomerTableModel.Snapshot, Void> {
+  private final CustomerTableModel model;
+  private final Consumer<String> statusSink;
+
+  // 溜めている変更（同じセルへの変更は後のものが有効）
+  private int[] rows = new int[64];
+  private int[] columns = new int[64];
+  private String[] values = new String[64];
+  private int editCount;
+
+  // commit() の時点のモデル
+  private boolean committed;
+  private CustomerTableModel.Snapshot base;
+  private DictionaryColumn.View dictionary;
+  private int[] statusCodes;
+  private long baseModificationCount;
+  private long startNanos;
+
+  // 変更範囲（prepare() で求める）
+  private int firstRow;
+  private int lastRow;
+  private int changedColumn;
+
+  /**
+   * @param model 編集するモデル
+   * @param statusSink 結果のメッセージの通知先（EDT で呼ばれる）
+   */
+  BulkEdit(CustomerTableModel model, Consumer<String> statusSink) {
+    this.model = model;
+    this.statusSink = statusSink;
+  }
+
+  /**
+   * セルの変更を溜める（まだモデルには反映しない）
+   * @param row モデルの行
+   * @param column 列
+   * @param value 新しい値（null は空）
+   * @throws IllegalArgumentException 日付の列に日付として読めない値を指定した場合（空は可）
+   */
+  public void set(int row, int column, String value) {
+    if (committed) {
+      throw new IllegalStateException("commit 済みです");
+    }
+    Objects.checkIndex(column, CustomerTableModel.COLUMN_NAMES.length);
+    if (row < 0) {
+      throw new IndexOutOfBoundsException("row: " + row);
+    }
+    if (value != null && !value.isEmpty() && model.getDateColumn(column) != null
+        && DateColumn.parse(value) == DateColumn.NULL_DAY) {
+      throw new IllegalArgumentException("日付ではありません: " + value);
+    }
+    if (editCount == rows.length) {
+      int capacity = rows.length * 2;
+      rows = Arrays.copyOf(rows, capacity);
+      columns = Arrays.copyOf(columns, capacity);
+      values = Arrays.copyOf(values, capacity);
+    }
+    rows[editCount] = row;
+    columns[editCount] = column;
+    values[editCount] = value == null ? "" : value;
+    editCount++;
+  }
+
+  /**
+   * 複数の行の同じ列を同じ値にする変更を溜める
+   */
+  public void setAll(int[] modelRows, int column, String value) {
+    for (int row : modelRows) {
+      set(row, column, value);
+    }
+  }
+
+  public int getEditCount() {
+    return editCount;
+  }
+
+  /**
+   * 溜めた変更をワーカースレッドで適用し、完了したら EDT でモデルに反映する
+   */
+  public void commit() {
+    begin();
+    execute();
+  }
+
+  /**
+   * 溜めた変更をこのスレッドですぐに反映する（EDT で呼ぶ。少ない変更やテスト用）
+   * 失敗した場合は例外を投げ、モデルは変更しない
+   */
+  public void commitNow() {
+    begin();
+    CustomerTableModel.Snapshot edited = prepare();
+    if (model.getModificationCount() != baseModificationCount) {
+      throw new IllegalStateException("一括編集中にデータが変更されました");
+    }
+    if (edited != null) {
+      model.applyBulkEdit(edited, firstRow, lastRow, changedColumn);
+    }
+  }
+
+  /**
+   * 溜めた変更を破棄する。commit() の処理中なら中止し、モデルには何も反映しない
+   */
+  public void rollback() {
+    if (committed) {
+      cancel(false);
+    } else {
+      editCount = 0;
+      rows = new int[64];
+      columns = new int[64];
+      values = new String[64];
+    }
+  }
+
+  @Override
+  protected CustomerTableModel.Snapshot doInBackground() {
+    return prepare();
+  }
+
+  @Override
+  protected void done() {
+    if (isCancelled()) {
+      statusSink.accept("一括編集を取り消しました");
+      return;
+    }
+    CustomerTableModel.Snapshot edited;
+    try {
+      edited = get();
+    } catch (Exception e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      cause.printStackTrace();
+      statusSink.accept("一括編集に失敗したため取り消しました: " + cause.getMessage());
+      return;
+    }
+    if (model.getModificationCount() != baseModificationCount) {
+      statusSink.accept("一括編集中にデータが変更されたため取り消しました");
+      return;
+    }
+    if (edited != null) {
+      model.applyBulkEdit(edited, firstRow, lastRow, changedColumn);
+    }
+    statusSink.accept(String.format("一括編集: %,d 件を反映しました (%.1f ms)",
+        editCount, (System.nanoTime() - startNanos) / 1_000_000.0));
+  }
+
+  // EDT でモデルの状態を記録し、ステータスの値を辞書コードにする
+  // 新しい値は辞書の複製に登録し、反映する時に列の辞書と差し替える（取り消した場合は辞書に残らない）
+  private void begin() {
+    if (committed) {
+      throw new IllegalStateException("commit 済みです");
+    }
+    committed = true;
+    startNanos = System.nanoTime();
+    DictionaryColumn statusColumn = model.getStatusColumn().copyDictionary();
+    statusCodes = new int[editCount];
+    for (int i = 0; i < editCount; i++) {
+      if (columns[i] == CustomerTableModel.COL_STATUS) {
+        statusCodes[i] = statusColumn.encode(values[i]);
+      }
+    }
+    base = model.snapshot();
+    dictionary = statusColumn.view();
+    baseModificationCount = model.getModificationCount();
+  }
+
+  /**
+   * 変更を反映した列を新しい配列に作る（モデルには触れない）
+   * @return 変更後のスナップショット（変更がなければ null）
+   */
+  private CustomerTableModel.Snapshot prepare() {
+    if (editCount == 0) return null;
+    int rowCount = base.getRowCount();
+    int columnCount = CustomerTableModel.COLUMN_NAMES.length;
+    StringColumn.View[] strings = new StringColumn.View[columnCount];
+    DateColumn.View[] dates = new DateColumn.View[columnCount];
+    DictionaryColumn.View statuses = base.getStatusColumn();
+    firstRow = Integer.MAX_VALUE;
+    lastRow = -1;
+    int changedColumns = 0;
+
+    for (int column = 0; column < columnCount; column++) {
+      strings[column] = base.getStringColumn(column);
+      dates[column] = base.getDateColumn(column);
+      int[] edits = latestEdits(column);
+      if (edits.length == 0) continue;
+      if (isCancelled()) return null;
+
+      int[] editedRows = new int[edits.length];
+      for (int i = 0; i < edits.length; i++) {
+        editedRows[i] = rows[edits[i]];
+        if (editedRows[i] >= rowCount) {
+          throw new IndexOutOfBoundsException("行 " + editedRows[i] + " はありません（" + rowCount + " 行）");
+        }
+      }
+      firstRow = Math.min(firstRow, editedRows[0]);
+      lastRow = Math.max(lastRow, editedRows[editedRows.length - 1]);
+      changedColumn = column;
+      changedColumns++;
+
+      if (strings[column] != null) {
+        String[] newValues = new String[edits.length];
+        for (int i = 0; i < edits.length; i++) {
+          newValues[i] = values[edits[i]];
+        }
+        strings[column] = strings[column].withValues(editedRows, newValues);
+      } else if (dates[column] != null) {
+        int[] newDays = new int[edits.length];
+        for (int i = 0; i < edits.length; i++) {
+          newDays[i] = DateColumn.parse(values[edits[i]]);
+        }
+        dates[column] = dates[column].withDays(editedRows, newDays);
+      } else {
+        int[] newCodes = new int[edits.length];
+        for (int i = 0; i < edits.length; i++) {
+          newCodes[i] = statusCodes[edits[i]];
+        }
+        statuses = statuses.withCodes(editedRows, newCodes, dictionary);
+      }
+    }
+    if (changedColumns > 1) {
+      changedColumn = TableModelEvent.ALL_COLUMNS;
+    }
+    return new CustomerTableModel.Snapshot(rowCount, strings, dates, statuses);
+  }
+
+  /**
+   * 列への変更の番号を行の昇順に返す（同じ行への変更は最後のものだけ）
+   */
+  private int[] latestEdits(int column) {
+    int count = 0;
+    for (int i = 0; i < editCount; i++) {
+      if (columns[i] == column) count++;
+    }
+    // 上位に行、下位に変更の番号を詰めて並べると、同じ行の中では後の変更が後ろに来る
+    long[] packed = new long[count];
+    count = 0;
+    for (int i = 0; i < editCount; i++) {
+      if (columns[i] == column) {
+        packed[count++] = ((long) rows[i] << 32) | i;
+      }
+    }
+    Arrays.sort(packed);
+    int[] edits = new int[packed.length];
+    int unique = 0;
+    for (int i = 0; i < packed.length; i++) {
+      if (i + 1 < packed.length && (packed[i + 1] >>> 32) == (packed[i] >>> 32)) continue;
+      edits[unique++] = (int) packed[i];
+    }
+    return unique == edits.length ? edits : Arrays.copyOf(edits, unique);
+  }
+}
@@ -0,0 +1,336 @@
+package undecorated;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.font.GlyphVector;
+import java.awt.font.TextLayout;
+import java.text.Bidi;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JTable;
+import javax.swing.UIManager;
+import javax.swing.border.Border;
+import javax.swing.plaf.UIResource;
+import javax.swing.table.TableCellRenderer;
+
+/**
+ * 文字列のセルを描くレンダラー（DefaultTableCellRenderer の代わり）
+ *
+ * DefaultTableCellRenderer は JLabel なので、セルを描くたびに文字列の幅を測り、
+ * 列幅に収まらなければ「...」を付けた文字列を作ってから、グリフを並べ直して描く
+ * このレンダラーは文字列ごとに並べたグリフ（GlyphVector）と幅を LRU で持ち、同じ文字列は並べ直さずに描く
+ * ステータス・日付・会社名のように同じ値が多い列では、スクロール中の描画がほぼキャッシュから行われる
+ * 列幅に収まらない時は、収まる所までのグリフを切り抜いて描き、その後に「...」を描く（文字列は作らない）
+ * 右から左へ書く文字を含む文字列だけは、GlyphVector ではなく TextLayout を持つ
+ *
+ * キャッシュはフォントと FontRenderContext（変換・アンチエイリアス）が同じ間だけ使い、変わったら捨てる
+ * 1 つのテーブルの EDT からのみ使うこと
+ */
+public class CachedTextCellRenderer extends JComponent implements TableCellRenderer {
+  private static final long serialVersionUID = 1L;
+
+  public static final int DEFAULT_CAPACITY = Integer.getInteger("renderer.cacheEntries", 4096);
+  private static final String ELLIPSIS = "...";
+  private static final Border NO_FOCUS_BORDER = BorderFactory.createEmptyBorder(1, 1, 1, 1);
+
+  /**
+   * 並べたグリフと幅
+   */
+  private static final class Entry {
+    final GlyphVector glyphs;
+    final TextLayout layout;
+    final float advance;
+    // 各グリフの左端の x（切り詰める位置を探すのに使う。TextLayout の場合は null）
+    final float[] glyphX;
+
+    Entry(GlyphVector glyphs, TextLayout layout, float advance, float[] glyphX) {
+      this.glyphs = glyphs;
+      this.layout = layout;
+      this.advance = advance;
+      this.glyphX = glyphX;
+    }
+  }
+
+  private final int capacity;
+  private final Map<String, Entry> cache;
+  private Font cachedFont;
+  private FontRenderContext cachedContext;
+  private Entry ellipsis;
+  private int ascent;
+  private int textHeight;
+
+  // UIManager の値（セルごとに引かないよう updateUI で読んでおく）
+  private Map<?, ?> desktopHints;
+  private Color alternateRowColor;
+  private Border focusBorder;
+  private Border focusSelectedBorder;
+  private Color focusForeground;
+  private Color focusBackground;
+
+  // getTableCellRendererComponent で設定し、paintComponent で描く
+  private String text = "";
+  private Color unselectedForeground;
+  private Color unselectedBackground;
+
+  // 描画で使い回す
+  private final Insets insets = new Insets(0, 0, 0, 0);
+  private final Rectangle clip = new Rectangle();
+
+  // 計測値
+  private long hitCount;
+  private long missCount;
+  private long truncatedCount;
+  private long invalidationCount;
+
+  public CachedTextCellRenderer() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param capacity キャッシュする文字列の数の上限
+   */
+  public CachedTextCellRenderer(int capacity) {
+    this.capacity = capacity;
+    this.cache = new LinkedHashMap<String, Entry>(capacity * 4 / 3 + 1, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+        return size() > CachedTextCellRenderer.this.capacity;
+      }
+    };
+    setOpaque(true);
+    setBorder(NO_FOCUS_BORDER);
+    updateUI();
+  }
+
+  @Override
+  public void updateUI() {
+    super.updateUI();
+    desktopHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+    alternateRowColor = UIManager.getColor("Table.alternateRowColor");
+    focusBorder = UIManager.getBorder("Table.focusCellHighlightBorder");
+    focusSelectedBorder = UIManager.getBorder("Table.focusSelectedCellHighlightBorder");
+    focusForeground = UIManager.getColor("Table.focusCellForeground");
+    focusBackground = UIManager.getColor("Table.focusCellBackground");
+    // アンチエイリアスの設定が変わっているかもしれないので、次の描画で作り直す
+    cachedFont = null;
+  }
+
+  @Override
+  public void setForeground(Color color) {
+    super.setForeground(color);
+    unselectedForeground = color;
+  }
+
+  @Override
+  public void setBackground(Color color) {
+    super.setBackground(color);
+    unselectedBackground = color;
+  }
+
+  @Override
+  public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus,
+      int row, int column) {
+    // 色と枠は DefaultTableCellRenderer と同じ決め方にする
+    Color foreground;
+    Color background;
+    if (isSelected) {
+      foreground = table.getSelectionForeground();
+      background = table.getSelectionBackground();
+    } else {
+      foreground = unselectedForeground != null ? unselectedForeground : table.getForeground();
+      background = unselectedBackground != null ? unselectedBackground : table.getBackground();
+      if ((background == null || background instanceof UIResource) && alternateRowColor != null
+          && row % 2 != 0) {
+        background = alternateRowColor;
+      }
+    }
+    Border border = NO_FOCUS_BORDER;
+    if (hasFocus) {
+      border = isSelected && focusSelectedBorder != null ? focusSelectedBorder : focusBorder;
+      if (!isSelected && table.isCellEditable(row, column)) {
+        if (focusForeground != null) {
+          foreground = focusForeground;
+        }
+        if (focusBackground != null) {
+          background = focusBackground;
+        }
+      }
+    }
+    super.setForeground(foreground);
+    super.setBackground(background);
+    setBorder(border == null ? NO_FOCUS_BORDER : border);
+    setFont(table.getFont());
+    text = value == null ? "" : value.toString();
+    return this;
+  }
+
+  /**
+   * 子を持たず、二重バッファも不要なので、JComponent.paint の処理を省いて背景・文字・枠だけを描く
+   */
+  @Override
+  public void paint(Graphics g) {
+    paintComponent(g);
+    paintBorder(g);
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    int width = getWidth();
+    int height = getHeight();
+    if (isOpaque()) {
+      g.setColor(getBackground());
+      g.fillRect(0, 0, width, height);
+    }
+    if (text.isEmpty()) return;
+    Graphics2D g2 = (Graphics2D) g;
+    if (desktopHints != null) {
+      g2.addRenderingHints(desktopHints);
+    }
+    Font font = getFont();
+    FontRenderContext context = g2.getFontRenderContext();
+    if (font != cachedFont || !context.equals(cachedContext)) {
+      if (cachedFont != null) {
+        invalidationCount++;
+      }
+      cache.clear();
+      cachedFont = font;
+      cachedContext = context;
+      ellipsis = createEntry(ELLIPSIS);
+      FontMetrics metrics = g2.getFontMetrics(font);
+      ascent = metrics.getAscent();
+      textHeight = metrics.getHeight();
+    }
+
+    Entry entry = cache.get(text);
+    if (entry == null) {
+      missCount++;
+      entry = createEntry(text);
+      cache.put(text, entry);
+    } else {
+      hitCount++;
+    }
+
+    getInsets(insets);
+    int available = width - insets.left - insets.right;
+    // 縦位置は JLabel（SwingUtilities.layoutCompoundLabel）と同じ丸め方で中央に揃える
+    int y = insets.top + (height - insets.top - insets.bottom) / 2 - textHeight / 2 + ascent;
+    g2.setColor(getForeground());
+    if (entry.advance <= available) {
+      draw(g2, entry, insets.left, y);
+      return;
+    }
+
+    // 収まる所までのグリフを切り抜いて描き、その後に「...」を描く
+    truncatedCount++;
+    float limit = available - ellipsis.advance;
+    float cut = 0;
+    if (entry.glyphX != null && limit > 0) {
+      for (int i = entry.glyphX.length - 1; i > 0; i--) {
+        if (entry.glyphX[i] <= limit) {
+          cut = entry.glyphX[i];
+          break;
+        }
+      }
+    }
+    if (cut > 0) {
+      if (g2.getClipBounds(clip) == null) {
+        clip.setBounds(0, 0, width, height);
+      }
+      g2.clipRect(insets.left, 0, (int) Math.ceil(cut), height);
+      draw(g2, entry, insets.left, y);
+      g2.setClip(clip.x, clip.y, clip.width, clip.height);
+    }
+    draw(g2, ellipsis, insets.left + cut, y);
+  }
+
+  private static void draw(Graphics2D g2, Entry entry, float x, float y) {
+    if (entry.glyphs != null) {
+      g2.drawGlyphVector(entry.glyphs, x, y);
+    } else {
+      entry.layout.draw(g2, x, y);
+    }
+  }
+
+  private Entry createEntry(String value) {
+    char[] chars = value.toCharArray();
+    if (Bidi.requiresBidi(chars, 0, chars.length)) {
+      TextLayout layout = new TextLayout(value, cachedFont, cachedContext);
+      return new Entry(null, layout, layout.getAdvance(), null);
+    }
+    GlyphVector glyphs = cachedFont.createGlyphVector(cachedContext, chars);
+    int count = glyphs.getNumGlyphs();
+    // x, y の組で返るので x だけを取り出す（count 番目は末尾の位置）
+    float[] positions = glyphs.getGlyphPositions(0, count + 1, null);
+    float[] glyphX = new float[count + 1];
+    for (int i = 0; i <= count; i++) {
+      glyphX[i] = positions[i * 2];
+    }
+    return new Entry(glyphs, null, glyphX[count], glyphX);
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public String formatStats() {
+    long lookups = hitCount + missCount;
+    return String.format(Locale.ROOT,
+        "cellRenderer cached=%d/%d hit=%d miss=%d (%.1f%%) truncated=%d invalidated=%d fonts=%d",
+        cache.size(), capacity, hitCount, missCount, lookups == 0 ? 0.0 : hitCount * 100.0 / lookups,
+        truncatedCount, invalidationCount, FontRegistry.size());
+  }
+
+  // 以下は DefaultTableCellRenderer と同じく、描画専用の部品なので不要な処理を省く
+
+  @Override
+  public boolean isOpaque() {
+    Color background = getBackground();
+    Component parent = getParent();
+    if (parent != null) {
+      parent = parent.getParent();
+    }
+    // 背景がテーブルと同じ不透明な色なら、テーブル側で塗られているので塗らない
+    boolean sameAsTable = background != null && parent != null && background.equals(parent.getBackground())
+        && parent.isOpaque();
+    return !sameAsTable && super.isOpaque();
+  }
+
+  @Override
+  public void invalidate() {
+  }
+
+  @Override
+  public void validate() {
+  }
+
+  @Override
+  public void revalidate() {
+  }
+
+  @Override
+  public void repaint(long tm, int x, int y, int width, int height) {
+  }
+
+  @Override
+  public void repaint(Rectangle r) {
+  }
+
+  @Override
+  public void repaint() {
+  }
+
+  @Override
+  protected void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+  }
+
+  @Override
+  public void firePropertyChange(String propertyName, boolean oldValue, boolean newValue) {
+  }
+}
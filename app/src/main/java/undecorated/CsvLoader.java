@@ -0,0 +1,392 @@
+package undecorated;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+
+/**
+ * CSV/TXT ファイルを EDT の外で読み込み、CustomerTableModel へ少しずつ追加するローダー
+ * ファイルは行境界で区切ったチャンクごとにメモリマップし、複数スレッドで並列に解析する
+ * 解析結果はファイル順にバッチで EDT へ渡すため、先頭の行はすぐに表示される
+ *
+ * チャンクは改行位置で区切るため、引用符の中に改行を含むレコードには対応しない
+ *
+ * SnapshotCache を渡した場合は、同じ内容のファイルの解析結果が保存されていればそれを読み込み、
+ * なければ解析を終えた後にモデルのスナップショットを保存する
+ */
+public class CsvLoader extends SwingWorker<Integer, List<String[]>> {
+  // 最初のチャンクは小さくして、先頭の行をすぐに表示できるようにする
+  private static final int FIRST_CHUNK_BYTES = 64 * 1024;
+  private static final int CHUNK_BYTES = 8 * 1024 * 1024;
+  private static final int BATCH_ROWS = 5_000;
+  private static final int BOUNDARY_SCAN_BYTES = 64 * 1024;
+  // EDT が追加し終えていないチャンクの上限（EDT が遅い時に解析済みの行がたまり続けないようにする）
+  private static final int MAX_PUBLISHED_CHUNKS = 4;
+
+  private final File file;
+  private final CustomerTableModel model;
+  private final SnapshotCache cache;
+  private final Consumer<String> statusSink;
+  private final byte delimiter;
+  // キャッシュのキー（キャッシュを使わない場合や求められなかった場合は null）
+  private volatile SnapshotCache.Key cacheKey;
+  // 公開できるチャンクの残り（process がチャンクを追加し終えたら戻す）
+  private final Semaphore publishPermits = new Semaphore(MAX_PUBLISHED_CHUNKS);
+
+  private long totalBytes;
+  private long startNanos;
+  // 以下は EDT でのみ更新する
+  private long rowsAdded;
+  private long bytesPublished;
+  private boolean fromCache;
+  // モデルに追加できずに中止した理由（中止していなければ null）
+  private String failure;
+  // 解析した行数（done で分かる）。すべての行がモデルに追加されたらスナップショットを保存する
+  private long rowsParsed = -1;
+
+  /**
+   * @param file 読み込むファイル（.txt はタブ区切り、それ以外はカンマ区切り）
+   * @param model 行を追加するモデル
+   * @param statusSink 進捗メッセージの通知先（EDT で呼ばれる）
+   */
+  public CsvLoader(File file, CustomerTableModel model, Consumer<String> statusSink) {
+    this(file, model, null, statusSink);
+  }
+
+  /**
+   * @param file 読み込むファイル（.txt はタブ区切り、それ以外はカンマ区切り）
+   * @param model 行を追加するモデル（空であること）
+   * @param cache 解析結果のキャッシュ（null なら使わない）
+   * @param statusSink 進捗メッセージの通知先（EDT で呼ばれる）
+   */
+  public CsvLoader(File file, CustomerTableModel model, SnapshotCache cache, Consumer<String> statusSink) {
+    this.file = file;
+    this.model = model;
+    this.cache = cache;
+    this.statusSink = statusSink;
+    this.delimiter = file.getName().toLowerCase().endsWith(".txt") ? (byte) '\t' : (byte) ',';
+  }
+
+  @Override
+  protected Integer doInBackground() throws Exception {
+    startNanos = System.nanoTime();
+    if (cache != null) {
+      try {
+        cacheKey = cache.keyOf(file.toPath());
+      } catch (IOException e) {
+        cacheKey = null;
+      }
+      CustomerTableModel.Snapshot snapshot = cacheKey != null && !isCancelled() ? cache.load(cacheKey) : null;
+      if (snapshot != null) {
+        totalBytes = cacheKey.size;
+        publish(new CachedRows(snapshot));
+        return snapshot.getRowCount();
+      }
+    }
+    int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+    ExecutorService executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+      Thread thread = new Thread(runnable, "csv-parser");
+      thread.setDaemon(true);
+      return thread;
+    });
+    int rows = 0;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      totalBytes = channel.size();
+      long position = skipByteOrderMark(channel);
+      boolean first = true;
+      // 解析中のチャンクはファイル順に並べ、先頭から順に公開する
+      ArrayDeque<Future<ParsedChunk>> inFlight = new ArrayDeque<>();
+      while (!isCancelled() && (position < totalBytes || !inFlight.isEmpty())) {
+        while (position < totalBytes && inFlight.size() < parallelism * 2) {
+          long end = findChunkEnd(channel, position, first ? FIRST_CHUNK_BYTES : CHUNK_BYTES);
+          long chunkStart = position;
+          boolean skipHeader = first;
+          inFlight.add(executor.submit(() -> parseChunk(channel, chunkStart, end, skipHeader)));
+          position = end;
+          first = false;
+        }
+        ParsedChunk chunk = inFlight.poll().get();
+        if (!acquirePublishPermit()) break;
+        List<String[]> chunkRows = chunk.rows;
+        for (int from = 0; from < chunkRows.size() && !isCancelled(); from += BATCH_ROWS) {
+          publish(chunkRows.subList(from, Math.min(chunkRows.size(), from + BATCH_ROWS)));
+        }
+        rows += chunkRows.size();
+        publish(new ChunkDone(chunk.bytes));
+      }
+      if (isCancelled()) {
+        for (Future<ParsedChunk> future : inFlight) {
+          future.cancel(true);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    return rows;
+  }
+
+  // EDT が追加し終えていないチャンクが上限に達していれば、減るまで待つ（中止されたら false）
+  private boolean acquirePublishPermit() throws InterruptedException {
+    while (!isCancelled()) {
+      if (publishPermits.tryAcquire(100, TimeUnit.MILLISECONDS)) return true;
+    }
+    return false;
+  }
+
+  @Override
+  protected void process(List<List<String[]>> batches) {
+    if (isCancelled()) return;
+    for (List<String[]> batch : batches) {
+      if (batch instanceof CachedRows) {
+        CustomerTableModel.Snapshot snapshot = ((CachedRows) batch).snapshot;
+        model.load(snapshot);
+        rowsAdded += snapshot.getRowCount();
+        bytesPublished = totalBytes;
+        fromCache = true;
+      } else if (batch instanceof ChunkDone) {
+        bytesPublished += ((ChunkDone) batch).bytes;
+        publishPermits.release();
+      } else {
+        try {
+          model.addRows(batch);
+        } catch (IllegalStateException e) {
+          // 列のデータが大きすぎて追加できない場合は、そこまでの行を残して読み込みを中止する
+          failure = e.getMessage();
+          cancel(true);
+          return;
+        }
+        rowsAdded += batch.size();
+      }
+    }
+    if (totalBytes > 0) {
+      setProgress((int) Math.min(100, bytesPublished * 100 / totalBytes));
+    }
+    statusSink.accept(String.format("読み込み中: %,d 行 (%d%%) %.1f MB/s",
+        rowsAdded, getProgress(), megabytesPerSecond(bytesPublished)));
+    storeSnapshot();
+  }
+
+  @Override
+  protected void done() {
+    if (isCancelled()) {
+      statusSink.accept(failure != null
+          ? String.format("読み込みを中止しました: %,d 行 (%s)", rowsAdded, failure)
+          : String.format("読み込みを中止しました: %,d 行", rowsAdded));
+      return;
+    }
+    try {
+      rowsParsed = get();
+      statusSink.accept(String.format(fromCache ? "読み込み完了（キャッシュ）: %s %,d 行 (%.1f MB/s)"
+          : "読み込み完了: %s %,d 行 (%.1f MB/s)", file.getName(), rowsParsed, megabytesPerSecond(totalBytes)));
+      storeSnapshot();
+    } catch (Exception e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      cause.printStackTrace();
+      statusSink.accept("読み込みに失敗しました: " + cause.getMessage());
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  // 解析した行がすべてモデルに追加されたら、その時点のスナップショットをキャッシュに保存する
+  // （done は最後の process より先に呼ばれることがあるので、両方から呼ぶ）
+  private void storeSnapshot() {
+    if (cache == null || cacheKey == null || fromCache || rowsParsed < 0 || isCancelled()) return;
+    if (rowsAdded != rowsParsed || model.getRowCount() != rowsParsed) return;
+    cache.storeAsync(cacheKey, model.snapshot());
+    cacheKey = null;
+  }
+
+  private double megabytesPerSecond(long bytes) {
+    double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    return seconds <= 0 ? 0 : bytes / 1_048_576.0 / seconds;
+  }
+
+  // UTF-8 の BOM があれば読み飛ばす
+  static long skipByteOrderMark(FileChannel channel) throws IOException {
+    ByteBuffer head = ByteBuffer.allocate(3);
+    channel.read(head, 0);
+    if (head.position() == 3 && (head.get(0) & 0xFF) == 0xEF && (head.get(1) & 0xFF) == 0xBB
+        && (head.get(2) & 0xFF) == 0xBF) {
+      return 3;
+    }
+    return 0;
+  }
+
+  /**
+   * start から約 size バイト先の、次の改行の直後の位置を返す
+   */
+  private static long findChunkEnd(FileChannel channel, long start, int size) throws IOException {
+    long fileSize = channel.size();
+    long position = start + size;
+    if (position >= fileSize) {
+      return fileSize;
+    }
+    ByteBuffer window = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+    while (position < fileSize) {
+      window.clear();
+      int read = channel.read(window, position);
+      if (read <= 0) break;
+      for (int i = 0; i < read; i++) {
+        if (window.get(i) == '\n') {
+          return position + i + 1;
+        }
+      }
+      position += read;
+    }
+    return fileSize;
+  }
+
+  private ParsedChunk parseChunk(FileChannel channel, long start, long end, boolean skipHeader) throws IOException {
+    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    List<String[]> rows = new ArrayList<>();
+    RowParser parser = new RowParser(delimiter);
+    int limit = buffer.limit();
+    int position = 0;
+    while (position < limit) {
+      if (Thread.currentThread().isInterrupted()) break;
+      position = parser.parse(buffer, position, limit);
+      String[] row = parser.takeRow();
+      if (row == null) continue;
+      if (skipHeader) {
+        skipHeader = false;
+        if (CustomerTableModel.COLUMN_NAMES[0].equals(row[0])) continue;
+      }
+      rows.add(row);
+    }
+    return new ParsedChunk(rows, end - start);
+  }
+
+  /**
+   * バイト列から 1 レコードずつ取り出すパーサー
+   * 引用符で囲まれたフィールドと "" のエスケープに対応する
+   */
+  static final class RowParser {
+    private final byte delimiter;
+    private byte[] field = new byte[256];
+    private final String[] values = new String[CustomerTableModel.COLUMN_NAMES.length];
+    private int valueCount;
+    private boolean hasRow;
+
+    RowParser(byte delimiter) {
+      this.delimiter = delimiter;
+    }
+
+    /**
+     * position から 1 レコードを解析し、次のレコードの開始位置を返す
+     */
+    int parse(ByteBuffer buffer, int position, int limit) {
+      valueCount = 0;
+      hasRow = false;
+      Arrays.fill(values, null);
+      int length = 0;
+      boolean quoted = false;
+      boolean fieldStart = true;
+      while (position < limit) {
+        byte b = buffer.get(position++);
+        if (quoted) {
+          if (b == '"') {
+            if (position < limit && buffer.get(position) == '"') {
+              length = put(length, b);
+              position++;
+            } else {
+              quoted = false;
+            }
+          } else {
+            length = put(length, b);
+          }
+        } else if (b == '"' && fieldStart) {
+          quoted = true;
+          fieldStart = false;
+        } else if (b == delimiter) {
+          addValue(length);
+          length = 0;
+          fieldStart = true;
+        } else if (b == '\n') {
+          break;
+        } else if (b != '\r') {
+          length = put(length, b);
+          fieldStart = false;
+        }
+      }
+      if (length > 0 || valueCount > 0) {
+        addValue(length);
+        hasRow = true;
+      }
+      return position;
+    }
+
+    /**
+     * 直前に解析したレコードを返す。空行なら null
+     */
+    String[] takeRow() {
+      return hasRow ? values.clone() : null;
+    }
+
+    private void addValue(int length) {
+      if (valueCount < values.length) {
+        values[valueCount] = length == 0 ? "" : new String(field, 0, length, StandardCharsets.UTF_8);
+      }
+      valueCount++;
+    }
+
+    private int put(int length, byte b) {
+      if (length == field.length) {
+        field = Arrays.copyOf(field, field.length * 2);
+      }
+      field[length] = b;
+      return length + 1;
+    }
+  }
+
+  private static final class ParsedChunk {
+    final List<String[]> rows;
+    final long bytes;
+
+    ParsedChunk(List<String[]> rows, long bytes) {
+      this.rows = rows;
+      this.bytes = bytes;
+    }
+  }
+
+  // キャッシュから読み込んだ行を process に渡す
+  private static final class CachedRows extends ArrayList<String[]> {
+    private static final long serialVersionUID = 1L;
+
+    final CustomerTableModel.Snapshot snapshot;
+
+    CachedRows(CustomerTableModel.Snapshot snapshot) {
+      super(0);
+      this.snapshot = snapshot;
+    }
+  }
+
+  // チャンクの公開が終わったことを process に伝える目印
+  private static final class ChunkDone extends ArrayList<String[]> {
+    private static final long serialVersionUID = 1L;
+
+    final long bytes;
+
+    ChunkDone(long bytes) {
+      super(0);
+      this.bytes = bytes;
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package undecorated;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * 顧客データの取り出し元
+ * 行番号で範囲を指定して取り出す。すべての行を一度にメモリへ載せずに済むよう、
+ * PagingTableModel はページ単位でこれを呼ぶ
+ *
+ * 呼び出しはファイルの読み込みなどで時間がかかることがあるため、EDT から呼ばないこと
+ * ただし close() は EDT から呼ばれるので、実行中の呼び出しを待たずに返すこと
+ * 実装は複数のスレッドから呼ばれても安全であること
+ */
+public interface CustomerRepository extends Closeable {
+  /**
+   * 行数を返す（最初の呼び出しでファイルを走査するなど、時間がかかることがある）
+   */
+  int getRowCount() throws IOException;
+
+  /**
+   * first 行目から最大 count 行を返す
+   * @return 各行は CustomerTableModel.COLUMN_NAMES の順の文字列（空は ""）。範囲外なら空の配列
+   */
+  String[][] fetch(int first, int count) throws IOException;
+
+  /**
+   * 表示用の名前（ファイル名など）
+   */
+  String getName();
+
+  @Override
+  default void close() throws IOException {
+  }
+}
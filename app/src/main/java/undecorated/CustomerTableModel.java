@@ -0,0 +1,425 @@
+package undecorated;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.swing.event.TableModelEvent;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * 顧客データを列ごとに保持するテーブルモデル
+ * 文字列列は UTF-8 のバイト列、日付は epoch day の int、ステータスは辞書コードで持ち、
+ * getValueAt で表示用の文字列に変換する
+ */
+public class CustomerTableModel extends AbstractTableModel {
+  private static final long serialVersionUID = 1L;
+
+  public static final int COL_ID = 0;
+  public static final int COL_NAME = 1;
+  public static final int COL_COMPANY = 2;
+  public static final int COL_PHONE = 3;
+  public static final int COL_EMAIL = 4;
+  public static final int COL_REGISTERED = 5;
+  public static final int COL_LAST_PURCHASE = 6;
+  public static final int COL_STATUS = 7;
+
+  public static final String[] COLUMN_NAMES = {
+      "ID", "顧客名", "会社名", "電話番号", "メール", "登録日", "最終購入日", "ステータス" };
+
+  private final StringColumn ids = new StringColumn();
+  private final StringColumn names = new StringColumn();
+  private final StringColumn companies = new StringColumn();
+  private final StringColumn phones = new StringColumn();
+  private final StringColumn emails = new StringColumn();
+  private final DateColumn registeredDates = new DateColumn();
+  private final DateColumn lastPurchaseDates = new DateColumn();
+  private final DictionaryColumn statuses = new DictionaryColumn();
+
+  private int rowCount;
+  // 行の追加・削除・書き換えのたびに増える（BulkEdit が作業中に変更されていないか確かめる）
+  private long modificationCount;
+
+  public CustomerTableModel() {
+  }
+
+  public CustomerTableModel(Object[][] data) {
+    for (Object[] row : data) {
+      appendRow(row);
+    }
+  }
+
+  /**
+   * 1 行追加してイベントを通知する
+   */
+  public void addRow(Object... values) {
+    appendRow(values);
+    fireTableRowsInserted(rowCount - 1, rowCount - 1);
+  }
+
+  /**
+   * 複数行をまとめて追加し、挿入イベントは 1 回だけ通知する
+   */
+  public void addRows(List<? extends Object[]> rows) {
+    if (rows.isEmpty()) return;
+    int first = rowCount;
+    try {
+      for (int i = 0; i < rows.size(); i++) {
+        appendRow(rows.get(i));
+      }
+    } finally {
+      // 途中で追加できなくなった場合も、それまでに追加した行は通知する
+      if (rowCount > first) {
+        fireTableRowsInserted(first, rowCount - 1);
+      }
+    }
+  }
+
+  /**
+   * イベントを通知せずに 1 行追加する
+   * 呼び出し側で fireTableRowsInserted をまとめて呼ぶこと
+   */
+  public void appendRow(Object[] values) {
+    try {
+      ids.append(stringAt(values, COL_ID));
+      names.append(stringAt(values, COL_NAME));
+      companies.append(stringAt(values, COL_COMPANY));
+      phones.append(stringAt(values, COL_PHONE));
+      emails.append(stringAt(values, COL_EMAIL));
+    } catch (IllegalStateException e) {
+      // 列のデータが大きすぎて追加できない場合は、この行で追加済みの列を戻して列の行数をそろえる
+      ids.truncate(rowCount);
+      names.truncate(rowCount);
+      companies.truncate(rowCount);
+      phones.truncate(rowCount);
+      emails.truncate(rowCount);
+      throw e;
+    }
+    registeredDates.append(stringAt(values, COL_REGISTERED));
+    lastPurchaseDates.append(stringAt(values, COL_LAST_PURCHASE));
+    statuses.append(stringAt(values, COL_STATUS));
+    rowCount++;
+    modificationCount++;
+  }
+
+  /**
+   * すべての行を削除する
+   */
+  public void clear() {
+    ids.clear();
+    names.clear();
+    companies.clear();
+    phones.clear();
+    emails.clear();
+    registeredDates.clear();
+    lastPurchaseDates.clear();
+    statuses.clear();
+    rowCount = 0;
+    modificationCount++;
+    fireTableDataChanged();
+  }
+
+  @Override
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return COLUMN_NAMES.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return COLUMN_NAMES[column];
+  }
+
+  @Override
+  public Class<?> getColumnClass(int column) {
+    return String.class;
+  }
+
+  @Override
+  public boolean isCellEditable(int row, int column) {
+    return false;
+  }
+
+  /**
+   * 1 つのセルを書き換えてイベントを通知する
+   * セルごとにイベントが発生し、文字列列では O(行数) のコピーも伴うので、
+   * 多くのセルを書き換える場合は beginBulkEdit() を使うこと
+   */
+  @Override
+  public void setValueAt(Object value, int row, int column) {
+    String text = value == null ? "" : value.toString();
+    StringColumn stringColumn = getStringColumn(column);
+    DateColumn dateColumn = getDateColumn(column);
+    if (stringColumn != null) {
+      stringColumn.set(row, text);
+    } else if (dateColumn != null) {
+      dateColumn.setDay(row, DateColumn.parse(text));
+    } else if (column == COL_STATUS) {
+      statuses.set(row, text);
+    } else {
+      throw new IndexOutOfBoundsException("column: " + column);
+    }
+    modificationCount++;
+    fireTableCellUpdated(row, column);
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    switch (column) {
+      case COL_ID:
+        return ids.get(row);
+      case COL_NAME:
+        return names.get(row);
+      case COL_COMPANY:
+        return companies.get(row);
+      case COL_PHONE:
+        return phones.get(row);
+      case COL_EMAIL:
+        return emails.get(row);
+      case COL_REGISTERED:
+        return registeredDates.get(row);
+      case COL_LAST_PURCHASE:
+        return lastPurchaseDates.get(row);
+      case COL_STATUS:
+        return statuses.get(row);
+      default:
+        throw new IndexOutOfBoundsException("column: " + column);
+    }
+  }
+
+  /**
+   * 文字列として保持している列を返す
+   * @param column COL_ID, COL_NAME, COL_COMPANY, COL_PHONE, COL_EMAIL のいずれか
+   */
+  public StringColumn getStringColumn(int column) {
+    switch (column) {
+      case COL_ID:
+        return ids;
+      case COL_NAME:
+        return names;
+      case COL_COMPANY:
+        return companies;
+      case COL_PHONE:
+        return phones;
+      case COL_EMAIL:
+        return emails;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * 日付として保持している列を返す
+   * @param column COL_REGISTERED または COL_LAST_PURCHASE
+   */
+  public DateColumn getDateColumn(int column) {
+    switch (column) {
+      case COL_REGISTERED:
+        return registeredDates;
+      case COL_LAST_PURCHASE:
+        return lastPurchaseDates;
+      default:
+        return null;
+    }
+  }
+
+  public DictionaryColumn getStatusColumn() {
+    return statuses;
+  }
+
+  /** 全列のおおよそのヒープ使用量（バイト） */
+  public long estimatedBytes() {
+    return ids.estimatedBytes() + names.estimatedBytes() + companies.estimatedBytes()
+        + phones.estimatedBytes() + emails.estimatedBytes()
+        + registeredDates.estimatedBytes() + lastPurchaseDates.estimatedBytes()
+        + statuses.estimatedBytes();
+  }
+
+  /**
+   * 空のモデルにスナップショットの行を読み込み、挿入イベントを 1 回だけ通知する（EDT で呼ぶ）
+   * 列の配列はスナップショットのものをそのまま使う
+   */
+  public void load(Snapshot snapshot) {
+    if (rowCount != 0) {
+      throw new IllegalStateException("モデルが空ではありません: " + rowCount + " 行");
+    }
+    for (int c = 0; c < COLUMN_NAMES.length; c++) {
+      if (snapshot.strings[c] != null) {
+        getStringColumn(c).install(snapshot.strings[c]);
+      } else if (snapshot.dates[c] != null) {
+        getDateColumn(c).install(snapshot.dates[c]);
+      }
+    }
+    statuses.load(snapshot.statuses);
+    rowCount = snapshot.rowCount;
+    modificationCount++;
+    if (rowCount > 0) {
+      fireTableRowsInserted(0, rowCount - 1);
+    }
+  }
+
+  /**
+   * 一括編集を始める（EDT で呼ぶ）
+   * 変更は BulkEdit に溜めておき、commit() でまとめて反映する
+   */
+  public BulkEdit beginBulkEdit(Consumer<String> statusSink) {
+    return new BulkEdit(this, statusSink);
+  }
+
+  long getModificationCount() {
+    return modificationCount;
+  }
+
+  /**
+   * BulkEdit が作った列で置き換え、変更範囲を 1 つの UPDATE イベントで通知する（EDT で呼ぶ）
+   * 列の配列を差し替えるだけなので、取得済みのスナップショットやビューには影響しない
+   * @param column 変更した列（複数の列なら TableModelEvent.ALL_COLUMNS）
+   */
+  void applyBulkEdit(Snapshot edited, int firstRow, int lastRow, int column) {
+    for (int c = 0; c < COLUMN_NAMES.length; c++) {
+      if (edited.strings[c] != null) {
+        getStringColumn(c).install(edited.strings[c]);
+      } else if (edited.dates[c] != null) {
+        getDateColumn(c).install(edited.dates[c]);
+      }
+    }
+    statuses.install(edited.statuses);
+    modificationCount++;
+    fireTableChanged(new TableModelEvent(this, firstRow, lastRow, column));
+  }
+
+  /**
+   * 現時点の全行の読み取り専用のスナップショットを返す（EDT で呼ぶ）
+   * 列の配列はコピーしないので O(1) で取得でき、その後の追加や clear() の影響を受けない
+   */
+  public Snapshot snapshot() {
+    return new Snapshot(this);
+  }
+
+  /**
+   * 顧客データのある時点でのスナップショット。別スレッドから読める
+   */
+  public static final class Snapshot {
+    private final int rowCount;
+    private final StringColumn.View[] strings;
+    private final DateColumn.View[] dates;
+    private final DictionaryColumn.View statuses;
+
+    private Snapshot(CustomerTableModel model) {
+      rowCount = model.rowCount;
+      strings = new StringColumn.View[COLUMN_NAMES.length];
+      dates = new DateColumn.View[COLUMN_NAMES.length];
+      for (int column = 0; column < COLUMN_NAMES.length; column++) {
+        StringColumn stringColumn = model.getStringColumn(column);
+        if (stringColumn != null) {
+          strings[column] = stringColumn.view();
+        }
+        DateColumn dateColumn = model.getDateColumn(column);
+        if (dateColumn != null) {
+          dates[column] = dateColumn.view();
+        }
+      }
+      statuses = model.statuses.view();
+    }
+
+    Snapshot(int rowCount, StringColumn.View[] strings, DateColumn.View[] dates, DictionaryColumn.View statuses) {
+      this.rowCount = rowCount;
+      this.strings = strings;
+      this.dates = dates;
+      this.statuses = statuses;
+    }
+
+    /**
+     * スナップショットのファイルから読む（writeTo の形式）
+     */
+    static Snapshot readFrom(ByteBuffer in) {
+      int rowCount = in.getInt();
+      StringColumn.View[] strings = new StringColumn.View[COLUMN_NAMES.length];
+      DateColumn.View[] dates = new DateColumn.View[COLUMN_NAMES.length];
+      DictionaryColumn.View statuses = null;
+      for (int column = 0; column < COLUMN_NAMES.length; column++) {
+        int size;
+        if (column == COL_REGISTERED || column == COL_LAST_PURCHASE) {
+          dates[column] = DateColumn.View.readFrom(in);
+          size = dates[column].size();
+        } else if (column == COL_STATUS) {
+          statuses = DictionaryColumn.View.readFrom(in);
+          size = statuses.size();
+        } else {
+          strings[column] = StringColumn.View.readFrom(in);
+          size = strings[column].size();
+        }
+        if (size != rowCount) {
+          throw new SnapshotCache.CorruptSnapshotException(COLUMN_NAMES[column] + " の行数が一致しません: " + size);
+        }
+      }
+      return new Snapshot(rowCount, strings, dates, statuses);
+    }
+
+    /**
+     * writeTo で書くバイト数
+     */
+    long byteSize() {
+      long bytes = 4;
+      for (int column = 0; column < COLUMN_NAMES.length; column++) {
+        if (strings[column] != null) {
+          bytes += strings[column].byteSize();
+        } else if (dates[column] != null) {
+          bytes += dates[column].byteSize();
+        } else {
+          bytes += statuses.byteSize();
+        }
+      }
+      return bytes;
+    }
+
+    /**
+     * スナップショットのファイルに書く（行数、列の順に各列）
+     */
+    void writeTo(SnapshotCache.Output out) throws IOException {
+      out.putInt(rowCount);
+      for (int column = 0; column < COLUMN_NAMES.length; column++) {
+        if (strings[column] != null) {
+          strings[column].writeTo(out);
+        } else if (dates[column] != null) {
+          dates[column].writeTo(out);
+        } else {
+          statuses.writeTo(out);
+        }
+      }
+    }
+
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    /**
+     * @param column COL_ID, COL_NAME, COL_COMPANY, COL_PHONE, COL_EMAIL のいずれか
+     */
+    public StringColumn.View getStringColumn(int column) {
+      return strings[column];
+    }
+
+    /**
+     * @param column COL_REGISTERED または COL_LAST_PURCHASE
+     */
+    public DateColumn.View getDateColumn(int column) {
+      return dates[column];
+    }
+
+    public DictionaryColumn.View getStatusColumn() {
+      return statuses;
+    }
+  }
+
+  private static String stringAt(Object[] values, int column) {
+    if (column >= values.length || values[column] == null) {
+      return "";
+    }
+    return values[column].toString();
+  }
+}
@@ -0,0 +1,191 @@
+package undecorated;
+
+import java.awt.*;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.util.Arrays;
+import javax.swing.*;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * ダッシュボード画面
+ * 顧客データの件数を状態ごとに集計して表示する
+ * 集計は状態列のコードを数えるだけなので、読み込み中の連続した更新も 1 回にまとめて行う
+ * 行の追加では追加された行だけを数え、それ以外の変更があった場合だけ全体を数え直す
+ * 画面が表示されていない間（キャッシュされている間）は集計せず、次に表示された時に 1 回だけ行う
+ * 件数の表示はラベルの文字を書き換え、状態の種類が変わった時だけカードを作り直す
+ *
+ * その下に、MetricsSampler が 1 秒ごとに記録した読み込んだ行数・読み込みと検索の速さ・EDT の遅れ・
+ * ヒープの使用量を SweepChart で表示する
+ * 記録は MetricsSampler が持つので、画面が破棄（release）されても続き、開き直すと直近の記録から表示する
+ */
+public class DashboardView implements ViewRegistry.ModuleView, TableModelListener {
+  private final CustomerTableModel model;
+  private final MetricsSampler sampler;
+  private final JPanel panel;
+  private final JPanel cardPanel;
+  private final JLabel totalLabel;
+  private boolean updateScheduled;
+  // 表示されていない間に変更があったか
+  private boolean stale;
+  // 追加以外の変更があり、全体を数え直す必要があるか
+  private boolean recount = true;
+  // 状態のコードごとの件数と、数え終えた行数
+  private int[] counts = new int[0];
+  private int countedRows;
+  // 顧客数と、状態のコードごとの件数のラベル
+  private JLabel[] countLabels = new JLabel[0];
+  private final HierarchyListener showingListener = new HierarchyListener() {
+    @Override
+    public void hierarchyChanged(HierarchyEvent e) {
+      if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && panel.isShowing() && stale) {
+        refresh();
+      }
+    }
+  };
+
+  private final SweepChart[] charts;
+  private final Runnable sampleListener = this::sampleAdded;
+
+  /**
+   * @param sampler 表示する記録（画面より長く生きる）
+   */
+  public DashboardView(CustomerTableModel model, MetricsSampler sampler) {
+    this.model = model;
+    this.sampler = sampler;
+
+    panel = new JPanel(new BorderLayout());
+    panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+    JLabel titleLabel = new JLabel("ダッシュボード");
+    titleLabel.setFont(FontRegistry.bold(18));
+    titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+    panel.add(titleLabel, BorderLayout.NORTH);
+
+    cardPanel = new JPanel(new GridLayout(0, 4, 10, 10));
+    totalLabel = new JLabel();
+    charts = new SweepChart[] {
+        new SweepChart("顧客数", "件", 1, 0, sampler.getRowSeries()),
+        new SweepChart("読み込み", "件/秒", 1, 0, sampler.getLoadSeries()),
+        new SweepChart("検索", "回/秒", 1, 0, sampler.getSearchSeries()),
+        new SweepChart("EDT の遅れ", "ms", 1000, 1, sampler.getEdtSeries()),
+        new SweepChart("ヒープ", "MB", 1024 * 1024, 1, sampler.getHeapSeries()) };
+    JPanel chartPanel = new JPanel(new GridLayout(0, 2, 10, 10));
+    chartPanel.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
+    for (SweepChart chart : charts) {
+      chartPanel.add(chart);
+    }
+    JPanel top = new JPanel(new BorderLayout());
+    top.add(cardPanel, BorderLayout.NORTH);
+    top.add(chartPanel, BorderLayout.CENTER);
+    panel.add(new JScrollPane(top), BorderLayout.CENTER);
+    panel.add(totalLabel, BorderLayout.SOUTH);
+
+    model.addTableModelListener(this);
+    panel.addHierarchyListener(showingListener);
+    refresh();
+
+    sampler.addListener(sampleListener);
+  }
+
+  private void sampleAdded() {
+    for (SweepChart chart : charts) {
+      chart.sampleAdded();
+    }
+  }
+
+  @Override
+  public void tableChanged(TableModelEvent e) {
+    // CustomerTableModel の追加は末尾への追加だけなので、追加された行を数え足せばよい
+    if (e.getType() != TableModelEvent.INSERT) {
+      recount = true;
+    }
+    if (!panel.isShowing()) {
+      stale = true;
+      return;
+    }
+    if (updateScheduled) return;
+    updateScheduled = true;
+    SwingUtilities.invokeLater(() -> {
+      updateScheduled = false;
+      if (panel.isShowing()) {
+        refresh();
+      } else {
+        stale = true;
+      }
+    });
+  }
+
+  private void refresh() {
+    stale = false;
+    DictionaryColumn statuses = model.getStatusColumn();
+    int rows = statuses.size();
+    // 数える行のコードは、この時点の辞書の大きさより小さい
+    int dictionarySize = statuses.getDictionarySize();
+    boolean rebuild = recount || rows < countedRows;
+    if (rebuild) {
+      counts = new int[dictionarySize];
+      countedRows = 0;
+      recount = false;
+    } else if (counts.length < dictionarySize) {
+      counts = Arrays.copyOf(counts, dictionarySize);
+    }
+    for (int row = countedRows; row < rows; row++) {
+      counts[statuses.code(row)]++;
+    }
+    countedRows = rows;
+
+    if (rebuild || countLabels.length != counts.length + 1) {
+      // 状態の種類が変わったのでカードを作り直す
+      cardPanel.removeAll();
+      countLabels = new JLabel[counts.length + 1];
+      countLabels[0] = addCard("顧客数");
+      for (int code = 0; code < counts.length; code++) {
+        countLabels[code + 1] = addCard(statuses.decode(code));
+      }
+      cardPanel.revalidate();
+      cardPanel.repaint();
+    }
+    countLabels[0].setText(String.format("%,d", rows));
+    for (int code = 0; code < counts.length; code++) {
+      countLabels[code + 1].setText(String.format("%,d", counts[code]));
+    }
+    totalLabel.setText(String.format("データ量: 約 %.1f MB", model.estimatedBytes() / (1024.0 * 1024.0)));
+  }
+
+  // カードを追加し、件数のラベルを返す
+  private JLabel addCard(String title) {
+    JPanel card = new JPanel(new BorderLayout());
+    card.setBorder(BorderFactory.createCompoundBorder(
+        BorderFactory.createLineBorder(Color.LIGHT_GRAY),
+        BorderFactory.createEmptyBorder(8, 10, 8, 10)));
+    card.add(new JLabel(title.isEmpty() ? "（未設定）" : title), BorderLayout.NORTH);
+    JLabel countLabel = new JLabel();
+    countLabel.setFont(FontRegistry.bold(24));
+    card.add(countLabel, BorderLayout.CENTER);
+    cardPanel.add(card);
+    return countLabel;
+  }
+
+  @Override
+  public JComponent getComponent() {
+    return panel;
+  }
+
+  @Override
+  public long estimatedBytes() {
+    // 集計結果だけを持ち、データは顧客モデルが、記録した値は MetricsSampler が持つ
+    return 4 * 1024;
+  }
+
+  @Override
+  public void release() {
+    sampler.removeListener(sampleListener);
+    model.removeTableModelListener(this);
+    panel.removeHierarchyListener(showingListener);
+    cardPanel.removeAll();
+    countLabels = new JLabel[0];
+    counts = new int[0];
+  }
+}
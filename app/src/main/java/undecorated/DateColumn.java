@@ -0,0 +1,258 @@
+package undecorated;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 日付を 1970-01-01 からの日数（epoch day）の int で保持する列
+ * 空の日付は NULL_DAY で表し、文字列への変換は表示時にだけ行う
+ */
+public class DateColumn {
+  public static final int NULL_DAY = Integer.MIN_VALUE;
+
+  private int[] days = new int[16];
+  private int size;
+  // days をビューに渡したか（渡した後に書き換える時は複製する）
+  private boolean shared;
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * "yyyy-MM-dd" または "yyyy/MM/dd" 形式の日付を追加する
+   * 空文字・解釈できない値は空の日付になる
+   */
+  public void append(String value) {
+    appendDay(parse(value));
+  }
+
+  public void appendDay(int epochDay) {
+    if (size == days.length) {
+      days = Arrays.copyOf(days, days.length * 2);
+    }
+    days[size++] = epochDay;
+  }
+
+  public int getDay(int row) {
+    return days[row];
+  }
+
+  public String get(int row) {
+    return format(days[row]);
+  }
+
+  /**
+   * 行の日付を書き換える
+   * ビューを渡した後なら配列を複製してから書き換えるので、取得済みのビューの内容は変わらない
+   */
+  public void setDay(int row, int epochDay) {
+    Objects.checkIndex(row, size);
+    if (shared) {
+      days = days.clone();
+      shared = false;
+    }
+    days[row] = epochDay;
+  }
+
+  public void clear() {
+    // 既存のビューが参照している配列は書き換えない
+    days = new int[16];
+    size = 0;
+    shared = false;
+  }
+
+  /**
+   * 現時点までに追加された行の読み取り専用ビューを返す（配列はコピーしない）
+   */
+  public View view() {
+    shared = true;
+    return new View(days, size);
+  }
+
+  /**
+   * ビューの内容を列の内容にする（BulkEdit が別スレッドで作った列を EDT で差し替える）
+   */
+  void install(View view) {
+    days = view.days;
+    size = view.size;
+    shared = true;
+  }
+
+  /** 保持している配列のおおよそのヒープ使用量（バイト） */
+  public long estimatedBytes() {
+    return 16L + days.length * 4L;
+  }
+
+  /**
+   * 日付文字列を epoch day に変換する
+   * @return 空文字・不正な値の場合は NULL_DAY
+   */
+  public static int parse(CharSequence value) {
+    if (value == null || value.length() != 10) {
+      return NULL_DAY;
+    }
+    char separator = value.charAt(4);
+    if ((separator != '-' && separator != '/') || value.charAt(7) != separator) {
+      return NULL_DAY;
+    }
+    int year = digits(value, 0, 4);
+    int month = digits(value, 5, 7);
+    int day = digits(value, 8, 10);
+    // 2024-02-30 のような存在しない日付も、解釈できない値と同じく空の日付にする
+    if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+      return NULL_DAY;
+    }
+    return toEpochDay(year, month, day);
+  }
+
+  /** 月の日数（先発グレゴリオ暦のうるう年を含む） */
+  static int lengthOfMonth(int year, int month) {
+    switch (month) {
+      case 2:
+        return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+      case 4:
+      case 6:
+      case 9:
+      case 11:
+        return 30;
+      default:
+        return 31;
+    }
+  }
+
+  /**
+   * epoch day を "yyyy-MM-dd" に変換する
+   * @return NULL_DAY の場合は空文字
+   */
+  public static String format(int epochDay) {
+    if (epochDay == NULL_DAY) {
+      return "";
+    }
+    char[] chars = new char[10];
+    formatTo(epochDay, chars, 0);
+    return new String(chars);
+  }
+
+  /**
+   * epoch day を "yyyy-MM-dd" の 10 文字として書き込む
+   */
+  public static void formatTo(int epochDay, char[] out, int offset) {
+    int date = fromEpochDay(epochDay);
+    int year = date >>> 9;
+    int month = (date >>> 5) & 0xF;
+    int day = date & 0x1F;
+    out[offset] = (char) ('0' + year / 1000 % 10);
+    out[offset + 1] = (char) ('0' + year / 100 % 10);
+    out[offset + 2] = (char) ('0' + year / 10 % 10);
+    out[offset + 3] = (char) ('0' + year % 10);
+    out[offset + 4] = '-';
+    out[offset + 5] = (char) ('0' + month / 10);
+    out[offset + 6] = (char) ('0' + month % 10);
+    out[offset + 7] = '-';
+    out[offset + 8] = (char) ('0' + day / 10);
+    out[offset + 9] = (char) ('0' + day % 10);
+  }
+
+  /** 年月日から epoch day を求める（先発グレゴリオ暦） */
+  public static int toEpochDay(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = Math.floorDiv(y, 400);
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /**
+   * epoch day から年月日を求める
+   * @return (year << 9) | (month << 5) | day
+   */
+  public static int fromEpochDay(int epochDay) {
+    int z = epochDay + 719468;
+    int era = Math.floorDiv(z, 146097);
+    int dayOfEra = z - era * 146097;
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int mp = (5 * dayOfYear + 2) / 153;
+    int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+    int month = mp < 10 ? mp + 3 : mp - 9;
+    int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return (year << 9) | (month << 5) | day;
+  }
+
+  private static int digits(CharSequence value, int from, int to) {
+    int result = 0;
+    for (int i = from; i < to; i++) {
+      char c = value.charAt(i);
+      if (c < '0' || c > '9') {
+        return -1;
+      }
+      result = result * 10 + (c - '0');
+    }
+    return result;
+  }
+
+  /**
+   * 列のある時点での読み取り専用ビュー
+   */
+  public static final class View {
+    private final int[] days;
+    private final int size;
+
+    private View(int[] days, int size) {
+      this.days = days;
+      this.size = size;
+    }
+
+    /**
+     * スナップショットのファイルから読む（writeTo の形式）
+     */
+    static View readFrom(ByteBuffer in) {
+      int size = SnapshotCache.readLength(in, 4);
+      // 読み込んだ後も追加できるように最低限の容量を持たせる
+      int[] days = new int[Math.max(size, 16)];
+      in.asIntBuffer().get(days, 0, size);
+      in.position(in.position() + size * 4);
+      return new View(days, size);
+    }
+
+    /**
+     * writeTo で書くバイト数
+     */
+    long byteSize() {
+      return 4L + 4L * size;
+    }
+
+    /**
+     * スナップショットのファイルに書く（行数、epoch day の並び）
+     */
+    void writeTo(SnapshotCache.Output out) throws IOException {
+      out.putInt(size);
+      out.putInts(days, 0, size);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public int getDay(int row) {
+      return days[row];
+    }
+
+    /**
+     * 指定した行の日付を置き換えた新しいビューを返す（このビューは変わらない）
+     * @param rows 置き換える行（昇順・重複なし）
+     * @param newDays rows[i] の新しい epoch day
+     */
+    View withDays(int[] rows, int[] newDays) {
+      int[] copy = days.clone();
+      for (int i = 0; i < rows.length; i++) {
+        copy[rows[i]] = newDays[i];
+      }
+      return new View(copy, size);
+    }
+  }
+}
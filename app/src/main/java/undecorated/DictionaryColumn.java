@@ -0,0 +1,252 @@
+package undecorated;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * 種類の少ない文字列（ステータスなど）を辞書化し、行ごとには 2 バイトのコードだけを持つ列
+ */
+public class DictionaryColumn {
+  private static final int MAX_DICTIONARY_SIZE = 1 << 16;
+
+  private String[] dictionary = new String[8];
+  private final Map<String, Integer> codeByValue = new HashMap<>();
+  private int dictionarySize;
+
+  private short[] codes = new short[16];
+  private int size;
+  // codes をビューに渡したか（渡した後に書き換える時は複製する）
+  private boolean shared;
+
+  public int size() {
+    return size;
+  }
+
+  public void append(String value) {
+    if (size == codes.length) {
+      codes = Arrays.copyOf(codes, codes.length * 2);
+    }
+    codes[size++] = (short) encode(value);
+  }
+
+  public String get(int row) {
+    return dictionary[code(row)];
+  }
+
+  /**
+   * 行の値を書き換える
+   * ビューを渡した後ならコードの配列を複製してから書き換えるので、取得済みのビューの内容は変わらない
+   */
+  public void set(int row, String value) {
+    Objects.checkIndex(row, size);
+    int code = encode(value);
+    if (shared) {
+      codes = codes.clone();
+      shared = false;
+    }
+    codes[row] = (short) code;
+  }
+
+  /** 行の辞書コード */
+  public int code(int row) {
+    return codes[row] & 0xFFFF;
+  }
+
+  /**
+   * 値に対応する辞書コードを返す。未登録なら辞書に追加する
+   */
+  public int encode(String value) {
+    if (value == null) {
+      value = "";
+    }
+    Integer code = codeByValue.get(value);
+    if (code != null) {
+      return code;
+    }
+    if (dictionarySize == MAX_DICTIONARY_SIZE) {
+      throw new IllegalStateException("辞書の上限（" + MAX_DICTIONARY_SIZE + " 種類）を超えました");
+    }
+    if (dictionarySize == dictionary.length) {
+      dictionary = Arrays.copyOf(dictionary, dictionary.length * 2);
+    }
+    dictionary[dictionarySize] = value;
+    codeByValue.put(value, dictionarySize);
+    return dictionarySize++;
+  }
+
+  /** 辞書コードに対応する値 */
+  public String decode(int code) {
+    return dictionary[code];
+  }
+
+  public int getDictionarySize() {
+    return dictionarySize;
+  }
+
+  public void clear() {
+    // 既存のビューが参照している配列は書き換えない
+    codes = new short[16];
+    size = 0;
+    shared = false;
+  }
+
+  /**
+   * 現時点までに追加された行の読み取り専用ビューを返す（配列はコピーしない）
+   * 辞書は追加しかされないので、登録済みのコードの値は変わらない
+   */
+  public View view() {
+    shared = true;
+    return new View(codes, size, dictionary, dictionarySize);
+  }
+
+  /**
+   * ビューの辞書とコードで列の内容を置き換える（スナップショットのファイルから読み込んだ時）
+   */
+  void load(View view) {
+    dictionary = Arrays.copyOf(view.dictionary, Math.max(8, view.dictionarySize));
+    dictionarySize = view.dictionarySize;
+    codeByValue.clear();
+    for (int code = 0; code < dictionarySize; code++) {
+      codeByValue.put(dictionary[code], code);
+    }
+    codes = view.codes;
+    size = view.size;
+    shared = true;
+  }
+
+  /**
+   * 辞書だけを複製した行のない列を返す（BulkEdit が新しい値を encode するのに使う）
+   */
+  DictionaryColumn copyDictionary() {
+    DictionaryColumn copy = new DictionaryColumn();
+    copy.dictionary = dictionary.clone();
+    copy.dictionarySize = dictionarySize;
+    copy.codeByValue.putAll(codeByValue);
+    return copy;
+  }
+
+  /**
+   * ビューのコードを列の内容にする（BulkEdit が別スレッドで作った列を EDT で差し替える）
+   * ビューの辞書はこの列の辞書か、copyDictionary() の複製に値を追加したものであること
+   * 追加された値はこの列の辞書にも登録する
+   */
+  void install(View view) {
+    if (view.dictionarySize > dictionarySize) {
+      dictionary = Arrays.copyOf(view.dictionary, Math.max(dictionary.length, view.dictionarySize));
+      for (int code = dictionarySize; code < view.dictionarySize; code++) {
+        codeByValue.put(dictionary[code], code);
+      }
+      dictionarySize = view.dictionarySize;
+    }
+    codes = view.codes;
+    size = view.size;
+    shared = true;
+  }
+
+  /** 保持している配列のおおよそのヒープ使用量（バイト） */
+  public long estimatedBytes() {
+    return 16L + codes.length * 2L + 16L + dictionary.length * 4L;
+  }
+
+  /**
+   * 列のある時点での読み取り専用ビュー
+   */
+  public static final class View {
+    private final short[] codes;
+    private final int size;
+    private final String[] dictionary;
+    private final int dictionarySize;
+
+    private View(short[] codes, int size, String[] dictionary, int dictionarySize) {
+      this.codes = codes;
+      this.size = size;
+      this.dictionary = dictionary;
+      this.dictionarySize = dictionarySize;
+    }
+
+    /**
+     * スナップショットのファイルから読む（writeTo の形式）
+     */
+    static View readFrom(ByteBuffer in) {
+      int size = SnapshotCache.readLength(in, 2);
+      int dictionarySize = SnapshotCache.readLength(in, 4);
+      if (dictionarySize > MAX_DICTIONARY_SIZE) {
+        throw new SnapshotCache.CorruptSnapshotException("辞書が大きすぎます: " + dictionarySize);
+      }
+      String[] dictionary = new String[dictionarySize];
+      for (int code = 0; code < dictionarySize; code++) {
+        dictionary[code] = SnapshotCache.readString(in);
+      }
+      short[] codes = new short[Math.max(size, 16)];
+      if ((long) size * 2 > in.remaining()) {
+        throw new SnapshotCache.CorruptSnapshotException("コードが足りません");
+      }
+      in.asShortBuffer().get(codes, 0, size);
+      in.position(in.position() + size * 2);
+      for (int row = 0; row < size; row++) {
+        if ((codes[row] & 0xFFFF) >= dictionarySize) {
+          throw new SnapshotCache.CorruptSnapshotException("辞書にないコードです: " + row);
+        }
+      }
+      return new View(codes, size, dictionary, dictionarySize);
+    }
+
+    /**
+     * writeTo で書くバイト数
+     */
+    long byteSize() {
+      long bytes = 8L + 2L * size;
+      for (int code = 0; code < dictionarySize; code++) {
+        bytes += 4 + dictionary[code].getBytes(StandardCharsets.UTF_8).length;
+      }
+      return bytes;
+    }
+
+    /**
+     * スナップショットのファイルに書く（行数、辞書の大きさ、辞書の値、コードの並び）
+     */
+    void writeTo(SnapshotCache.Output out) throws IOException {
+      out.putInt(size);
+      out.putInt(dictionarySize);
+      for (int code = 0; code < dictionarySize; code++) {
+        out.putString(dictionary[code]);
+      }
+      out.putShorts(codes, 0, size);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public int code(int row) {
+      return codes[row] & 0xFFFF;
+    }
+
+    public String decode(int code) {
+      return dictionary[code];
+    }
+
+    public int getDictionarySize() {
+      return dictionarySize;
+    }
+
+    /**
+     * 指定した行のコードを置き換えた新しいビューを返す（このビューは変わらない）
+     * @param rows 置き換える行（昇順・重複なし）
+     * @param newCodes rows[i] の新しい辞書コード（encode 済みのもの）
+     * @param dictionary 新しいコードを含む辞書のビュー
+     */
+    View withCodes(int[] rows, int[] newCodes, View dictionary) {
+      short[] copy = codes.clone();
+      for (int i = 0; i < rows.length; i++) {
+        copy[rows[i]] = (short) newCodes[i];
+      }
+      return new View(copy, size, dictionary.dictionary, dictionary.dictionarySize);
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package undecorated;
+
+import java.awt.*;
+import java.awt.event.*;
+import javax.swing.JComponent;
+
+/**
+ * EDT で処理されるイベントの処理時間を計測するモニター
+ * システムのイベントキューを差し替え、固定サイズのヒストグラムへ記録する
+ * ヒストグラムは送り先のコンポーネントの分類（CATEGORY_*）ごとと、
+ * イベントの種類（TYPE_*）と分類の組ごとに持つ（組ごとのものは初めて記録する時に作る）
+ * 分類は処理中に tagCurrentEvent で指定されたものを優先し、なければ送り先のコンポーネントから決める
+ * （枠の操作ではマウスイベントの送り先がフレームになるので、WindowChromeDispatcher が領域から指定する）
+ * 1 回の処理がしきい値を超えた場合は、監視スレッドが EDT のスタックを採取して出力する
+ *
+ * 有効化: -Dedt.monitor=true（既定で有効）
+ * しきい値: -Dedt.monitor.stallMillis=200
+ */
+public class EdtMonitor {
+  /** コンポーネントにこのクライアントプロパティで CATEGORY_* を設定すると、その分類で集計する */
+  public static final String CATEGORY_KEY = "EdtMonitor.category";
+
+  public static final int CATEGORY_DRAG = 0;
+  public static final int CATEGORY_RESIZE = 1;
+  public static final int CATEGORY_TABLE = 2;
+  public static final int CATEGORY_INPUT = 3;
+  public static final int CATEGORY_INVOCATION = 4;
+  public static final int CATEGORY_OTHER = 5;
+  private static final String[] CATEGORY_NAMES = { "ドラッグ", "リサイズ", "テーブル", "入力", "invokeLater", "その他" };
+
+  public static final int TYPE_MOUSE_BUTTON = 0;
+  public static final int TYPE_MOUSE_MOTION = 1;
+  public static final int TYPE_MOUSE_WHEEL = 2;
+  public static final int TYPE_KEY = 3;
+  public static final int TYPE_FOCUS = 4;
+  public static final int TYPE_PAINT = 5;
+  public static final int TYPE_INVOCATION = 6;
+  public static final int TYPE_OTHER = 7;
+  private static final String[] TYPE_NAMES = {
+      "マウスボタン", "マウス移動", "ホイール", "キー", "フォーカス・ウィンドウ", "描画", "invokeLater", "その他" };
+
+  private static volatile EdtMonitor instance;
+
+  private final LatencyHistogram[] histograms = new LatencyHistogram[CATEGORY_NAMES.length];
+  // [イベントの種類][分類]（記録のない組は null）
+  private final LatencyHistogram[][] typeHistograms = new LatencyHistogram[TYPE_NAMES.length][CATEGORY_NAMES.length];
+  private final long stallThresholdNanos;
+  // 処理中のイベントに tagCurrentEvent で指定された分類（なければ -1。EDT でのみ使用）
+  private int taggedCategory = -1;
+
+  // 監視スレッドから読む値
+  private volatile long dispatchStartNanos;
+  private volatile AWTEvent currentEvent;
+  private volatile Thread dispatchThread;
+  private volatile long stallCount;
+  private volatile StackTraceElement[] lastStallStack;
+  private volatile String lastStallEvent;
+
+  private EdtMonitor(long stallThresholdMillis) {
+    for (int i = 0; i < histograms.length; i++) {
+      histograms[i] = new LatencyHistogram();
+    }
+    this.stallThresholdNanos = stallThresholdMillis * 1_000_000L;
+  }
+
+  /**
+   * システムプロパティで無効化されていなければモニターを組み込む
+   * イベントが処理される前（main の最初）に呼ぶこと
+   * @return 組み込んだモニター。無効なら null
+   */
+  public static synchronized EdtMonitor install() {
+    if (instance != null) {
+      return instance;
+    }
+    if (!Boolean.parseBoolean(System.getProperty("edt.monitor", "true"))) {
+      return null;
+    }
+    EdtMonitor monitor = new EdtMonitor(Long.getLong("edt.monitor.stallMillis", 200));
+    Toolkit.getDefaultToolkit().getSystemEventQueue().push(monitor.new MonitoringEventQueue());
+    monitor.startWatchdog();
+    instance = monitor;
+    return monitor;
+  }
+
+  /** 組み込み済みのモニター。未使用なら null */
+  public static EdtMonitor getInstance() {
+    return instance;
+  }
+
+  /**
+   * 処理中のイベントの分類を指定する（EDT から呼ぶ。モニターを組み込んでいなければ何もしない）
+   * キューから取り出したイベントの処理の中で呼べば、送り先が別のコンポーネントに変わったイベントの中からでも
+   * 取り出したイベントの分類になる
+   * @param category CATEGORY_*
+   */
+  public static void tagCurrentEvent(int category) {
+    EdtMonitor monitor = instance;
+    if (monitor != null) {
+      monitor.taggedCategory = category;
+    }
+  }
+
+  /**
+   * 分類ごとのヒストグラムを返す（EDT から参照すること）
+   */
+  public LatencyHistogram getHistogram(int category) {
+    return histograms[category];
+  }
+
+  public static String getCategoryName(int category) {
+    return CATEGORY_NAMES[category];
+  }
+
+  /**
+   * イベントの種類と分類の組のヒストグラムを返す（EDT から参照すること）
+   * @return 記録がなければ null
+   */
+  public LatencyHistogram getHistogram(int type, int category) {
+    return typeHistograms[type][category];
+  }
+
+  public static String getTypeName(int type) {
+    return TYPE_NAMES[type];
+  }
+
+  public long getStallCount() {
+    return stallCount;
+  }
+
+  /** 最後に検出した停止時の EDT のスタック。まだなければ null */
+  public StackTraceElement[] getLastStallStack() {
+    return lastStallStack;
+  }
+
+  public String getLastStallEvent() {
+    return lastStallEvent;
+  }
+
+  /**
+   * ドラッグ・リサイズ・テーブルの p50/p99 を 1 行にまとめる（EDT から呼ぶこと）
+   */
+  public String formatSummary() {
+    StringBuilder builder = new StringBuilder("EDT p50/p99");
+    for (int category = CATEGORY_DRAG; category <= CATEGORY_TABLE; category++) {
+      LatencyHistogram histogram = histograms[category];
+      builder.append("  ").append(CATEGORY_NAMES[category]).append(' ');
+      appendMillis(builder, histogram.percentile(50));
+      builder.append('/');
+      appendMillis(builder, histogram.percentile(99));
+      builder.append("ms");
+    }
+    if (stallCount > 0) {
+      builder.append("  停止 ").append(stallCount);
+    }
+    return builder.toString();
+  }
+
+  /**
+   * 記録のあるイベントの種類と分類の組ごとに、件数と p50/p99/最大を 1 行ずつまとめる（EDT から呼ぶこと）
+   */
+  public String formatDetails() {
+    StringBuilder builder = new StringBuilder();
+    for (int type = 0; type < TYPE_NAMES.length; type++) {
+      for (int category = 0; category < CATEGORY_NAMES.length; category++) {
+        LatencyHistogram histogram = typeHistograms[type][category];
+        if (histogram == null) continue;
+        builder.append("  ").append(TYPE_NAMES[type]).append(" / ").append(CATEGORY_NAMES[category])
+            .append(" n=").append(histogram.getCount()).append(' ');
+        appendMillis(builder, histogram.percentile(50));
+        builder.append('/');
+        appendMillis(builder, histogram.percentile(99));
+        builder.append('/');
+        appendMillis(builder, histogram.getMaxMicros());
+        builder.append("ms\n");
+      }
+    }
+    return builder.toString();
+  }
+
+  private static void appendMillis(StringBuilder builder, long micros) {
+    builder.append(micros / 1000).append('.').append(micros / 100 % 10);
+  }
+
+  private void startWatchdog() {
+    Thread watchdog = new Thread(this::watch, "edt-watchdog");
+    watchdog.setDaemon(true);
+    watchdog.setPriority(Thread.MAX_PRIORITY);
+    watchdog.start();
+  }
+
+  // しきい値の半分ごとに EDT の処理開始時刻を確認し、1 回の停止につき 1 度だけスタックを採取する
+  private void watch() {
+    long sleepMillis = Math.max(1, stallThresholdNanos / 2_000_000L);
+    long reportedStart = 0;
+    while (true) {
+      try {
+        Thread.sleep(sleepMillis);
+      } catch (InterruptedException e) {
+        return;
+      }
+      long start = dispatchStartNanos;
+      Thread thread = dispatchThread;
+      if (start == 0 || start == reportedStart || thread == null) continue;
+      long elapsed = System.nanoTime() - start;
+      if (elapsed < stallThresholdNanos) continue;
+      reportedStart = start;
+      StackTraceElement[] stack = thread.getStackTrace();
+      AWTEvent event = currentEvent;
+      lastStallEvent = event == null ? "" : event.paramString() + " on " + event.getSource().getClass().getName();
+      lastStallStack = stack;
+      stallCount++;
+      report(elapsed, stack);
+    }
+  }
+
+  private void report(long elapsedNanos, StackTraceElement[] stack) {
+    StringBuilder builder = new StringBuilder();
+    builder.append("EDT が ").append(elapsedNanos / 1_000_000).append(" ms 以上応答していません: ")
+        .append(lastStallEvent).append('\n');
+    for (StackTraceElement element : stack) {
+      builder.append("\tat ").append(element).append('\n');
+    }
+    System.err.print(builder);
+  }
+
+  static int typeOf(AWTEvent event) {
+    int id = event.getID();
+    if (event instanceof InvocationEvent) {
+      return TYPE_INVOCATION;
+    }
+    if (id == MouseEvent.MOUSE_WHEEL) {
+      return TYPE_MOUSE_WHEEL;
+    }
+    if (id == MouseEvent.MOUSE_PRESSED || id == MouseEvent.MOUSE_RELEASED || id == MouseEvent.MOUSE_CLICKED) {
+      return TYPE_MOUSE_BUTTON;
+    }
+    if (id >= MouseEvent.MOUSE_FIRST && id <= MouseEvent.MOUSE_LAST) {
+      return TYPE_MOUSE_MOTION;
+    }
+    if (id >= KeyEvent.KEY_FIRST && id <= KeyEvent.KEY_LAST) {
+      return TYPE_KEY;
+    }
+    if ((id >= FocusEvent.FOCUS_FIRST && id <= FocusEvent.FOCUS_LAST)
+        || (id >= WindowEvent.WINDOW_FIRST && id <= WindowEvent.WINDOW_LAST)) {
+      return TYPE_FOCUS;
+    }
+    if (id >= PaintEvent.PAINT_FIRST && id <= PaintEvent.PAINT_LAST) {
+      return TYPE_PAINT;
+    }
+    return TYPE_OTHER;
+  }
+
+  static int categorize(AWTEvent event) {
+    if (event instanceof InvocationEvent) {
+      return CATEGORY_INVOCATION;
+    }
+    if (!(event instanceof InputEvent)) {
+      return CATEGORY_OTHER;
+    }
+    Object source = event.getSource();
+    for (Component component = source instanceof Component ? (Component) source : null;
+        component != null; component = component.getParent()) {
+      if (component instanceof JComponent) {
+        Object category = ((JComponent) component).getClientProperty(CATEGORY_KEY);
+        if (category instanceof Integer) {
+          return (Integer) category;
+        }
+      }
+    }
+    return CATEGORY_INPUT;
+  }
+
+  // EDT でのみ呼ぶ
+  private void record(AWTEvent event, long micros, int tagged) {
+    int category = tagged >= 0 ? tagged : categorize(event);
+    histograms[category].record(micros);
+    LatencyHistogram[] byCategory = typeHistograms[typeOf(event)];
+    if (byCategory[category] == null) {
+      byCategory[category] = new LatencyHistogram();
+    }
+    byCategory[category].record(micros);
+  }
+
+  /**
+   * イベントごとの処理時間を計測するイベントキュー
+   */
+  private final class MonitoringEventQueue extends EventQueue {
+    // 処理中のイベントの中で別のイベントが処理されたか（EDT でのみ使用）
+    private boolean nested;
+
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+      Thread thread = Thread.currentThread();
+      if (dispatchThread != thread) {
+        dispatchThread = thread;
+      }
+      boolean hasOuter = dispatchStartNanos != 0;
+      AWTEvent outerEvent = currentEvent;
+      int outerTag = taggedCategory;
+      taggedCategory = -1;
+      long start = System.nanoTime();
+      currentEvent = event;
+      dispatchStartNanos = start;
+      nested = false;
+      try {
+        super.dispatchEvent(event);
+      } finally {
+        long end = System.nanoTime();
+        // モーダルダイアログなどで入れ子のディスパッチを含んだ処理は待ち時間を含むので記録しない
+        if (!nested) {
+          record(event, (end - start) / 1000, taggedCategory);
+        }
+        taggedCategory = outerTag;
+        nested = hasOuter;
+        currentEvent = outerEvent;
+        dispatchStartNanos = hasOuter ? end : 0;
+      }
+    }
+  }
+}
@@ -0,0 +1,238 @@
+package undecorated;
+
+import java.util.BitSet;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * ファセットの絞り込みと検索結果を合わせて、テーブルに表示する行を決めるコントローラー
+ *
+ * FacetIndex の登録と絞り込みは専用のスレッドで順番に行い、EDT では結果の適用だけを行う
+ * 結果は表示する行のビットマップと、モデルの行番号の昇順の配列（IndexedRowSorter がそのまま表示の行にする）、
+ * 各ファセットの値の件数で、新しい条件が届いていれば古い条件の結果は適用しない
+ * 表示する行を先に EDT へ渡してから件数を数えるので、件数の計算を待たずにテーブルが更新される
+ * 絞り込みなしのまま変わらない場合（条件のないまま行が追加された場合など）は、表示する行を渡し直さない
+ * 検索結果（SearchController から受け取る行ビットマップ）も条件の 1 つとして積をとる
+ */
+public class FacetController implements TableModelListener {
+  /**
+   * 絞り込みの結果（EDT に渡した後は変わらない）
+   */
+  public static final class Result {
+    private final FacetIndex.Query query;
+    private final BitSet rows;
+    private final int[] modelRows;
+    private final FacetIndex.Counts counts;
+    private final int indexedRows;
+    private final double millis;
+
+    Result(FacetIndex.Query query, BitSet rows, int[] modelRows, FacetIndex.Counts counts, int indexedRows,
+        double millis) {
+      this.query = query;
+      this.rows = rows;
+      this.modelRows = modelRows;
+      this.counts = counts;
+      this.indexedRows = indexedRows;
+      this.millis = millis;
+    }
+
+    public FacetIndex.Query getQuery() {
+      return query;
+    }
+
+    /** 表示する行（null は絞り込みなし） */
+    public BitSet getRows() {
+      return rows;
+    }
+
+    /** 表示する行のモデルの行番号（昇順、絞り込みなしなら null） */
+    public int[] getModelRows() {
+      return modelRows;
+    }
+
+    public FacetIndex.Counts getCounts() {
+      return counts;
+    }
+
+    /** 表示する行数 */
+    public int getMatchCount() {
+      return modelRows == null ? indexedRows : modelRows.length;
+    }
+
+    public int getIndexedRows() {
+      return indexedRows;
+    }
+
+    /** 絞り込みと件数の計算にかかった時間 */
+    public double getMillis() {
+      return millis;
+    }
+  }
+
+  /**
+   * 表示する行を受け取る（EDT で呼ばれる）
+   */
+  public interface RowSink {
+    /**
+     * @param rows 表示する行（null は絞り込みなし）
+     * @param modelRows rows のモデルの行番号の昇順の配列（rows が null なら null）
+     */
+    void setRows(BitSet rows, int[] modelRows);
+  }
+
+  private final CustomerTableModel model;
+  private final RowSink rowSink;
+  private final Consumer<Result> resultSink;
+  private final FacetIndex index = new FacetIndex();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "facet-index");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // 以下は EDT でのみ読み書きする
+  private FacetIndex.Query query = FacetIndex.Query.EMPTY;
+  private BitSet searchRows;
+  private Result lastResult;
+  // rowSink に最後に渡した行が絞り込みありか
+  private boolean filtered;
+
+  // 最新の条件の番号（専用スレッドで古い条件の計算を省くのにも使う）
+  private volatile int generation;
+
+  // 計測値（専用スレッドで更新する）
+  private volatile long evaluationCount;
+  private volatile long skippedCount;
+  private volatile double lastMillis;
+  private volatile double maxMillis;
+  private volatile double lastIndexMillis;
+  private volatile long indexBytes;
+
+  /**
+   * @param rowSink 表示する行の通知先
+   * @param resultSink 件数などの結果の通知先。EDT で呼ばれる
+   */
+  public FacetController(CustomerTableModel model, RowSink rowSink, Consumer<Result> resultSink) {
+    this.model = model;
+    this.rowSink = rowSink;
+    this.resultSink = resultSink;
+    model.addTableModelListener(this);
+    indexNewRows(true);
+  }
+
+  @Override
+  public void tableChanged(TableModelEvent e) {
+    if (e.getType() == TableModelEvent.INSERT) {
+      indexNewRows(false);
+    } else if (e.getFirstRow() == TableModelEvent.HEADER_ROW || e.getLastRow() == Integer.MAX_VALUE
+        || isFacetColumn(e.getColumn()) || e.getType() == TableModelEvent.DELETE) {
+      // clear() などで全体が変わった場合や、ファセットの列が書き換えられた場合は作り直す
+      indexNewRows(true);
+    }
+  }
+
+  private static boolean isFacetColumn(int column) {
+    if (column == TableModelEvent.ALL_COLUMNS) return true;
+    for (int facetColumn : FacetIndex.GROUP_COLUMNS) {
+      if (facetColumn == column) return true;
+    }
+    return false;
+  }
+
+  /**
+   * 条件を変えて絞り込む（EDT から呼ぶ）
+   */
+  public void setQuery(FacetIndex.Query query) {
+    if (query == this.query) return;
+    this.query = query;
+    submit();
+  }
+
+  public FacetIndex.Query getQuery() {
+    return query;
+  }
+
+  /**
+   * 検索結果を条件に加える（EDT から呼ぶ。SearchController の結果の通知先）
+   * @param rows 検索に一致した行（null は検索なし）
+   */
+  public void setSearchRows(BitSet rows) {
+    searchRows = rows;
+    submit();
+  }
+
+  /** 最後に適用した結果（まだなければ null） */
+  public Result getLastResult() {
+    return lastResult;
+  }
+
+  public String formatStats() {
+    return String.format(Locale.ROOT,
+        "facets evaluations=%d skipped=%d last=%.3fms max=%.3fms index=%.1fms %,dKB",
+        evaluationCount, skippedCount, lastMillis, maxMillis, lastIndexMillis, indexBytes / 1024);
+  }
+
+  // モデルに追加された行を登録する（EDT でスナップショットを取ってから渡す）
+  private void indexNewRows(boolean reset) {
+    CustomerTableModel.Snapshot snapshot = model.snapshot();
+    int rowCount = snapshot.getRowCount();
+    executor.execute(() -> {
+      long start = System.nanoTime();
+      if (reset) {
+        index.clear();
+      }
+      index.addRows(snapshot, rowCount);
+      lastIndexMillis = (System.nanoTime() - start) / 1_000_000.0;
+      indexBytes = index.estimatedBytes();
+    });
+    // 追加された行にも条件を適用し、件数を更新する
+    submit();
+  }
+
+  private void submit() {
+    int queryGeneration = ++generation;
+    FacetIndex.Query currentQuery = query;
+    BitSet currentSearch = searchRows;
+    executor.execute(() -> {
+      if (queryGeneration != generation) {
+        // 後から新しい条件が届いているので、そちらだけを計算する
+        skippedCount++;
+        return;
+      }
+      long start = System.nanoTime();
+      RowBitmap search = currentSearch == null ? null : RowBitmap.fromBitSet(currentSearch);
+      RowBitmap matched = index.evaluate(currentQuery, search);
+      BitSet rows = matched == null ? null : matched.toBitSet();
+      int[] modelRows = matched == null ? null : matched.toArray();
+      SwingUtilities.invokeLater(() -> {
+        if (queryGeneration != generation) return;
+        if (rows == null && !filtered) return;
+        filtered = rows != null;
+        rowSink.setRows(rows, modelRows);
+      });
+      // 件数は表示する行を渡した後に、同じスレッドの次の処理として数える
+      executor.execute(() -> {
+        if (queryGeneration != generation) {
+          skippedCount++;
+          return;
+        }
+        FacetIndex.Counts counts = index.count(currentQuery, search);
+        double millis = (System.nanoTime() - start) / 1_000_000.0;
+        evaluationCount++;
+        lastMillis = millis;
+        maxMillis = Math.max(maxMillis, millis);
+        Result result = new Result(currentQuery, rows, modelRows, counts, index.getIndexedRows(), millis);
+        SwingUtilities.invokeLater(() -> {
+          if (queryGeneration != generation) return;
+          lastResult = result;
+          resultSink.accept(result);
+        });
+      });
+    });
+  }
+}
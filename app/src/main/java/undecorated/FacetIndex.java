@@ -0,0 +1,350 @@
+package undecorated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 顧客テーブルのファセット（ステータス・登録月・購入の有無）ごとの行の圧縮ビットマップ
+ *
+ * ファセットの値ごとに、その値を持つ行の RowBitmap を持つ
+ * 絞り込みは、グループの中で選んだ値の和（OR）をとり、除外するグループはすべての行との差（NOT）にして、
+ * グループどうしの積（AND）をとる。行ごとに値を取り出して条件を判定することはしない
+ * 件数は、そのグループ以外の条件（と検索結果）との積の行数を数えるので、
+ * どの値を選び足すと何件になるかが分かる
+ *
+ * 行はモデルへの追加に合わせて先頭から順に登録する
+ * スレッドセーフではない。登録と絞り込みは同じスレッドから呼ぶこと（FacetController の専用スレッド）
+ */
+public class FacetIndex {
+  public static final int STATUS = 0;
+  public static final int REGISTERED_MONTH = 1;
+  public static final int PURCHASE = 2;
+  public static final String[] GROUP_NAMES = { "ステータス", "登録月", "購入" };
+  /** グループに対応するテーブルの列 */
+  public static final int[] GROUP_COLUMNS = {
+      CustomerTableModel.COL_STATUS, CustomerTableModel.COL_REGISTERED, CustomerTableModel.COL_LAST_PURCHASE };
+
+  /** 登録日が空の行の登録月のキー */
+  public static final int NO_MONTH = Integer.MIN_VALUE;
+  public static final int PURCHASED = 1;
+  public static final int NOT_PURCHASED = 0;
+
+  /**
+   * ファセットの 1 つの値
+   */
+  private static final class Value {
+    final int key;
+    final String label;
+    final RowBitmap rows = new RowBitmap();
+
+    Value(int key, String label) {
+      this.key = key;
+      this.label = label;
+    }
+  }
+
+  /**
+   * 1 つのグループの値（表示する順に並べる）
+   */
+  private static final class Group {
+    final Map<Integer, Value> byKey = new HashMap<>();
+    final List<Value> values = new ArrayList<>();
+    final boolean descending;
+    // 最後に使った値（同じ値が続く場合に Map を引かない）
+    Value last;
+
+    Group(boolean descending) {
+      this.descending = descending;
+    }
+
+    Value get(int key) {
+      if (last != null && last.key == key) return last;
+      last = byKey.get(key);
+      return last;
+    }
+
+    Value add(int key, String label) {
+      Value value = new Value(key, label);
+      byKey.put(key, value);
+      values.add(value);
+      values.sort((a, b) -> descending ? Integer.compare(b.key, a.key) : Integer.compare(a.key, b.key));
+      last = value;
+      return value;
+    }
+  }
+
+  /**
+   * 絞り込みの条件（作成後は変わらない）
+   * グループごとに選んだ値のキーと、そのグループを除外（NOT）にするかを持つ
+   * 値を選んでいないグループは条件に含めない
+   */
+  public static final class Query {
+    public static final Query EMPTY = new Query(new int[GROUP_NAMES.length][], new boolean[GROUP_NAMES.length]);
+
+    private final int[][] selected;
+    private final boolean[] excluded;
+
+    private Query(int[][] selected, boolean[] excluded) {
+      for (int group = 0; group < selected.length; group++) {
+        if (selected[group] == null) {
+          selected[group] = new int[0];
+        }
+      }
+      this.selected = selected;
+      this.excluded = excluded;
+    }
+
+    public boolean isSelected(int group, int key) {
+      for (int selectedKey : selected[group]) {
+        if (selectedKey == key) return true;
+      }
+      return false;
+    }
+
+    public int[] getSelected(int group) {
+      return selected[group].clone();
+    }
+
+    public boolean isExcluded(int group) {
+      return excluded[group];
+    }
+
+    /** どのグループでも値を選んでいなければ true */
+    public boolean isEmpty() {
+      for (int[] keys : selected) {
+        if (keys.length > 0) return false;
+      }
+      return true;
+    }
+
+    /** 値の選択を切り替えた条件を返す */
+    public Query with(int group, int key, boolean select) {
+      if (isSelected(group, key) == select) return this;
+      int[][] keys = selected.clone();
+      int[] current = selected[group];
+      if (select) {
+        keys[group] = Arrays.copyOf(current, current.length + 1);
+        keys[group][current.length] = key;
+      } else {
+        keys[group] = Arrays.stream(current).filter(k -> k != key).toArray();
+      }
+      return new Query(keys, excluded.clone());
+    }
+
+    /** グループの除外を切り替えた条件を返す */
+    public Query withExcluded(int group, boolean exclude) {
+      if (excluded[group] == exclude) return this;
+      boolean[] flags = excluded.clone();
+      flags[group] = exclude;
+      return new Query(selected.clone(), flags);
+    }
+
+    /** グループの選択と除外を取り消した条件を返す */
+    public Query cleared(int group) {
+      int[][] keys = selected.clone();
+      keys[group] = new int[0];
+      boolean[] flags = excluded.clone();
+      flags[group] = false;
+      return new Query(keys, flags);
+    }
+  }
+
+  /**
+   * 各グループの値と件数（作成後は変わらない）
+   */
+  public static final class Counts {
+    private final int[][] keys;
+    private final String[][] labels;
+    private final int[][] counts;
+
+    private Counts(int[][] keys, String[][] labels, int[][] counts) {
+      this.keys = keys;
+      this.labels = labels;
+      this.counts = counts;
+    }
+
+    public int size(int group) {
+      return keys[group].length;
+    }
+
+    public int getKey(int group, int index) {
+      return keys[group][index];
+    }
+
+    public String getLabel(int group, int index) {
+      return labels[group][index];
+    }
+
+    public int getCount(int group, int index) {
+      return counts[group][index];
+    }
+
+    /** 値の並びが other と同じなら true（件数は比べない） */
+    public boolean sameValues(Counts other) {
+      return other != null && Arrays.deepEquals(keys, other.keys);
+    }
+  }
+
+  private final Group[] groups = { new Group(false), new Group(true), new Group(false) };
+  private RowBitmap all = new RowBitmap();
+  private int indexedRows;
+  // 最後に求めたグループごとの条件（evaluate と count で同じ条件を 2 度計算しない。行を登録したら捨てる）
+  private Query clausesQuery;
+  private RowBitmap[] clauses;
+
+  /** 登録済みの行数 */
+  public int getIndexedRows() {
+    return indexedRows;
+  }
+
+  public void clear() {
+    for (int group = 0; group < groups.length; group++) {
+      groups[group] = new Group(groups[group].descending);
+    }
+    all = new RowBitmap();
+    indexedRows = 0;
+    clausesQuery = null;
+  }
+
+  /**
+   * indexedRows から to までの行を登録する
+   * @param snapshot to 行以上を含むスナップショット
+   */
+  public void addRows(CustomerTableModel.Snapshot snapshot, int to) {
+    DictionaryColumn.View statuses = snapshot.getStatusColumn();
+    DateColumn.View registered = snapshot.getDateColumn(CustomerTableModel.COL_REGISTERED);
+    DateColumn.View lastPurchase = snapshot.getDateColumn(CustomerTableModel.COL_LAST_PURCHASE);
+    // 直前の行と同じ日なら登録月を計算し直さない
+    int lastDay = DateColumn.NULL_DAY;
+    int lastMonth = NO_MONTH;
+    clausesQuery = null;
+    for (int row = indexedRows; row < to; row++) {
+      all.add(row);
+
+      int code = statuses.code(row);
+      Value status = groups[STATUS].get(code);
+      if (status == null) {
+        status = groups[STATUS].add(code, statuses.decode(code));
+      }
+      status.rows.add(row);
+
+      int day = registered.getDay(row);
+      if (day != lastDay) {
+        lastDay = day;
+        lastMonth = monthKey(day);
+      }
+      Value month = groups[REGISTERED_MONTH].get(lastMonth);
+      if (month == null) {
+        month = groups[REGISTERED_MONTH].add(lastMonth, monthLabel(lastMonth));
+      }
+      month.rows.add(row);
+
+      int purchaseKey = lastPurchase.getDay(row) == DateColumn.NULL_DAY ? NOT_PURCHASED : PURCHASED;
+      Value purchase = groups[PURCHASE].get(purchaseKey);
+      if (purchase == null) {
+        purchase = groups[PURCHASE].add(purchaseKey, purchaseKey == PURCHASED ? "購入あり" : "未購入");
+      }
+      purchase.rows.add(row);
+    }
+    indexedRows = Math.max(indexedRows, to);
+  }
+
+  /**
+   * 条件に合う行を求める
+   * @param search 検索結果の行（null は検索なし）
+   * @return 条件に合う行。条件も検索もなければ null
+   */
+  public RowBitmap evaluate(Query query, RowBitmap search) {
+    RowBitmap result = search;
+    for (RowBitmap clause : clauses(query)) {
+      if (clause != null) {
+        result = result == null ? clause : result.and(clause);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 各グループの値ごとに、そのグループ以外の条件と検索結果に合う行のうち、その値を持つ行数を数える
+   */
+  public Counts count(Query query, RowBitmap search) {
+    RowBitmap[] clauses = clauses(query);
+    int[][] keys = new int[groups.length][];
+    String[][] labels = new String[groups.length][];
+    int[][] counts = new int[groups.length][];
+    for (int group = 0; group < groups.length; group++) {
+      RowBitmap context = search;
+      for (int other = 0; other < groups.length; other++) {
+        if (other != group && clauses[other] != null) {
+          context = context == null ? clauses[other] : context.and(clauses[other]);
+        }
+      }
+      List<Value> values = groups[group].values;
+      keys[group] = new int[values.size()];
+      labels[group] = new String[values.size()];
+      counts[group] = new int[values.size()];
+      for (int i = 0; i < values.size(); i++) {
+        Value value = values.get(i);
+        keys[group][i] = value.key;
+        labels[group][i] = value.label;
+        counts[group][i] = context == null ? value.rows.cardinality() : value.rows.andCardinality(context);
+      }
+    }
+    return new Counts(keys, labels, counts);
+  }
+
+  /** ビットマップのおおよそのバイト数 */
+  public long estimatedBytes() {
+    long bytes = all.estimatedBytes();
+    for (Group group : groups) {
+      for (Value value : group.values) {
+        bytes += value.rows.estimatedBytes();
+      }
+    }
+    return bytes;
+  }
+
+  private RowBitmap[] clauses(Query query) {
+    if (query != clausesQuery) {
+      clauses = new RowBitmap[groups.length];
+      for (int group = 0; group < groups.length; group++) {
+        clauses[group] = clause(group, query);
+      }
+      clausesQuery = query;
+    }
+    return clauses;
+  }
+
+  // グループの条件（選んだ値の和、除外ならすべての行との差）。値を選んでいなければ null
+  private RowBitmap clause(int group, Query query) {
+    int[] keys = query.selected[group];
+    if (keys.length == 0) return null;
+    List<RowBitmap> selectedRows = new ArrayList<>(keys.length);
+    for (int key : keys) {
+      Value value = groups[group].byKey.get(key);
+      if (value != null) {
+        selectedRows.add(value.rows);
+      }
+    }
+    RowBitmap union = selectedRows.isEmpty()
+        ? new RowBitmap() : RowBitmap.union(selectedRows.toArray(new RowBitmap[0]));
+    return query.excluded[group] ? all.andNot(union) : union;
+  }
+
+  /** epoch day の登録月のキー（年 * 12 + 月 - 1） */
+  static int monthKey(int epochDay) {
+    if (epochDay == DateColumn.NULL_DAY) return NO_MONTH;
+    int date = DateColumn.fromEpochDay(epochDay);
+    return (date >> 9) * 12 + ((date >> 5) & 0xF) - 1;
+  }
+
+  static String monthLabel(int key) {
+    if (key == NO_MONTH) return "未設定";
+    int year = Math.floorDiv(key, 12);
+    int month = Math.floorMod(key, 12) + 1;
+    return year + "年" + (month < 10 ? "0" : "") + month + "月";
+  }
+}
@@ -0,0 +1,201 @@
+package undecorated;
+
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.*;
+import javax.swing.table.JTableHeader;
+
+/**
+ * ファセットの絞り込みの操作パネル（サイドバーに表示する）
+ *
+ * グループごとに値のチェックボックスと件数、グループを除外（NOT）にするチェックボックスを並べる
+ * グループの中で選んだ値は OR、グループどうしは AND でつなぐ
+ * 件数は FacetController の結果が届くたびに書き換え、値が増えた時（読み込み中に新しい登録月が現れた時など）
+ * だけチェックボックスを作り直す
+ *
+ * テーブルの列見出しを右クリックすると、その列のファセットを同じ条件でメニューから選べる
+ * EDT からのみ使うこと
+ */
+public class FacetPanel extends JPanel {
+  private static final long serialVersionUID = 1L;
+
+  private final FacetController controller;
+  private final JPanel[] valuePanels = new JPanel[FacetIndex.GROUP_NAMES.length];
+  private final JCheckBox[] excludeBoxes = new JCheckBox[FacetIndex.GROUP_NAMES.length];
+  private final List<List<JCheckBox>> valueBoxes = new ArrayList<>();
+  private final JLabel summaryLabel = new JLabel(" ");
+  private FacetIndex.Counts counts;
+  // チェックボックスの状態を条件に合わせている間は、操作として扱わない
+  private boolean updating;
+
+  public FacetPanel(FacetController controller) {
+    super(new BorderLayout());
+    this.controller = controller;
+
+    JPanel groups = new JPanel();
+    groups.setLayout(new BoxLayout(groups, BoxLayout.Y_AXIS));
+    for (int group = 0; group < FacetIndex.GROUP_NAMES.length; group++) {
+      valueBoxes.add(new ArrayList<>());
+      groups.add(createGroup(group));
+    }
+    // 高さに余りがあってもグループを縦に引き伸ばさないよう、上に寄せる
+    JPanel holder = new JPanel(new BorderLayout());
+    holder.add(groups, BorderLayout.NORTH);
+    JScrollPane scrollPane = new JScrollPane(holder);
+    scrollPane.setBorder(null);
+    scrollPane.getVerticalScrollBar().setUnitIncrement(16);
+    add(scrollPane, BorderLayout.CENTER);
+
+    JPanel footer = new JPanel(new BorderLayout());
+    footer.setBorder(BorderFactory.createEmptyBorder(5, 0, 0, 0));
+    footer.add(summaryLabel, BorderLayout.CENTER);
+    JButton clearButton = new JButton("すべて解除");
+    clearButton.setFocusable(false);
+    clearButton.addActionListener(e -> controller.setQuery(FacetIndex.Query.EMPTY));
+    footer.add(clearButton, BorderLayout.EAST);
+    add(footer, BorderLayout.SOUTH);
+  }
+
+  private JComponent createGroup(int group) {
+    JPanel panel = new JPanel(new BorderLayout());
+    panel.setAlignmentX(LEFT_ALIGNMENT);
+    panel.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 0));
+
+    JPanel header = new JPanel(new BorderLayout());
+    JLabel title = new JLabel(FacetIndex.GROUP_NAMES[group]);
+    title.setFont(FontRegistry.bold(14));
+    header.add(title, BorderLayout.WEST);
+    JCheckBox excludeBox = new JCheckBox("除外");
+    excludeBox.setToolTipText("選んだ値を持つ行を除きます");
+    excludeBox.setFocusable(false);
+    excludeBox.addActionListener(e -> {
+      if (!updating) {
+        controller.setQuery(controller.getQuery().withExcluded(group, excludeBox.isSelected()));
+      }
+    });
+    excludeBoxes[group] = excludeBox;
+    header.add(excludeBox, BorderLayout.EAST);
+    panel.add(header, BorderLayout.NORTH);
+
+    JPanel values = new JPanel(new GridLayout(0, 1));
+    valuePanels[group] = values;
+    panel.add(values, BorderLayout.CENTER);
+    return panel;
+  }
+
+  /**
+   * 絞り込みの結果に合わせて、値・件数・チェックボックスの状態を更新する（FacetController の結果の通知先）
+   */
+  public void update(FacetController.Result result) {
+    FacetIndex.Counts newCounts = result.getCounts();
+    FacetIndex.Query query = result.getQuery();
+    updating = true;
+    try {
+      boolean rebuild = !newCounts.sameValues(counts);
+      counts = newCounts;
+      for (int group = 0; group < valuePanels.length; group++) {
+        if (rebuild) {
+          rebuildValues(group);
+        }
+        List<JCheckBox> boxes = valueBoxes.get(group);
+        for (int i = 0; i < boxes.size(); i++) {
+          JCheckBox box = boxes.get(i);
+          String text = label(group, i);
+          if (!text.equals(box.getText())) {
+            box.setText(text);
+          }
+          box.setSelected(query.isSelected(group, counts.getKey(group, i)));
+        }
+        excludeBoxes[group].setSelected(query.isExcluded(group));
+      }
+    } finally {
+      updating = false;
+    }
+    summaryLabel.setText(query.isEmpty()
+        ? String.format("%,d 件", result.getIndexedRows())
+        : String.format("%,d / %,d 件 (%.2f ms)", result.getMatchCount(), result.getIndexedRows(),
+            result.getMillis()));
+  }
+
+  private void rebuildValues(int group) {
+    JPanel panel = valuePanels[group];
+    List<JCheckBox> boxes = valueBoxes.get(group);
+    panel.removeAll();
+    boxes.clear();
+    for (int i = 0; i < counts.size(group); i++) {
+      int key = counts.getKey(group, i);
+      JCheckBox box = new JCheckBox();
+      box.setFocusable(false);
+      box.addActionListener(e -> {
+        if (!updating) {
+          controller.setQuery(controller.getQuery().with(group, key, box.isSelected()));
+        }
+      });
+      boxes.add(box);
+      panel.add(box);
+    }
+    panel.revalidate();
+    panel.repaint();
+  }
+
+  private String label(int group, int index) {
+    return String.format("%s (%,d)", counts.getLabel(group, index), counts.getCount(group, index));
+  }
+
+  /**
+   * 列見出しの右クリックで、その列のファセットのメニューを表示する
+   * テーブルのモデルが CustomerTableModel の間だけ表示する（ページ単位の表示中は使えない）
+   */
+  public void installHeaderMenu(JTableHeader header) {
+    header.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mousePressed(MouseEvent e) {
+        showHeaderMenu(header, e);
+      }
+
+      @Override
+      public void mouseReleased(MouseEvent e) {
+        showHeaderMenu(header, e);
+      }
+    });
+  }
+
+  private void showHeaderMenu(JTableHeader header, MouseEvent e) {
+    if (!e.isPopupTrigger() || counts == null) return;
+    JTable table = header.getTable();
+    if (!(table.getModel() instanceof CustomerTableModel)) return;
+    int viewColumn = header.columnAtPoint(e.getPoint());
+    if (viewColumn < 0) return;
+    int column = table.convertColumnIndexToModel(viewColumn);
+    int group = -1;
+    for (int i = 0; i < FacetIndex.GROUP_COLUMNS.length; i++) {
+      if (FacetIndex.GROUP_COLUMNS[i] == column) {
+        group = i;
+      }
+    }
+    if (group < 0) return;
+
+    int facetGroup = group;
+    FacetIndex.Query query = controller.getQuery();
+    JPopupMenu menu = new JPopupMenu(FacetIndex.GROUP_NAMES[group]);
+    for (int i = 0; i < counts.size(group); i++) {
+      int key = counts.getKey(group, i);
+      JCheckBoxMenuItem item = new JCheckBoxMenuItem(label(group, i), query.isSelected(group, key));
+      item.addActionListener(event ->
+          controller.setQuery(controller.getQuery().with(facetGroup, key, item.isSelected())));
+      menu.add(item);
+    }
+    menu.addSeparator();
+    JCheckBoxMenuItem excludeItem = new JCheckBoxMenuItem("除外", query.isExcluded(group));
+    excludeItem.addActionListener(event ->
+        controller.setQuery(controller.getQuery().withExcluded(facetGroup, excludeItem.isSelected())));
+    menu.add(excludeItem);
+    JMenuItem clearItem = new JMenuItem(FacetIndex.GROUP_NAMES[group] + "の絞り込みを解除");
+    clearItem.addActionListener(event -> controller.setQuery(controller.getQuery().cleared(facetGroup)));
+    menu.add(clearItem);
+    menu.show(header, e.getX(), e.getY());
+  }
+}
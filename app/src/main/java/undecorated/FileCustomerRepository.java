@@ -0,0 +1,211 @@
+package undecorated;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * CSV/TXT ファイルを取り出し元にする（ファイルの内容はメモリに載せない）
+ *
+ * 最初の getRowCount() / fetch() でファイルを 1 回走査し、INDEX_STRIDE 行ごとの
+ * レコードの開始位置だけを記録する（10 億行でも約 30MB）
+ * fetch() は要求された範囲を含む区間だけを読み、CsvLoader と同じパーサーで解析する
+ * ヒープより大きいファイルでも、表示するページの分しかメモリを使わない
+ *
+ * CsvLoader と同じく、引用符の中に改行を含むレコードには対応しない
+ * 走査の後にファイルが変更された場合の結果は保証しない
+ * close() はロックを取らずにファイルを閉じるので、走査の途中でも待たずに返る
+ */
+public class FileCustomerRepository implements CustomerRepository {
+  /** 開始位置を記録する間隔（行） */
+  static final int INDEX_STRIDE = 256;
+  private static final int SCAN_BUFFER_BYTES = 1024 * 1024;
+
+  private final File file;
+  private final byte delimiter;
+
+  private volatile FileChannel channel;
+  private volatile boolean closed;
+  private long fileSize;
+  // offsets[i] は i * INDEX_STRIDE 行目の開始位置
+  private long[] offsets;
+  private volatile int rowCount = -1;
+
+  // 計測値
+  private volatile double indexMillis;
+
+  /**
+   * @param file 読み込むファイル（.txt はタブ区切り、それ以外はカンマ区切り）
+   */
+  public FileCustomerRepository(File file) {
+    this.file = file;
+    this.delimiter = file.getName().toLowerCase().endsWith(".txt") ? (byte) '\t' : (byte) ',';
+  }
+
+  @Override
+  public synchronized int getRowCount() throws IOException {
+    ensureIndexed();
+    return rowCount;
+  }
+
+  @Override
+  public synchronized String[][] fetch(int first, int count) throws IOException {
+    ensureIndexed();
+    int end = (int) Math.min(rowCount, (long) first + Math.max(count, 0));
+    if (first < 0 || first >= end) {
+      return new String[0][];
+    }
+    int block = first / INDEX_STRIDE;
+    int endBlock = (end + INDEX_STRIDE - 1) / INDEX_STRIDE;
+    long start = offsets[block];
+    long stop = endBlock < blockCount() ? offsets[endBlock] : fileSize;
+
+    ByteBuffer buffer = ByteBuffer.allocate((int) (stop - start));
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, start + buffer.position()) < 0) break;
+    }
+    int limit = buffer.position();
+
+    String[][] rows = new String[end - first][];
+    CsvLoader.RowParser parser = new CsvLoader.RowParser(delimiter);
+    int skip = first - block * INDEX_STRIDE;
+    int filled = 0;
+    int position = 0;
+    while (position < limit && filled < rows.length) {
+      position = parser.parse(buffer, position, limit);
+      String[] row = parser.takeRow();
+      if (row == null) continue;
+      if (skip > 0) {
+        skip--;
+        continue;
+      }
+      for (int column = 0; column < row.length; column++) {
+        if (row[column] == null) {
+          row[column] = "";
+        }
+      }
+      rows[filled++] = row;
+    }
+    return filled == rows.length ? rows : Arrays.copyOf(rows, filled);
+  }
+
+  @Override
+  public String getName() {
+    return file.getName();
+  }
+
+  /**
+   * ファイルを閉じる（EDT から呼ばれる）
+   * 走査中・読み込み中の getRowCount() / fetch() は待たず、それらは ClosedChannelException などで失敗する
+   */
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    FileChannel open = channel;
+    if (open != null) {
+      open.close();
+    }
+  }
+
+  public String formatStats() {
+    int rows = rowCount;
+    return String.format(Locale.ROOT, "repository file=%s rows=%d index=%.1fKB indexTime=%.1fms",
+        file.getName(), rows, rows < 0 ? 0 : (rows + INDEX_STRIDE - 1) / INDEX_STRIDE * 8 / 1024.0, indexMillis);
+  }
+
+  private int blockCount() {
+    return (rowCount + INDEX_STRIDE - 1) / INDEX_STRIDE;
+  }
+
+  /**
+   * ファイルを走査して、INDEX_STRIDE 行ごとのレコードの開始位置を記録する
+   * 空行（改行と \r だけの行）はパーサーと同じくレコードに数えない
+   */
+  private void ensureIndexed() throws IOException {
+    if (closed) {
+      throw new ClosedChannelException();
+    }
+    if (offsets != null) return;
+    long startNanos = System.nanoTime();
+    FileChannel opened = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    channel = opened;
+    // 開いている間に close() された場合は、ここで閉じる
+    if (closed) {
+      opened.close();
+      throw new ClosedChannelException();
+    }
+    fileSize = channel.size();
+    long position = CsvLoader.skipByteOrderMark(channel);
+    position = skipHeader(position);
+
+    long[] found = new long[1024];
+    int rows = 0;
+    ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+    byte[] bytes = buffer.array();
+    long lineStart = position;
+    boolean hasContent = false;
+    while (position < fileSize) {
+      buffer.clear();
+      int read = channel.read(buffer, position);
+      if (read <= 0) break;
+      for (int i = 0; i < read; i++) {
+        byte b = bytes[i];
+        if (b == '\n') {
+          if (hasContent) {
+            if (rows % INDEX_STRIDE == 0) {
+              found = record(found, rows / INDEX_STRIDE, lineStart);
+            }
+            rows++;
+            hasContent = false;
+          }
+          lineStart = position + i + 1;
+        } else if (b != '\r') {
+          hasContent = true;
+        }
+      }
+      position += read;
+    }
+    if (hasContent) {
+      // 最後の行に改行がない場合
+      if (rows % INDEX_STRIDE == 0) {
+        found = record(found, rows / INDEX_STRIDE, lineStart);
+      }
+      rows++;
+    }
+    offsets = Arrays.copyOf(found, (rows + INDEX_STRIDE - 1) / INDEX_STRIDE);
+    rowCount = rows;
+    indexMillis = (System.nanoTime() - startNanos) / 1_000_000.0;
+  }
+
+  private static long[] record(long[] found, int index, long offset) {
+    if (index == found.length) {
+      found = Arrays.copyOf(found, found.length * 2);
+    }
+    found[index] = offset;
+    return found;
+  }
+
+  // 先頭のレコードが見出し（最初の列が "ID"）なら、その次の位置を返す
+  private long skipHeader(long position) throws IOException {
+    ByteBuffer head = ByteBuffer.allocate((int) Math.min(64 * 1024, fileSize - position));
+    while (head.hasRemaining()) {
+      if (channel.read(head, position + head.position()) < 0) break;
+    }
+    CsvLoader.RowParser parser = new CsvLoader.RowParser(delimiter);
+    int next = 0;
+    String[] row = null;
+    while (row == null && next < head.position()) {
+      next = parser.parse(head, next, head.position());
+      row = parser.takeRow();
+    }
+    if (row != null && CustomerTableModel.COLUMN_NAMES[0].equals(row[0])) {
+      return position + next;
+    }
+    return position;
+  }
+}
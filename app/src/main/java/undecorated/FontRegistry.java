@@ -0,0 +1,46 @@
+package undecorated;
+
+import java.awt.Font;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 画面で使うフォントを 1 つずつだけ作って共有する
+ * 同じ名前・スタイル・大きさのフォントは同じインスタンスを返すので、部品ごとに Font を作らず、
+ * フォントごとに持つメトリクスやグリフのキャッシュも部品の間で共有される
+ * StartupWarmup からも使うので、どのスレッドから呼んでもよい
+ */
+public final class FontRegistry {
+  private static final ConcurrentHashMap<String, Font> FONTS = new ConcurrentHashMap<>();
+
+  private FontRegistry() {
+  }
+
+  /**
+   * @param family Font.DIALOG などのフォント名
+   * @param style Font.PLAIN, Font.BOLD, Font.ITALIC の組み合わせ
+   * @param size ポイント数
+   */
+  public static Font get(String family, int style, int size) {
+    return FONTS.computeIfAbsent(family + '-' + style + '-' + size, key -> new Font(family, style, size));
+  }
+
+  /** 通常の文字（メニューの一覧など） */
+  public static Font plain(int size) {
+    return get(Font.DIALOG, Font.PLAIN, size);
+  }
+
+  /** 太字（見出し・タイトルバーなど） */
+  public static Font bold(int size) {
+    return get(Font.DIALOG, Font.BOLD, size);
+  }
+
+  /** 等幅（診断情報など） */
+  public static Font monospaced(int size) {
+    return get(Font.MONOSPACED, Font.PLAIN, size);
+  }
+
+  /** これまでに作ったフォントの数 */
+  public static int size() {
+    return FONTS.size();
+  }
+}
@@ -0,0 +1,188 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.Locale;
+
+/**
+ * スクリーン座標でウィンドウを移動させるドラッグエンジン
+ * マウスイベントでは目標位置を記録するだけで、setBounds はフレームごとに最大 1 回にまとめる
+ * イベントごとのオブジェクト生成は行わない
+ * ScreenTopology を渡した場合は、移動先をモニターの端に吸着させ、画面外に出ないよう制限する
+ *
+ * 計測する遅延は、ドラッグイベントの受信から setBounds を呼び終えるまで（入力から移動の反映まで）
+ * ウィンドウの移動では Swing の再描画が起きないので、描画までの時間ではない
+ */
+public class FrameDragEngine {
+  private final Window window;
+  private final FramePacer pacer;
+  // null ならモニターの配置を考慮しない
+  private final ScreenTopology topology;
+  private final int[] targetBounds = new int[4];
+
+  private boolean dragging;
+  private int pressScreenX;
+  private int pressScreenY;
+  private int startX;
+  private int startY;
+  private int targetX;
+  private int targetY;
+
+  // まだ反映していない最も古いイベントの受信時刻（0 なら保留なし）
+  private long pendingSinceNanos;
+  private long dragStartNanos;
+
+  // 計測値
+  private long eventCount;
+  private long applyCount;
+  private long totalLatencyNanos;
+  private long maxLatencyNanos;
+  private long lastLatencyNanos;
+  private long totalDragNanos;
+
+  public FrameDragEngine(Window window) {
+    this(window, null);
+  }
+
+  public FrameDragEngine(Window window, ScreenTopology topology) {
+    this.window = window;
+    this.pacer = new FramePacer(window, this::apply);
+    this.topology = topology;
+    if (topology != null) {
+      topology.watch(window);
+    }
+  }
+
+  /**
+   * ドラッグを開始する
+   * @param screenX マウスのスクリーン X 座標
+   * @param screenY マウスのスクリーン Y 座標
+   */
+  public void begin(int screenX, int screenY) {
+    pacer.syncToDisplay();
+    if (topology != null) {
+      topology.ensureFresh();
+    }
+    dragging = true;
+    pressScreenX = screenX;
+    pressScreenY = screenY;
+    startX = window.getX();
+    startY = window.getY();
+    targetX = startX;
+    targetY = startY;
+    pendingSinceNanos = 0;
+    dragStartNanos = System.nanoTime();
+  }
+
+  /**
+   * ドラッグ中のマウス位置を受け取る
+   * 実際の移動は次のフレームでまとめて行う
+   */
+  public void drag(int screenX, int screenY) {
+    if (!dragging) return;
+    eventCount++;
+    updateTarget(screenX, screenY);
+    if (pendingSinceNanos == 0) {
+      pendingSinceNanos = System.nanoTime();
+    }
+    pacer.request();
+  }
+
+  /**
+   * ドラッグを終了し、最後の位置を即座に反映する
+   */
+  public void end(int screenX, int screenY) {
+    if (!dragging) return;
+    updateTarget(screenX, screenY);
+    if (pendingSinceNanos == 0) {
+      pendingSinceNanos = System.nanoTime();
+    }
+    pacer.stop();
+    apply();
+    dragging = false;
+    totalDragNanos += System.nanoTime() - dragStartNanos;
+  }
+
+  public boolean isDragging() {
+    return dragging;
+  }
+
+  private void updateTarget(int screenX, int screenY) {
+    targetX = startX + (screenX - pressScreenX);
+    targetY = startY + (screenY - pressScreenY);
+    if (topology != null) {
+      targetBounds[0] = targetX;
+      targetBounds[1] = targetY;
+      targetBounds[2] = window.getWidth();
+      targetBounds[3] = window.getHeight();
+      topology.constrainMove(targetBounds);
+      targetX = targetBounds[0];
+      targetY = targetBounds[1];
+    }
+  }
+
+  private void apply() {
+    if (pendingSinceNanos == 0) return;
+    if (targetX != window.getX() || targetY != window.getY()) {
+      window.setBounds(targetX, targetY, window.getWidth(), window.getHeight());
+      applyCount++;
+    }
+    long latency = System.nanoTime() - pendingSinceNanos;
+    pendingSinceNanos = 0;
+    lastLatencyNanos = latency;
+    totalLatencyNanos += latency;
+    if (latency > maxLatencyNanos) {
+      maxLatencyNanos = latency;
+    }
+  }
+
+  /** 受信したドラッグイベント数 */
+  public long getEventCount() {
+    return eventCount;
+  }
+
+  /** 実際に setBounds を呼んだ回数 */
+  public long getApplyCount() {
+    return applyCount;
+  }
+
+  /** ドラッグイベント受信から setBounds を呼び終えるまでの平均（ミリ秒）。描画は含まない */
+  public double getAverageApplyLatencyMillis() {
+    return applyCount == 0 ? 0 : totalLatencyNanos / (double) applyCount / 1_000_000.0;
+  }
+
+  public double getLastApplyLatencyMillis() {
+    return lastLatencyNanos / 1_000_000.0;
+  }
+
+  public double getMaxApplyLatencyMillis() {
+    return maxLatencyNanos / 1_000_000.0;
+  }
+
+  /** ドラッグ中の 1 秒あたりのウィンドウ移動回数 */
+  public double getUpdatesPerSecond() {
+    long nanos = totalDragNanos;
+    if (dragging) {
+      nanos += System.nanoTime() - dragStartNanos;
+    }
+    return nanos == 0 ? 0 : applyCount * 1_000_000_000.0 / nanos;
+  }
+
+  /**
+   * "drag events=120 moves=60 moves/s=143.8 input-to-setBounds avg=3.10ms last=2.90ms max=6.90ms" の形式で計測値を返す
+   */
+  public String formatStats() {
+    return String.format(Locale.ROOT,
+        "drag events=%d moves=%d moves/s=%.1f input-to-setBounds avg=%.2fms last=%.2fms max=%.2fms",
+        eventCount, applyCount, getUpdatesPerSecond(), getAverageApplyLatencyMillis(),
+        getLastApplyLatencyMillis(), getMaxApplyLatencyMillis());
+  }
+
+  public void resetStats() {
+    eventCount = 0;
+    applyCount = 0;
+    totalLatencyNanos = 0;
+    maxLatencyNanos = 0;
+    lastLatencyNanos = 0;
+    totalDragNanos = 0;
+  }
+}
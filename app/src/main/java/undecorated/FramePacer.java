@@ -0,0 +1,98 @@
+package undecorated;
+
+import java.awt.*;
+import javax.swing.Timer;
+
+/**
+ * ディスプレイのリフレッシュに合わせて処理を間引くためのペーサー
+ * request() を何度呼んでも、コールバックは 1 フレームにつき最大 1 回だけ実行される
+ * EDT からのみ使用すること
+ */
+public class FramePacer {
+  private static final int DEFAULT_REFRESH_RATE = 60;
+  // 何フレーム連続で要求がなければタイマーを止めるか
+  private static final int IDLE_FRAMES_BEFORE_STOP = 3;
+
+  private final Component component;
+  private final Runnable callback;
+  private final Timer timer;
+
+  private boolean dirty;
+  private int idleFrames;
+
+  public FramePacer(Component component, Runnable callback) {
+    this.component = component;
+    this.callback = callback;
+    this.timer = new Timer(frameMillis(DEFAULT_REFRESH_RATE), e -> tick());
+    this.timer.setCoalesce(true);
+  }
+
+  /**
+   * コンポーネントが表示されているモニターのリフレッシュレートからフレーム間隔を取り直す
+   * ドラッグ開始時など、イベントごとではないタイミングで呼ぶ
+   */
+  public void syncToDisplay() {
+    int refreshRate = DEFAULT_REFRESH_RATE;
+    GraphicsConfiguration gc = component.getGraphicsConfiguration();
+    if (gc != null) {
+      int rate = gc.getDevice().getDisplayMode().getRefreshRate();
+      if (rate != DisplayMode.REFRESH_RATE_UNKNOWN) {
+        refreshRate = rate;
+      }
+    }
+    int delay = frameMillis(refreshRate);
+    timer.setDelay(delay);
+    timer.setInitialDelay(delay);
+  }
+
+  /**
+   * 次のフレームでコールバックを実行するよう要求する
+   * 直前のフレームから間が空いていれば即座に実行する
+   */
+  public void request() {
+    if (timer.isRunning()) {
+      dirty = true;
+    } else {
+      dirty = false;
+      idleFrames = 0;
+      callback.run();
+      timer.start();
+    }
+  }
+
+  /**
+   * 保留中の要求があれば、次のフレームを待たずに実行する
+   */
+  public void flush() {
+    if (dirty) {
+      dirty = false;
+      callback.run();
+    }
+  }
+
+  /**
+   * 保留中の要求を実行してからタイマーを止める
+   */
+  public void stop() {
+    flush();
+    timer.stop();
+  }
+
+  public int getFrameMillis() {
+    return timer.getDelay();
+  }
+
+  private void tick() {
+    if (dirty) {
+      dirty = false;
+      idleFrames = 0;
+      callback.run();
+    } else if (++idleFrames >= IDLE_FRAMES_BEFORE_STOP) {
+      timer.stop();
+    }
+  }
+
+  private static int frameMillis(int refreshRate) {
+    return Math.max(1, 1000 / refreshRate);
+  }
+}
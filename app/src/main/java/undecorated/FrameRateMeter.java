@@ -0,0 +1,107 @@
+package undecorated;
+
+import java.util.Locale;
+
+/**
+ * 描画のフレーム間隔を測るメーター
+ * begin() から end() までの間に frame() が呼ばれた間隔を LatencyHistogram に記録し、
+ * 平均のフレームレートと、カクつきの目安になる間隔の p95・最大を出す
+ * 1 回分（最後の begin() から end() まで）と、これまでの累計を別々に持つ
+ * EDT からのみ使うこと
+ */
+public class FrameRateMeter {
+  private final LatencyHistogram lastIntervals = new LatencyHistogram();
+  private final LatencyHistogram totalIntervals = new LatencyHistogram();
+
+  private boolean running;
+  private long beginNanos;
+  private long lastFrameNanos;
+  private long frameCount;
+  private long elapsedNanos;
+
+  // 累計
+  private long sessionCount;
+  private long totalFrameCount;
+  private long totalElapsedNanos;
+
+  /**
+   * 計測を始める（前回の 1 回分の値は消える）
+   */
+  public void begin() {
+    running = true;
+    beginNanos = System.nanoTime();
+    lastFrameNanos = 0;
+    frameCount = 0;
+    elapsedNanos = 0;
+    lastIntervals.reset();
+  }
+
+  /**
+   * 1 フレーム描画したことを記録する（計測中でなければ何もしない）
+   */
+  public void frame() {
+    if (!running) return;
+    long now = System.nanoTime();
+    if (lastFrameNanos != 0) {
+      long micros = (now - lastFrameNanos) / 1000;
+      lastIntervals.record(micros);
+      totalIntervals.record(micros);
+    }
+    lastFrameNanos = now;
+    frameCount++;
+  }
+
+  /**
+   * 計測を終える
+   */
+  public void end() {
+    if (!running) return;
+    running = false;
+    elapsedNanos = System.nanoTime() - beginNanos;
+    sessionCount++;
+    totalFrameCount += frameCount;
+    totalElapsedNanos += elapsedNanos;
+  }
+
+  public boolean isRunning() {
+    return running;
+  }
+
+  /** 最後の 1 回分のフレーム数 */
+  public long getFrameCount() {
+    return frameCount;
+  }
+
+  /** 最後の 1 回分の平均フレームレート（fps） */
+  public double getFramesPerSecond() {
+    return fps(frameCount, elapsedNanos);
+  }
+
+  /** 最後の 1 回分のフレーム間隔の最大（マイクロ秒） */
+  public long getMaxIntervalMicros() {
+    return lastIntervals.getMaxMicros();
+  }
+
+  /**
+   * 最後の 1 回分の要約
+   */
+  public String formatLast() {
+    return String.format(Locale.ROOT, "%d frames %.1ffps p95=%.1fms max=%.1fms",
+        frameCount, getFramesPerSecond(), lastIntervals.percentile(95) / 1000.0,
+        lastIntervals.getMaxMicros() / 1000.0);
+  }
+
+  /**
+   * 累計の要約
+   */
+  public String formatStats() {
+    return String.format(Locale.ROOT, "count=%d frames=%d %.1ffps p50=%.1fms p95=%.1fms max=%.1fms",
+        sessionCount, totalFrameCount, fps(totalFrameCount, totalElapsedNanos),
+        totalIntervals.percentile(50) / 1000.0, totalIntervals.percentile(95) / 1000.0,
+        totalIntervals.getMaxMicros() / 1000.0);
+  }
+
+  private static double fps(long frames, long nanos) {
+    return nanos <= 0 ? 0 : frames * 1_000_000_000.0 / nanos;
+  }
+}
@@ -0,0 +1,251 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * ウィンドウの辺・角をドラッグしてリサイズするエンジン
+ * どの辺を動かすかをビットマスクで持ち、目標の境界を一度だけ計算・クランプして
+ * フレームごとに最大 1 回の setBounds で反映する
+ * イベントごとのオブジェクト生成は行わない
+ * ScreenTopology を渡した場合は、動かしている辺をモニターの端に吸着させ、画面外に出ないよう制限する
+ */
+public class FrameResizeEngine {
+  public static final int EDGE_NONE = 0;
+  public static final int EDGE_NORTH = 1;
+  public static final int EDGE_SOUTH = 1 << 1;
+  public static final int EDGE_WEST = 1 << 2;
+  public static final int EDGE_EAST = 1 << 3;
+
+  // 辺のマスクからカーソル種別への対応表
+  private static final int[] CURSOR_BY_EDGES = new int[16];
+  static {
+    CURSOR_BY_EDGES[EDGE_NONE] = Cursor.DEFAULT_CURSOR;
+    CURSOR_BY_EDGES[EDGE_NORTH] = Cursor.N_RESIZE_CURSOR;
+    CURSOR_BY_EDGES[EDGE_SOUTH] = Cursor.S_RESIZE_CURSOR;
+    CURSOR_BY_EDGES[EDGE_WEST] = Cursor.W_RESIZE_CURSOR;
+    CURSOR_BY_EDGES[EDGE_EAST] = Cursor.E_RESIZE_CURSOR;
+    CURSOR_BY_EDGES[EDGE_NORTH | EDGE_WEST] = Cursor.NW_RESIZE_CURSOR;
+    CURSOR_BY_EDGES[EDGE_NORTH | EDGE_EAST] = Cursor.NE_RESIZE_CURSOR;
+    CURSOR_BY_EDGES[EDGE_SOUTH | EDGE_WEST] = Cursor.SW_RESIZE_CURSOR;
+    CURSOR_BY_EDGES[EDGE_SOUTH | EDGE_EAST] = Cursor.SE_RESIZE_CURSOR;
+  }
+
+  private static final int X = 0;
+  private static final int Y = 1;
+  private static final int WIDTH = 2;
+  private static final int HEIGHT = 3;
+
+  /**
+   * リサイズドラッグの開始・終了を受け取るリスナー
+   */
+  public interface ResizeStateListener {
+    void resizeStarted();
+
+    void resizeFinished();
+  }
+
+  private final Window window;
+  private final FramePacer pacer;
+  // null ならモニターの配置を考慮しない
+  private final ScreenTopology topology;
+  private final List<ResizeStateListener> listeners = new ArrayList<>();
+
+  private int minWidth = 300;
+  private int minHeight = 200;
+  private int maxWidth = Integer.MAX_VALUE;
+  private int maxHeight = Integer.MAX_VALUE;
+
+  private int edges = EDGE_NONE;
+  private int pressScreenX;
+  private int pressScreenY;
+  private final int[] startBounds = new int[4];
+  private final int[] targetBounds = new int[4];
+  private boolean pending;
+
+  // 計測値
+  private long eventCount;
+  private long applyCount;
+
+  public FrameResizeEngine(Window window) {
+    this(window, null);
+  }
+
+  public FrameResizeEngine(Window window, ScreenTopology topology) {
+    this.window = window;
+    this.pacer = new FramePacer(window, this::apply);
+    this.topology = topology;
+    if (topology != null) {
+      topology.watch(window);
+    }
+  }
+
+  public void addResizeStateListener(ResizeStateListener listener) {
+    listeners.add(listener);
+  }
+
+  public void removeResizeStateListener(ResizeStateListener listener) {
+    listeners.remove(listener);
+  }
+
+  public void setMinimumSize(int width, int height) {
+    this.minWidth = width;
+    this.minHeight = height;
+  }
+
+  public void setMaximumSize(int width, int height) {
+    this.maxWidth = width;
+    this.maxHeight = height;
+  }
+
+  /**
+   * リサイズを開始する
+   * @param edges 動かす辺のマスク（EDGE_* の組み合わせ）
+   * @param screenX マウスのスクリーン X 座標
+   * @param screenY マウスのスクリーン Y 座標
+   */
+  public void begin(int edges, int screenX, int screenY) {
+    if (edges == EDGE_NONE) return;
+    pacer.syncToDisplay();
+    if (topology != null) {
+      topology.ensureFresh();
+    }
+    this.edges = edges;
+    pressScreenX = screenX;
+    pressScreenY = screenY;
+    startBounds[X] = window.getX();
+    startBounds[Y] = window.getY();
+    startBounds[WIDTH] = window.getWidth();
+    startBounds[HEIGHT] = window.getHeight();
+    pending = false;
+    for (int i = 0; i < listeners.size(); i++) {
+      listeners.get(i).resizeStarted();
+    }
+  }
+
+  /**
+   * リサイズ中のマウス位置を受け取る
+   * 実際の変更は次のフレームでまとめて行う
+   */
+  public void drag(int screenX, int screenY) {
+    if (edges == EDGE_NONE) return;
+    eventCount++;
+    updateTarget(screenX, screenY);
+    pacer.request();
+  }
+
+  /**
+   * リサイズを終了し、最後の境界を即座に反映する
+   */
+  public void end(int screenX, int screenY) {
+    if (edges == EDGE_NONE) return;
+    updateTarget(screenX, screenY);
+    pacer.stop();
+    apply();
+    edges = EDGE_NONE;
+    for (int i = 0; i < listeners.size(); i++) {
+      listeners.get(i).resizeFinished();
+    }
+  }
+
+  public boolean isResizing() {
+    return edges != EDGE_NONE;
+  }
+
+  public int getEdges() {
+    return edges;
+  }
+
+  private void updateTarget(int screenX, int screenY) {
+    computeBounds(edges,
+        startBounds[X], startBounds[Y], startBounds[WIDTH], startBounds[HEIGHT],
+        screenX - pressScreenX, screenY - pressScreenY,
+        minWidth, minHeight, maxWidth, maxHeight, targetBounds);
+    if (topology != null) {
+      topology.constrainResize(edges, targetBounds, screenX, screenY, minWidth, minHeight);
+    }
+    pending = true;
+  }
+
+  private void apply() {
+    if (!pending) return;
+    pending = false;
+    if (targetBounds[X] != window.getX() || targetBounds[Y] != window.getY()
+        || targetBounds[WIDTH] != window.getWidth() || targetBounds[HEIGHT] != window.getHeight()) {
+      window.setBounds(targetBounds[X], targetBounds[Y], targetBounds[WIDTH], targetBounds[HEIGHT]);
+      applyCount++;
+    }
+  }
+
+  /**
+   * 辺のマスク（EDGE_* の組み合わせ）に対応するカーソル種別（Cursor.*_CURSOR）
+   */
+  public static int cursorFor(int edges) {
+    return CURSOR_BY_EDGES[edges];
+  }
+
+  /**
+   * 座標がどの辺のリサイズ領域にあるかを判定する
+   * @return EDGE_* の組み合わせ。領域外なら EDGE_NONE
+   */
+  public static int detectEdges(int x, int y, int width, int height, int border) {
+    int edges = EDGE_NONE;
+    if (y <= border) {
+      edges |= EDGE_NORTH;
+    } else if (y >= height - border) {
+      edges |= EDGE_SOUTH;
+    }
+    if (x <= border) {
+      edges |= EDGE_WEST;
+    } else if (x >= width - border) {
+      edges |= EDGE_EAST;
+    }
+    return edges;
+  }
+
+  /**
+   * 開始時の境界とマウスの移動量から目標の境界を計算する
+   * 幅と高さはそれぞれ独立に最小・最大サイズへクランプし、
+   * 北・西の辺を動かす場合は反対側の辺が動かないよう位置を合わせる
+   * @param out 結果の格納先（x, y, width, height）
+   */
+  public static void computeBounds(int edges, int x, int y, int width, int height, int dx, int dy,
+      int minWidth, int minHeight, int maxWidth, int maxHeight, int[] out) {
+    int newWidth = width;
+    if ((edges & EDGE_WEST) != 0) {
+      newWidth = width - dx;
+    } else if ((edges & EDGE_EAST) != 0) {
+      newWidth = width + dx;
+    }
+    newWidth = Math.max(minWidth, Math.min(maxWidth, newWidth));
+
+    int newHeight = height;
+    if ((edges & EDGE_NORTH) != 0) {
+      newHeight = height - dy;
+    } else if ((edges & EDGE_SOUTH) != 0) {
+      newHeight = height + dy;
+    }
+    newHeight = Math.max(minHeight, Math.min(maxHeight, newHeight));
+
+    out[X] = (edges & EDGE_WEST) != 0 ? x + width - newWidth : x;
+    out[Y] = (edges & EDGE_NORTH) != 0 ? y + height - newHeight : y;
+    out[WIDTH] = newWidth;
+    out[HEIGHT] = newHeight;
+  }
+
+  /** 受信したリサイズイベント数 */
+  public long getEventCount() {
+    return eventCount;
+  }
+
+  /** 実際に setBounds を呼んだ回数 */
+  public long getApplyCount() {
+    return applyCount;
+  }
+
+  public void resetStats() {
+    eventCount = 0;
+    applyCount = 0;
+  }
+}
@@ -0,0 +1,268 @@
+package undecorated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.Timer;
+
+/**
+ * 顧客テーブル用の RowSorter
+ * 並べ替えは SortIndex のキャッシュを使い、絞り込みは検索結果の行ビットマップで行う
+ * TableRowSorter のように行ごとに値を取り出して Comparator で比較することはしない
+ *
+ * 列見出しのクリックでその列を最優先のキーにし、それまでのキーは下位のキーとして
+ * 最大 MAX_SORT_KEYS 列まで残す（複数列の並べ替え）
+ */
+public class IndexedRowSorter extends RowSorter<CustomerTableModel> {
+  public static final int MAX_SORT_KEYS = 3;
+  // 並べ替え中に行の追加が続く場合に、並べ替えをまとめて行う間隔
+  private static final int RESORT_DELAY_MILLIS = 100;
+
+  private final CustomerTableModel model;
+  private final SortIndex sortIndex;
+  private List<SortKey> sortKeys = Collections.emptyList();
+  // 表示する行のビットマップ（null はすべて表示）
+  private BitSet filter;
+  // filter の行番号の昇順の配列（呼び出し側で求めてあれば。null なら filter から求める）
+  private int[] filterRows;
+
+  // 表示の行 → モデルの行（null は並べ替えも絞り込みもない状態）
+  private int[] viewToModel;
+  // モデルの行 → 表示の行（必要になった時に作る）
+  private int[] modelToView;
+  // 最後に通知を受けた時点のモデルの行数
+  private int modelRowCount;
+  private final Timer resortTimer;
+
+  public IndexedRowSorter(CustomerTableModel model) {
+    this.model = model;
+    this.sortIndex = new SortIndex(model);
+    this.modelRowCount = model.getRowCount();
+    resortTimer = new Timer(RESORT_DELAY_MILLIS, e -> update());
+    resortTimer.setRepeats(false);
+  }
+
+  @Override
+  public CustomerTableModel getModel() {
+    return model;
+  }
+
+  public SortIndex getSortIndex() {
+    return sortIndex;
+  }
+
+  /**
+   * 表示する行を絞り込む
+   * @param rows 表示するモデルの行のビットマップ（null は絞り込みなし）
+   */
+  public void setFilter(BitSet rows) {
+    setFilter(rows, null);
+  }
+
+  /**
+   * 表示する行を、求めてある行番号の配列で絞り込む
+   * 並べ替えていなければ、ビットマップを走査せずに modelRows をそのまま表示の行にする
+   * @param rows 表示するモデルの行のビットマップ（null は絞り込みなし）
+   * @param modelRows rows の行番号の昇順の配列（null なら rows から求める）。渡した後は書き換えないこと
+   */
+  public void setFilter(BitSet rows, int[] modelRows) {
+    filter = rows;
+    filterRows = rows == null ? null : modelRows;
+    update();
+  }
+
+  @Override
+  public void toggleSortOrder(int column) {
+    List<SortKey> keys = new ArrayList<>(sortKeys);
+    SortOrder order = SortOrder.ASCENDING;
+    for (int i = 0; i < keys.size(); i++) {
+      if (keys.get(i).getColumn() == column) {
+        if (i == 0) {
+          order = keys.get(0).getSortOrder() == SortOrder.ASCENDING ? SortOrder.DESCENDING : SortOrder.ASCENDING;
+        }
+        keys.remove(i);
+        break;
+      }
+    }
+    keys.add(0, new SortKey(column, order));
+    if (keys.size() > MAX_SORT_KEYS) {
+      keys = keys.subList(0, MAX_SORT_KEYS);
+    }
+    setSortKeys(keys);
+  }
+
+  @Override
+  public void setSortKeys(List<? extends SortKey> keys) {
+    List<SortKey> newKeys = keys == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(keys));
+    if (newKeys.equals(sortKeys)) return;
+    sortKeys = newKeys;
+    fireSortOrderChanged();
+    update();
+  }
+
+  @Override
+  public List<? extends SortKey> getSortKeys() {
+    return sortKeys;
+  }
+
+  @Override
+  public int convertRowIndexToModel(int index) {
+    if (viewToModel == null) {
+      if (index < 0 || index >= modelRowCount) {
+        throw new IndexOutOfBoundsException("Invalid index");
+      }
+      return index;
+    }
+    return viewToModel[index];
+  }
+
+  @Override
+  public int convertRowIndexToView(int index) {
+    if (viewToModel == null) {
+      if (index < 0 || index >= modelRowCount) {
+        throw new IndexOutOfBoundsException("Invalid index");
+      }
+      return index;
+    }
+    if (modelToView == null) {
+      modelToView = new int[modelRowCount];
+      Arrays.fill(modelToView, -1);
+      for (int view = 0; view < viewToModel.length; view++) {
+        modelToView[viewToModel[view]] = view;
+      }
+    }
+    return modelToView[index];
+  }
+
+  /**
+   * 表示の行からモデルの行への対応（null は恒等）
+   * 並べ替え・絞り込みのたびに新しい配列に置き換え、渡した配列は書き換えないので別スレッドから読める
+   */
+  int[] getViewToModel() {
+    return viewToModel;
+  }
+
+  @Override
+  public int getViewRowCount() {
+    return viewToModel == null ? modelRowCount : viewToModel.length;
+  }
+
+  @Override
+  public int getModelRowCount() {
+    return modelRowCount;
+  }
+
+  @Override
+  public void modelStructureChanged() {
+    sortIndex.invalidateAll();
+    sortKeys = Collections.emptyList();
+    fireSortOrderChanged();
+    update();
+  }
+
+  @Override
+  public void allRowsChanged() {
+    sortIndex.invalidateAll();
+    update();
+  }
+
+  @Override
+  public void rowsInserted(int firstRow, int endRow) {
+    if (firstRow != modelRowCount || endRow + 1 != model.getRowCount()) {
+      // 途中への挿入はキャッシュを作り直す
+      sortIndex.invalidateAll();
+      update();
+      return;
+    }
+    if (!isSorted()) {
+      update();
+      return;
+    }
+    // 末尾への追加は SortIndex が差分だけ差し込むが、読み込み中は追加が続くので
+    // 追加行をいったん末尾に表示し、並べ替えは少し後にまとめて行う
+    int[] previous = viewToModel;
+    int[] rows = Arrays.copyOf(previous, previous.length + endRow - firstRow + 1);
+    int count = previous.length;
+    for (int row = firstRow; row <= endRow; row++) {
+      if (filter == null || filter.get(row)) {
+        rows[count++] = row;
+      }
+    }
+    viewToModel = count == rows.length ? rows : Arrays.copyOf(rows, count);
+    modelToView = null;
+    modelRowCount = model.getRowCount();
+    fireRowSorterChanged(previous);
+    if (!resortTimer.isRunning()) {
+      resortTimer.start();
+    }
+  }
+
+  @Override
+  public void rowsDeleted(int firstRow, int endRow) {
+    sortIndex.invalidateAll();
+    update();
+  }
+
+  @Override
+  public void rowsUpdated(int firstRow, int endRow) {
+    sortIndex.invalidateAll();
+    update();
+  }
+
+  @Override
+  public void rowsUpdated(int firstRow, int endRow, int column) {
+    sortIndex.invalidate(column);
+    update();
+  }
+
+  private boolean isSorted() {
+    for (SortKey key : sortKeys) {
+      if (key.getSortOrder() != SortOrder.UNSORTED) return true;
+    }
+    return false;
+  }
+
+  // 並べ替えと絞り込みをやり直し、表示の行の対応を作り直す
+  private void update() {
+    resortTimer.stop();
+    int[] previous = viewToModel;
+    modelRowCount = model.getRowCount();
+
+    int[] order = sortIndex.sort(sortKeys);
+    if (filter == null) {
+      viewToModel = order;
+    } else if (order == null && filterRows != null) {
+      // 求めてある配列を使う（モデルの行が減っていれば、行数以上の行を除く）
+      int count = filterRows.length;
+      if (count > 0 && filterRows[count - 1] >= modelRowCount) {
+        count = Arrays.binarySearch(filterRows, modelRowCount);
+        count = count < 0 ? -count - 1 : count;
+      }
+      viewToModel = count == filterRows.length ? filterRows : Arrays.copyOf(filterRows, count);
+    } else if (order == null) {
+      int[] rows = new int[Math.min(filter.cardinality(), modelRowCount)];
+      int count = 0;
+      for (int row = filter.nextSetBit(0); row >= 0 && row < modelRowCount; row = filter.nextSetBit(row + 1)) {
+        rows[count++] = row;
+      }
+      viewToModel = count == rows.length ? rows : Arrays.copyOf(rows, count);
+    } else {
+      int[] rows = new int[order.length];
+      int count = 0;
+      for (int row : order) {
+        if (filter.get(row)) {
+          rows[count++] = row;
+        }
+      }
+      viewToModel = Arrays.copyOf(rows, count);
+    }
+    modelToView = null;
+
+    // 以前の対応が恒等（null）なら JTable はそのまま行番号として扱う
+    fireRowSorterChanged(previous);
+  }
+}
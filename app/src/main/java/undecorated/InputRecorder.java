@@ -0,0 +1,81 @@
+package undecorated;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Toolkit;
+import java.awt.Window;
+import java.awt.event.AWTEventListener;
+import java.awt.event.MouseEvent;
+import javax.swing.SwingUtilities;
+
+/**
+ * ウィンドウのマウスイベントを InputRecording に記録するレコーダー
+ * WindowChromeDispatcher と同じく AWTEventListener としてウィンドウ内のすべてのマウスイベントを受け取る
+ * ドラッグ中はウィンドウの外に出たイベントも記録する（押したコンポーネントに届くため）
+ * LightweightDispatcher が子コンポーネントに振り分ける前後で同じイベントが 2 回届くことがあるので、
+ * 同じ時刻・種類・座標のイベントは 1 回として記録する
+ * EDT からのみ使うこと
+ */
+public class InputRecorder implements AWTEventListener {
+  private final Window window;
+  private InputRecording recording;
+  private long startNanos;
+  private MouseEvent lastEvent;
+
+  public InputRecorder(Window window) {
+    this.window = window;
+  }
+
+  /**
+   * 記録を始める（記録中なら何もしない）
+   */
+  public void start() {
+    if (recording != null) return;
+    recording = new InputRecording(window.getBounds());
+    startNanos = System.nanoTime();
+    lastEvent = null;
+    Toolkit.getDefaultToolkit().addAWTEventListener(this,
+        AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK);
+  }
+
+  /**
+   * 記録を終える
+   * @return 記録したイベント。記録中でなければ null
+   */
+  public InputRecording stop() {
+    if (recording == null) return null;
+    Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+    InputRecording result = recording;
+    recording = null;
+    lastEvent = null;
+    return result;
+  }
+
+  public boolean isRecording() {
+    return recording != null;
+  }
+
+  @Override
+  public void eventDispatched(AWTEvent event) {
+    if (recording == null || !(event instanceof MouseEvent)) return;
+    MouseEvent e = (MouseEvent) event;
+    int id = e.getID();
+    if (id == MouseEvent.MOUSE_ENTERED || id == MouseEvent.MOUSE_EXITED) return;
+    if (!isInWindow(e.getComponent())) return;
+    if (isSameEvent(lastEvent, e)) return;
+    lastEvent = e;
+    recording.add(id, e.getButton(), e.getClickCount(), e.getModifiersEx(), e.getXOnScreen(), e.getYOnScreen(),
+        (System.nanoTime() - startNanos) / 1000);
+  }
+
+  private boolean isInWindow(Component component) {
+    return component == window || (component != null && SwingUtilities.getWindowAncestor(component) == window);
+  }
+
+  // 振り分けの前と後で届いた、同じ入力によるイベントか
+  private static boolean isSameEvent(MouseEvent previous, MouseEvent e) {
+    return previous != null && previous.getWhen() == e.getWhen() && previous.getID() == e.getID()
+        && previous.getXOnScreen() == e.getXOnScreen() && previous.getYOnScreen() == e.getYOnScreen()
+        && previous.getButton() == e.getButton();
+  }
+}
@@ -0,0 +1,261 @@
+package undecorated;
+
+import java.awt.Rectangle;
+import java.awt.event.InputEvent;
+import java.awt.event.MouseEvent;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 記録したマウスイベントの並び（InputRecorder で記録し、InputReplayer で再生する）
+ * イベントごとに種類・ボタン・修飾キー・クリック回数・スクリーン座標・記録開始からの時刻を持つ
+ * 記録開始時のウィンドウの位置と大きさも持ち、再生の前にウィンドウをその状態に戻す
+ *
+ * ファイルの形式（ビッグエンディアン）:
+ *   "UREC" バージョン(short) 開始時のウィンドウの x, y, width, height(int) イベント数(int)
+ *   イベントごとに 種類(byte, id - MOUSE_FIRST) ボタン(byte) クリック回数(byte) 修飾キー(varint)
+ *   前のイベントからの時間(varint, マイクロ秒) 前のイベントからの x, y の差(zigzag varint)
+ * ドラッグ中のイベントはおよそ 7〜9 バイトになる
+ */
+public class InputRecording {
+  private static final int MAGIC = 0x55524543; // "UREC"
+  private static final short VERSION = 1;
+
+  private final Rectangle initialBounds;
+  private int size;
+  private int[] ids = new int[256];
+  private int[] buttons = new int[256];
+  private int[] clickCounts = new int[256];
+  private int[] modifiers = new int[256];
+  private int[] screenXs = new int[256];
+  private int[] screenYs = new int[256];
+  private long[] timesMicros = new long[256];
+
+  /**
+   * @param initialBounds 記録開始時のウィンドウの位置と大きさ（スクリーン座標）
+   */
+  public InputRecording(Rectangle initialBounds) {
+    this.initialBounds = new Rectangle(initialBounds);
+  }
+
+  /**
+   * イベントを 1 つ追加する（時刻は前のイベント以降であること）
+   * @param timeMicros 記録開始からの時刻（マイクロ秒）
+   */
+  public void add(int id, int button, int clickCount, int modifiersEx, int screenX, int screenY, long timeMicros) {
+    if (size == ids.length) {
+      int capacity = size * 2;
+      ids = Arrays.copyOf(ids, capacity);
+      buttons = Arrays.copyOf(buttons, capacity);
+      clickCounts = Arrays.copyOf(clickCounts, capacity);
+      modifiers = Arrays.copyOf(modifiers, capacity);
+      screenXs = Arrays.copyOf(screenXs, capacity);
+      screenYs = Arrays.copyOf(screenYs, capacity);
+      timesMicros = Arrays.copyOf(timesMicros, capacity);
+    }
+    ids[size] = id;
+    buttons[size] = button;
+    clickCounts[size] = clickCount;
+    modifiers[size] = modifiersEx;
+    screenXs[size] = screenX;
+    screenYs[size] = screenY;
+    timesMicros[size] = Math.max(timeMicros, size == 0 ? 0 : timesMicros[size - 1]);
+    size++;
+  }
+
+  public Rectangle getInitialBounds() {
+    return new Rectangle(initialBounds);
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /** MouseEvent.MOUSE_PRESSED などの種類 */
+  public int getId(int index) {
+    return ids[index];
+  }
+
+  public int getButton(int index) {
+    return buttons[index];
+  }
+
+  public int getClickCount(int index) {
+    return clickCounts[index];
+  }
+
+  /** InputEvent.getModifiersEx() の値 */
+  public int getModifiers(int index) {
+    return modifiers[index];
+  }
+
+  public int getScreenX(int index) {
+    return screenXs[index];
+  }
+
+  public int getScreenY(int index) {
+    return screenYs[index];
+  }
+
+  /** 記録開始からの時刻（マイクロ秒） */
+  public long getTimeMicros(int index) {
+    return timesMicros[index];
+  }
+
+  /** 最後のイベントの時刻（マイクロ秒） */
+  public long getDurationMicros() {
+    return size == 0 ? 0 : timesMicros[size - 1];
+  }
+
+  public void write(Path path) throws IOException {
+    try (OutputStream out = Files.newOutputStream(path)) {
+      writeTo(out);
+    }
+  }
+
+  public void writeTo(OutputStream stream) throws IOException {
+    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+    out.writeInt(MAGIC);
+    out.writeShort(VERSION);
+    out.writeInt(initialBounds.x);
+    out.writeInt(initialBounds.y);
+    out.writeInt(initialBounds.width);
+    out.writeInt(initialBounds.height);
+    out.writeInt(size);
+    long previousTime = 0;
+    int previousX = initialBounds.x;
+    int previousY = initialBounds.y;
+    for (int i = 0; i < size; i++) {
+      out.writeByte(ids[i] - MouseEvent.MOUSE_FIRST);
+      out.writeByte(buttons[i]);
+      out.writeByte(Math.min(clickCounts[i], 255));
+      writeVarint(out, modifiers[i] & 0xFFFFFFFFL);
+      writeVarint(out, timesMicros[i] - previousTime);
+      writeVarint(out, zigzag(screenXs[i] - previousX));
+      writeVarint(out, zigzag(screenYs[i] - previousY));
+      previousTime = timesMicros[i];
+      previousX = screenXs[i];
+      previousY = screenYs[i];
+    }
+    out.flush();
+  }
+
+  public static InputRecording read(Path path) throws IOException {
+    try (InputStream in = Files.newInputStream(path)) {
+      return readFrom(in);
+    }
+  }
+
+  public static InputRecording readFrom(InputStream stream) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(stream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("入力の記録ファイルではありません");
+    }
+    int version = in.readShort();
+    if (version != VERSION) {
+      throw new IOException("対応していないバージョンです: " + version);
+    }
+    Rectangle bounds = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+    int count = in.readInt();
+    if (count < 0) {
+      throw new IOException("イベント数が不正です: " + count);
+    }
+    InputRecording recording = new InputRecording(bounds);
+    long time = 0;
+    int x = bounds.x;
+    int y = bounds.y;
+    for (int i = 0; i < count; i++) {
+      int id = MouseEvent.MOUSE_FIRST + in.readUnsignedByte();
+      if (id > MouseEvent.MOUSE_LAST) {
+        throw new IOException("イベントの種類が不正です: " + id);
+      }
+      int button = in.readUnsignedByte();
+      int clickCount = in.readUnsignedByte();
+      int modifiersEx = (int) readVarint(in);
+      time += readVarint(in);
+      x += unzigzag(readVarint(in));
+      y += unzigzag(readVarint(in));
+      recording.add(id, button, clickCount, modifiersEx, x, y, time);
+    }
+    return recording;
+  }
+
+  /**
+   * タイトルバーの中央を押して、右下へ 3, 1 ピクセルずつドラッグする操作を作る
+   * 実際のマウスの記録がない環境でも、同じ操作を繰り返し再生できるようにするためのもの
+   * @param bounds 開始時のウィンドウの位置と大きさ（タイトルバーの高さは 30 とする）
+   * @param steps ドラッグイベントの数
+   * @param intervalMicros ドラッグイベントの間隔（125Hz のマウスなら 8000）
+   */
+  public static InputRecording synthesizeDrag(Rectangle bounds, int steps, long intervalMicros) {
+    return synthesize(bounds, bounds.x + bounds.width / 2, bounds.y + 15, 3, 1, steps, intervalMicros);
+  }
+
+  /**
+   * 右下の角を押して、2 ピクセルずつ広げる操作を作る
+   * @see #synthesizeDrag
+   */
+  public static InputRecording synthesizeResize(Rectangle bounds, int steps, long intervalMicros) {
+    return synthesize(bounds, bounds.x + bounds.width - 2, bounds.y + bounds.height - 2, 2, 2, steps,
+        intervalMicros);
+  }
+
+  private static InputRecording synthesize(Rectangle bounds, int x, int y, int dx, int dy, int steps,
+      long intervalMicros) {
+    InputRecording recording = new InputRecording(bounds);
+    long time = recording.press(x, y, 0, intervalMicros);
+    for (int i = 0; i < steps; i++) {
+      x += dx;
+      y += dy;
+      time += intervalMicros;
+      recording.add(MouseEvent.MOUSE_DRAGGED, MouseEvent.NOBUTTON, 0, InputEvent.BUTTON1_DOWN_MASK, x, y, time);
+    }
+    recording.release(x, y, time, intervalMicros);
+    return recording;
+  }
+
+  private long press(int x, int y, long time, long intervalMicros) {
+    add(MouseEvent.MOUSE_MOVED, MouseEvent.NOBUTTON, 0, 0, x, y, time);
+    time += intervalMicros;
+    add(MouseEvent.MOUSE_PRESSED, MouseEvent.BUTTON1, 1, InputEvent.BUTTON1_DOWN_MASK, x, y, time);
+    return time;
+  }
+
+  private void release(int x, int y, long time, long intervalMicros) {
+    add(MouseEvent.MOUSE_RELEASED, MouseEvent.BUTTON1, 1, 0, x, y, time + intervalMicros);
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static int unzigzag(long value) {
+    return (int) ((value >>> 1) ^ -(value & 1));
+  }
+
+  private static void writeVarint(DataOutputStream out, long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long readVarint(DataInputStream in) throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.readUnsignedByte();
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) return value;
+    }
+    throw new IOException("varint が長すぎます");
+  }
+}
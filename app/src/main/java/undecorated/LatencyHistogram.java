@@ -0,0 +1,92 @@
+package undecorated;
+
+import java.util.Arrays;
+
+/**
+ * 固定サイズの配列だけで遅延の分布を記録するヒストグラム（単位はマイクロ秒）
+ * 2 のべき乗ごとの区間を 8 分割したバケットを使い、相対誤差はおよそ 12.5% 以内
+ * 記録は 1 つのスレッドからのみ行うこと
+ */
+public class LatencyHistogram {
+  private static final int LINEAR_BUCKETS = 16;
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // 2^40 マイクロ秒（約 12 日）までを扱う
+  private static final int MAX_EXPONENT = 40;
+  private static final int BUCKET_COUNT = LINEAR_BUCKETS + (MAX_EXPONENT - 3) * SUB_BUCKETS;
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long totalCount;
+  private long maxMicros;
+
+  public void record(long micros) {
+    if (micros < 0) {
+      micros = 0;
+    }
+    counts[bucketOf(micros)]++;
+    totalCount++;
+    if (micros > maxMicros) {
+      maxMicros = micros;
+    }
+  }
+
+  public long getCount() {
+    return totalCount;
+  }
+
+  public long getMaxMicros() {
+    return maxMicros;
+  }
+
+  /**
+   * パーセンタイル値を返す
+   * @param percentile 0 から 100 まで
+   * @return 該当するバケットの上限（マイクロ秒）。記録がなければ 0
+   */
+  public long percentile(double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(totalCount * percentile / 100.0);
+    if (rank < 1) {
+      rank = 1;
+    }
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(upperBoundOf(i), maxMicros);
+      }
+    }
+    return maxMicros;
+  }
+
+  public void reset() {
+    Arrays.fill(counts, 0);
+    totalCount = 0;
+    maxMicros = 0;
+  }
+
+  static int bucketOf(long micros) {
+    if (micros < LINEAR_BUCKETS) {
+      return (int) micros;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKET_COUNT - 1;
+    }
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return Math.min(BUCKET_COUNT - 1, LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket);
+  }
+
+  static long upperBoundOf(int bucket) {
+    if (bucket < LINEAR_BUCKETS) {
+      return bucket;
+    }
+    int exponent = (bucket - LINEAR_BUCKETS) / SUB_BUCKETS + 4;
+    int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+    long base = 1L << exponent;
+    long width = base >>> SUB_BUCKET_BITS;
+    return base + (subBucket + 1) * width - 1;
+  }
+}
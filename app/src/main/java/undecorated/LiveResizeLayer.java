@@ -0,0 +1,186 @@
+package undecorated;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.Locale;
+import java.util.function.Consumer;
+import javax.swing.JComponent;
+import javax.swing.JLayer;
+import javax.swing.plaf.LayerUI;
+
+/**
+ * リサイズドラッグ中の描画をスナップショットで済ませるレイヤー
+ *
+ * ドラッグ開始時に中身を VolatileImage（作れなければ BufferedImage）に 1 回描いておき、
+ * ドラッグ中は中身のレイアウトを止めて、その画像を左上に合わせて切り取って描くだけにする
+ * 広がった部分は背景色で塗る。ウィンドウの枠はこのレイヤーの外なので、通常どおり新しい大きさで描かれる
+ * 離した時に一度だけ本当のレイアウトをして描き直す
+ * テーブルなど重い中身を毎フレームレイアウト・描画し直すと、リサイズがマウスに追いつかなくなる
+ *
+ * 画像は等倍のまま切り取る（拡大縮小しない）ので、ドラッグ中に子コンポーネントの再描画が
+ * 起きても、スナップショット上の同じ位置に重なる
+ * どちらのモードでも、ドラッグ中の描画の間隔を FrameRateMeter で測る
+ * モードは -Dresize.live=snapshot（既定）または layout（毎回レイアウトする従来の動作）
+ * EDT からのみ使うこと
+ */
+public class LiveResizeLayer extends LayerUI<JComponent> implements FrameResizeEngine.ResizeStateListener {
+  private static final long serialVersionUID = 1L;
+
+  public static final String MODE_SNAPSHOT = "snapshot";
+  public static final String MODE_LAYOUT = "layout";
+
+  private final FrameRateMeter meter = new FrameRateMeter();
+  private final Consumer<String> statusSink;
+  private boolean snapshotMode;
+
+  private JLayer<JComponent> layer;
+  private Image snapshot;
+  private int snapshotWidth;
+  private int snapshotHeight;
+  private boolean frozen;
+
+  // 計測値
+  private long captureCount;
+  private long restoredCount;
+  private long skippedLayouts;
+  private double lastCaptureMillis;
+
+  /**
+   * @param statusSink ドラッグごとのフレームレートの通知先（null なら通知しない）
+   */
+  public LiveResizeLayer(Consumer<String> statusSink) {
+    this.statusSink = statusSink;
+    this.snapshotMode = !MODE_LAYOUT.equals(System.getProperty("resize.live", MODE_SNAPSHOT));
+  }
+
+  /**
+   * 中身をこのレイヤーで包む。戻り値を中身の代わりにコンテナへ追加する
+   */
+  public JLayer<JComponent> wrap(JComponent view) {
+    layer = new JLayer<>(view, this);
+    return layer;
+  }
+
+  public boolean isSnapshotMode() {
+    return snapshotMode;
+  }
+
+  /**
+   * ドラッグ中にスナップショットを描くか（false なら毎回レイアウトする）
+   * 次のドラッグから有効
+   */
+  public void setSnapshotMode(boolean snapshotMode) {
+    this.snapshotMode = snapshotMode;
+  }
+
+  public FrameRateMeter getMeter() {
+    return meter;
+  }
+
+  @Override
+  public void resizeStarted() {
+    meter.begin();
+    if (!snapshotMode || layer == null || layer.getWidth() <= 0 || layer.getHeight() <= 0) return;
+    long start = System.nanoTime();
+    snapshotWidth = layer.getWidth();
+    snapshotHeight = layer.getHeight();
+    snapshot = createSnapshot();
+    render();
+    frozen = true;
+    captureCount++;
+    lastCaptureMillis = (System.nanoTime() - start) / 1_000_000.0;
+  }
+
+  @Override
+  public void resizeFinished() {
+    meter.end();
+    if (frozen) {
+      frozen = false;
+      snapshot.flush();
+      snapshot = null;
+      // 止めていたレイアウトを一度だけ行う
+      layer.revalidate();
+      layer.repaint();
+    }
+    if (statusSink != null && meter.getFrameCount() > 0) {
+      statusSink.accept("リサイズ: " + meter.formatLast() + (snapshotMode ? " (スナップショット)" : " (レイアウト)"));
+    }
+  }
+
+  @Override
+  public void doLayout(JLayer<? extends JComponent> l) {
+    if (frozen) {
+      // 中身は元の大きさのままにしておく（中身が無効にならないので、その下のレイアウトも起きない）
+      skippedLayouts++;
+      return;
+    }
+    super.doLayout(l);
+  }
+
+  @Override
+  public void paint(Graphics g, JComponent c) {
+    if (frozen) {
+      paintSnapshot(g, c);
+    } else {
+      super.paint(g, c);
+    }
+    meter.frame();
+  }
+
+  private void paintSnapshot(Graphics g, JComponent c) {
+    if (snapshot instanceof VolatileImage) {
+      VolatileImage image = (VolatileImage) snapshot;
+      int status = image.validate(c.getGraphicsConfiguration());
+      if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+        image.flush();
+        snapshot = createSnapshot();
+        status = VolatileImage.IMAGE_RESTORED;
+      }
+      if (status == VolatileImage.IMAGE_RESTORED) {
+        // 中身は元の大きさのままなので、描き直しても開始時と同じ絵になる
+        restoredCount++;
+        render();
+      }
+    }
+    g.drawImage(snapshot, 0, 0, null);
+
+    int width = c.getWidth();
+    int height = c.getHeight();
+    g.setColor(layer.getView().getBackground());
+    if (width > snapshotWidth) {
+      g.fillRect(snapshotWidth, 0, width - snapshotWidth, height);
+    }
+    if (height > snapshotHeight) {
+      g.fillRect(0, snapshotHeight, Math.min(width, snapshotWidth), height - snapshotHeight);
+    }
+  }
+
+  private Image createSnapshot() {
+    Image image = layer.isDisplayable() ? layer.createVolatileImage(snapshotWidth, snapshotHeight) : null;
+    if (image == null) {
+      image = new BufferedImage(snapshotWidth, snapshotHeight, BufferedImage.TYPE_INT_RGB);
+    }
+    return image;
+  }
+
+  // 中身をスナップショットに描く（VolatileImage は描画中に失われたら描き直す）
+  private void render() {
+    do {
+      Graphics2D g = (Graphics2D) snapshot.getGraphics();
+      try {
+        g.setColor(layer.getView().getBackground());
+        g.fillRect(0, 0, snapshotWidth, snapshotHeight);
+        layer.getView().paint(g);
+      } finally {
+        g.dispose();
+      }
+    } while (snapshot instanceof VolatileImage && ((VolatileImage) snapshot).contentsLost());
+  }
+
+  public String formatStats() {
+    return String.format(Locale.ROOT, "liveResize mode=%s captures=%d restored=%d skippedLayouts=%d lastCapture=%.2fms %s",
+        snapshotMode ? MODE_SNAPSHOT : MODE_LAYOUT, captureCount, restoredCount, skippedLayouts,
+        lastCaptureMillis, meter.formatStats());
+  }
+}
@@ -0,0 +1,1053 @@
+package undecorated;
+
+import javax.swing.*;
+import javax.swing.border.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import javax.swing.table.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+
+public class Main {
+  private JFrame frame;
+  private JPanel sidebarPanel;
+  private JPanel mainPanel;
+  private StatusCell statusLabel;
+  private JTable dataTable;
+  private CustomerTableModel tableModel;
+  private StatusCell timeLabel;
+  private StatusBus statusBus;
+  private WindowShapeManager shapeManager;
+  private CsvLoader csvLoader;
+  private TableExporter exporter;
+  // 読み込んだファイルの解析結果のキャッシュ（無効にした場合は null）
+  private final SnapshotCache snapshotCache = SnapshotCache.fromSystemProperties(
+      message -> statusBus.publish(message));
+  private JButton cancelLoadButton;
+  private WindowChromeDispatcher chromeDispatcher;
+  private LiveResizeLayer liveResize;
+  private InputRecorder inputRecorder;
+  private RepaintOverlay repaintOverlay;
+  private SearchController searchController;
+  private FacetController facetController;
+  private FacetPanel facetPanel;
+  // サイドバーのメニューの下（顧客管理の画面を作った時にファセットのパネルを置く）
+  private JPanel sidebarBody;
+  private IndexedRowSorter rowSorter;
+  private SelectionAggregator selectionAggregator;
+  private MetricsSampler metricsSampler;
+  private CachedTextCellRenderer cellRenderer;
+  // 大きなファイルはメモリに読み込まず、ページ単位で表示する
+  private PagingTableModel pagingModel;
+  private PaginationPanel paginationPanel;
+  private PaginationPanel.TablePager tablePager;
+  private JPanel contentPanel;
+  private ViewRegistry viewRegistry;
+  private JComponent currentView;
+  private JComponent customerView;
+
+  public static void main(String[] args) {
+    StartupProbe.start();
+
+    // Look and Feel とフォントの読み込みを EDT と並行して進める
+    StartupWarmup.start();
+
+    // macOS用の設定
+    System.setProperty("apple.awt.brushMetalLook", "true");
+    // 自由な位置設定を許可
+    System.setProperty("java.awt.Window.locationByPlatform", "false");
+    // macOSでの特殊な制限を無視
+    System.setProperty("apple.awt.draggableWindowBackground", "true");
+    // 全画面表示の許可（これが複数モニター環境での移動に影響することがある）
+    System.setProperty("apple.awt.fullscreenable", "true");
+    // ウィンドウ位置移動の制限を無効化（重要）
+    System.setProperty("apple.awt.windowMoveLimit", "100000");
+    // JFrameの透明化を許可（上部モニターへの移動に効果あり）
+    System.setProperty("apple.awt.windowTranslucent", "true");
+
+    // EDT のイベント処理時間の計測と停止検出（-Dedt.monitor=false で無効）
+    EdtMonitor.install();
+    // 再描画の要求のまとめと計測（-Drepaint.monitor=true で有効）
+    RepaintMonitor.install();
+
+    SwingUtilities.invokeLater(() -> {
+      try {
+        // Set look and feel to system
+        UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      StartupProbe.mark(StartupProbe.LOOK_AND_FEEL);
+
+      new Main();
+    });
+  }
+
+  public Main() {
+    initialize();
+  }
+
+  private void initialize() {
+    // Create main frame
+    frame = new JFrame("業務管理システム");
+    frame.setSize(1200, 800);
+    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+    frame.setLocationRelativeTo(null);
+
+    // 必ずsetVisibleの前にsetUndecoratedを設定
+    frame.setUndecorated(true);
+
+    // Macスタイルの丸い角を適用
+    int arcSize = 15; // 丸みの大きさ
+    setRoundedCorners(frame, arcSize);
+    
+    // フレームの枠を作成（リサイズ用）
+    ResizeListener.drawResizableBorder(frame);
+    
+    // 枠（リサイズ領域・タイトルバー）のマウス操作は 1 つのディスパッチャーでまとめて扱う
+    chromeDispatcher = new WindowChromeDispatcher(frame, ResizeListener.RESIZE_BORDER_WIDTH,
+        ScreenTopology.getDefault());
+    chromeDispatcher.install();
+    // リサイズドラッグ中は丸い角の更新を止め、離した時に一度だけ適用する
+    chromeDispatcher.getResizeEngine().addResizeStateListener(shapeManager);
+    // リサイズドラッグ中は中身のレイアウトを止め、開始時のスナップショットを描く
+    liveResize = new LiveResizeLayer(message -> statusBus.publish(message));
+    chromeDispatcher.getResizeEngine().addResizeStateListener(liveResize);
+
+    // 再描画のデバッグ表示（-Drepaint.monitor=true の時に Ctrl+Shift+R で切り替え、
+    // -Drepaint.overlay=true で最初から表示）
+    // 表示とマウス入力の記録（Ctrl+Shift+I）は、最初に使われた時に作成する
+    if (RepaintMonitor.getInstance() != null) {
+      bindKey(KeyEvent.VK_R, "toggleRepaintOverlay", this::toggleRepaintOverlay);
+      if (Boolean.getBoolean("repaint.overlay")) {
+        toggleRepaintOverlay();
+      }
+    }
+    bindKey(KeyEvent.VK_I, "toggleInputRecording", this::toggleInputRecording);
+
+    // カスタムタイトルバーを作成
+    JPanel titleBar = createCustomTitleBar();
+
+    // メインコンテンツ用のパネルを作成
+    contentPanel = new JPanel(new BorderLayout());
+
+    // ステータスバーを作成
+    JPanel statusBar = createStatusBar();
+    contentPanel.add(statusBar, BorderLayout.SOUTH);
+
+    // Start status bar timer
+    statusBus.start();
+
+    // メインパネルにすべてのコンテンツを配置
+    JPanel rootPanel = new JPanel(new BorderLayout()) {
+      @Override
+      public void paint(Graphics g) {
+        super.paint(g);
+        StartupProbe.mark(StartupProbe.FIRST_PAINT);
+      }
+    };
+    rootPanel.add(titleBar, BorderLayout.NORTH);
+    rootPanel.add(liveResize.wrap(contentPanel), BorderLayout.CENTER);
+
+    // メインパネルをフレームに追加
+    frame.setContentPane(rootPanel);
+
+    // まずタイトルバーとステータスバーだけの枠を表示する
+    frame.setVisible(true);
+    StartupProbe.mark(StartupProbe.SHELL_VISIBLE);
+
+    // 重いパネルは枠の表示後、次の EDT のターンで組み立てる
+    SwingUtilities.invokeLater(this::buildContent);
+  }
+
+  /**
+   * メニュー・ツールバー・サイドバーと、最初に表示する顧客管理の画面を組み立てて枠に追加する
+   * メニューの項目は開かれた時に、他のモジュールの画面は選択された時に ViewRegistry が作成する
+   */
+  private void buildContent() {
+    // メニューバーを作成
+    JMenuBar menuBar = createMenuBar();
+
+    // メニューバーをパネルに配置
+    JPanel menuPanel = new JPanel(new BorderLayout());
+    menuPanel.add(menuBar, BorderLayout.NORTH);
+
+    // ツールバーを作成
+    JToolBar toolBar = createToolBar();
+
+    // ツールバーをメニューパネルに追加
+    menuPanel.add(toolBar, BorderLayout.SOUTH);
+
+    // メニューパネルをコンテンツパネルの上部に追加
+    contentPanel.add(menuPanel, BorderLayout.NORTH);
+
+    // Create main content area with split pane
+    JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT);
+    splitPane.setDividerLocation(250);
+    splitPane.setDividerSize(5);
+
+    // Create sidebar
+    createSidebar();
+    splitPane.setLeftComponent(sidebarPanel);
+
+    // Create main content
+    createMainContent();
+    splitPane.setRightComponent(mainPanel);
+
+    // スプリットペインをコンテンツパネルの中央に追加
+    contentPanel.add(splitPane, BorderLayout.CENTER);
+    contentPanel.revalidate();
+    contentPanel.repaint();
+    StartupProbe.mark(StartupProbe.CONTENT_READY);
+  }
+
+  private JMenuBar createMenuBar() {
+    JMenuBar menuBar = new JMenuBar();
+
+    // 各メニューの項目は初めて開かれた時に作成する
+    // File menu
+    JMenu fileMenu = createLazyMenu("ファイル", menu -> {
+      menu.add(new JMenuItem("新規作成"));
+
+      JMenuItem openItem = new JMenuItem("開く");
+      openItem.addActionListener(e -> openFileDialog());
+      menu.add(openItem);
+
+      menu.add(new JMenuItem("保存"));
+      menu.addSeparator();
+
+      JMenuItem exitItem = new JMenuItem("終了");
+      exitItem.addActionListener(e -> System.exit(0));
+      menu.add(exitItem);
+    });
+
+    // Edit menu
+    JMenu editMenu = createLazyMenu("編集", menu -> {
+      menu.add(new JMenuItem("切り取り"));
+      menu.add(new JMenuItem("コピー"));
+      menu.add(new JMenuItem("貼り付け"));
+    });
+
+    // View menu
+    JMenu viewMenu = createLazyMenu("表示", menu -> {
+      menu.add(new JMenuItem("詳細"));
+      menu.add(new JMenuItem("概要"));
+    });
+
+    // Tools menu
+    JMenu toolsMenu = createLazyMenu("ツール", menu -> {
+      menu.add(new JMenuItem("設定"));
+      menu.add(new JMenuItem("カスタマイズ"));
+    });
+
+    // Help menu
+    JMenu helpMenu = createLazyMenu("ヘルプ", menu -> {
+      menu.add(new JMenuItem("ヘルプトピック"));
+      menu.add(new JMenuItem("バージョン情報"));
+    });
+
+    menuBar.add(fileMenu);
+    menuBar.add(editMenu);
+    menuBar.add(viewMenu);
+    menuBar.add(toolsMenu);
+    menuBar.add(helpMenu);
+
+    return menuBar;
+  }
+
+  /**
+   * 初めて選択された時に項目を作成するメニューを作る
+   */
+  private JMenu createLazyMenu(String title, java.util.function.Consumer<JMenu> populate) {
+    JMenu menu = new JMenu(title);
+    menu.addMenuListener(new MenuListener() {
+      @Override
+      public void menuSelected(MenuEvent e) {
+        menu.removeMenuListener(this);
+        populate.accept(menu);
+      }
+
+      @Override
+      public void menuDeselected(MenuEvent e) {
+      }
+
+      @Override
+      public void menuCanceled(MenuEvent e) {
+      }
+    });
+    return menu;
+  }
+
+  private JToolBar createToolBar() {
+    JToolBar toolBar = new JToolBar();
+    toolBar.setFloatable(false);
+
+    JButton newButton = new JButton("新規");
+    newButton.setFocusable(false);
+    toolBar.add(newButton);
+
+    JButton openButton = new JButton("開く");
+    openButton.setFocusable(false);
+    openButton.addActionListener(e -> openFileDialog());
+    toolBar.add(openButton);
+
+    JButton saveButton = new JButton("保存");
+    saveButton.setFocusable(false);
+    toolBar.add(saveButton);
+
+    toolBar.addSeparator();
+
+    JButton searchButton = new JButton("検索");
+    searchButton.setFocusable(false);
+    toolBar.add(searchButton);
+
+    JTextField searchField = new JTextField(20);
+    toolBar.add(searchField);
+
+    // 入力のたびに検索する（実際の検索はバックグラウンドで行われる）
+    searchButton.addActionListener(e -> search(searchField.getText()));
+    searchField.addActionListener(e -> search(searchField.getText()));
+    searchField.getDocument().addDocumentListener(new DocumentListener() {
+      @Override
+      public void insertUpdate(DocumentEvent e) {
+        search(searchField.getText());
+      }
+
+      @Override
+      public void removeUpdate(DocumentEvent e) {
+        search(searchField.getText());
+      }
+
+      @Override
+      public void changedUpdate(DocumentEvent e) {
+      }
+    });
+
+    toolBar.addSeparator();
+
+    JButton reportButton = new JButton("レポート");
+    reportButton.setFocusable(false);
+    toolBar.add(reportButton);
+
+    JButton settingsButton = new JButton("設定");
+    settingsButton.setFocusable(false);
+    toolBar.add(settingsButton);
+
+    return toolBar;
+  }
+
+  private void createSidebar() {
+    sidebarPanel = new JPanel(new BorderLayout());
+    sidebarPanel.setBorder(BorderFactory.createCompoundBorder(
+        BorderFactory.createMatteBorder(0, 0, 0, 1, Color.GRAY),
+        BorderFactory.createEmptyBorder(5, 5, 5, 5)));
+
+    // Create a label at the top of the sidebar
+    JLabel sidebarTitle = new JLabel("メニュー");
+    sidebarTitle.setFont(FontRegistry.bold(14));
+    sidebarTitle.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+    sidebarPanel.add(sidebarTitle, BorderLayout.NORTH);
+
+    // Create a list of options
+    String[] options = { "ダッシュボード", "顧客管理", "売上管理", "製品管理", "在庫管理", "社員管理", "設定" };
+    JList<String> optionList = new JList<>(options);
+    optionList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    // 起動時は顧客管理を表示する
+    optionList.setSelectedIndex(1);
+    optionList.setFont(FontRegistry.plain(14));
+
+    // Add selection listener
+    optionList.addListSelectionListener(e -> {
+      if (!e.getValueIsAdjusting()) {
+        String selected = optionList.getSelectedValue();
+        updateMainContent(selected);
+      }
+    });
+
+    JScrollPane listScrollPane = new JScrollPane(optionList);
+    listScrollPane.setBorder(null);
+    sidebarBody = new JPanel(new BorderLayout());
+    sidebarBody.add(listScrollPane, BorderLayout.NORTH);
+    sidebarPanel.add(sidebarBody, BorderLayout.CENTER);
+  }
+
+  /**
+   * モジュールの画面を登録し、最初の画面（顧客管理）を表示する
+   * 画面は選択された時に作成し、最近使ったものを ViewRegistry がキャッシュする
+   */
+  private void createMainContent() {
+    mainPanel = new JPanel(new BorderLayout());
+
+    // キャッシュする画面のデータの上限（-Dview.cache.budgetMB、既定は 4MB）
+    // 既定では売上（約 3.5MB）と他の一覧をすべて開くと、最も前に使った画面から破棄する
+    long budgetBytes = Long.getLong("view.cache.budgetMB", 4) * 1024 * 1024;
+    viewRegistry = new ViewRegistry(budgetBytes);
+    // 顧客管理は読み込んだデータと検索インデックスを持つので破棄しない
+    viewRegistry.register("顧客管理", this::createCustomerView, true);
+    viewRegistry.register("ダッシュボード", () -> new DashboardView(tableModel, metricsSampler), false);
+    viewRegistry.register("売上管理", RecordModuleView::sales, false);
+    viewRegistry.register("製品管理", RecordModuleView::products, false);
+    viewRegistry.register("在庫管理", RecordModuleView::inventory, false);
+    viewRegistry.register("社員管理", RecordModuleView::employees, false);
+    viewRegistry.register("設定", () -> new SettingsView(this::formatDiagnostics, shapeManager), false);
+
+    showView("顧客管理");
+
+    // ダッシュボードのグラフの記録は、画面を破棄しても続ける
+    metricsSampler = new MetricsSampler(tableModel,
+        () -> searchController == null ? 0 : searchController.getQueryCount());
+    metricsSampler.start();
+  }
+
+  /**
+   * 顧客管理の画面を作成する
+   */
+  private ViewRegistry.ModuleView createCustomerView() {
+    JPanel customerPanel = new JPanel(new BorderLayout());
+    customerPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+    customerView = customerPanel;
+
+    // Create a header panel
+    JPanel headerPanel = new JPanel(new BorderLayout());
+    JLabel titleLabel = new JLabel("顧客管理");
+    titleLabel.setFont(FontRegistry.bold(18));
+    headerPanel.add(titleLabel, BorderLayout.WEST);
+
+    // Add some action buttons to header
+    JPanel actionPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+    actionPanel.add(new JButton("新規登録"));
+    JButton bulkEditButton = new JButton("一括編集");
+    bulkEditButton.addActionListener(e -> bulkEditDialog());
+    actionPanel.add(bulkEditButton);
+    JButton exportButton = new JButton("エクスポート");
+    exportButton.addActionListener(e -> exportFileDialog());
+    actionPanel.add(exportButton);
+    headerPanel.add(actionPanel, BorderLayout.EAST);
+    headerPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+
+    customerPanel.add(headerPanel, BorderLayout.NORTH);
+
+    // Create table for data display
+    createDataTable();
+    JScrollPane tableScrollPane = new JScrollPane(dataTable);
+    customerPanel.add(tableScrollPane, BorderLayout.CENTER);
+
+    // ファセットの絞り込みはサイドバーのメニューの下と、列見出しの右クリックから行う
+    facetPanel = new FacetPanel(facetController);
+    facetPanel.setBorder(BorderFactory.createCompoundBorder(
+        BorderFactory.createMatteBorder(1, 0, 0, 0, Color.LIGHT_GRAY),
+        BorderFactory.createEmptyBorder(5, 0, 0, 0)));
+    facetPanel.installHeaderMenu(dataTable.getTableHeader());
+    sidebarBody.add(facetPanel, BorderLayout.CENTER);
+
+    // ページ送り（メモリ上のデータはスクロール、ページ表示中は PagingTableModel のページを切り替える）
+    paginationPanel = new PaginationPanel();
+    tablePager = new PaginationPanel.TablePager(dataTable, tableScrollPane, PagingTableModel.DEFAULT_PAGE_SIZE);
+    paginationPanel.setPager(tablePager);
+
+    customerPanel.add(paginationPanel, BorderLayout.SOUTH);
+
+    return new ViewRegistry.ModuleView() {
+      @Override
+      public JComponent getComponent() {
+        return customerPanel;
+      }
+
+      @Override
+      public long estimatedBytes() {
+        return tableModel.estimatedBytes();
+      }
+
+      @Override
+      public void release() {
+        // 固定しているので呼ばれない
+      }
+    };
+  }
+
+  private void createDataTable() {
+    // Sample data
+    Object[][] data = {
+        { "1001", "田中 太郎", "株式会社タナカ", "03-1234-5678", "tanaka@example.com", "2024-01-15", "2024-03-05", "アクティブ" },
+        { "1002", "佐藤 花子", "佐藤商事", "03-2345-6789", "sato@example.com", "2024-01-20", "2024-02-28", "アクティブ" },
+        { "1003", "鈴木 一郎", "鈴木工業", "03-3456-7890", "suzuki@example.com", "2024-01-25", "2024-03-01", "休眠" },
+        { "1004", "高橋 直子", "高橋建設", "03-4567-8901", "takahashi@example.com", "2024-02-01", "2024-02-15", "アクティブ" },
+        { "1005", "渡辺 健太", "渡辺製作所", "03-5678-9012", "watanabe@example.com", "2024-02-05", "2024-03-02", "アクティブ" },
+        { "1006", "伊藤 美加", "伊藤商店", "03-6789-0123", "ito@example.com", "2024-02-10", "2024-02-20", "休眠" },
+        { "1007", "山本 龍太郎", "山本電機", "03-7890-1234", "yamamoto@example.com", "2024-02-15", "", "新規" },
+        { "1008", "中村 由美", "中村食品", "03-8901-2345", "nakamura@example.com", "2024-02-20", "2024-03-10", "アクティブ" },
+        { "1009", "小林 俊介", "小林商事", "03-9012-3456", "kobayashi@example.com", "2024-02-25", "2024-03-08", "アクティブ" },
+        { "1010", "加藤 恵", "加藤工業", "03-0123-4567", "kato@example.com", "2024-03-01", "", "新規" }
+    };
+
+    // 列ごとに圧縮して保持するモデル（編集不可）
+    tableModel = new CustomerTableModel(data);
+
+    dataTable = new JTable(tableModel);
+    dataTable.putClientProperty(EdtMonitor.CATEGORY_KEY, EdtMonitor.CATEGORY_TABLE);
+
+    // 列見出しのクリックで並べ替え（キャッシュした並びを使う）
+    // 検索結果とファセットの条件の積を FacetController が求め、その行だけを表示する
+    rowSorter = new IndexedRowSorter(tableModel);
+    dataTable.setRowSorter(rowSorter);
+    facetController = new FacetController(tableModel, rowSorter::setFilter, this::facetsUpdated);
+    searchController = new SearchController(tableModel, facetController::setSearchRows,
+        message -> statusBus.publish(message));
+    // 複数行を選択でき、2 行以上の選択はステータスバーに集計を表示する
+    dataTable.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+    selectionAggregator = new SelectionAggregator(dataTable, tableModel, rowSorter,
+        message -> statusBus.publish(message));
+    // 文字列のグリフを並べた結果を使い回すレンダラー（すべての列が String）
+    cellRenderer = new CachedTextCellRenderer();
+    dataTable.setDefaultRenderer(String.class, cellRenderer);
+    dataTable.setRowHeight(25);
+    dataTable.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+    dataTable.getTableHeader().setReorderingAllowed(false);
+
+    // Add a row selection listener
+    dataTable.getSelectionModel().addListSelectionListener(e -> {
+      if (!e.getValueIsAdjusting() && dataTable.getSelectedRowCount() == 1) {
+        int row = dataTable.getSelectedRow();
+        String customerId = (String) dataTable.getValueAt(row, 0);
+        String customerName = (String) dataTable.getValueAt(row, 1);
+        statusBus.publish("選択: " + customerId + " - " + customerName);
+      }
+    });
+  }
+
+  private JPanel createStatusBar() {
+    JPanel statusPanel = new JPanel(new BorderLayout());
+    statusPanel.setBorder(new CompoundBorder(
+        new MatteBorder(1, 0, 0, 0, Color.GRAY),
+        new EmptyBorder(3, 5, 3, 5)));
+
+    // Status message on the left
+    JPanel messagePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 0));
+    messagePanel.setOpaque(false);
+    statusLabel = new StatusCell("準備完了");
+    messagePanel.add(statusLabel);
+
+    // 読み込み中だけ表示する中止ボタン
+    cancelLoadButton = new JButton("中止");
+    cancelLoadButton.setFocusable(false);
+    cancelLoadButton.setMargin(new Insets(0, 6, 0, 6));
+    cancelLoadButton.setVisible(false);
+    cancelLoadButton.addActionListener(e -> cancelLoad());
+    messagePanel.add(cancelLoadButton);
+    statusPanel.add(messagePanel, BorderLayout.WEST);
+
+    // Current date and time on the right
+    timeLabel = new StatusCell();
+    statusPanel.add(timeLabel, BorderLayout.EAST);
+
+    // ステータスバーへの表示はすべてバスを通して 1 フレームに 1 回へまとめる
+    statusBus = new StatusBus(statusLabel, timeLabel);
+
+    // EDT の遅延を表示する（-Dedt.monitor.readout=true の場合のみ）
+    EdtMonitor edtMonitor = EdtMonitor.getInstance();
+    if (edtMonitor != null && Boolean.getBoolean("edt.monitor.readout")) {
+      StatusCell edtLabel = new StatusCell();
+      edtLabel.setBorder(new EmptyBorder(0, 10, 0, 10));
+      statusPanel.add(edtLabel, BorderLayout.CENTER);
+      new Timer(1000, e -> edtLabel.setText(edtMonitor.formatSummary())).start();
+    }
+
+    return statusPanel;
+  }
+
+  /**
+   * Macスタイルの丸い角をウィンドウに適用するメソッド
+   * 形状の作成と setShape の呼び出しは WindowShapeManager がキャッシュ・間引きする
+   * @param frame 丸い角を適用するJFrame
+   * @param arcSize 角の丸みの大きさ（ピクセル単位）
+   */
+  private void setRoundedCorners(JFrame frame, int arcSize) {
+    shapeManager = new WindowShapeManager(frame, arcSize);
+    shapeManager.install();
+  }
+
+  /**
+   * ファイルダイアログを開く
+   */
+  private void openFileDialog() {
+    FileDialog fileDialog = new FileDialog(frame, "ファイルを開く", FileDialog.LOAD);
+    
+    fileDialog.setFilenameFilter((dir, name) -> name.endsWith(".txt") || name.endsWith(".csv"));
+    
+    fileDialog.setVisible(true);
+    
+    // 選択されたファイルを取得
+    if (fileDialog.getFile() != null) {
+      String selectedFilePath = fileDialog.getDirectory() + fileDialog.getFile();
+      
+      // ファイルの処理（例：状態バーに表示）
+      statusBus.publish("選択されたファイル: " + selectedFilePath);
+      
+      readFile(new File(selectedFilePath));
+    }
+  }
+
+  /**
+   * ファイルをバックグラウンドで読み込み、テーブルの内容を置き換える
+   */
+  private void readFile(File file) {
+    cancelLoad();
+
+    // しきい値（-Dcustomers.pagingThresholdMB、既定は 512MB）以上のファイルはページ単位で表示する
+    long thresholdBytes = Long.getLong("customers.pagingThresholdMB", 512) * 1024 * 1024;
+    if (file.length() >= thresholdBytes) {
+      openPaged(file);
+      return;
+    }
+    closePaged();
+
+    tableModel.clear();
+    CsvLoader loader = new CsvLoader(file, tableModel, snapshotCache, statusBus::publish);
+    loader.addPropertyChangeListener(e -> {
+      if ("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE
+          && csvLoader == loader && (exporter == null || exporter.isDone())) {
+        cancelLoadButton.setVisible(false);
+      }
+    });
+    csvLoader = loader;
+    cancelLoadButton.setVisible(true);
+    loader.execute();
+  }
+
+  /**
+   * ファイルをメモリに読み込まず、ページ単位で表示する
+   * 並べ替え・検索・一括編集・エクスポートは、メモリに読み込んだデータでのみ使える
+   */
+  private void openPaged(File file) {
+    if (pagingModel == null) {
+      pagingModel = new PagingTableModel();
+    }
+    CustomerRepository previous = pagingModel.getRepository();
+    if (previous == null) {
+      dataTable.setRowSorter(null);
+      dataTable.setModel(pagingModel);
+      paginationPanel.setPager(pagingModel);
+      // メモリ上のデータは表示しなくなるので手放す（検索・ファセットのインデックスも clear の通知で空になる）
+      // テーブルから外した並べ替えには通知が届かないので、並びのキャッシュはここで捨てる
+      tableModel.clear();
+      rowSorter.allRowsChanged();
+    }
+    pagingModel.setRepository(new FileCustomerRepository(file));
+    updateFacetPanel();
+    closeRepository(previous);
+    statusBus.publish("ページ単位で表示します: " + file.getName());
+  }
+
+  /**
+   * ページ単位の表示をやめて、メモリ上のデータの表示に戻す
+   */
+  private void closePaged() {
+    if (!isPaged()) return;
+    CustomerRepository previous = pagingModel.getRepository();
+    pagingModel.setRepository(null);
+    closeRepository(previous);
+    dataTable.setModel(tableModel);
+    dataTable.setRowSorter(rowSorter);
+    paginationPanel.setPager(tablePager);
+    updateFacetPanel();
+  }
+
+  /**
+   * Ctrl+Shift+キーにウィンドウ全体で有効な操作を割り当てる
+   */
+  private void bindKey(int keyCode, String name, Runnable action) {
+    frame.getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(
+        KeyStroke.getKeyStroke(keyCode, InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK), name);
+    frame.getRootPane().getActionMap().put(name, new AbstractAction() {
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        action.run();
+      }
+    });
+  }
+
+  private void toggleRepaintOverlay() {
+    if (repaintOverlay == null) {
+      repaintOverlay = new RepaintOverlay(RepaintMonitor.getInstance());
+      repaintOverlay.install(frame.getRootPane());
+    }
+    repaintOverlay.toggle();
+  }
+
+  /**
+   * マウス入力の記録を開始・終了する
+   * 終了時は -Dinput.record.dir（既定は作業ディレクトリ）に input-日時.rec として保存する
+   */
+  private void toggleInputRecording() {
+    if (inputRecorder == null) {
+      inputRecorder = new InputRecorder(frame);
+    }
+    if (!inputRecorder.isRecording()) {
+      inputRecorder.start();
+      statusBus.publish("マウス入力を記録しています（Ctrl+Shift+I で終了）");
+      return;
+    }
+    InputRecording recording = inputRecorder.stop();
+    File dir = new File(System.getProperty("input.record.dir", System.getProperty("user.dir")));
+    File file = new File(dir, "input-" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".rec");
+    try {
+      recording.write(file.toPath());
+      statusBus.publish(String.format("マウス入力の記録を保存しました: %s（%,d イベント）", file.getName(), recording.size()));
+    } catch (IOException e) {
+      e.printStackTrace();
+      statusBus.publish("マウス入力の記録を保存できませんでした: " + e.getMessage());
+    }
+  }
+
+  // 以下は benchmarks の InputReplayer が再生結果を集計するのに使う
+  JFrame getFrame() {
+    return frame;
+  }
+
+  WindowChromeDispatcher getChromeDispatcher() {
+    return chromeDispatcher;
+  }
+
+  WindowShapeManager getShapeManager() {
+    return shapeManager;
+  }
+
+  private boolean isPaged() {
+    return pagingModel != null && pagingModel.getRepository() != null;
+  }
+
+  private static void closeRepository(CustomerRepository repository) {
+    if (repository == null) return;
+    try {
+      repository.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * 実行中の読み込み・エクスポートがあれば中止する
+   */
+  private void cancelLoad() {
+    if (csvLoader != null && !csvLoader.isDone()) {
+      csvLoader.cancel(true);
+    }
+    if (exporter != null && !exporter.isDone()) {
+      exporter.cancel(false);
+    }
+  }
+
+  /**
+   * 表示中の行（絞り込みの結果）の 1 列をまとめて同じ値にする
+   */
+  private void bulkEditDialog() {
+    if (isPaged()) {
+      statusBus.publish("ページ単位の表示中は一括編集できません");
+      return;
+    }
+    int rowCount = dataTable.getRowCount();
+    if (rowCount == 0) {
+      statusBus.publish("一括編集する行がありません");
+      return;
+    }
+    String[] editableColumns = Arrays.copyOfRange(CustomerTableModel.COLUMN_NAMES, 1,
+        CustomerTableModel.COLUMN_NAMES.length);
+    JComboBox<String> columnBox = new JComboBox<>(editableColumns);
+    columnBox.setSelectedIndex(CustomerTableModel.COL_STATUS - 1);
+    JComboBox<String> valueBox = new JComboBox<>(bulkEditChoices(CustomerTableModel.COL_STATUS));
+    valueBox.setEditable(true);
+    columnBox.addActionListener(e -> valueBox.setModel(
+        new DefaultComboBoxModel<>(bulkEditChoices(columnBox.getSelectedIndex() + 1))));
+
+    JPanel panel = new JPanel(new GridLayout(0, 1, 0, 4));
+    panel.add(new JLabel(String.format("表示中の %,d 行を変更します", rowCount)));
+    panel.add(columnBox);
+    panel.add(valueBox);
+    int result = JOptionPane.showConfirmDialog(frame, panel, "一括編集", JOptionPane.OK_CANCEL_OPTION,
+        JOptionPane.PLAIN_MESSAGE);
+    if (result != JOptionPane.OK_OPTION) return;
+
+    int column = columnBox.getSelectedIndex() + 1;
+    Object selected = valueBox.getSelectedItem();
+    String value = selected == null ? "" : selected.toString();
+    if (tableModel.getDateColumn(column) != null && !value.isEmpty()
+        && DateColumn.parse(value) == DateColumn.NULL_DAY) {
+      statusBus.publish("日付は yyyy-MM-dd か yyyy/MM/dd の形式で入力してください: " + value);
+      return;
+    }
+    BulkEdit edit = tableModel.beginBulkEdit(statusBus::publish);
+    for (int row = 0; row < rowCount; row++) {
+      edit.set(dataTable.convertRowIndexToModel(row), column, value);
+    }
+    statusBus.publish(String.format("一括編集を反映しています: %,d 件", edit.getEditCount()));
+    edit.commit();
+  }
+
+  /**
+   * 一括編集で列ごとに選べる値（状態は辞書の値、日付は今日、それ以外は入力のみ）
+   */
+  private String[] bulkEditChoices(int column) {
+    if (column == CustomerTableModel.COL_STATUS) {
+      DictionaryColumn statuses = tableModel.getStatusColumn();
+      String[] values = new String[statuses.getDictionarySize()];
+      for (int code = 0; code < values.length; code++) {
+        values[code] = statuses.decode(code);
+      }
+      return values;
+    }
+    if (tableModel.getDateColumn(column) != null) {
+      return new String[] { LocalDate.now().toString(), "" };
+    }
+    return new String[] { "" };
+  }
+
+  /**
+   * 保存先を選んで顧客テーブルをエクスポートする
+   */
+  private void exportFileDialog() {
+    if (isPaged()) {
+      statusBus.publish("ページ単位の表示中はエクスポートできません");
+      return;
+    }
+    FileDialog fileDialog = new FileDialog(frame, "エクスポート", FileDialog.SAVE);
+    fileDialog.setFile("customers.csv");
+    fileDialog.setVisible(true);
+
+    if (fileDialog.getFile() != null) {
+      exportTable(new File(fileDialog.getDirectory(), fileDialog.getFile()));
+    }
+  }
+
+  /**
+   * 表示中の行（絞り込み・並べ替えの結果）をその順にバックグラウンドで書き出す
+   * 形式はファイル名の拡張子で決める（.bin はバイナリ、.txt / .tsv はタブ区切り、それ以外は CSV）
+   */
+  private void exportTable(File file) {
+    if (exporter != null && !exporter.isDone()) {
+      exporter.cancel(false);
+    }
+
+    // 並べ替えも絞り込みもなければモデルの順のまま書き出す
+    int[] rows = null;
+    RowSorter<?> sorter = dataTable.getRowSorter();
+    if (sorter instanceof IndexedRowSorter && sorter.getModel() == tableModel) {
+      // 並べ替えが持っている表示の順の配列を写す（null なら恒等）
+      int[] viewToModel = ((IndexedRowSorter) sorter).getViewToModel();
+      rows = viewToModel == null ? null : viewToModel.clone();
+    } else if (sorter != null
+        && (!sorter.getSortKeys().isEmpty() || sorter.getViewRowCount() != tableModel.getRowCount())) {
+      // その他の並べ替えでは行ごとに変換する
+      rows = new int[dataTable.getRowCount()];
+      for (int row = 0; row < rows.length; row++) {
+        rows[row] = dataTable.convertRowIndexToModel(row);
+      }
+    }
+    TableExporter task = new TableExporter(tableModel.snapshot(), rows, file, TableExporter.formatOf(file),
+        statusBus::publish);
+    task.addPropertyChangeListener(e -> {
+      if ("state".equals(e.getPropertyName()) && e.getNewValue() == SwingWorker.StateValue.DONE
+          && exporter == task && (csvLoader == null || csvLoader.isDone())) {
+        cancelLoadButton.setVisible(false);
+      }
+    });
+    exporter = task;
+    cancelLoadButton.setVisible(true);
+    statusBus.publish(String.format("エクスポートを開始しました: %s (%,d 行)", file.getName(), task.getRowCount()));
+    task.execute();
+  }
+
+  /**
+   * 検索欄の内容で顧客テーブルを絞り込む
+   */
+  private void search(String text) {
+    if (isPaged()) {
+      if (!text.isEmpty()) {
+        statusBus.publish("ページ単位の表示中は検索できません");
+      }
+      return;
+    }
+    if (searchController != null) {
+      searchController.setQuery(text);
+    }
+  }
+
+  /**
+   * ファセットの絞り込みの結果が届いた時（件数の表示を更新する）
+   */
+  private void facetsUpdated(FacetController.Result result) {
+    if (facetPanel != null) {
+      facetPanel.update(result);
+    }
+    if (!result.getQuery().isEmpty()) {
+      statusBus.publish(String.format("絞り込み: %,d 件 / %,d 件 (%.2f ms)",
+          result.getMatchCount(), result.getIndexedRows(), result.getMillis()));
+    }
+  }
+
+  // ファセットのパネルは、顧客管理をメモリ上のデータで表示している間だけ出す
+  private void updateFacetPanel() {
+    if (facetPanel != null) {
+      facetPanel.setVisible(currentView != null && currentView == customerView && !isPaged());
+    }
+  }
+
+  private void updateMainContent(String selected) {
+    if (!viewRegistry.isRegistered(selected)) return;
+    boolean cached = viewRegistry.isCached(selected);
+    showView(selected);
+    if (cached) {
+      statusBus.publish(selected + "を表示しています");
+    } else {
+      statusBus.publish(String.format("%sを表示しています（作成 %.1f ms）", selected, viewRegistry.getBuildMillis(selected)));
+    }
+  }
+
+  /**
+   * モジュールの画面をメイン領域に表示する
+   */
+  private void showView(String name) {
+    ViewRegistry.ModuleView view = viewRegistry.show(name);
+    if (view instanceof SettingsView) {
+      ((SettingsView) view).refresh();
+    }
+    JComponent component = view.getComponent();
+    if (component == currentView) return;
+    if (currentView != null) {
+      mainPanel.remove(currentView);
+    }
+    mainPanel.add(component, BorderLayout.CENTER);
+    currentView = component;
+    updateFacetPanel();
+    mainPanel.revalidate();
+    mainPanel.repaint();
+  }
+
+  /**
+   * 設定画面に表示する診断情報
+   */
+  private String formatDiagnostics() {
+    StringBuilder builder = new StringBuilder();
+    builder.append(StartupProbe.format()).append('\n');
+    builder.append(viewRegistry.formatStats()).append('\n');
+    builder.append(ScreenTopology.getDefault().formatStats()).append('\n');
+    builder.append(chromeDispatcher.getDragEngine().formatStats()).append('\n');
+    builder.append(liveResize.formatStats()).append('\n');
+    builder.append(selectionAggregator.formatStats()).append('\n');
+    builder.append(cellRenderer.formatStats()).append('\n');
+    builder.append(facetController.formatStats()).append('\n');
+    RepaintMonitor repaintMonitor = RepaintMonitor.getInstance();
+    if (repaintMonitor != null) {
+      builder.append(repaintMonitor.formatStats()).append('\n');
+    }
+    if (snapshotCache != null) {
+      builder.append(snapshotCache.formatStats()).append('\n');
+    }
+    if (isPaged()) {
+      builder.append(pagingModel.formatStats()).append('\n');
+      if (pagingModel.getRepository() instanceof FileCustomerRepository) {
+        builder.append(((FileCustomerRepository) pagingModel.getRepository()).formatStats()).append('\n');
+      }
+    }
+    builder.append(String.format("customers rows=%d bytes=%.1fMB%n",
+        tableModel.getRowCount(), tableModel.estimatedBytes() / (1024.0 * 1024.0)));
+    EdtMonitor edtMonitor = EdtMonitor.getInstance();
+    if (edtMonitor != null) {
+      builder.append(edtMonitor.formatSummary()).append('\n');
+      builder.append(edtMonitor.formatDetails());
+    }
+    return builder.toString();
+  }
+
+  /**
+   * カスタムタイトルバーを作成する
+   * デフォルトのタイトルバーの代わりに使用するためのカスタムタイトルバー
+   * 
+   * @return 作成したタイトルバーパネル
+   */
+  private JPanel createCustomTitleBar() {
+    // タイトルバーパネルの作成
+    JPanel titleBar = new JPanel();
+    titleBar.setLayout(new BorderLayout());
+    titleBar.setBackground(new Color(51, 102, 153)); // 濃い青色
+    titleBar.setPreferredSize(new Dimension(frame.getWidth(), 30));
+
+    // タイトルラベル（左側）
+    JLabel titleLabel = new JLabel("  業務管理システム");
+    titleLabel.setForeground(Color.WHITE);
+    titleLabel.setFont(FontRegistry.bold(14));
+    titleBar.add(titleLabel, BorderLayout.WEST);
+
+    // コントロールボタンパネル（右側）
+    JPanel controlPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 0, 0));
+    controlPanel.setOpaque(false);
+
+    // 最小化ボタン
+    JButton minimizeButton = createTitleBarButton("ー", new Color(204, 51, 51), e -> {
+      frame.setState(Frame.ICONIFIED);
+    });
+
+    // 最大化ボタン
+    JButton maximizeButton = createTitleBarButton("◻︎", new Color(204, 51, 51), e -> {
+      // 最大化/通常サイズの切り替え
+      if ((frame.getExtendedState() & Frame.MAXIMIZED_BOTH) == 0) {
+        frame.setExtendedState(frame.getExtendedState() | Frame.MAXIMIZED_BOTH);
+      } else {
+        frame.setExtendedState(frame.getExtendedState() & ~Frame.MAXIMIZED_BOTH);
+      }
+    });
+
+    // 閉じるボタン
+    JButton closeButton = createTitleBarButton("×", new Color(204, 51, 51), e -> {
+      frame.dispose();
+      System.exit(0);
+    });
+
+    controlPanel.add(minimizeButton);
+    controlPanel.add(maximizeButton);
+    controlPanel.add(closeButton);
+    chromeDispatcher.setCaption(titleBar, minimizeButton, maximizeButton, closeButton);
+
+    titleBar.add(controlPanel, BorderLayout.EAST);
+
+    // 作成したタイトルバーを返す
+    return titleBar;
+  }
+
+  /**
+   * タイトルバー用のボタンを作成するヘルパーメソッド
+   */
+  private JButton createTitleBarButton(String text, Color hoverColor, ActionListener actionListener) {
+    JButton button = new JButton(text);
+    button.setPreferredSize(null);
+    button.setFocusable(false);
+    button.setBorderPainted(false);
+    button.setContentAreaFilled(false);
+    button.setForeground(Color.WHITE);
+    button.setFont(FontRegistry.bold(14));
+
+    button.addMouseListener(new MouseAdapter() {
+      @Override
+      public void mouseEntered(MouseEvent e) {
+        button.setContentAreaFilled(true);
+        button.setBackground(hoverColor);
+      }
+
+      @Override
+      public void mouseExited(MouseEvent e) {
+        button.setContentAreaFilled(false);
+      }
+    });
+
+    button.addActionListener(actionListener);
+    return button;
+  }
+}
\ No newline at end of file
@@ -0,0 +1,103 @@
+package undecorated;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+import javax.swing.Timer;
+
+/**
+ * 読み込んだ行数・読み込みと検索の速さ・EDT の遅れ・ヒープの使用量を 1 秒ごとに記録する
+ * 直近 SAMPLE_COUNT 秒分を固定サイズの TimeSeries に持つので、記録し続けてもメモリは増えない
+ *
+ * 記録はアプリケーションが持ち、画面（DashboardView）が破棄されても続ける
+ * 画面は開いている間だけ addListener で記録の通知を受け取り、グラフを更新する
+ * EDT からのみ使うこと
+ */
+public class MetricsSampler {
+  /** 記録する秒数 */
+  static final int SAMPLE_COUNT = 300;
+  private static final int SAMPLE_MILLIS = 1000;
+
+  private final CustomerTableModel model;
+  private final LongSupplier queryCount;
+  private final TimeSeries rowSeries = new TimeSeries(SAMPLE_COUNT);
+  private final TimeSeries loadSeries = new TimeSeries(SAMPLE_COUNT);
+  private final TimeSeries searchSeries = new TimeSeries(SAMPLE_COUNT);
+  private final TimeSeries edtSeries = new TimeSeries(SAMPLE_COUNT);
+  private final TimeSeries heapSeries = new TimeSeries(SAMPLE_COUNT);
+  private final List<Runnable> listeners = new ArrayList<>();
+  private final Timer sampleTimer;
+  private long lastSampleNanos;
+  private long lastRows;
+  private long lastQueries;
+
+  /**
+   * @param queryCount これまでに実行した検索の回数
+   */
+  public MetricsSampler(CustomerTableModel model, LongSupplier queryCount) {
+    this.model = model;
+    this.queryCount = queryCount;
+    sampleTimer = new Timer(SAMPLE_MILLIS, e -> sample());
+  }
+
+  public void start() {
+    lastSampleNanos = System.nanoTime();
+    lastRows = model.getRowCount();
+    lastQueries = queryCount.getAsLong();
+    sampleTimer.start();
+  }
+
+  public void stop() {
+    sampleTimer.stop();
+  }
+
+  /** 値を記録するたびに呼ぶ処理を追加する */
+  public void addListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  public void removeListener(Runnable listener) {
+    listeners.remove(listener);
+  }
+
+  public TimeSeries getRowSeries() {
+    return rowSeries;
+  }
+
+  public TimeSeries getLoadSeries() {
+    return loadSeries;
+  }
+
+  public TimeSeries getSearchSeries() {
+    return searchSeries;
+  }
+
+  public TimeSeries getEdtSeries() {
+    return edtSeries;
+  }
+
+  public TimeSeries getHeapSeries() {
+    return heapSeries;
+  }
+
+  // 1 秒ごとに各値を記録する。タイマーが予定より遅れた分を EDT の遅れとする
+  private void sample() {
+    long now = System.nanoTime();
+    long elapsed = Math.max(1, now - lastSampleNanos);
+    lastSampleNanos = now;
+    long rows = model.getRowCount();
+    long queries = queryCount.getAsLong();
+    Runtime runtime = Runtime.getRuntime();
+
+    rowSeries.add(rows);
+    loadSeries.add(Math.max(0, rows - lastRows) * 1_000_000_000L / elapsed);
+    searchSeries.add(Math.max(0, queries - lastQueries) * 1_000_000_000L / elapsed);
+    edtSeries.add(Math.max(0, elapsed / 1000 - SAMPLE_MILLIS * 1000L));
+    heapSeries.add(runtime.totalMemory() - runtime.freeMemory());
+    lastRows = rows;
+    lastQueries = queries;
+    for (int i = 0; i < listeners.size(); i++) {
+      listeners.get(i).run();
+    }
+  }
+}
@@ -1,18 +1,28 @@
+package undecorated;
+
 import java.awt.*;
 import javax.swing.*;
 import java.awt.event.*;
-import java.util.Date;
 
 public class MoveListener implements MouseListener, MouseMotionListener {
 
-  private Point pressedPoint;
-  private Rectangle frameBounds;
-  private Date lastTimeStamp;
-
-  private JFrame frame;
+  private final JFrame frame;
+  private final FrameDragEngine dragEngine;
 
   public MoveListener(JFrame frame) {
+    this(frame, ScreenTopology.getDefault());
+  }
+
+  /**
+   * @param topology モニターの配置（null なら端への吸着と画面外の制限を行わない）
+   */
+  public MoveListener(JFrame frame, ScreenTopology topology) {
     this.frame = frame;
+    this.dragEngine = new FrameDragEngine(frame, topology);
+  }
+
+  public FrameDragEngine getDragEngine() {
+    return dragEngine;
   }
 
   @Override
@@ -30,14 +40,13 @@ public class MoveListener implements MouseListener, MouseMotionListener {
 
   @Override
   public void mousePressed(MouseEvent event) {
-    this.frameBounds = frame.getBounds();
-    this.pressedPoint = event.getPoint();
-    this.lastTimeStamp = new Date();
+    // タイトルバー基準ではなくスクリーン座標で追跡する
+    dragEngine.begin(event.getXOnScreen(), event.getYOnScreen());
   }
 
   @Override
   public void mouseReleased(MouseEvent event) {
-    moveJFrame(event);
+    dragEngine.end(event.getXOnScreen(), event.getYOnScreen());
   }
 
   @Override
@@ -50,31 +59,12 @@ public class MoveListener implements MouseListener, MouseMotionListener {
 
   @Override
   public void mouseDragged(MouseEvent event) {
-    moveJFrame(event);
+    // 実際の移動はフレームごとにまとめて行われる
+    dragEngine.drag(event.getXOnScreen(), event.getYOnScreen());
   }
 
   @Override
   public void mouseMoved(MouseEvent event) {
   }
 
-  private void moveJFrame(MouseEvent event) {
-    Point endPoint = event.getPoint();
-
-    int xDiff = endPoint.x - pressedPoint.x;
-    int yDiff = endPoint.y - pressedPoint.y;
-
-    Date timestamp = new Date();
-
-    // One move action per 60ms to avoid frame glitching
-    if (Math.abs(timestamp.getTime() - lastTimeStamp.getTime()) > 60) {
-      if ((xDiff > 0 || yDiff > 0) || (xDiff < 0 || yDiff < 0)) {
-        frameBounds.x += xDiff;
-        frameBounds.y += yDiff;
-        System.out.println(frameBounds);
-        frame.setBounds(frameBounds);
-      }
-      this.lastTimeStamp = timestamp;
-    }
-  }
-
 }
\ No newline at end of file
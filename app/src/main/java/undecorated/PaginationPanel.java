@@ -0,0 +1,189 @@
+package undecorated;
+
+import java.awt.FlowLayout;
+import java.awt.Rectangle;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.EventListenerList;
+
+/**
+ * テーブルの下に置くページ送り（<< < n / m ページ > >>）
+ * 表示と操作は Pager を通して行い、Pager の状態が変わるたびにラベルとボタンを更新する
+ * 読み込み中もボタンは使えるので、続けて押すと読み込みを待たずに先のページへ進める
+ * EDT からのみ使うこと
+ */
+public class PaginationPanel extends JPanel implements ChangeListener {
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * ページ送りの対象
+   */
+  public interface Pager {
+    /** 現在のページ（0 から） */
+    int getPage();
+
+    int getPageCount();
+
+    /** 現在のページをまだ読み込み中か */
+    boolean isLoading();
+
+    /** 読み込みに失敗した場合のメッセージ（なければ null） */
+    String getError();
+
+    void setPage(int page);
+
+    /** ページ・ページ数・読み込み状態が変わった時に通知を受ける */
+    void addChangeListener(ChangeListener listener);
+
+    void removeChangeListener(ChangeListener listener);
+  }
+
+  private final JButton firstButton = new JButton("<<");
+  private final JButton previousButton = new JButton("<");
+  private final JLabel pageLabel = new JLabel();
+  private final JButton nextButton = new JButton(">");
+  private final JButton lastButton = new JButton(">>");
+  private Pager pager;
+
+  public PaginationPanel() {
+    super(new FlowLayout(FlowLayout.CENTER));
+    add(firstButton);
+    add(previousButton);
+    add(pageLabel);
+    add(nextButton);
+    add(lastButton);
+    setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 0));
+    firstButton.addActionListener(e -> go(0));
+    previousButton.addActionListener(e -> go(pager.getPage() - 1));
+    nextButton.addActionListener(e -> go(pager.getPage() + 1));
+    lastButton.addActionListener(e -> go(pager.getPageCount() - 1));
+    update();
+  }
+
+  /**
+   * ページ送りの対象を設定する（前の対象からは通知を受けなくなる）
+   */
+  public void setPager(Pager pager) {
+    if (pager != this.pager) {
+      if (this.pager != null) {
+        this.pager.removeChangeListener(this);
+      }
+      if (pager != null) {
+        pager.addChangeListener(this);
+      }
+    }
+    this.pager = pager;
+    update();
+  }
+
+  @Override
+  public void stateChanged(ChangeEvent e) {
+    update();
+  }
+
+  private void go(int page) {
+    if (pager != null) {
+      pager.setPage(Math.max(0, Math.min(page, pager.getPageCount() - 1)));
+    }
+  }
+
+  private void update() {
+    if (pager == null) {
+      pageLabel.setText("1 / 1 ページ");
+      firstButton.setEnabled(false);
+      previousButton.setEnabled(false);
+      nextButton.setEnabled(false);
+      lastButton.setEnabled(false);
+      return;
+    }
+    int page = pager.getPage();
+    int pageCount = pager.getPageCount();
+    String text = String.format("%,d / %,d ページ", page + 1, pageCount);
+    if (pager.getError() != null) {
+      text += "（読み込みに失敗しました）";
+    } else if (pager.isLoading()) {
+      text += "（読み込み中…）";
+    }
+    pageLabel.setText(text);
+    firstButton.setEnabled(page > 0);
+    previousButton.setEnabled(page > 0);
+    nextButton.setEnabled(page < pageCount - 1);
+    lastButton.setEnabled(page < pageCount - 1);
+  }
+
+  /**
+   * すべての行を持つテーブルを、pageSize 行ずつスクロールしてページ送りする
+   * 現在のページは表示範囲の先頭の行で決まる（並べ替え・絞り込み後の表示順）
+   */
+  public static class TablePager implements Pager {
+    private final JTable table;
+    private final int pageSize;
+    private final EventListenerList listeners = new EventListenerList();
+
+    /**
+     * @param table テーブル
+     * @param scrollPane テーブルを入れた JScrollPane（スクロールでページの表示を更新する）
+     */
+    public TablePager(JTable table, JScrollPane scrollPane, int pageSize) {
+      this.table = table;
+      this.pageSize = pageSize;
+      table.getModel().addTableModelListener(e -> fireStateChanged());
+      scrollPane.getViewport().addChangeListener(e -> fireStateChanged());
+    }
+
+    @Override
+    public int getPage() {
+      Rectangle visible = table.getVisibleRect();
+      int row = table.rowAtPoint(visible.getLocation());
+      return Math.max(row, 0) / pageSize;
+    }
+
+    @Override
+    public int getPageCount() {
+      return Math.max(1, (table.getRowCount() + pageSize - 1) / pageSize);
+    }
+
+    @Override
+    public boolean isLoading() {
+      return false;
+    }
+
+    @Override
+    public String getError() {
+      return null;
+    }
+
+    @Override
+    public void setPage(int page) {
+      int row = Math.min(page * pageSize, table.getRowCount() - 1);
+      if (row < 0) return;
+      Rectangle cell = table.getCellRect(row, 0, true);
+      Rectangle visible = table.getVisibleRect();
+      // 指定した行が表示範囲の先頭に来るようにスクロールする
+      table.scrollRectToVisible(new Rectangle(visible.x, cell.y, visible.width, visible.height));
+    }
+
+    @Override
+    public void addChangeListener(ChangeListener listener) {
+      listeners.add(ChangeListener.class, listener);
+    }
+
+    @Override
+    public void removeChangeListener(ChangeListener listener) {
+      listeners.remove(ChangeListener.class, listener);
+    }
+
+    private void fireStateChanged() {
+      ChangeEvent event = new ChangeEvent(this);
+      for (ChangeListener listener : listeners.getListeners(ChangeListener.class)) {
+        listener.stateChanged(event);
+      }
+    }
+  }
+}
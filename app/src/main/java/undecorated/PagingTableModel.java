@@ -0,0 +1,304 @@
+package undecorated;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * CustomerRepository の 1 ページ分だけを表示するテーブルモデル
+ *
+ * ページはバックグラウンドのスレッドで読み込み、読み終わったら EDT で表示を切り替える
+ * 読み込み中は前のページを表示したままにし、isLoading() と ChangeListener で状態を知らせる
+ * 表示したページの前後のページも先に読んでおき、読んだページは LRU で最大 cacheCapacity 個まで持つ
+ * 読み込みは 1 本のスレッドで順に行い、読む順番が来た時に現在のページから離れていれば読まずに捨てる
+ *
+ * 取り出し元を差し替えた場合、前の取り出し元の読み込み結果は捨てる
+ * EDT からのみ使うこと
+ */
+public class PagingTableModel extends AbstractTableModel implements PaginationPanel.Pager {
+  private static final long serialVersionUID = 1L;
+
+  public static final int DEFAULT_PAGE_SIZE = 100;
+  // 前後何ページまでを先読みするか（これより離れたページの読み込みは捨てる）
+  private static final int PREFETCH_DISTANCE = 1;
+
+  private final int pageSize;
+  private final int cacheCapacity;
+  private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "paging-loader");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private final Map<Integer, String[][]> cache;
+  private final Set<Integer> loading = new HashSet<>();
+
+  private CustomerRepository repository;
+  // 取り出し元を差し替えるたびに増やし、古い読み込み結果を見分ける
+  private long generation;
+  // 読み込みスレッドが、まだ読む必要があるかを判断するのに使う
+  private volatile int wantedPage;
+  private int totalRows = -1;
+  private int page;
+  private int displayedPage = -1;
+  private String[][] rows = new String[0][];
+  private String error;
+
+  // 計測値
+  private long hitCount;
+  private long missCount;
+  private long fetchCount;
+  private long droppedCount;
+  private long fetchNanos;
+
+  public PagingTableModel() {
+    this(DEFAULT_PAGE_SIZE, Integer.getInteger("paging.cachePages", 32));
+  }
+
+  /**
+   * @param pageSize 1 ページの行数
+   * @param cacheCapacity 持っておくページ数の上限
+   */
+  public PagingTableModel(int pageSize, int cacheCapacity) {
+    this.pageSize = pageSize;
+    this.cacheCapacity = Math.max(cacheCapacity, 1 + 2 * PREFETCH_DISTANCE);
+    this.cache = new LinkedHashMap<Integer, String[][]>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Integer, String[][]> eldest) {
+        return size() > PagingTableModel.this.cacheCapacity;
+      }
+    };
+  }
+
+  /**
+   * 取り出し元を差し替えて、最初のページを読み込む
+   * 前の取り出し元は閉じない（呼び出し側で閉じること）
+   */
+  public void setRepository(CustomerRepository repository) {
+    this.repository = repository;
+    generation++;
+    cache.clear();
+    loading.clear();
+    totalRows = -1;
+    page = 0;
+    wantedPage = 0;
+    displayedPage = -1;
+    rows = new String[0][];
+    error = null;
+    fireTableDataChanged();
+    fireStateChanged();
+    if (repository != null) {
+      loadRowCount();
+    }
+  }
+
+  public CustomerRepository getRepository() {
+    return repository;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /** 取り出し元の全体の行数（まだ分からなければ -1） */
+  public int getTotalRows() {
+    return totalRows;
+  }
+
+  /** 表示中のページの先頭の行が、取り出し元の何行目か */
+  public int getFirstRow() {
+    return Math.max(displayedPage, 0) * pageSize;
+  }
+
+  @Override
+  public int getPage() {
+    return page;
+  }
+
+  @Override
+  public int getPageCount() {
+    return totalRows <= 0 ? 1 : (totalRows + pageSize - 1) / pageSize;
+  }
+
+  @Override
+  public boolean isLoading() {
+    return repository != null && error == null && (totalRows < 0 || displayedPage != page);
+  }
+
+  @Override
+  public String getError() {
+    return error;
+  }
+
+  @Override
+  public void setPage(int newPage) {
+    if (repository == null) return;
+    newPage = Math.max(0, Math.min(newPage, getPageCount() - 1));
+    page = newPage;
+    wantedPage = newPage;
+    error = null;
+    String[][] cached = cache.get(newPage);
+    if (cached != null) {
+      hitCount++;
+      show(newPage, cached);
+    } else if (totalRows >= 0) {
+      missCount++;
+      request(newPage);
+    }
+    fireStateChanged();
+    prefetch();
+  }
+
+  @Override
+  public void addChangeListener(ChangeListener listener) {
+    listenerList.add(ChangeListener.class, listener);
+  }
+
+  @Override
+  public void removeChangeListener(ChangeListener listener) {
+    listenerList.remove(ChangeListener.class, listener);
+  }
+
+  @Override
+  public int getRowCount() {
+    return rows.length;
+  }
+
+  @Override
+  public int getColumnCount() {
+    return CustomerTableModel.COLUMN_NAMES.length;
+  }
+
+  @Override
+  public String getColumnName(int column) {
+    return CustomerTableModel.COLUMN_NAMES[column];
+  }
+
+  @Override
+  public Class<?> getColumnClass(int column) {
+    return String.class;
+  }
+
+  @Override
+  public Object getValueAt(int row, int column) {
+    return rows[row][column];
+  }
+
+  /** 持っているページの数 */
+  public int getCachedPageCount() {
+    return cache.size();
+  }
+
+  public String formatStats() {
+    return String.format(Locale.ROOT,
+        "paging page=%d/%d cached=%d hits=%d misses=%d fetches=%d dropped=%d avgFetch=%.2fms",
+        page + 1, getPageCount(), cache.size(), hitCount, missCount, fetchCount, droppedCount,
+        fetchCount == 0 ? 0 : fetchNanos / 1_000_000.0 / fetchCount);
+  }
+
+  private void show(int shownPage, String[][] pageRows) {
+    displayedPage = shownPage;
+    rows = pageRows;
+    fireTableDataChanged();
+  }
+
+  private void prefetch() {
+    if (totalRows < 0) return;
+    for (int distance = 1; distance <= PREFETCH_DISTANCE; distance++) {
+      if (page + distance < getPageCount()) request(page + distance);
+      if (page - distance >= 0) request(page - distance);
+    }
+  }
+
+  private void loadRowCount() {
+    CustomerRepository source = repository;
+    long requested = generation;
+    loader.execute(() -> {
+      try {
+        int count = source.getRowCount();
+        SwingUtilities.invokeLater(() -> rowCountLoaded(requested, count));
+      } catch (Exception e) {
+        SwingUtilities.invokeLater(() -> failed(requested, -1, e));
+      }
+    });
+  }
+
+  private void rowCountLoaded(long requested, int count) {
+    if (requested != generation) return;
+    totalRows = count;
+    page = Math.min(page, getPageCount() - 1);
+    wantedPage = page;
+    request(page);
+    prefetch();
+    fireStateChanged();
+  }
+
+  // ページの読み込みを予約する（読み込み済み・読み込み中なら何もしない）
+  private void request(int requestedPage) {
+    if (cache.containsKey(requestedPage) || !loading.add(requestedPage)) return;
+    CustomerRepository source = repository;
+    long requested = generation;
+    loader.execute(() -> {
+      if (Math.abs(requestedPage - wantedPage) > PREFETCH_DISTANCE) {
+        // 読む順番が来るまでに別のページへ移った
+        SwingUtilities.invokeLater(() -> dropped(requested, requestedPage));
+        return;
+      }
+      try {
+        long start = System.nanoTime();
+        String[][] pageRows = source.fetch(requestedPage * pageSize, pageSize);
+        long nanos = System.nanoTime() - start;
+        SwingUtilities.invokeLater(() -> pageLoaded(requested, requestedPage, pageRows, nanos));
+      } catch (Exception e) {
+        SwingUtilities.invokeLater(() -> failed(requested, requestedPage, e));
+      }
+    });
+  }
+
+  private void pageLoaded(long requested, int loadedPage, String[][] pageRows, long nanos) {
+    if (requested != generation) return;
+    loading.remove(loadedPage);
+    fetchCount++;
+    fetchNanos += nanos;
+    cache.put(loadedPage, pageRows);
+    if (loadedPage == page) {
+      show(loadedPage, pageRows);
+      fireStateChanged();
+    }
+  }
+
+  private void dropped(long requested, int droppedPage) {
+    if (requested != generation) return;
+    loading.remove(droppedPage);
+    droppedCount++;
+    // 捨てた後でそのページ（またはその隣）へ戻っていたら読み直す
+    if (Math.abs(droppedPage - page) <= PREFETCH_DISTANCE && totalRows >= 0) {
+      request(droppedPage);
+    }
+  }
+
+  private void failed(long requested, int failedPage, Exception e) {
+    if (requested != generation) return;
+    loading.remove(failedPage);
+    if (failedPage == -1 || failedPage == page) {
+      e.printStackTrace();
+      error = e.getMessage() != null ? e.getMessage() : e.toString();
+      fireStateChanged();
+    }
+  }
+
+  private void fireStateChanged() {
+    ChangeEvent event = new ChangeEvent(this);
+    for (ChangeListener listener : listenerList.getListeners(ChangeListener.class)) {
+      listener.stateChanged(event);
+    }
+  }
+}
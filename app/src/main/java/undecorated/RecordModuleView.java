@@ -0,0 +1,236 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.Random;
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * 一覧表形式のモジュール画面（売上・製品・在庫・社員）
+ * 行は作成時に作り（顧客管理の初期データと同じく、起動のたびに同じ内容の見本データ）、
+ * 列ごとに StringColumn に詰めて持つ。キャッシュから破棄される時に列を空にしてデータを解放する
+ *
+ * 製品コードは P10000 から製品の数だけ続き、売上と在庫はその製品コードを参照する
+ */
+public class RecordModuleView implements ViewRegistry.ModuleView {
+  /**
+   * 1 行分の値を作る
+   */
+  public interface RowGenerator {
+    String[] row(int index, Random random);
+  }
+
+  static final int PRODUCT_COUNT = 1_000;
+  static final int SALES_COUNT = 40_000;
+  private static final String[] COMPANIES = {
+      "株式会社タナカ", "佐藤商事", "鈴木工業", "高橋建設", "渡辺製作所", "伊藤商店", "山本電機", "中村食品", "小林商事", "加藤工業" };
+  private static final String[] CATEGORIES = { "PC", "周辺機器", "ネットワーク", "ソフトウェア", "消耗品" };
+
+  private final RecordTableModel model;
+  private final JPanel panel;
+  private final JLabel countLabel;
+
+  /**
+   * @param rowCount 作る行数
+   */
+  public RecordModuleView(String title, String[] columns, int rowCount, RowGenerator generator) {
+    StringColumn[] values = new StringColumn[columns.length];
+    for (int c = 0; c < values.length; c++) {
+      values[c] = new StringColumn();
+    }
+    Random random = new Random(title.hashCode());
+    for (int i = 0; i < rowCount; i++) {
+      String[] row = generator.row(i, random);
+      for (int c = 0; c < values.length; c++) {
+        values[c].append(row[c]);
+      }
+    }
+    model = new RecordTableModel(columns, values, rowCount);
+
+    panel = new JPanel(new BorderLayout());
+    panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+    JPanel headerPanel = new JPanel(new BorderLayout());
+    JLabel titleLabel = new JLabel(title);
+    titleLabel.setFont(FontRegistry.bold(18));
+    headerPanel.add(titleLabel, BorderLayout.WEST);
+    headerPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+    panel.add(headerPanel, BorderLayout.NORTH);
+
+    JTable table = new JTable(model);
+    table.putClientProperty(EdtMonitor.CATEGORY_KEY, EdtMonitor.CATEGORY_TABLE);
+    table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+    table.setRowHeight(25);
+    table.getTableHeader().setReorderingAllowed(false);
+    panel.add(new JScrollPane(table), BorderLayout.CENTER);
+
+    countLabel = new JLabel(String.format("%,d 件", rowCount));
+    countLabel.setBorder(BorderFactory.createEmptyBorder(10, 0, 0, 0));
+    panel.add(countLabel, BorderLayout.SOUTH);
+  }
+
+  @Override
+  public JComponent getComponent() {
+    return panel;
+  }
+
+  /** 表示している行数 */
+  public int getRowCount() {
+    return model.getRowCount();
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return model.estimatedBytes();
+  }
+
+  @Override
+  public void release() {
+    model.clear();
+    countLabel.setText("0 件");
+  }
+
+  /**
+   * 売上管理（伝票 SALES_COUNT 件）
+   */
+  public static RecordModuleView sales() {
+    return new RecordModuleView("売上管理",
+        new String[] { "伝票番号", "日付", "顧客", "製品コード", "数量", "金額" }, SALES_COUNT,
+        (index, random) -> {
+          int product = random.nextInt(PRODUCT_COUNT);
+          int quantity = 1 + random.nextInt(20);
+          return new String[] {
+              "S" + (100_000 + index),
+              DateColumn.format(DateColumn.toEpochDay(2024, 1, 1) + index * 366 / SALES_COUNT),
+              COMPANIES[random.nextInt(COMPANIES.length)],
+              productCode(product),
+              Integer.toString(quantity),
+              Integer.toString(quantity * unitPrice(product))
+          };
+        });
+  }
+
+  /**
+   * 製品管理（PRODUCT_COUNT 件）
+   */
+  public static RecordModuleView products() {
+    String[] states = { "販売中", "販売中", "販売中", "在庫限り", "販売終了" };
+    return new RecordModuleView("製品管理",
+        new String[] { "製品コード", "製品名", "カテゴリ", "単価", "状態" }, PRODUCT_COUNT,
+        (index, random) -> {
+          String category = CATEGORIES[index % CATEGORIES.length];
+          return new String[] {
+              productCode(index),
+              category + " モデル" + (index + 1),
+              category,
+              Integer.toString(unitPrice(index)),
+              states[random.nextInt(states.length)]
+          };
+        });
+  }
+
+  /**
+   * 在庫管理（製品ごと・倉庫ごとに 1 件）
+   */
+  public static RecordModuleView inventory() {
+    String[] warehouses = { "東京", "大阪", "名古屋", "福岡", "札幌" };
+    return new RecordModuleView("在庫管理",
+        new String[] { "製品コード", "倉庫", "在庫数", "引当数", "最終入荷日" }, PRODUCT_COUNT * warehouses.length,
+        (index, random) -> {
+          int stock = random.nextInt(1_000);
+          return new String[] {
+              productCode(index % PRODUCT_COUNT),
+              warehouses[index / PRODUCT_COUNT],
+              Integer.toString(stock),
+              Integer.toString(stock == 0 ? 0 : random.nextInt(stock)),
+              DateColumn.format(DateColumn.toEpochDay(2024, 1, 1) + random.nextInt(366))
+          };
+        });
+  }
+
+  /**
+   * 社員管理（500 件）
+   */
+  public static RecordModuleView employees() {
+    String[] families = { "田中", "佐藤", "鈴木", "高橋", "渡辺", "伊藤", "山本", "中村", "小林", "加藤" };
+    String[] givens = { "太郎", "花子", "一郎", "直子", "健太", "美加", "由美", "俊介", "恵", "翔" };
+    String[] departments = { "営業部", "開発部", "総務部", "経理部", "物流部" };
+    String[] positions = { "一般", "一般", "一般", "主任", "課長", "部長" };
+    return new RecordModuleView("社員管理",
+        new String[] { "社員番号", "氏名", "部署", "役職", "入社日" }, 500,
+        (index, random) -> new String[] {
+            "E" + (1_000 + index),
+            families[random.nextInt(families.length)] + " " + givens[random.nextInt(givens.length)],
+            departments[random.nextInt(departments.length)],
+            positions[random.nextInt(positions.length)],
+            DateColumn.format(DateColumn.toEpochDay(2000 + random.nextInt(25), 4, 1))
+        });
+  }
+
+  private static String productCode(int product) {
+    return "P" + (10_000 + product);
+  }
+
+  // 製品ごとの単価（製品管理と売上で同じ値になるよう、製品の番号から決める）
+  private static int unitPrice(int product) {
+    return 500 + (product * 7919 % 400) * 250;
+  }
+
+  /**
+   * 列ごとの StringColumn から値を返す読み取り専用のモデル
+   */
+  private static final class RecordTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    private final String[] columns;
+    private final transient StringColumn[] values;
+    private int rowCount;
+
+    RecordTableModel(String[] columns, StringColumn[] values, int rowCount) {
+      this.columns = columns;
+      this.values = values;
+      this.rowCount = rowCount;
+    }
+
+    long estimatedBytes() {
+      long total = 0;
+      for (StringColumn column : values) {
+        total += column.estimatedBytes();
+      }
+      return total;
+    }
+
+    void clear() {
+      for (StringColumn column : values) {
+        column.clear();
+      }
+      rowCount = 0;
+      fireTableDataChanged();
+    }
+
+    @Override
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+      return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+      return columns[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+      return String.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+      return values[column].get(row);
+    }
+  }
+}
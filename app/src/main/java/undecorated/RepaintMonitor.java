@@ -0,0 +1,493 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.swing.AbstractButton;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JRootPane;
+import javax.swing.RepaintManager;
+import javax.swing.SwingUtilities;
+
+/**
+ * 再描画の要求をまとめて計測する RepaintManager
+ *
+ * タイトルバーのボタンのホバー、時計、テーブルの選択、ウィンドウのドラッグなどの再描画は
+ * それぞれ別々に要求されるため、1 フレームで同じウィンドウの近い領域を何度も描くことがある
+ * このマネージャーは 1 フレーム分の要求をルートペインの座標にそろえ、
+ * 次の領域は描かずに捨て、残りは近いもの同士をまとめて 1 回で描く
+ * - 親のどこかの範囲の外にはみ出していて見えない領域
+ * - 手前にある不透明な兄弟コンポーネントに完全に隠れている領域
+ * - ウィンドウの形状（丸い角）の外にある領域
+ * まとめる条件は、和の矩形の面積がそれぞれの面積の合計の MERGE_FACTOR 倍以下であること
+ *
+ * コンポーネントごとに、要求の回数・描いた回数・捨てた回数・描いた面積・描画時間を記録する
+ * まとめて描いた場合の描画時間は面積の比で分ける
+ * 要求はどのスレッドからでもよいが、統計の参照は EDT から行うこと
+ *
+ * JComponent への要求は元の RepaintManager に渡さず、自分で描画の処理を EDT に予約する
+ * （元の処理にも渡すと、同じ領域を元の処理とこちらの両方で描いてしまう）
+ * ウィンドウへの要求と、計測から外したコンポーネントへの要求は元の処理に任せる
+ *
+ * 有効化: -Drepaint.monitor=true（既定は無効）
+ */
+public class RepaintMonitor extends RepaintManager {
+  /** まとめて描くのは、和の面積がそれぞれの面積の合計のこの倍数以下の場合 */
+  public static final double MERGE_FACTOR = 2.0;
+
+  /**
+   * 描いた領域の通知を受け取るリスナー（EDT で呼ばれる）
+   */
+  public interface PaintListener {
+    /**
+     * @param rootPane 描いたウィンドウのルートペイン
+     * @param bounds 描いた領域（ルートペインの座標）
+     */
+    void regionPainted(JRootPane rootPane, Rectangle bounds);
+  }
+
+  /**
+   * コンポーネントごとの集計値
+   */
+  public static final class ComponentStats {
+    private final String name;
+    private long requests;
+    private long paints;
+    private long skipped;
+    private long pixels;
+    private long paintNanos;
+
+    private ComponentStats(String name) {
+      this.name = name;
+    }
+
+    private ComponentStats(ComponentStats source, String name) {
+      this.name = name;
+      this.requests = source.requests;
+      this.paints = source.paints;
+      this.skipped = source.skipped;
+      this.pixels = source.pixels;
+      this.paintNanos = source.paintNanos;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    /** 再描画が要求された回数 */
+    public long getRequests() {
+      return requests;
+    }
+
+    /** 描いた回数（ほかの領域とまとめて描いた場合を含む） */
+    public long getPaints() {
+      return paints;
+    }
+
+    /** 見えないため描かなかった回数 */
+    public long getSkipped() {
+      return skipped;
+    }
+
+    /** 描いた面積の合計（ピクセル） */
+    public long getPixels() {
+      return pixels;
+    }
+
+    public long getPaintNanos() {
+      return paintNanos;
+    }
+  }
+
+  private static RepaintMonitor instance;
+
+  private final Object lock = new Object();
+  // 次のフレームで描く領域（コンポーネントの座標）
+  private Map<JComponent, Rectangle> pending = new LinkedHashMap<>();
+  // pending を描く処理を EDT に予約済みか
+  private boolean scheduled;
+  private final Map<JComponent, ComponentStats> stats = new WeakHashMap<>();
+  private long requestCount;
+  private final Runnable processing = () -> {
+    validateInvalidComponents();
+    paintDirtyRegions();
+  };
+
+  // 以下は EDT からのみ使う
+  private final LatencyHistogram frameTimes = new LatencyHistogram();
+  private final List<Region> regions = new ArrayList<>();
+  private final List<Region> clusters = new ArrayList<>();
+  private JComponent excluded;
+  private PaintListener listener;
+  private long frameCount;
+  private long paintCount;
+  private long mergedCount;
+  private long clippedCount;
+  private long coveredCount;
+  private long paintedPixels;
+
+  // 1 つの要求（またはまとめた要求）。座標はルートペインの座標
+  private static final class Region {
+    JComponent component;
+    ComponentStats stats;
+    JRootPane rootPane;
+    Rectangle local;
+    Rectangle bounds;
+    long area;
+    List<Region> members;
+  }
+
+  /**
+   * システムプロパティ repaint.monitor が true なら、このマネージャーを組み込む
+   * 最初のウィンドウを表示する前に呼ぶこと
+   * @return 組み込んだマネージャー。無効なら null
+   */
+  public static synchronized RepaintMonitor install() {
+    if (instance != null) {
+      return instance;
+    }
+    if (!Boolean.getBoolean("repaint.monitor")) {
+      return null;
+    }
+    RepaintMonitor monitor = new RepaintMonitor();
+    RepaintManager.setCurrentManager(monitor);
+    instance = monitor;
+    return monitor;
+  }
+
+  /** 組み込み済みのマネージャー。未使用なら null */
+  public static synchronized RepaintMonitor getInstance() {
+    return instance;
+  }
+
+  /**
+   * 計測・まとめの対象から外すコンポーネント（デバッグ表示自身など）
+   */
+  public void setExcluded(JComponent component) {
+    excluded = component;
+  }
+
+  public void setPaintListener(PaintListener listener) {
+    this.listener = listener;
+  }
+
+  @Override
+  public void addDirtyRegion(JComponent c, int x, int y, int w, int h) {
+    if (c == null || c == excluded) {
+      super.addDirtyRegion(c, x, y, w, h);
+      return;
+    }
+    if (w <= 0 || h <= 0) return;
+    boolean schedule;
+    synchronized (lock) {
+      requestCount++;
+      statsFor(c).requests++;
+      Rectangle rect = pending.get(c);
+      if (rect == null) {
+        pending.put(c, clip(c, new Rectangle(x, y, w, h)));
+      } else {
+        rect.add(clip(c, new Rectangle(x, y, w, h)));
+      }
+      schedule = !scheduled;
+      scheduled = true;
+    }
+    if (schedule) {
+      // 元の処理と同じく、レイアウトを確定させてから描く
+      SwingUtilities.invokeLater(processing);
+    }
+  }
+
+  @Override
+  public void paintDirtyRegions() {
+    Map<JComponent, Rectangle> requests;
+    synchronized (lock) {
+      requests = pending;
+      pending = new LinkedHashMap<>();
+      scheduled = false;
+    }
+    if (!requests.isEmpty()) {
+      long start = System.nanoTime();
+      paintRequests(requests);
+      frameCount++;
+      frameTimes.record((System.nanoTime() - start) / 1000);
+    }
+    // ウィンドウ自体への要求など、こちらで扱わない分は元の処理で描く
+    super.paintDirtyRegions();
+  }
+
+  private void paintRequests(Map<JComponent, Rectangle> requests) {
+    regions.clear();
+    for (Map.Entry<JComponent, Rectangle> entry : requests.entrySet()) {
+      JComponent component = entry.getKey();
+      Region region = toRootPane(component, entry.getValue());
+      if (region != null) {
+        regions.add(region);
+      }
+    }
+
+    // 同じルートペインの中で、近い領域を 1 つにまとめる
+    clusters.clear();
+    for (Region region : regions) {
+      Region cluster = findCluster(region);
+      if (cluster == null) {
+        clusters.add(region);
+        continue;
+      }
+      mergedCount++;
+      if (cluster.members == null) {
+        Region first = new Region();
+        first.component = cluster.component;
+        first.stats = cluster.stats;
+        first.area = cluster.area;
+        cluster.members = new ArrayList<>();
+        cluster.members.add(first);
+        cluster.component = null;
+      }
+      cluster.members.add(region);
+      cluster.bounds = cluster.bounds.union(region.bounds);
+      cluster.area += region.area;
+    }
+
+    for (Region cluster : clusters) {
+      long start = System.nanoTime();
+      if (cluster.members == null) {
+        Rectangle local = cluster.local;
+        cluster.component.paintImmediately(local.x, local.y, local.width, local.height);
+      } else {
+        Rectangle bounds = cluster.bounds;
+        cluster.rootPane.paintImmediately(bounds.x, bounds.y, bounds.width, bounds.height);
+      }
+      long nanos = System.nanoTime() - start;
+      paintCount++;
+      paintedPixels += (long) cluster.bounds.width * cluster.bounds.height;
+      synchronized (lock) {
+        if (cluster.members == null) {
+          record(cluster.stats, cluster.area, nanos);
+        } else {
+          for (Region member : cluster.members) {
+            record(member.stats, member.area, cluster.area == 0 ? 0 : nanos * member.area / cluster.area);
+          }
+        }
+      }
+      if (listener != null) {
+        listener.regionPainted(cluster.rootPane, cluster.bounds);
+      }
+    }
+    regions.clear();
+    clusters.clear();
+  }
+
+  private static void record(ComponentStats stats, long area, long nanos) {
+    stats.paints++;
+    stats.pixels += area;
+    stats.paintNanos += nanos;
+  }
+
+  private Region findCluster(Region region) {
+    if (region.rootPane == null) return null;
+    for (Region cluster : clusters) {
+      if (cluster.rootPane != region.rootPane) continue;
+      Rectangle union = cluster.bounds.union(region.bounds);
+      if ((double) union.width * union.height <= MERGE_FACTOR * (cluster.area + region.area)) {
+        return cluster;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 要求された領域をルートペインの座標に直す
+   * 見えない領域なら捨てて null を返す
+   */
+  private Region toRootPane(JComponent component, Rectangle local) {
+    Rectangle rect = new Rectangle(local);
+    Component child = component;
+    while (!(child instanceof JRootPane)) {
+      Container parent = child.getParent();
+      if (parent == null || !child.isVisible()) {
+        skipped(component);
+        return null;
+      }
+      if (!(child instanceof JComponent)) {
+        // ルートペインの下にない（AWT のコンテナの中など）ものはそのまま描く
+        return single(component, local, null, local);
+      }
+      rect.translate(child.getX(), child.getY());
+      if (isCovered(parent, child, rect)) {
+        coveredCount++;
+        skipped(component);
+        return null;
+      }
+      rect = rect.intersection(new Rectangle(0, 0, parent.getWidth(), parent.getHeight()));
+      if (rect.isEmpty()) {
+        clippedCount++;
+        skipped(component);
+        return null;
+      }
+      child = parent;
+    }
+    JRootPane rootPane = (JRootPane) child;
+    Container window = rootPane.getParent();
+    if (window == null || !window.isShowing()) {
+      skipped(component);
+      return null;
+    }
+    if (window instanceof Window) {
+      Shape shape = ((Window) window).getShape();
+      if (shape != null && !shape.intersects(rect.x + rootPane.getX(), rect.y + rootPane.getY(),
+          rect.width, rect.height)) {
+        clippedCount++;
+        skipped(component);
+        return null;
+      }
+    }
+    return single(component, local, rootPane, rect);
+  }
+
+  private Region single(JComponent component, Rectangle local, JRootPane rootPane, Rectangle bounds) {
+    Region region = new Region();
+    region.component = component;
+    synchronized (lock) {
+      region.stats = statsFor(component);
+    }
+    region.rootPane = rootPane;
+    region.local = local;
+    region.bounds = bounds;
+    region.area = (long) bounds.width * bounds.height;
+    return region;
+  }
+
+  // 手前（添字が小さい方）にある不透明な兄弟が rect（親の座標）を完全に覆っているか
+  private static boolean isCovered(Container parent, Component child, Rectangle rect) {
+    int count = parent.getComponentCount();
+    for (int i = 0; i < count; i++) {
+      Component sibling = parent.getComponent(i);
+      if (sibling == child) return false;
+      if (sibling.isVisible() && sibling.isOpaque() && sibling.getBounds().contains(rect)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void skipped(JComponent component) {
+    synchronized (lock) {
+      statsFor(component).skipped++;
+    }
+  }
+
+  private static Rectangle clip(JComponent component, Rectangle rect) {
+    // markCompletelyDirty などの大きすぎる領域を、コンポーネントの大きさに収める
+    return rect.intersection(new Rectangle(0, 0, Math.max(component.getWidth(), 0),
+        Math.max(component.getHeight(), 0)));
+  }
+
+  private ComponentStats statsFor(JComponent component) {
+    ComponentStats componentStats = stats.get(component);
+    if (componentStats == null) {
+      componentStats = new ComponentStats(null);
+      stats.put(component, componentStats);
+    }
+    return componentStats;
+  }
+
+  /**
+   * コンポーネントごとの集計値を、描画時間の長い順に返す（写し）
+   */
+  public List<ComponentStats> getComponentStats() {
+    List<ComponentStats> result = new ArrayList<>();
+    synchronized (lock) {
+      for (Map.Entry<JComponent, ComponentStats> entry : stats.entrySet()) {
+        result.add(new ComponentStats(entry.getValue(), describe(entry.getKey())));
+      }
+    }
+    result.sort((a, b) -> Long.compare(b.paintNanos, a.paintNanos));
+    return result;
+  }
+
+  /** 描画した回数（まとめた後の回数） */
+  public long getPaintCount() {
+    return paintCount;
+  }
+
+  public long getRequestCount() {
+    synchronized (lock) {
+      return requestCount;
+    }
+  }
+
+  public long getMergedCount() {
+    return mergedCount;
+  }
+
+  public long getClippedCount() {
+    return clippedCount;
+  }
+
+  public long getCoveredCount() {
+    return coveredCount;
+  }
+
+  public long getPaintedPixels() {
+    return paintedPixels;
+  }
+
+  /** 1 フレーム分の描画時間の分布 */
+  public LatencyHistogram getFrameTimes() {
+    return frameTimes;
+  }
+
+  public void reset() {
+    synchronized (lock) {
+      stats.clear();
+      requestCount = 0;
+    }
+    frameTimes.reset();
+    frameCount = 0;
+    paintCount = 0;
+    mergedCount = 0;
+    clippedCount = 0;
+    coveredCount = 0;
+    paintedPixels = 0;
+  }
+
+  public String formatStats() {
+    StringBuilder builder = new StringBuilder(String.format(Locale.ROOT,
+        "repaint frames=%d requests=%d paints=%d merged=%d clipped=%d covered=%d pixels=%.1fM p95=%.2fms max=%.2fms",
+        frameCount, getRequestCount(), paintCount, mergedCount, clippedCount, coveredCount,
+        paintedPixels / 1_000_000.0, frameTimes.percentile(95) / 1000.0, frameTimes.getMaxMicros() / 1000.0));
+    List<ComponentStats> top = getComponentStats();
+    for (int i = 0; i < Math.min(3, top.size()); i++) {
+      ComponentStats componentStats = top.get(i);
+      builder.append(String.format(Locale.ROOT, "%n  %s requests=%d paints=%d skipped=%d pixels=%.1fM time=%.1fms",
+          componentStats.name, componentStats.requests, componentStats.paints, componentStats.skipped,
+          componentStats.pixels / 1_000_000.0, componentStats.paintNanos / 1_000_000.0));
+    }
+    return builder.toString();
+  }
+
+  /**
+   * 集計に表示するコンポーネントの名前（名前がなければクラス名と表示中の文字列）
+   */
+  static String describe(JComponent component) {
+    if (component.getName() != null) {
+      return component.getName();
+    }
+    Class<?> type = component.getClass();
+    while (type.isAnonymousClass()) {
+      type = type.getSuperclass();
+    }
+    String text = null;
+    if (component instanceof JLabel) {
+      text = ((JLabel) component).getText();
+    } else if (component instanceof AbstractButton) {
+      text = ((AbstractButton) component).getText();
+    }
+    return text == null || text.isBlank() ? type.getSimpleName() : type.getSimpleName() + "「" + text.trim() + "」";
+  }
+}
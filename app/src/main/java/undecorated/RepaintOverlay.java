@@ -0,0 +1,123 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.List;
+import java.util.Locale;
+import javax.swing.JComponent;
+import javax.swing.JRootPane;
+import javax.swing.Timer;
+
+/**
+ * 再描画のデバッグ表示（ウィンドウのガラスペインとして使う）
+ * RepaintMonitor が描いた領域を枠で示して 1 秒かけて消し、右下に集計の上位を表示する
+ * 自身の再描画は RepaintMonitor の計測から外し、表示の更新はタイマーで 4 回/秒に抑える
+ * EDT からのみ使うこと
+ */
+public class RepaintOverlay extends JComponent implements RepaintMonitor.PaintListener {
+  private static final long serialVersionUID = 1L;
+
+  private static final int CAPACITY = 64;
+  private static final long FADE_NANOS = 1_000_000_000L;
+  private static final int TOP_COUNT = 5;
+
+  private final RepaintMonitor monitor;
+  private final Timer timer = new Timer(250, e -> repaint());
+  private JRootPane rootPane;
+
+  // 最近描いた領域のリングバッファ（x, y, width, height と時刻）
+  private final int[] rects = new int[CAPACITY * 4];
+  private final long[] times = new long[CAPACITY];
+  private int next;
+
+  public RepaintOverlay(RepaintMonitor monitor) {
+    this.monitor = monitor;
+    setOpaque(false);
+    setFont(FontRegistry.monospaced(11));
+  }
+
+  /**
+   * ウィンドウのガラスペインに設定する（表示はまだしない）
+   */
+  public void install(JRootPane rootPane) {
+    this.rootPane = rootPane;
+    rootPane.setGlassPane(this);
+    monitor.setExcluded(this);
+  }
+
+  /**
+   * 表示を切り替える。非表示の間は描いた領域を記録しない
+   */
+  public void toggle() {
+    boolean show = !isVisible();
+    monitor.setPaintListener(show ? this : null);
+    setVisible(show);
+    if (show) {
+      timer.start();
+    } else {
+      timer.stop();
+    }
+  }
+
+  @Override
+  public void regionPainted(JRootPane painted, Rectangle bounds) {
+    if (painted != rootPane) return;
+    int slot = next;
+    rects[slot * 4] = bounds.x;
+    rects[slot * 4 + 1] = bounds.y;
+    rects[slot * 4 + 2] = bounds.width;
+    rects[slot * 4 + 3] = bounds.height;
+    times[slot] = System.nanoTime();
+    next = (slot + 1) % CAPACITY;
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    Graphics2D g2 = (Graphics2D) g.create();
+    try {
+      long now = System.nanoTime();
+      for (int i = 0; i < CAPACITY; i++) {
+        long age = now - times[i];
+        if (times[i] == 0 || age >= FADE_NANOS) continue;
+        int alpha = (int) (255 * (FADE_NANOS - age) / FADE_NANOS);
+        g2.setColor(new Color(255, 0, 0, alpha / 4));
+        g2.fillRect(rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2], rects[i * 4 + 3]);
+        g2.setColor(new Color(255, 0, 0, alpha));
+        g2.drawRect(rects[i * 4], rects[i * 4 + 1], rects[i * 4 + 2] - 1, rects[i * 4 + 3] - 1);
+      }
+      paintSummary(g2);
+    } finally {
+      g2.dispose();
+    }
+  }
+
+  private void paintSummary(Graphics2D g2) {
+    List<RepaintMonitor.ComponentStats> top = monitor.getComponentStats();
+    int lines = Math.min(TOP_COUNT, top.size()) + 1;
+    String[] text = new String[lines];
+    text[0] = String.format(Locale.ROOT, "paints=%d merged=%d clipped=%d covered=%d p95=%.1fms",
+        monitor.getPaintCount(), monitor.getMergedCount(), monitor.getClippedCount(), monitor.getCoveredCount(),
+        monitor.getFrameTimes().percentile(95) / 1000.0);
+    for (int i = 1; i < lines; i++) {
+      RepaintMonitor.ComponentStats stats = top.get(i - 1);
+      text[i] = String.format(Locale.ROOT, "%-24.24s %6d/%-6d %7.1fMpx %7.1fms", stats.getName(),
+          stats.getPaints(), stats.getRequests(), stats.getPixels() / 1_000_000.0, stats.getPaintNanos() / 1_000_000.0);
+    }
+
+    FontMetrics metrics = g2.getFontMetrics();
+    int width = 0;
+    for (String line : text) {
+      width = Math.max(width, metrics.stringWidth(line));
+    }
+    int lineHeight = metrics.getHeight();
+    int boxWidth = width + 12;
+    int boxHeight = lineHeight * lines + 8;
+    int x = getWidth() - boxWidth - 12;
+    int y = getHeight() - boxHeight - 32;
+    g2.setColor(new Color(0, 0, 0, 180));
+    g2.fillRect(x, y, boxWidth, boxHeight);
+    g2.setColor(Color.WHITE);
+    for (int i = 0; i < lines; i++) {
+      g2.drawString(text[i], x + 6, y + 4 + metrics.getAscent() + i * lineHeight);
+    }
+  }
+}
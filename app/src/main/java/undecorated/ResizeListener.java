@@ -0,0 +1,96 @@
+package undecorated;
+
+import java.awt.*;
+import javax.swing.*;
+import java.awt.event.*;
+
+public class ResizeListener implements MouseListener, MouseMotionListener {
+    public static final int RESIZE_BORDER_WIDTH = 5; // リサイズ用ボーダーの幅
+    
+    private final JFrame frame;
+    private final FrameResizeEngine resizeEngine;
+    private int cursor;
+    
+    public ResizeListener(JFrame frame) {
+        this(frame, ScreenTopology.getDefault());
+    }
+    
+    /**
+     * @param topology モニターの配置（null なら端への吸着と画面外の制限を行わない）
+     */
+    public ResizeListener(JFrame frame, ScreenTopology topology) {
+        this.frame = frame;
+        this.resizeEngine = new FrameResizeEngine(frame, topology);
+        this.cursor = Cursor.DEFAULT_CURSOR;
+    }
+    
+    public ResizeListener(JFrame frame, int minWidth, int minHeight) {
+        this(frame);
+        resizeEngine.setMinimumSize(minWidth, minHeight);
+    }
+    
+    public FrameResizeEngine getResizeEngine() {
+        return resizeEngine;
+    }
+    
+    // フレームの枠を描画するためのメソッド
+    public static void drawResizableBorder(JFrame frame) {
+        JRootPane rootPane = frame.getRootPane();
+        
+        rootPane.setBorder(BorderFactory.createLineBorder(new Color(70, 130, 180), RESIZE_BORDER_WIDTH));
+    }
+    
+    // どの辺の領域にマウスがあるかを判定する
+    int detectEdges(Point point) {
+        return FrameResizeEngine.detectEdges(point.x, point.y, frame.getWidth(), frame.getHeight(), RESIZE_BORDER_WIDTH);
+    }
+    
+    // どの領域にマウスがあるかを判定し、カーソルを設定
+    int detectCursor(Point point) {
+        return FrameResizeEngine.cursorFor(detectEdges(point));
+    }
+    
+    @Override
+    public void mousePressed(MouseEvent e) {
+        int edges = detectEdges(e.getPoint());
+        cursor = FrameResizeEngine.cursorFor(edges);
+        // 開始時の境界とスクリーン座標を基準に、以降の境界を計算する
+        resizeEngine.begin(edges, e.getXOnScreen(), e.getYOnScreen());
+    }
+    
+    @Override
+    public void mouseReleased(MouseEvent e) {
+        resizeEngine.end(e.getXOnScreen(), e.getYOnScreen());
+    }
+    
+    @Override
+    public void mouseDragged(MouseEvent e) {
+        // 実際のリサイズはフレームごとにまとめて 1 回の setBounds で行われる
+        resizeEngine.drag(e.getXOnScreen(), e.getYOnScreen());
+    }
+    
+    @Override
+    public void mouseMoved(MouseEvent e) {
+        // カーソルの形状を更新
+        int newCursor = detectCursor(e.getPoint());
+        if (newCursor != cursor) {
+            cursor = newCursor;
+            frame.setCursor(Cursor.getPredefinedCursor(cursor));
+        }
+    }
+    
+    @Override
+    public void mouseClicked(MouseEvent e) {}
+    
+    @Override
+    public void mouseEntered(MouseEvent e) {}
+    
+    @Override
+    public void mouseExited(MouseEvent e) {
+        // リサイズ中はフレーム外に出てもカーソルを維持する
+        if (resizeEngine.isResizing()) return;
+        // フレームから出た時はカーソルをデフォルトに戻す
+        cursor = Cursor.DEFAULT_CURSOR;
+        frame.setCursor(Cursor.getDefaultCursor());
+    }
+}
\ No newline at end of file
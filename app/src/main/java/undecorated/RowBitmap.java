@@ -0,0 +1,582 @@
+package undecorated;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * 行番号の圧縮ビットマップ（Roaring bitmap と同じ考え方）
+ *
+ * 行番号の上位 16 ビットごとの区間（65,536 行）に分け、区間ごとに中身の多さで持ち方を変える
+ *   ARRAY_MAX 行以下: 下位 16 ビットの昇順の char 配列（1 行 2 バイト）
+ *   それより多い場合: 1,024 個の long のビットマップ（区間ごとに 8KB）
+ * 行のない区間は持たない
+ * 積・和・差は区間ごとに持ち方の組み合わせに合った方法で計算し、結果も同じ規則で持ち方を選ぶ
+ * andCardinality は結果を作らずに件数だけを数える（ファセットの件数の計算に使う）
+ *
+ * add は昇順に呼ぶこと（FacetIndex が行を先頭から登録する）
+ * 演算は新しいビットマップを返し、引数を書き換えない
+ * ただし結果は、中身の変わらない区間を引数と共有する（複製しない）ので、引数に add するまでに使い終えること
+ * 作り終えた後に書き換えなければ、複数のスレッドから読んでよい
+ */
+public final class RowBitmap {
+  /** 区間の行数がこれ以下なら配列で持つ */
+  static final int ARRAY_MAX = 4096;
+  private static final int WORDS = 1 << 10;
+
+  // 区間の番号（昇順）、区間の中身（char[] または long[]）、区間の行数
+  private char[] keys;
+  private Object[] containers;
+  private int[] cardinalities;
+  private int size;
+
+  public RowBitmap() {
+    this(4);
+  }
+
+  private RowBitmap(int capacity) {
+    keys = new char[capacity];
+    containers = new Object[capacity];
+    cardinalities = new int[capacity];
+  }
+
+  /** 0 から rowCount - 1 までのすべての行 */
+  public static RowBitmap range(int rowCount) {
+    RowBitmap result = new RowBitmap(Math.max(1, (rowCount + 0xFFFF) >>> 16));
+    for (int from = 0; from < rowCount; from += 1 << 16) {
+      int count = Math.min(rowCount - from, 1 << 16);
+      Object container;
+      if (count <= ARRAY_MAX) {
+        char[] values = new char[count];
+        for (int i = 0; i < count; i++) {
+          values[i] = (char) i;
+        }
+        container = values;
+      } else {
+        long[] words = new long[WORDS];
+        Arrays.fill(words, 0, count >>> 6, -1L);
+        if ((count & 63) != 0) {
+          words[count >>> 6] = (1L << count) - 1;
+        }
+        container = words;
+      }
+      result.append((char) (from >>> 16), container, count);
+    }
+    return result;
+  }
+
+  /** BitSet の内容を写す */
+  public static RowBitmap fromBitSet(BitSet rows) {
+    long[] source = rows.toLongArray();
+    RowBitmap result = new RowBitmap(Math.max(1, (source.length + WORDS - 1) / WORDS));
+    for (int from = 0; from < source.length; from += WORDS) {
+      int to = Math.min(source.length, from + WORDS);
+      int count = 0;
+      for (int i = from; i < to; i++) {
+        count += Long.bitCount(source[i]);
+      }
+      if (count == 0) continue;
+      long[] words = Arrays.copyOfRange(source, from, from + WORDS);
+      result.append((char) (from / WORDS), count <= ARRAY_MAX ? toArray(words, count) : words, count);
+    }
+    return result;
+  }
+
+  /**
+   * 行を追加する（これまでに追加した行より大きいこと）
+   */
+  public void add(int row) {
+    char key = (char) (row >>> 16);
+    char low = (char) row;
+    if (size == 0 || keys[size - 1] != key) {
+      append(key, new char[4], 0);
+    }
+    int index = size - 1;
+    int count = cardinalities[index];
+    Object container = containers[index];
+    if (container instanceof char[]) {
+      char[] values = (char[]) container;
+      if (count > 0 && values[count - 1] >= low) {
+        if (values[count - 1] == low) return;
+        throw new IllegalArgumentException("行は昇順に追加すること: " + row);
+      }
+      if (count == ARRAY_MAX) {
+        long[] words = toWords(values, count);
+        words[low >>> 6] |= 1L << low;
+        containers[index] = words;
+      } else {
+        if (count == values.length) {
+          values = Arrays.copyOf(values, Math.min(ARRAY_MAX, count * 2));
+          containers[index] = values;
+        }
+        values[count] = low;
+      }
+    } else {
+      long[] words = (long[]) container;
+      long bit = 1L << low;
+      if ((words[low >>> 6] & bit) != 0) return;
+      words[low >>> 6] |= bit;
+    }
+    cardinalities[index] = count + 1;
+  }
+
+  public boolean contains(int row) {
+    int index = Arrays.binarySearch(keys, 0, size, (char) (row >>> 16));
+    if (index < 0) return false;
+    char low = (char) row;
+    Object container = containers[index];
+    if (container instanceof char[]) {
+      return Arrays.binarySearch((char[]) container, 0, cardinalities[index], low) >= 0;
+    }
+    return (((long[]) container)[low >>> 6] & (1L << low)) != 0;
+  }
+
+  public int cardinality() {
+    int total = 0;
+    for (int i = 0; i < size; i++) {
+      total += cardinalities[i];
+    }
+    return total;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** 積集合 */
+  public RowBitmap and(RowBitmap other) {
+    RowBitmap result = new RowBitmap(Math.max(1, Math.min(size, other.size)));
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      char a = keys[i];
+      char b = other.keys[j];
+      if (a < b) {
+        i++;
+      } else if (a > b) {
+        j++;
+      } else {
+        result.appendNonEmpty(a, and(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /** 和集合 */
+  public RowBitmap or(RowBitmap other) {
+    RowBitmap result = new RowBitmap(Math.max(1, size + other.size));
+    int i = 0;
+    int j = 0;
+    while (i < size || j < other.size) {
+      char a = i < size ? keys[i] : Character.MAX_VALUE;
+      char b = j < other.size ? other.keys[j] : Character.MAX_VALUE;
+      if (j >= other.size || (i < size && a < b)) {
+        result.append(a, containers[i], cardinalities[i]);
+        i++;
+      } else if (i >= size || b < a) {
+        result.append(b, other.containers[j], other.cardinalities[j]);
+        j++;
+      } else {
+        result.appendNonEmpty(a, or(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]));
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 複数のビットマップの和集合
+   * 区間ごとに 1 つのビットマップに書き込んでいくので、2 つずつ or するより中間の結果を作らない
+   */
+  public static RowBitmap union(RowBitmap... bitmaps) {
+    if (bitmaps.length == 1) return bitmaps[0];
+    int capacity = 0;
+    for (RowBitmap bitmap : bitmaps) {
+      capacity = Math.max(capacity, bitmap.size);
+    }
+    RowBitmap result = new RowBitmap(Math.max(1, capacity));
+    // 各ビットマップの次に見る区間の位置
+    int[] positions = new int[bitmaps.length];
+    long[] words = null;
+    while (true) {
+      int key = Integer.MAX_VALUE;
+      int sources = 0;
+      int source = -1;
+      for (int b = 0; b < bitmaps.length; b++) {
+        RowBitmap bitmap = bitmaps[b];
+        if (positions[b] >= bitmap.size) continue;
+        int bitmapKey = bitmap.keys[positions[b]];
+        if (bitmapKey < key) {
+          key = bitmapKey;
+          sources = 1;
+          source = b;
+        } else if (bitmapKey == key) {
+          sources++;
+        }
+      }
+      if (source < 0) break;
+      if (sources == 1) {
+        RowBitmap bitmap = bitmaps[source];
+        int index = positions[source]++;
+        result.append((char) key, bitmap.containers[index], bitmap.cardinalities[index]);
+        continue;
+      }
+      if (words == null) {
+        words = new long[WORDS];
+      }
+      for (int b = 0; b < bitmaps.length; b++) {
+        RowBitmap bitmap = bitmaps[b];
+        int index = positions[b];
+        if (index >= bitmap.size || bitmap.keys[index] != key) continue;
+        positions[b]++;
+        Object container = bitmap.containers[index];
+        if (container instanceof long[]) {
+          long[] y = (long[]) container;
+          for (int w = 0; w < WORDS; w++) {
+            words[w] |= y[w];
+          }
+        } else {
+          char[] values = (char[]) container;
+          for (int k = 0, count = bitmap.cardinalities[index]; k < count; k++) {
+            words[values[k] >>> 6] |= 1L << values[k];
+          }
+        }
+      }
+      int count = cardinality(words);
+      if (count <= ARRAY_MAX) {
+        // 配列にしたらビットマップは次の区間に使い回す
+        result.append((char) key, toArray(words, count), count);
+        Arrays.fill(words, 0L);
+      } else {
+        result.append((char) key, words, count);
+        words = null;
+      }
+    }
+    return result;
+  }
+
+  /** 差集合（this にあって other にない行） */
+  public RowBitmap andNot(RowBitmap other) {
+    RowBitmap result = new RowBitmap(Math.max(1, size));
+    int j = 0;
+    for (int i = 0; i < size; i++) {
+      char key = keys[i];
+      while (j < other.size && other.keys[j] < key) {
+        j++;
+      }
+      if (j < other.size && other.keys[j] == key) {
+        result.appendNonEmpty(key, andNot(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]));
+      } else {
+        result.append(key, containers[i], cardinalities[i]);
+      }
+    }
+    return result;
+  }
+
+  /** 積集合の行数（積集合は作らない） */
+  public int andCardinality(RowBitmap other) {
+    int total = 0;
+    int i = 0;
+    int j = 0;
+    while (i < size && j < other.size) {
+      char a = keys[i];
+      char b = other.keys[j];
+      if (a < b) {
+        i++;
+      } else if (a > b) {
+        j++;
+      } else {
+        total += andCardinality(containers[i], cardinalities[i], other.containers[j], other.cardinalities[j]);
+        i++;
+        j++;
+      }
+    }
+    return total;
+  }
+
+  /** 昇順の行番号の配列 */
+  public int[] toArray() {
+    int[] rows = new int[cardinality()];
+    int offset = 0;
+    for (int i = 0; i < size; i++) {
+      int high = keys[i] << 16;
+      Object container = containers[i];
+      if (container instanceof char[]) {
+        char[] values = (char[]) container;
+        for (int k = 0; k < cardinalities[i]; k++) {
+          rows[offset++] = high | values[k];
+        }
+      } else {
+        long[] words = (long[]) container;
+        for (int w = 0; w < WORDS; w++) {
+          long word = words[w];
+          int base = high | (w << 6);
+          while (word != 0) {
+            rows[offset++] = base | Long.numberOfTrailingZeros(word);
+            word &= word - 1;
+          }
+        }
+      }
+    }
+    return rows;
+  }
+
+  public BitSet toBitSet() {
+    if (size == 0) return new BitSet();
+    long[] words = new long[(keys[size - 1] + 1) * WORDS];
+    for (int i = 0; i < size; i++) {
+      int base = keys[i] * WORDS;
+      Object container = containers[i];
+      if (container instanceof char[]) {
+        char[] values = (char[]) container;
+        for (int k = 0; k < cardinalities[i]; k++) {
+          char low = values[k];
+          words[base + (low >>> 6)] |= 1L << low;
+        }
+      } else {
+        System.arraycopy(container, 0, words, base, WORDS);
+      }
+    }
+    return BitSet.valueOf(words);
+  }
+
+  /** 保持している配列のおおよそのバイト数 */
+  public long estimatedBytes() {
+    long bytes = (long) keys.length * (2 + 4 + 8);
+    for (int i = 0; i < size; i++) {
+      Object container = containers[i];
+      bytes += 16 + (container instanceof char[] ? ((char[]) container).length * 2L : WORDS * 8L);
+    }
+    return bytes;
+  }
+
+  private void append(char key, Object container, int count) {
+    if (size == keys.length) {
+      int capacity = size * 2;
+      keys = Arrays.copyOf(keys, capacity);
+      containers = Arrays.copyOf(containers, capacity);
+      cardinalities = Arrays.copyOf(cardinalities, capacity);
+    }
+    keys[size] = key;
+    containers[size] = container;
+    cardinalities[size] = count;
+    size++;
+  }
+
+  // 演算の結果（char[] の場合は長さが行数、long[] の場合は ARRAY_MAX 行より多い）を追加する
+  private void appendNonEmpty(char key, Object container) {
+    if (container instanceof char[]) {
+      char[] values = (char[]) container;
+      if (values.length > 0) {
+        append(key, values, values.length);
+      }
+    } else {
+      long[] words = (long[]) container;
+      append(key, words, cardinality(words));
+    }
+  }
+
+  // 以下は 1 区間どうしの演算
+  // 結果は ARRAY_MAX 行以下なら長さが行数の char[]、それより多ければ long[] で返す
+
+  private static Object and(Object a, int aCount, Object b, int bCount) {
+    if (a instanceof char[]) {
+      if (b instanceof char[]) {
+        return intersect((char[]) a, aCount, (char[]) b, bCount);
+      }
+      return filter((char[]) a, aCount, (long[]) b, true);
+    }
+    if (b instanceof char[]) {
+      return filter((char[]) b, bCount, (long[]) a, true);
+    }
+    long[] x = (long[]) a;
+    long[] y = (long[]) b;
+    long[] words = new long[WORDS];
+    int count = 0;
+    for (int w = 0; w < WORDS; w++) {
+      words[w] = x[w] & y[w];
+      count += Long.bitCount(words[w]);
+    }
+    return count <= ARRAY_MAX ? toArray(words, count) : words;
+  }
+
+  private static Object or(Object a, int aCount, Object b, int bCount) {
+    if (a instanceof char[] && b instanceof char[] && aCount + bCount <= ARRAY_MAX) {
+      return union((char[]) a, aCount, (char[]) b, bCount);
+    }
+    long[] words = a instanceof long[] ? ((long[]) a).clone() : toWords((char[]) a, aCount);
+    if (b instanceof long[]) {
+      long[] y = (long[]) b;
+      for (int w = 0; w < WORDS; w++) {
+        words[w] |= y[w];
+      }
+    } else {
+      char[] values = (char[]) b;
+      for (int k = 0; k < bCount; k++) {
+        words[values[k] >>> 6] |= 1L << values[k];
+      }
+    }
+    int count = cardinality(words);
+    return count <= ARRAY_MAX ? toArray(words, count) : words;
+  }
+
+  private static Object andNot(Object a, int aCount, Object b, int bCount) {
+    if (a instanceof char[]) {
+      if (b instanceof char[]) {
+        return subtract((char[]) a, aCount, (char[]) b, bCount);
+      }
+      return filter((char[]) a, aCount, (long[]) b, false);
+    }
+    long[] words = ((long[]) a).clone();
+    if (b instanceof long[]) {
+      long[] y = (long[]) b;
+      for (int w = 0; w < WORDS; w++) {
+        words[w] &= ~y[w];
+      }
+    } else {
+      char[] values = (char[]) b;
+      for (int k = 0; k < bCount; k++) {
+        words[values[k] >>> 6] &= ~(1L << values[k]);
+      }
+    }
+    int count = cardinality(words);
+    return count <= ARRAY_MAX ? toArray(words, count) : words;
+  }
+
+  private static int andCardinality(Object a, int aCount, Object b, int bCount) {
+    if (a instanceof long[] && b instanceof long[]) {
+      long[] x = (long[]) a;
+      long[] y = (long[]) b;
+      int count = 0;
+      for (int w = 0; w < WORDS; w++) {
+        count += Long.bitCount(x[w] & y[w]);
+      }
+      return count;
+    }
+    if (a instanceof long[] || b instanceof long[]) {
+      char[] values = (char[]) (a instanceof char[] ? a : b);
+      long[] words = (long[]) (a instanceof long[] ? a : b);
+      int length = a instanceof char[] ? aCount : bCount;
+      int count = 0;
+      for (int k = 0; k < length; k++) {
+        count += (int) (words[values[k] >>> 6] >>> values[k]) & 1;
+      }
+      return count;
+    }
+    char[] x = (char[]) a;
+    char[] y = (char[]) b;
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < aCount && j < bCount) {
+      if (x[i] < y[j]) {
+        i++;
+      } else if (x[i] > y[j]) {
+        j++;
+      } else {
+        count++;
+        i++;
+        j++;
+      }
+    }
+    return count;
+  }
+
+  private static char[] intersect(char[] x, int xCount, char[] y, int yCount) {
+    char[] result = new char[Math.min(xCount, yCount)];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < xCount && j < yCount) {
+      if (x[i] < y[j]) {
+        i++;
+      } else if (x[i] > y[j]) {
+        j++;
+      } else {
+        result[count++] = x[i];
+        i++;
+        j++;
+      }
+    }
+    return count == result.length ? result : Arrays.copyOf(result, count);
+  }
+
+  private static char[] union(char[] x, int xCount, char[] y, int yCount) {
+    char[] result = new char[xCount + yCount];
+    int count = 0;
+    int i = 0;
+    int j = 0;
+    while (i < xCount || j < yCount) {
+      if (j >= yCount || (i < xCount && x[i] < y[j])) {
+        result[count++] = x[i++];
+      } else if (i >= xCount || y[j] < x[i]) {
+        result[count++] = y[j++];
+      } else {
+        result[count++] = x[i];
+        i++;
+        j++;
+      }
+    }
+    return count == result.length ? result : Arrays.copyOf(result, count);
+  }
+
+  private static char[] subtract(char[] x, int xCount, char[] y, int yCount) {
+    char[] result = new char[xCount];
+    int count = 0;
+    int j = 0;
+    for (int i = 0; i < xCount; i++) {
+      while (j < yCount && y[j] < x[i]) {
+        j++;
+      }
+      if (j >= yCount || y[j] != x[i]) {
+        result[count++] = x[i];
+      }
+    }
+    return count == result.length ? result : Arrays.copyOf(result, count);
+  }
+
+  // 配列のうち、ビットマップに含まれる（keep が false なら含まれない）値だけを残す
+  private static char[] filter(char[] values, int count, long[] words, boolean keep) {
+    char[] result = new char[count];
+    int flip = keep ? 0 : 1;
+    int length = 0;
+    for (int k = 0; k < count; k++) {
+      char value = values[k];
+      // 分岐せずに書き込み、残す値の時だけ位置を進める
+      result[length] = value;
+      length += (int) (words[value >>> 6] >>> value & 1) ^ flip;
+    }
+    return length == result.length ? result : Arrays.copyOf(result, length);
+  }
+
+  private static long[] toWords(char[] values, int count) {
+    long[] words = new long[WORDS];
+    for (int k = 0; k < count; k++) {
+      words[values[k] >>> 6] |= 1L << values[k];
+    }
+    return words;
+  }
+
+  private static char[] toArray(long[] words, int count) {
+    char[] values = new char[count];
+    int length = 0;
+    for (int w = 0; w < WORDS; w++) {
+      long word = words[w];
+      while (word != 0) {
+        values[length++] = (char) ((w << 6) | Long.numberOfTrailingZeros(word));
+        word &= word - 1;
+      }
+    }
+    return values;
+  }
+
+  private static int cardinality(long[] words) {
+    int count = 0;
+    for (long word : words) {
+      count += Long.bitCount(word);
+    }
+    return count;
+  }
+}
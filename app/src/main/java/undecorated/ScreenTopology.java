@@ -0,0 +1,262 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.Locale;
+
+/**
+ * モニターの配置（各モニターの境界と、タスクバーなどを除いた作業領域）のキャッシュ
+ * ウィンドウの移動・リサイズ中に、モニターの端への吸着と画面外へのはみ出しの制限に使う
+ *
+ * GraphicsEnvironment への問い合わせは X11 でモニターが多いと 1 回で数ミリ秒かかることがあるため、
+ * ドラッグ中のイベントごとには行わない。配置はドラッグ開始時に古ければ取り直す
+ * 古いとみなすのは、ウィンドウの GraphicsConfiguration が変わった時（モニターの移動や
+ * 表示設定の変更）と、最後に取得してから REVALIDATE_MILLIS 経った時
+ * EDT からのみ使うこと
+ */
+public class ScreenTopology {
+  /** モニターの端にこの距離（ピクセル）まで近づいたら吸着する */
+  public static final int SNAP_DISTANCE = 12;
+  /** 移動後もモニター上に残す、ウィンドウ上端（タイトルバー）の最小の幅と高さ */
+  public static final int MIN_VISIBLE = 48;
+  private static final long REVALIDATE_MILLIS = 2000;
+
+  // モニターごとに 4 つずつ: 作業領域の x, y, right, bottom
+  private static final int LEFT = 0;
+  private static final int TOP = 1;
+  private static final int RIGHT = 2;
+  private static final int BOTTOM = 3;
+  private static final int STRIDE = 4;
+
+  private static ScreenTopology defaultTopology;
+
+  // 固定の配置（テスト・計測用）なら取り直さない
+  private final boolean fixed;
+  private int[] screens = new int[0];
+  private boolean stale = true;
+  private long refreshedAtMillis;
+
+  // 計測値
+  private long refreshCount;
+  private double lastRefreshMillis;
+
+  /**
+   * GraphicsEnvironment からモニターの配置を取得する
+   */
+  public ScreenTopology() {
+    this.fixed = false;
+  }
+
+  /**
+   * 固定のモニター配置を使う（ヘッドレス環境でのテスト・計測用）
+   * @param workAreas 各モニターの作業領域
+   */
+  public ScreenTopology(Rectangle... workAreas) {
+    this.fixed = true;
+    this.stale = false;
+    setWorkAreas(workAreas);
+  }
+
+  /**
+   * アプリケーション全体で共有する配置
+   */
+  public static ScreenTopology getDefault() {
+    if (defaultTopology == null) {
+      defaultTopology = new ScreenTopology();
+    }
+    return defaultTopology;
+  }
+
+  /**
+   * ウィンドウが別のモニターへ移った時や表示設定が変わった時に、配置を取り直すようにする
+   */
+  public void watch(Window window) {
+    window.addPropertyChangeListener("graphicsConfiguration", e -> invalidate());
+  }
+
+  /**
+   * 次の ensureFresh() で配置を取り直すようにする
+   */
+  public void invalidate() {
+    if (!fixed) {
+      stale = true;
+    }
+  }
+
+  /**
+   * 配置が古ければ取り直す。ドラッグの開始時など、イベントごとではないタイミングで呼ぶ
+   */
+  public void ensureFresh() {
+    if (fixed) return;
+    if (!stale && System.currentTimeMillis() - refreshedAtMillis < REVALIDATE_MILLIS) return;
+    refresh();
+  }
+
+  private void refresh() {
+    long start = System.nanoTime();
+    stale = false;
+    refreshedAtMillis = System.currentTimeMillis();
+    refreshCount++;
+    if (GraphicsEnvironment.isHeadless()) {
+      screens = new int[0];
+      return;
+    }
+    GraphicsDevice[] devices = GraphicsEnvironment.getLocalGraphicsEnvironment().getScreenDevices();
+    Toolkit toolkit = Toolkit.getDefaultToolkit();
+    Rectangle[] workAreas = new Rectangle[devices.length];
+    for (int i = 0; i < devices.length; i++) {
+      GraphicsConfiguration gc = devices[i].getDefaultConfiguration();
+      Rectangle bounds = gc.getBounds();
+      Insets insets = toolkit.getScreenInsets(gc);
+      workAreas[i] = new Rectangle(bounds.x + insets.left, bounds.y + insets.top,
+          bounds.width - insets.left - insets.right, bounds.height - insets.top - insets.bottom);
+    }
+    setWorkAreas(workAreas);
+    lastRefreshMillis = (System.nanoTime() - start) / 1_000_000.0;
+  }
+
+  private void setWorkAreas(Rectangle[] workAreas) {
+    int[] values = new int[workAreas.length * STRIDE];
+    for (int i = 0; i < workAreas.length; i++) {
+      Rectangle area = workAreas[i];
+      values[i * STRIDE + LEFT] = area.x;
+      values[i * STRIDE + TOP] = area.y;
+      values[i * STRIDE + RIGHT] = area.x + area.width;
+      values[i * STRIDE + BOTTOM] = area.y + area.height;
+    }
+    screens = values;
+  }
+
+  public int getScreenCount() {
+    return screens.length / STRIDE;
+  }
+
+  /** 配置を取り直した回数 */
+  public long getRefreshCount() {
+    return refreshCount;
+  }
+
+  public String formatStats() {
+    return String.format(Locale.ROOT, "screens count=%d refreshed=%d last=%.2fms",
+        getScreenCount(), refreshCount, lastRefreshMillis);
+  }
+
+  /**
+   * 移動先の境界をモニターの端に吸着させ、タイトルバーがどこかのモニターの作業領域に残るよう制限する
+   * モニターの隙間や画面外に出る場合は、最も近いモニターの中へ戻す
+   * @param bounds x, y, width, height（x と y を書き換える）
+   */
+  public void constrainMove(int[] bounds) {
+    int[] areas = screens;
+    if (areas.length == 0) return;
+    int x = bounds[0];
+    int y = bounds[1];
+    int width = bounds[2];
+    int height = bounds[3];
+
+    // 縦・横それぞれ、重なっているモニターの端のうち最も近いものに吸着する
+    int bestDx = SNAP_DISTANCE + 1;
+    int bestDy = SNAP_DISTANCE + 1;
+    for (int i = 0; i < areas.length; i += STRIDE) {
+      int left = areas[i + LEFT];
+      int top = areas[i + TOP];
+      int right = areas[i + RIGHT];
+      int bottom = areas[i + BOTTOM];
+      if (y < bottom && y + height > top) {
+        bestDx = closer(bestDx, left - x);
+        bestDx = closer(bestDx, right - (x + width));
+      }
+      if (x < right && x + width > left) {
+        bestDy = closer(bestDy, top - y);
+        bestDy = closer(bestDy, bottom - (y + height));
+      }
+    }
+    if (Math.abs(bestDx) <= SNAP_DISTANCE) x += bestDx;
+    if (Math.abs(bestDy) <= SNAP_DISTANCE) y += bestDy;
+
+    // タイトルバーが作業領域に残るまでの移動量が最も小さいモニターに合わせる
+    int visibleWidth = Math.min(MIN_VISIBLE, width);
+    long bestCost = Long.MAX_VALUE;
+    int moveX = 0;
+    int moveY = 0;
+    for (int i = 0; i < areas.length; i += STRIDE) {
+      int dx = shift(x, areas[i + LEFT] - width + visibleWidth, areas[i + RIGHT] - visibleWidth);
+      int dy = shift(y, areas[i + TOP], areas[i + BOTTOM] - MIN_VISIBLE);
+      long cost = (long) Math.abs(dx) + Math.abs(dy);
+      if (cost < bestCost) {
+        bestCost = cost;
+        moveX = dx;
+        moveY = dy;
+        if (cost == 0) break;
+      }
+    }
+    bounds[0] = x + moveX;
+    bounds[1] = y + moveY;
+  }
+
+  /**
+   * リサイズで動かしている辺を、マウスのあるモニター（なければ最も近いモニター）の作業領域の端に
+   * 吸着させ、その外へは出ないよう制限する。最小サイズは制限より優先する
+   * @param edges 動かしている辺（FrameResizeEngine.EDGE_*）
+   * @param bounds x, y, width, height（書き換える）
+   */
+  public void constrainResize(int edges, int[] bounds, int pointerX, int pointerY, int minWidth, int minHeight) {
+    int[] areas = screens;
+    if (areas.length == 0) return;
+    int screen = nearestScreen(areas, pointerX, pointerY);
+    int areaLeft = areas[screen + LEFT];
+    int areaTop = areas[screen + TOP];
+    int areaRight = areas[screen + RIGHT];
+    int areaBottom = areas[screen + BOTTOM];
+
+    int left = bounds[0];
+    int top = bounds[1];
+    int right = left + bounds[2];
+    int bottom = top + bounds[3];
+    if ((edges & FrameResizeEngine.EDGE_WEST) != 0) {
+      left = left - areaLeft <= SNAP_DISTANCE ? areaLeft : left;
+      left = Math.min(left, right - minWidth);
+    } else if ((edges & FrameResizeEngine.EDGE_EAST) != 0) {
+      right = areaRight - right <= SNAP_DISTANCE ? areaRight : right;
+      right = Math.max(right, left + minWidth);
+    }
+    if ((edges & FrameResizeEngine.EDGE_NORTH) != 0) {
+      top = top - areaTop <= SNAP_DISTANCE ? areaTop : top;
+      top = Math.min(top, bottom - minHeight);
+    } else if ((edges & FrameResizeEngine.EDGE_SOUTH) != 0) {
+      bottom = areaBottom - bottom <= SNAP_DISTANCE ? areaBottom : bottom;
+      bottom = Math.max(bottom, top + minHeight);
+    }
+    bounds[0] = left;
+    bounds[1] = top;
+    bounds[2] = right - left;
+    bounds[3] = bottom - top;
+  }
+
+  // 点を含む、または点に最も近い作業領域の先頭の添字
+  private static int nearestScreen(int[] areas, int x, int y) {
+    int best = 0;
+    long bestDistance = Long.MAX_VALUE;
+    for (int i = 0; i < areas.length; i += STRIDE) {
+      long dx = shift(x, areas[i + LEFT], areas[i + RIGHT] - 1);
+      long dy = shift(y, areas[i + TOP], areas[i + BOTTOM] - 1);
+      long distance = dx * dx + dy * dy;
+      if (distance < bestDistance) {
+        bestDistance = distance;
+        best = i;
+        if (distance == 0) break;
+      }
+    }
+    return best;
+  }
+
+  // value を [min, max] に入れるための移動量（min > max なら min に合わせる）
+  private static int shift(int value, int min, int max) {
+    if (value < min) return min - value;
+    if (value > max) return Math.max(min, max) - value;
+    return 0;
+  }
+
+  private static int closer(int current, int candidate) {
+    return Math.abs(candidate) < Math.abs(current) ? candidate : current;
+  }
+}
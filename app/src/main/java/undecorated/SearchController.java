@@ -0,0 +1,151 @@
+package undecorated;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import javax.swing.RowFilter;
+import javax.swing.SwingUtilities;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.TableModel;
+
+/**
+ * ツールバーの検索欄と SearchIndex をつなぐコントローラー
+ * インデックスの登録と検索は専用のスレッドで順番に実行し、EDT では結果の適用だけを行う
+ * 新しいキー入力があれば実行中の古い検索は中止する
+ */
+public class SearchController implements TableModelListener {
+  private final CustomerTableModel model;
+  private final Consumer<BitSet> resultSink;
+  private final Consumer<String> statusSink;
+  private final SearchIndex index = new SearchIndex();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "search-index");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // 以下は EDT でのみ読み書きする
+  private String query = "";
+  private int generation;
+  private Future<?> running;
+
+  // 計測値（検索スレッドで更新する）
+  private volatile long queryCount;
+  private volatile double lastQueryMillis;
+
+  /**
+   * @param model 検索対象のモデル
+   * @param resultSink 検索結果の行ビットマップ（null は絞り込みなし）を受け取る。EDT で呼ばれる
+   * @param statusSink 件数などのメッセージの通知先。EDT で呼ばれる
+   */
+  public SearchController(CustomerTableModel model, Consumer<BitSet> resultSink, Consumer<String> statusSink) {
+    this.model = model;
+    this.resultSink = resultSink;
+    this.statusSink = statusSink;
+    model.addTableModelListener(this);
+    indexNewRows(true);
+  }
+
+  @Override
+  public void tableChanged(TableModelEvent e) {
+    if (e.getType() == TableModelEvent.INSERT) {
+      indexNewRows(false);
+    } else if (e.getType() == TableModelEvent.UPDATE && e.getFirstRow() == TableModelEvent.HEADER_ROW) {
+      indexNewRows(true);
+    } else if (e.getLastRow() == Integer.MAX_VALUE || isIndexedColumn(e.getColumn())) {
+      // clear() などで全体が変わった場合や、検索対象の列が書き換えられた場合は作り直す
+      indexNewRows(true);
+    }
+  }
+
+  private static boolean isIndexedColumn(int column) {
+    if (column == TableModelEvent.ALL_COLUMNS) return true;
+    for (int indexed : SearchIndex.INDEXED_COLUMNS) {
+      if (indexed == column) return true;
+    }
+    return false;
+  }
+
+  /**
+   * クエリを更新して検索する
+   * 結果は検索スレッドで計算し、最新のクエリの結果だけを EDT で適用する
+   */
+  public void setQuery(String text) {
+    query = text == null ? "" : text;
+    submitQuery();
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  public long getQueryCount() {
+    return queryCount;
+  }
+
+  public double getLastQueryMillis() {
+    return lastQueryMillis;
+  }
+
+  // モデルに追加された行をインデックスに登録する（EDT で列のビューを取得してから渡す）
+  private void indexNewRows(boolean reset) {
+    StringColumn.View[] views = new StringColumn.View[SearchIndex.INDEXED_COLUMNS.length];
+    for (int i = 0; i < views.length; i++) {
+      views[i] = model.getStringColumn(SearchIndex.INDEXED_COLUMNS[i]).view();
+    }
+    int rowCount = model.getRowCount();
+    executor.execute(() -> {
+      if (reset) {
+        index.clear();
+      }
+      index.addRows(views, rowCount);
+    });
+    // 検索中に読み込まれた行にもクエリを適用する
+    if (!query.trim().isEmpty() || reset) {
+      submitQuery();
+    }
+  }
+
+  private void submitQuery() {
+    if (running != null) {
+      running.cancel(true);
+    }
+    int queryGeneration = ++generation;
+    String text = query;
+    running = executor.submit(() -> {
+      long start = System.nanoTime();
+      BitSet rows = index.search(text);
+      if (Thread.currentThread().isInterrupted()) return;
+      double millis = (System.nanoTime() - start) / 1_000_000.0;
+      queryCount++;
+      lastQueryMillis = millis;
+      int indexedRows = index.getIndexedRows();
+      SwingUtilities.invokeLater(() -> {
+        if (queryGeneration != generation) return;
+        resultSink.accept(rows);
+        if (rows != null) {
+          statusSink.accept(String.format("検索: %,d 件 / %,d 件 (%.2f ms)", rows.cardinality(), indexedRows, millis));
+        }
+      });
+    });
+  }
+
+  /**
+   * 行ビットマップで絞り込む RowFilter
+   */
+  public static class BitSetRowFilter extends RowFilter<TableModel, Integer> {
+    private final BitSet rows;
+
+    public BitSetRowFilter(BitSet rows) {
+      this.rows = rows;
+    }
+
+    @Override
+    public boolean include(Entry<? extends TableModel, ? extends Integer> entry) {
+      return rows.get(entry.getIdentifier());
+    }
+  }
+}
@@ -0,0 +1,243 @@
+package undecorated;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 顧客名・会社名・電話番号・メールを対象にした n-gram（1 文字と 2 文字）の転置インデックス
+ * 行はモデルへの追加に合わせて少しずつ登録する
+ * n-gram は列ごとに分けて登録するので、候補の確認は一致した列だけで済む
+ * 出現行が多い n-gram は行番号の配列ではなくビットマップで持ち、メモリと AND のコストを抑える
+ *
+ * スレッドセーフではない。登録と検索は同じスレッドから呼ぶこと
+ */
+public class SearchIndex {
+  public static final int[] INDEXED_COLUMNS = {
+      CustomerTableModel.COL_NAME, CustomerTableModel.COL_COMPANY,
+      CustomerTableModel.COL_PHONE, CustomerTableModel.COL_EMAIL };
+
+  private static final int MAX_VALUE_CHARS = 512;
+
+  private Map<Long, Postings> postingsByGram = new HashMap<>();
+  private int indexedRows;
+
+  // 検索対象の列（最後に登録した時点のビュー）
+  private final StringColumn.View[] columns = new StringColumn.View[INDEXED_COLUMNS.length];
+  private final char[] chars = new char[MAX_VALUE_CHARS];
+
+  /** 登録済みの行数 */
+  public int getIndexedRows() {
+    return indexedRows;
+  }
+
+  public int getGramCount() {
+    return postingsByGram.size();
+  }
+
+  public void clear() {
+    // 大きくなったハッシュ表も手放す
+    postingsByGram = new HashMap<>();
+    indexedRows = 0;
+    Arrays.fill(columns, null);
+  }
+
+  /**
+   * indexedRows から to までの行を登録する
+   * @param views INDEXED_COLUMNS の順に並べた列のビュー（to 行以上を含むこと）
+   */
+  public void addRows(StringColumn.View[] views, int to) {
+    System.arraycopy(views, 0, columns, 0, columns.length);
+    for (int row = indexedRows; row < to; row++) {
+      for (int column = 0; column < views.length; column++) {
+        int length = views[column].decodeChars(row, chars);
+        if (length < 0) {
+          length = chars.length;
+        }
+        char previous = 0;
+        for (int i = 0; i < length; i++) {
+          char c = normalize(chars[i]);
+          postings(key(column, c)).add(row);
+          if (i > 0) {
+            postings(key(column, gram(previous, c))).add(row);
+          }
+          previous = c;
+        }
+      }
+      indexedRows = row + 1;
+    }
+  }
+
+  /**
+   * 部分一致で検索する
+   * @return 一致した行のビットマップ。クエリが空なら null
+   */
+  public BitSet search(String query) {
+    String normalized = normalize(query.trim());
+    if (normalized.isEmpty()) {
+      return null;
+    }
+
+    StringColumn.Needle needle = new StringColumn.Needle(normalized.getBytes(StandardCharsets.UTF_8));
+    BitSet result = new BitSet();
+    for (int column = 0; column < columns.length; column++) {
+      BitSet matches = searchColumn(column, normalized, needle);
+      if (matches != null) {
+        result.or(matches);
+      }
+      if (Thread.currentThread().isInterrupted()) {
+        break;
+      }
+    }
+    return result;
+  }
+
+  // 1 つの列について、クエリの n-gram の出現行を少ないものから順に積集合をとる
+  private BitSet searchColumn(int column, String normalized, StringColumn.Needle needle) {
+    Postings[] lists;
+    if (normalized.length() == 1) {
+      lists = new Postings[] { postingsByGram.get(key(column, normalized.charAt(0))) };
+    } else {
+      lists = new Postings[normalized.length() - 1];
+      for (int i = 0; i < lists.length; i++) {
+        lists[i] = postingsByGram.get(key(column, gram(normalized.charAt(i), normalized.charAt(i + 1))));
+      }
+    }
+    for (Postings postings : lists) {
+      if (postings == null) {
+        return null;
+      }
+    }
+    Arrays.sort(lists, (a, b) -> Integer.compare(a.cardinality(), b.cardinality()));
+
+    BitSet result = lists[0].toBitSet(indexedRows);
+    for (int i = 1; i < lists.length && !result.isEmpty(); i++) {
+      lists[i].retainIn(result);
+    }
+
+    // 3 文字以上は 2-gram が離れた位置にある行も含まれるので、実際の値で確認する
+    if (normalized.length() > 2) {
+      result = verify(result, columns[column], needle);
+    }
+    return result;
+  }
+
+  // BitSet の nextSetBit と clear を行ごとに呼ばず、64 行ずつのワードを取り出して確認する
+  private BitSet verify(BitSet candidates, StringColumn.View column, StringColumn.Needle needle) {
+    long[] words = candidates.toLongArray();
+    for (int w = 0; w < words.length; w++) {
+      if ((w & 0x3F) == 0 && Thread.currentThread().isInterrupted()) {
+        break;
+      }
+      long word = words[w];
+      long remaining = word;
+      while (remaining != 0) {
+        int bit = Long.numberOfTrailingZeros(remaining);
+        remaining &= remaining - 1;
+        if (!column.containsIgnoreAsciiCase((w << 6) | bit, needle)) {
+          word &= ~(1L << bit);
+        }
+      }
+      words[w] = word;
+    }
+    return BitSet.valueOf(words);
+  }
+
+  private Postings postings(long key) {
+    Postings postings = postingsByGram.get(key);
+    if (postings == null) {
+      postings = new Postings();
+      postingsByGram.put(key, postings);
+    }
+    return postings;
+  }
+
+  private static int gram(char first, char second) {
+    return (first << 16) | second;
+  }
+
+  private static long key(int column, int gram) {
+    return ((long) column << 32) | (gram & 0xFFFFFFFFL);
+  }
+
+  // ASCII の大文字だけを小文字にそろえる（UTF-8 のまま比較する verify と合わせるため）
+  private static char normalize(char c) {
+    return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+  }
+
+  private static String normalize(String value) {
+    char[] result = value.toCharArray();
+    for (int i = 0; i < result.length; i++) {
+      result[i] = normalize(result[i]);
+    }
+    return new String(result);
+  }
+
+  /**
+   * 1 つの n-gram の出現行
+   * 行番号は昇順に追加されるので配列のまま保持し、多くなったらビットマップに切り替える
+   */
+  private final class Postings {
+    private int[] rows = new int[4];
+    private int size;
+    private BitSet bits;
+
+    void add(int row) {
+      if (bits != null) {
+        if (!bits.get(row)) {
+          bits.set(row);
+          size++;
+        }
+        return;
+      }
+      if (size > 0 && rows[size - 1] == row) {
+        return;
+      }
+      if (size == rows.length) {
+        // 行番号の配列がビットマップより大きくなるならビットマップにする
+        if ((long) size * 32 > indexedRows + 1L && size >= 1024) {
+          bits = new BitSet();
+          for (int i = 0; i < size; i++) {
+            bits.set(rows[i]);
+          }
+          bits.set(row);
+          size++;
+          rows = null;
+          return;
+        }
+        rows = Arrays.copyOf(rows, size * 2);
+      }
+      rows[size++] = row;
+    }
+
+    int cardinality() {
+      return size;
+    }
+
+    BitSet toBitSet(int rowCount) {
+      if (bits != null) {
+        return (BitSet) bits.clone();
+      }
+      BitSet result = new BitSet(rowCount);
+      for (int i = 0; i < size; i++) {
+        result.set(rows[i]);
+      }
+      return result;
+    }
+
+    // result のうち、この n-gram を含まない行を落とす
+    void retainIn(BitSet result) {
+      if (bits != null) {
+        result.and(bits);
+        return;
+      }
+      for (int row = result.nextSetBit(0); row >= 0; row = result.nextSetBit(row + 1)) {
+        if (Arrays.binarySearch(rows, 0, size, row) < 0) {
+          result.clear(row);
+        }
+      }
+    }
+  }
+}
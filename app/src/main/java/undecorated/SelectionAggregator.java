@@ -0,0 +1,482 @@
+package undecorated;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import javax.swing.DefaultListSelectionModel;
+import javax.swing.JTable;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
+import javax.swing.event.TableModelEvent;
+import javax.swing.event.TableModelListener;
+
+/**
+ * テーブルで選択した行の集計（ステータスごとの件数、登録日・最終購入日の最小と最大、未購入の件数）
+ *
+ * EDT では選択モデルの写し（DefaultListSelectionModel の clone。内部の BitSet の配列コピー）と
+ * 選択イベントの変わった範囲だけを集計スレッドへ渡し、行ごとの選択状態は集計スレッドで読む
+ * 集計スレッドは表示の行の選択状態を写しとして持ち、前回との差分の行だけを足し引きする
+ * 最小・最大は日ごとの件数で持つので、選択から外した行も再走査せずに反映できる
+ * 差分が PARALLEL_THRESHOLD 行を超える場合は区間に分けて並列に集計し、結果を合わせる
+ * 並べ替え・絞り込み・値の変更があった場合は、選択全体を集計し直す
+ * 読み込み中の末尾への行の追加では集計し直さない（選択している行の値は変わらないため）
+ *
+ * 2 行以上を選択している場合に、集計結果を statusSink に通知する
+ */
+public class SelectionAggregator implements ListSelectionListener, TableModelListener {
+  /** これより多くの行が変わった場合は並列に集計する */
+  static final int PARALLEL_THRESHOLD = 65_536;
+  // 並列に集計する時の 1 区間の最小の行数
+  private static final int MIN_CHUNK_ROWS = 16_384;
+
+  private final JTable table;
+  private final CustomerTableModel model;
+  private final IndexedRowSorter sorter;
+  private final Consumer<String> statusSink;
+  private final int parallelism = Math.max(1, Runtime.getRuntime().availableProcessors());
+  private final ExecutorService coordinator = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "selection-aggregator");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ExecutorService workers = Executors.newFixedThreadPool(parallelism, runnable -> {
+    Thread thread = new Thread(runnable, "selection-reduce");
+    thread.setDaemon(true);
+    return thread;
+  });
+  private final ConcurrentLinkedQueue<Change> changes = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+  // 以下は EDT でのみ読み書きする
+  private int[] lastMapping;
+  private int lastViewRowCount = -1;
+  private long lastModificationCount = -1;
+  private boolean resyncScheduled;
+  private int sequence;
+
+  // 以下は集計スレッドでのみ読み書きする
+  private final BitSet viewSelected = new BitSet();
+  private int[] mapping;
+  private CustomerTableModel.Snapshot snapshot;
+  private Aggregate total = new Aggregate(0);
+
+  // 計測値（集計スレッドで更新する）
+  private volatile long incrementalCount;
+  private volatile long parallelCount;
+  private volatile long fullCount;
+  private volatile long changedRows;
+  private volatile double lastMillis;
+  private volatile double maxMillis;
+
+  /**
+   * @param table 対象のテーブル（モデルが model 以外の間は集計しない）
+   * @param statusSink 集計結果のメッセージの通知先。EDT で呼ばれる
+   */
+  public SelectionAggregator(JTable table, CustomerTableModel model, IndexedRowSorter sorter,
+      Consumer<String> statusSink) {
+    this.table = table;
+    this.model = model;
+    this.sorter = sorter;
+    this.statusSink = statusSink;
+    table.getSelectionModel().addListSelectionListener(this);
+    model.addTableModelListener(this);
+  }
+
+  @Override
+  public void valueChanged(ListSelectionEvent e) {
+    if (table.getModel() != model || table.getRowSorter() != sorter) return;
+    ListSelectionModel selection = table.getSelectionModel();
+    int viewRowCount = sorter.getViewRowCount();
+    int[] currentMapping = sorter.getViewToModel();
+    if (currentMapping != lastMapping || viewRowCount != lastViewRowCount
+        || model.getModificationCount() != lastModificationCount) {
+      // 表示の行の意味が変わったので、選択全体を送り直す
+      resync();
+      return;
+    }
+    submit(selection, e.getFirstIndex(), e.getLastIndex(), false);
+  }
+
+  @Override
+  public void tableChanged(TableModelEvent e) {
+    // 末尾への追加では選択している行の値は変わらない
+    // 追加された行が選択されたり表示の順が変わったりした場合は、valueChanged で気づいて集計し直す
+    if (e.getType() == TableModelEvent.INSERT) return;
+    // 値の変更や全体の入れ替えでは、選択が変わらなくても値が変わるので集計し直す
+    // 並べ替えと選択の復元が終わってから行う
+    if (resyncScheduled) return;
+    resyncScheduled = true;
+    SwingUtilities.invokeLater(() -> {
+      resyncScheduled = false;
+      if (table.getModel() == model && table.getRowSorter() == sorter) {
+        resync();
+      }
+    });
+  }
+
+  public String formatStats() {
+    return String.format(Locale.ROOT,
+        "selection incremental=%d parallel=%d full=%d changedRows=%d last=%.2fms max=%.2fms",
+        incrementalCount, parallelCount, fullCount, changedRows, lastMillis, maxMillis);
+  }
+
+  // 選択全体と、現時点のスナップショット・行の対応を送る
+  private void resync() {
+    lastMapping = sorter.getViewToModel();
+    lastViewRowCount = sorter.getViewRowCount();
+    lastModificationCount = model.getModificationCount();
+    ListSelectionModel selection = table.getSelectionModel();
+    Change change = capture(selection, selection.getMinSelectionIndex(), selection.getMaxSelectionIndex(), true);
+    change.snapshot = model.snapshot();
+    change.mapping = lastMapping;
+    enqueue(change);
+  }
+
+  private void submit(ListSelectionModel selection, int first, int last, boolean full) {
+    enqueue(capture(selection, first, last, full));
+  }
+
+  // first〜last の選択状態の写しを取る。行ごとの選択状態は集計スレッドで読む
+  private Change capture(ListSelectionModel selection, int first, int last, boolean full) {
+    Change change = new Change();
+    change.full = full;
+    change.first = Math.max(first, 0);
+    change.last = Math.min(last, lastViewRowCount - 1);
+    if (change.first <= change.last) {
+      change.selection = copyOf(selection, change.first, change.last);
+    }
+    return change;
+  }
+
+  /**
+   * 選択モデルの写しを返す
+   * DefaultListSelectionModel は clone が選択の BitSet の配列コピーで済むので、行ごとに読まずに写せる
+   * それ以外の選択モデルは、first〜last を行ごとに読んで写す
+   */
+  private static ListSelectionModel copyOf(ListSelectionModel selection, int first, int last) {
+    if (selection instanceof DefaultListSelectionModel) {
+      try {
+        return (ListSelectionModel) ((DefaultListSelectionModel) selection).clone();
+      } catch (CloneNotSupportedException e) {
+        // 行ごとに読んで写す
+      }
+    }
+    DefaultListSelectionModel copy = new DefaultListSelectionModel();
+    int runStart = -1;
+    for (int row = first; row <= last + 1; row++) {
+      boolean selected = row <= last && selection.isSelectedIndex(row);
+      if (selected && runStart < 0) {
+        runStart = row;
+      } else if (!selected && runStart >= 0) {
+        copy.addSelectionInterval(runStart, row - 1);
+        runStart = -1;
+      }
+    }
+    return copy;
+  }
+
+  private void enqueue(Change change) {
+    change.sequence = ++sequence;
+    changes.add(change);
+    if (drainScheduled.compareAndSet(false, true)) {
+      coordinator.execute(this::drain);
+    }
+  }
+
+  // 溜まった変更をまとめて反映し、最後の変更の時点の集計を EDT に渡す
+  private void drain() {
+    drainScheduled.set(false);
+    List<Change> batch = new ArrayList<>();
+    for (Change change = changes.poll(); change != null; change = changes.poll()) {
+      if (change.full) {
+        // 選択全体を送り直した場合は、それより前の変更は要らない
+        batch.clear();
+      }
+      batch.add(change);
+    }
+    if (batch.isEmpty()) return;
+
+    long start = System.nanoTime();
+    if (batch.get(0).full) {
+      Change full = batch.get(0);
+      snapshot = full.snapshot;
+      mapping = full.mapping;
+      viewSelected.clear();
+      total = new Aggregate(snapshot.getStatusColumn().getDictionarySize());
+      fullCount++;
+    }
+    if (snapshot == null) return;
+
+    int lo = Integer.MAX_VALUE;
+    int hi = -1;
+    for (Change change : batch) {
+      lo = Math.min(lo, change.first);
+      hi = Math.max(hi, change.last);
+    }
+    if (hi >= lo) {
+      BitSet before = viewSelected.get(lo, hi + 1);
+      for (Change change : batch) {
+        apply(change);
+      }
+      BitSet after = viewSelected.get(lo, hi + 1);
+      before.xor(after);
+      // before は選択が変わった行、after は変わった後の選択（どちらも lo からの位置）
+      int changed = before.cardinality();
+      changedRows += changed;
+      if (changed > PARALLEL_THRESHOLD && parallelism > 1) {
+        parallelCount++;
+        reduceParallel(before, after, lo, hi - lo + 1);
+      } else {
+        incrementalCount++;
+        total.addChanged(snapshot, mapping, before, after, lo, 0, hi - lo + 1);
+      }
+    }
+    double millis = (System.nanoTime() - start) / 1_000_000.0;
+    lastMillis = millis;
+    maxMillis = Math.max(maxMillis, millis);
+
+    int resultSequence = batch.get(batch.size() - 1).sequence;
+    String message = total.count > 1 ? format(total, snapshot, millis) : null;
+    SwingUtilities.invokeLater(() -> {
+      // 後の変更がある場合は、その結果を待つ
+      if (resultSequence != sequence || message == null) return;
+      if (table.getModel() == model && table.getSelectedRowCount() > 1) {
+        statusSink.accept(message);
+      }
+    });
+  }
+
+  private void apply(Change change) {
+    if (change.first > change.last) return;
+    viewSelected.clear(change.first, change.last + 1);
+    ListSelectionModel selection = change.selection;
+    int from = Math.max(change.first, selection.getMinSelectionIndex());
+    int to = Math.min(change.last, selection.getMaxSelectionIndex());
+    for (int row = from; row <= to; row++) {
+      if (selection.isSelectedIndex(row)) {
+        viewSelected.set(row);
+      }
+    }
+  }
+
+  // 変わった行を区間に分け、区間ごとの差分を並列に集計して合わせる
+  private void reduceParallel(BitSet changed, BitSet after, int offset, int length) {
+    int chunks = Math.max(1, Math.min(parallelism * 4, length / MIN_CHUNK_ROWS));
+    int chunkLength = (length + chunks - 1) / chunks;
+    int dictionarySize = total.statusCounts.length;
+    CustomerTableModel.Snapshot source = snapshot;
+    int[] rows = mapping;
+    List<Future<Aggregate>> futures = new ArrayList<>(chunks);
+    for (int from = 0; from < length; from += chunkLength) {
+      int chunkFrom = from;
+      int chunkTo = Math.min(length, from + chunkLength);
+      futures.add(workers.submit(() -> {
+        Aggregate partial = new Aggregate(dictionarySize);
+        partial.addChanged(source, rows, changed, after, offset, chunkFrom, chunkTo);
+        return partial;
+      }));
+    }
+    try {
+      for (Future<Aggregate> future : futures) {
+        total.merge(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private static String format(Aggregate aggregate, CustomerTableModel.Snapshot snapshot, double millis) {
+    StringBuilder builder = new StringBuilder();
+    builder.append(String.format("選択: %,d 行", aggregate.count));
+    DictionaryColumn.View statuses = snapshot.getStatusColumn();
+    String separator = " | ";
+    for (int code = 0; code < aggregate.statusCounts.length; code++) {
+      if (aggregate.statusCounts[code] == 0) continue;
+      String name = statuses.decode(code);
+      builder.append(separator).append(name.isEmpty() ? "（なし）" : name)
+          .append(String.format(" %,d", aggregate.statusCounts[code]));
+      separator = " / ";
+    }
+    builder.append(" | 登録日 ").append(formatRange(aggregate.registered));
+    builder.append(" | 最終購入日 ").append(formatRange(aggregate.lastPurchase));
+    builder.append(String.format("（未購入 %,d）", aggregate.noPurchase));
+    builder.append(String.format(" (%.2f ms)", millis));
+    return builder.toString();
+  }
+
+  private static String formatRange(DayCounts days) {
+    if (days.isEmpty()) return "-";
+    return DateColumn.format(days.min()) + "〜" + DateColumn.format(days.max());
+  }
+
+  /**
+   * 選択イベント 1 回分の変更（EDT で作り、集計スレッドで読む）
+   */
+  private static final class Change {
+    int sequence;
+    boolean full;
+    int first;
+    int last;
+    // 選択モデルの写し（first > last なら null）
+    ListSelectionModel selection;
+    // full の場合だけ設定する
+    CustomerTableModel.Snapshot snapshot;
+    int[] mapping;
+  }
+
+  /**
+   * 選択した行の集計。足し引きできる値だけで持つ
+   */
+  static final class Aggregate {
+    long count;
+    long[] statusCounts;
+    long noPurchase;
+    final DayCounts registered = new DayCounts();
+    final DayCounts lastPurchase = new DayCounts();
+
+    Aggregate(int dictionarySize) {
+      statusCounts = new long[dictionarySize];
+    }
+
+    /**
+     * changed の [from, to) で立っている行を、after で立っていれば足し、そうでなければ引く
+     * @param offset changed と after の 0 番目に当たる表示の行
+     */
+    void addChanged(CustomerTableModel.Snapshot snapshot, int[] mapping, BitSet changed, BitSet after,
+        int offset, int from, int to) {
+      DictionaryColumn.View statuses = snapshot.getStatusColumn();
+      DateColumn.View registeredDays = snapshot.getDateColumn(CustomerTableModel.COL_REGISTERED);
+      DateColumn.View purchaseDays = snapshot.getDateColumn(CustomerTableModel.COL_LAST_PURCHASE);
+      int rowCount = snapshot.getRowCount();
+      for (int bit = changed.nextSetBit(from); bit >= 0 && bit < to; bit = changed.nextSetBit(bit + 1)) {
+        int view = offset + bit;
+        if (mapping != null && view >= mapping.length) break;
+        int row = mapping == null ? view : mapping[view];
+        if (row >= rowCount) continue;
+        int delta = after.get(bit) ? 1 : -1;
+        count += delta;
+        int code = statuses.code(row);
+        if (code >= statusCounts.length) {
+          statusCounts = Arrays.copyOf(statusCounts, code + 1);
+        }
+        statusCounts[code] += delta;
+        registered.add(registeredDays.getDay(row), delta);
+        int purchase = purchaseDays.getDay(row);
+        if (purchase == DateColumn.NULL_DAY) {
+          noPurchase += delta;
+        } else {
+          lastPurchase.add(purchase, delta);
+        }
+      }
+    }
+
+    void merge(Aggregate other) {
+      count += other.count;
+      if (other.statusCounts.length > statusCounts.length) {
+        statusCounts = Arrays.copyOf(statusCounts, other.statusCounts.length);
+      }
+      for (int code = 0; code < other.statusCounts.length; code++) {
+        statusCounts[code] += other.statusCounts[code];
+      }
+      noPurchase += other.noPurchase;
+      registered.merge(other.registered);
+      lastPurchase.merge(other.lastPurchase);
+    }
+  }
+
+  /**
+   * 日ごとの件数。件数を足し引きしながら最小・最大の日を返す
+   * 件数は負になってもよい（並列に集計した差分を合わせる前の途中の値）
+   * 日付のない行（NULL_DAY）は数えない
+   */
+  static final class DayCounts {
+    private int base;
+    private int[] counts = new int[0];
+    // 件数が 0 でない日の範囲（min > max なら空）
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    void add(int day, int delta) {
+      if (day == DateColumn.NULL_DAY || delta == 0) return;
+      ensureRange(day);
+      int index = day - base;
+      counts[index] += delta;
+      if (counts[index] != 0) {
+        min = Math.min(min, day);
+        max = Math.max(max, day);
+      } else if (day == min || day == max) {
+        shrink();
+      }
+    }
+
+    void merge(DayCounts other) {
+      for (int day = other.min; day <= other.max; day++) {
+        int count = other.counts[day - other.base];
+        if (count != 0) {
+          add(day, count);
+        }
+      }
+    }
+
+    boolean isEmpty() {
+      return min > max;
+    }
+
+    int min() {
+      return min;
+    }
+
+    int max() {
+      return max;
+    }
+
+    // 範囲の端の日の件数が 0 になったら、0 でない日まで範囲を縮める
+    private void shrink() {
+      while (min <= max && counts[min - base] == 0) {
+        min++;
+      }
+      while (max >= min && counts[max - base] == 0) {
+        max--;
+      }
+      if (min > max) {
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+      }
+    }
+
+    private void ensureRange(int day) {
+      if (counts.length == 0) {
+        // 最初の日の前後 1 年ずつから始める
+        base = day - 366;
+        counts = new int[733];
+        return;
+      }
+      int end = base + counts.length;
+      if (day >= base && day < end) return;
+      int newBase = Math.min(base, day);
+      int newEnd = Math.max(end, day + 1);
+      // 広げる時は倍にして、広げる回数を抑える
+      int length = Math.max(newEnd - newBase, counts.length * 2);
+      if (day < base) {
+        newBase = newEnd - length;
+      }
+      int[] grown = new int[length];
+      System.arraycopy(counts, 0, grown, base - newBase, counts.length);
+      counts = grown;
+      base = newBase;
+    }
+  }
+}
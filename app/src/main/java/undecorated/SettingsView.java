@@ -0,0 +1,85 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.function.Supplier;
+import javax.swing.*;
+
+/**
+ * 設定画面
+ * ウィンドウの角の丸みの設定と、起動時間・EDT の遅延・画面キャッシュなどの診断情報を表示する
+ */
+public class SettingsView implements ViewRegistry.ModuleView {
+  private final JPanel panel;
+  private final JTextArea diagnosticsArea;
+  private final Supplier<String> diagnostics;
+
+  /**
+   * @param diagnostics 診断情報の文字列を返す（表示と「更新」のたびに呼ぶ）
+   * @param shapeManager 角の丸みを反映するウィンドウの形状
+   */
+  public SettingsView(Supplier<String> diagnostics, WindowShapeManager shapeManager) {
+    this.diagnostics = diagnostics;
+
+    panel = new JPanel(new BorderLayout());
+    panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+
+    JLabel titleLabel = new JLabel("設定");
+    titleLabel.setFont(FontRegistry.bold(18));
+    titleLabel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+    panel.add(titleLabel, BorderLayout.NORTH);
+
+    JPanel form = new JPanel(new GridBagLayout());
+    GridBagConstraints label = new GridBagConstraints();
+    label.anchor = GridBagConstraints.WEST;
+    label.insets = new Insets(4, 0, 4, 10);
+    GridBagConstraints field = new GridBagConstraints();
+    field.gridwidth = GridBagConstraints.REMAINDER;
+    field.anchor = GridBagConstraints.WEST;
+    field.insets = new Insets(4, 0, 4, 0);
+
+    // 角の丸みはそのままウィンドウの形状に反映する
+    JSpinner arcSpinner = new JSpinner(new SpinnerNumberModel(shapeManager.getArcSize(), 0, 30, 1));
+    arcSpinner.addChangeListener(e -> shapeManager.setArcSize((Integer) arcSpinner.getValue()));
+    form.add(new JLabel("角の丸み"), label);
+    form.add(arcSpinner, field);
+
+    diagnosticsArea = new JTextArea(8, 40);
+    diagnosticsArea.setEditable(false);
+    diagnosticsArea.setFont(FontRegistry.monospaced(12));
+    JButton refreshButton = new JButton("更新");
+    refreshButton.addActionListener(e -> refresh());
+
+    JPanel diagnosticsPanel = new JPanel(new BorderLayout());
+    diagnosticsPanel.setBorder(BorderFactory.createTitledBorder("診断"));
+    diagnosticsPanel.add(new JScrollPane(diagnosticsArea), BorderLayout.CENTER);
+    JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+    buttonPanel.add(refreshButton);
+    diagnosticsPanel.add(buttonPanel, BorderLayout.SOUTH);
+
+    JPanel center = new JPanel(new BorderLayout());
+    center.add(form, BorderLayout.NORTH);
+    center.add(diagnosticsPanel, BorderLayout.CENTER);
+    panel.add(center, BorderLayout.CENTER);
+
+    refresh();
+  }
+
+  public void refresh() {
+    diagnosticsArea.setText(diagnostics.get());
+  }
+
+  @Override
+  public JComponent getComponent() {
+    return panel;
+  }
+
+  @Override
+  public long estimatedBytes() {
+    return 2L * diagnosticsArea.getDocument().getLength() + 4 * 1024;
+  }
+
+  @Override
+  public void release() {
+    diagnosticsArea.setText("");
+  }
+}
@@ -0,0 +1,487 @@
+package undecorated;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * 読み込んだ CSV の解析結果（列のバイト列・日付・辞書コード）をディスクに保存し、
+ * 同じファイルを開き直した時に解析せずに読み込むためのキャッシュ
+ *
+ * 元のファイルごとに 1 つのスナップショットファイル（パスのハッシュ.snapshot）を持つ
+ * キーはパス・サイズ・更新日時・内容の CRC32C で、どれかが違えばキャッシュは使わない
+ * スナップショットは先頭のキーを確かめてからヒープに読み込み、CRC を確かめて列の配列へまとめてコピーする
+ * スナップショットのファイルはメモリマップしない（マップが残っていると Windows では削除・置き換えできない）
+ *
+ * ファイルの形式（ビッグエンディアン）
+ *   "UDSC"、版 (int)、全体のバイト数 (long)、
+ *   キー（パス = int の長さ + UTF-8、サイズ (long)、更新日時 (long)、内容の CRC32C (int)）、
+ *   行数 (int)、各列（列の View.writeTo の形式）、末尾に CRC32C (int)
+ * 全体のバイト数は書く前に求めるので、CRC は書きながら計算する
+ * 全体が 2GB（int の上限）を超えるスナップショットは読み込めないので保存しない
+ * 壊れたファイルや途中で切れたファイルは削除して、元のファイルを解析し直す
+ *
+ * 合計サイズが上限を超えたら、最後に使ってから時間の経ったものから削除する
+ * load は読み込みのワーカースレッド、store は内部のスレッドで行うので、どのスレッドから呼んでもよい
+ */
+public class SnapshotCache {
+  public static final int VERSION = 1;
+  private static final int MAGIC = ('U' << 24) | ('D' << 16) | ('S' << 8) | 'C';
+  private static final String SUFFIX = ".snapshot";
+  private static final int BUFFER_BYTES = 1 << 20;
+  // 先頭からキーまでを読むのに使う大きさ（パスの長さの上限を含む）
+  private static final int HEADER_BYTES = 64 << 10;
+  // 先頭（マジック・版・全体のバイト数）と末尾の CRC の大きさ
+  private static final int FIXED_BYTES = 4 + 4 + 8 + 4;
+  // 内容のハッシュを求める時に一度にマップする大きさ
+  private static final long HASH_CHUNK_BYTES = 64L << 20;
+
+  private final Path directory;
+  private final long maxBytes;
+  private final Consumer<String> statusSink;
+  private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+    Thread thread = new Thread(runnable, "snapshot-cache");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  // 計測値
+  private final AtomicLong hitCount = new AtomicLong();
+  private final AtomicLong missCount = new AtomicLong();
+  private final AtomicLong storeCount = new AtomicLong();
+  private final AtomicLong evictionCount = new AtomicLong();
+  private final AtomicLong corruptCount = new AtomicLong();
+
+  /**
+   * 元のファイルを識別するキー
+   */
+  public static final class Key {
+    final String path;
+    final long size;
+    final long modifiedMillis;
+    final int contentCrc;
+
+    Key(String path, long size, long modifiedMillis, int contentCrc) {
+      this.path = path;
+      this.size = size;
+      this.modifiedMillis = modifiedMillis;
+      this.contentCrc = contentCrc;
+    }
+
+    boolean matches(Key other) {
+      return path.equals(other.path) && size == other.size && modifiedMillis == other.modifiedMillis
+          && contentCrc == other.contentCrc;
+    }
+  }
+
+  /**
+   * @param directory スナップショットを置くディレクトリ（なければ作る）
+   * @param maxBytes スナップショットの合計サイズの上限（バイト）
+   * @param statusSink 破棄・保存の失敗を知らせるメッセージの通知先（読み込みや保存のスレッドで呼ばれる）
+   */
+  public SnapshotCache(Path directory, long maxBytes, Consumer<String> statusSink) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+    this.statusSink = statusSink;
+  }
+
+  /**
+   * システムプロパティで設定したキャッシュを作る
+   * snapshot.cache.dir（既定は ~/.cache/undecorated/snapshots）、snapshot.cache.maxMB（既定は 1024）
+   * @param statusSink 破棄・保存の失敗を知らせるメッセージの通知先（どのスレッドからも呼ばれる）
+   * @return キャッシュ（snapshot.cache.maxMB が 0 以下なら使わないので null）
+   */
+  public static SnapshotCache fromSystemProperties(Consumer<String> statusSink) {
+    String dir = System.getProperty("snapshot.cache.dir");
+    Path directory = dir != null ? Path.of(dir)
+        : Path.of(System.getProperty("user.home"), ".cache", "undecorated", "snapshots");
+    long maxMegabytes = Long.getLong("snapshot.cache.maxMB", 1024);
+    if (maxMegabytes <= 0) return null;
+    return new SnapshotCache(directory, maxMegabytes << 20, statusSink);
+  }
+
+  /**
+   * ファイルのキーを求める（内容を一通り読むので、ワーカースレッドで呼ぶ）
+   */
+  public Key keyOf(Path file) throws IOException {
+    Path path = file.toAbsolutePath().normalize();
+    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+    CRC32C crc = new CRC32C();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      for (long position = 0; position < size; position += HASH_CHUNK_BYTES) {
+        crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(HASH_CHUNK_BYTES, size - position)));
+      }
+    }
+    return new Key(path.toString(), attributes.size(), attributes.lastModifiedTime().toMillis(), (int) crc.getValue());
+  }
+
+  /**
+   * キーに一致するスナップショットを読み込む
+   * @return スナップショット（ない・キーが違う・壊れている場合は null）
+   */
+  public CustomerTableModel.Snapshot load(Key key) {
+    Path file = snapshotFile(key);
+    if (!Files.isRegularFile(file)) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    CustomerTableModel.Snapshot snapshot;
+    try {
+      snapshot = read(file, key);
+    } catch (IOException | RuntimeException e) {
+      // 壊れたスナップショットは削除して、元のファイルを解析し直してもらう
+      // （read はファイルを閉じてから返るので、Windows でも削除できる）
+      corruptCount.incrementAndGet();
+      missCount.incrementAndGet();
+      statusSink.accept("スナップショットを破棄しました: " + file.getFileName() + " (" + e.getMessage() + ")");
+      deleteQuietly(file);
+      return null;
+    }
+    if (snapshot == null) {
+      missCount.incrementAndGet();
+      return null;
+    }
+    try {
+      Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException ignored) {
+      // 使った時刻を残せなくても、削除の順が変わるだけ
+    }
+    hitCount.incrementAndGet();
+    return snapshot;
+  }
+
+  /**
+   * スナップショットを読む
+   * @return キーが違う・形式が古い場合は null（形式が古いファイルは削除する）
+   * @throws CorruptSnapshotException 内容が不正な場合
+   */
+  private static CustomerTableModel.Snapshot read(Path file, Key key) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      long size = channel.size();
+      if (size < FIXED_BYTES || size > Integer.MAX_VALUE) {
+        throw new CorruptSnapshotException("サイズが不正です: " + size);
+      }
+      // 先頭だけ読んでキーを確かめ、一致した場合だけ全体を読む
+      ByteBuffer header = ByteBuffer.allocate((int) Math.min(size, HEADER_BYTES));
+      readFully(channel, header, 0);
+      header.flip();
+      if (header.getInt() != MAGIC) {
+        throw new CorruptSnapshotException("スナップショットではありません");
+      }
+      if (header.getInt() != VERSION) {
+        buffer = null;
+      } else {
+        if (header.getLong() != size) {
+          throw new CorruptSnapshotException("ファイルが途中で切れています");
+        }
+        if (!readKey(header).matches(key)) {
+          return null;
+        }
+        buffer = ByteBuffer.allocate((int) size);
+        readFully(channel, buffer, 0);
+        buffer.flip();
+      }
+    }
+    if (buffer == null) {
+      // 形式の違う古いスナップショットは、閉じてから削除して作り直す
+      Files.deleteIfExists(file);
+      return null;
+    }
+    int size = buffer.limit();
+    CRC32C crc = new CRC32C();
+    crc.update(buffer.duplicate().limit(size - 4));
+    if ((int) crc.getValue() != buffer.getInt(size - 4)) {
+      throw new CorruptSnapshotException("CRC が一致しません");
+    }
+    buffer.position(16);
+    readKey(buffer);
+    buffer.limit(size - 4);
+    CustomerTableModel.Snapshot snapshot = CustomerTableModel.Snapshot.readFrom(buffer);
+    if (buffer.hasRemaining()) {
+      throw new CorruptSnapshotException("末尾に余分なデータがあります");
+    }
+    return snapshot;
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int n = channel.read(buffer, position);
+      if (n < 0) {
+        throw new CorruptSnapshotException("ファイルが途中で切れています");
+      }
+      position += n;
+    }
+  }
+
+  private static void deleteQuietly(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException ignored) {
+      // 次に開いた時に CRC で見つかって、もう一度削除を試みる
+    }
+  }
+
+  /**
+   * スナップショットをバックグラウンドで保存し、上限を超えた分を削除する
+   * スナップショットはその後のモデルの変更の影響を受けないので、EDT で取得してそのまま渡してよい
+   */
+  public void storeAsync(Key key, CustomerTableModel.Snapshot snapshot) {
+    writer.execute(() -> {
+      try {
+        store(key, snapshot);
+        evict();
+      } catch (IOException | RuntimeException e) {
+        statusSink.accept("スナップショットを保存できませんでした: " + e.getMessage());
+      }
+    });
+  }
+
+  /**
+   * スナップショットを保存する（一時ファイルに書いてから置き換える）
+   * @throws IllegalArgumentException 全体が 2GB を超える場合（何も書かない）
+   */
+  public void store(Key key, CustomerTableModel.Snapshot snapshot) throws IOException {
+    byte[] path = key.path.getBytes(StandardCharsets.UTF_8);
+    long size = FIXED_BYTES + 4L + path.length + 8 + 8 + 4 + snapshot.byteSize();
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException(String.format(Locale.ROOT,
+          "スナップショットが大きすぎます: %,d バイト（上限 %,d バイト）", size, Integer.MAX_VALUE));
+    }
+    Files.createDirectories(directory);
+    Path target = snapshotFile(key);
+    Path temporary = Files.createTempFile(directory, "snapshot", ".part");
+    try {
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+        Output out = new Output(channel);
+        out.putInt(MAGIC);
+        out.putInt(VERSION);
+        out.putLong(size);
+        out.putInt(path.length);
+        out.putBytes(path, 0, path.length);
+        out.putLong(key.size);
+        out.putLong(key.modifiedMillis);
+        out.putInt(key.contentCrc);
+        snapshot.writeTo(out);
+        long written = out.finish();
+        if (written != size) {
+          throw new IllegalStateException("書いたバイト数が一致しません: " + written + " / " + size);
+        }
+        channel.force(false);
+      }
+      try {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+      storeCount.incrementAndGet();
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * 合計サイズが上限を超えていれば、最後に使ってから時間の経ったものから削除する
+   */
+  public void evict() throws IOException {
+    if (!Files.isDirectory(directory)) return;
+    List<Path> files = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+      stream.forEach(files::add);
+    }
+    List<BasicFileAttributes> attributes = new ArrayList<>();
+    long total = 0;
+    for (Path file : files) {
+      BasicFileAttributes fileAttributes = Files.readAttributes(file, BasicFileAttributes.class);
+      attributes.add(fileAttributes);
+      total += fileAttributes.size();
+    }
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < files.size(); i++) {
+      order.add(i);
+    }
+    order.sort(Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+    for (int i : order) {
+      if (total <= maxBytes) break;
+      if (Files.deleteIfExists(files.get(i))) {
+        evictionCount.incrementAndGet();
+      }
+      total -= attributes.get(i).size();
+    }
+  }
+
+  public long getHitCount() {
+    return hitCount.get();
+  }
+
+  public long getMissCount() {
+    return missCount.get();
+  }
+
+  public long getCorruptCount() {
+    return corruptCount.get();
+  }
+
+  public String formatStats() {
+    return String.format(Locale.ROOT, "snapshots hit=%d miss=%d stored=%d evicted=%d corrupt=%d",
+        hitCount.get(), missCount.get(), storeCount.get(), evictionCount.get(), corruptCount.get());
+  }
+
+  private Path snapshotFile(Key key) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.path.getBytes(StandardCharsets.UTF_8));
+      StringBuilder name = new StringBuilder();
+      for (int i = 0; i < 12; i++) {
+        name.append(String.format("%02x", digest[i]));
+      }
+      return directory.resolve(name.append(SUFFIX).toString());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Key readKey(ByteBuffer in) {
+    String path = readString(in);
+    return new Key(path, in.getLong(), in.getLong(), in.getInt());
+  }
+
+  static String readString(ByteBuffer in) {
+    int length = in.getInt();
+    if (length < 0 || length > in.remaining()) {
+      throw new CorruptSnapshotException("文字列の長さが不正です: " + length);
+    }
+    byte[] bytes = new byte[length];
+    in.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * 配列の長さを読み、残りのバイト数に収まるかを確かめる
+   */
+  static int readLength(ByteBuffer in, int elementBytes) {
+    int length = in.getInt();
+    if (length < 0 || (long) length * elementBytes > in.remaining()) {
+      throw new CorruptSnapshotException("配列の長さが不正です: " + length);
+    }
+    return length;
+  }
+
+  /**
+   * スナップショットの内容が不正な場合の例外
+   */
+  static final class CorruptSnapshotException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    CorruptSnapshotException(String message) {
+      super(message);
+    }
+  }
+
+  /**
+   * スナップショットの書き出し先。バッファに溜めて FileChannel に書き、書いた内容の CRC32C を求める
+   */
+  static final class Output {
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private final CRC32C crc = new CRC32C();
+    private long written;
+
+    Output(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    void putInt(int value) throws IOException {
+      ensure(4);
+      buffer.putInt(value);
+    }
+
+    void putLong(long value) throws IOException {
+      ensure(8);
+      buffer.putLong(value);
+    }
+
+    void putString(String value) throws IOException {
+      byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+      putInt(bytes.length);
+      putBytes(bytes, 0, bytes.length);
+    }
+
+    void putBytes(byte[] values, int offset, int length) throws IOException {
+      while (length > 0) {
+        ensure(1);
+        int n = Math.min(length, buffer.remaining());
+        buffer.put(values, offset, n);
+        offset += n;
+        length -= n;
+      }
+    }
+
+    void putInts(int[] values, int offset, int length) throws IOException {
+      while (length > 0) {
+        ensure(4);
+        int n = Math.min(length, buffer.remaining() / 4);
+        buffer.asIntBuffer().put(values, offset, n);
+        buffer.position(buffer.position() + n * 4);
+        offset += n;
+        length -= n;
+      }
+    }
+
+    void putShorts(short[] values, int offset, int length) throws IOException {
+      while (length > 0) {
+        ensure(2);
+        int n = Math.min(length, buffer.remaining() / 2);
+        buffer.asShortBuffer().put(values, offset, n);
+        buffer.position(buffer.position() + n * 2);
+        offset += n;
+        length -= n;
+      }
+    }
+
+    /**
+     * それまでに書いた内容の CRC を末尾に付けて書き終え、全体のバイト数を返す
+     */
+    long finish() throws IOException {
+      flush();
+      buffer.putInt((int) crc.getValue());
+      flush();
+      return written;
+    }
+
+    private void ensure(int bytes) throws IOException {
+      if (buffer.remaining() < bytes) {
+        flush();
+      }
+    }
+
+    private void flush() throws IOException {
+      buffer.flip();
+      crc.update(buffer.duplicate());
+      while (buffer.hasRemaining()) {
+        written += channel.write(buffer);
+      }
+      buffer.clear();
+    }
+  }
+}
@@ -0,0 +1,478 @@
+package undecorated;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+
+/**
+ * 顧客テーブルの並べ替えを行うクラス（EDT からのみ使う）
+ *
+ * 列ごとに、全行をその列の順に並べた行番号の配列と、行ごとの順位（同じ値は同じ順位）をキャッシュする
+ * 文字列の列は照合キーを異なる値ごとに一度だけ作って順位に変換し、ID は数値、日付は日数、
+ * 状態は辞書のコードの順位をそのまま int のキーとして使う
+ * キーは行番号と 1 つの long に詰めて Arrays.parallelSort で並べるので、比較のたびに
+ * 文字列を作ったり Collator を呼んだりしない
+ *
+ * 行が追加された場合は、追加分だけを並べて既存の並びに二分探索で差し込む
+ * 複数列の並べ替えは、最も優先度の低い列のキャッシュから始めて、
+ * 上位の列の順位で安定な計数ソートを重ねる
+ * 同じ値の行はいずれの場合もモデルの行の順に並ぶ（安定）
+ */
+public class SortIndex {
+  private final CustomerTableModel model;
+  private final CollationRanks collationRanks = new CollationRanks(Collator.getInstance(Locale.JAPANESE));
+  private final ColumnIndex[] indexes;
+  // 状態の列の辞書コードごとの順位
+  private int[] statusRanks = new int[0];
+
+  // 計測値
+  private long buildCount;
+  private long incrementalCount;
+  private double lastSortMillis;
+
+  public SortIndex(CustomerTableModel model) {
+    this.model = model;
+    this.indexes = new ColumnIndex[model.getColumnCount()];
+  }
+
+  /**
+   * 並べ替えた結果の行番号の配列を返す
+   * 返した配列は書き換えないこと（キャッシュと共有している場合がある）
+   * @return 並べ替えのキーがない場合は null
+   */
+  public int[] sort(List<? extends RowSorter.SortKey> keys) {
+    List<RowSorter.SortKey> active = new ArrayList<>();
+    for (RowSorter.SortKey key : keys) {
+      if (key.getSortOrder() != SortOrder.UNSORTED) {
+        active.add(key);
+      }
+    }
+    if (active.isEmpty()) return null;
+
+    long start = System.nanoTime();
+    RowSorter.SortKey lowest = active.get(active.size() - 1);
+    ColumnIndex lowestIndex = index(lowest.getColumn());
+    int[] order = lowest.getSortOrder() == SortOrder.ASCENDING
+        ? lowestIndex.order : lowestIndex.reverseGroups();
+    for (int i = active.size() - 2; i >= 0; i--) {
+      RowSorter.SortKey key = active.get(i);
+      order = index(key.getColumn()).stableSort(order, key.getSortOrder() == SortOrder.DESCENDING);
+    }
+    lastSortMillis = (System.nanoTime() - start) / 1_000_000.0;
+    return order;
+  }
+
+  /**
+   * 列の値が変わった場合に呼ぶ。次の並べ替えで作り直す
+   */
+  public void invalidate(int column) {
+    indexes[column] = null;
+  }
+
+  /**
+   * モデル全体が変わった場合に呼ぶ
+   */
+  public void invalidateAll() {
+    Arrays.fill(indexes, null);
+    statusRanks = new int[0];
+  }
+
+  public long getBuildCount() {
+    return buildCount;
+  }
+
+  public long getIncrementalCount() {
+    return incrementalCount;
+  }
+
+  public double getLastSortMillis() {
+    return lastSortMillis;
+  }
+
+  // 列のキャッシュを現在の行数に合わせて返す
+  private ColumnIndex index(int column) {
+    int rowCount = model.getRowCount();
+    ColumnIndex index = indexes[column];
+    if (column == CustomerTableModel.COL_STATUS
+        && statusRanks.length != model.getStatusColumn().getDictionarySize()) {
+      // 辞書に値が増えると順位が変わるので作り直す
+      updateStatusRanks();
+      index = null;
+    }
+    if (index == null || index.size > rowCount) {
+      index = build(column, rowCount);
+      indexes[column] = index;
+    } else if (index.size < rowCount) {
+      int added = rowCount - index.size;
+      // 差し込みは追加 1 行あたり log(n) 回の比較。多い場合は作り直した方が速い
+      if ((long) added * (32 - Integer.numberOfLeadingZeros(index.size + 1)) > index.size) {
+        index = build(column, rowCount);
+        indexes[column] = index;
+      } else {
+        index.append(index.size, rowCount);
+        incrementalCount++;
+      }
+    }
+    return index;
+  }
+
+  private ColumnIndex build(int column, int rowCount) {
+    buildCount++;
+    int[] rows = new int[rowCount];
+    for (int row = 0; row < rowCount; row++) {
+      rows[row] = row;
+    }
+    ColumnIndex index = new ColumnIndex(column);
+    Sorted sorted = sortRows(column, rows);
+    index.order = sorted.order;
+    index.rank = sorted.rankByPosition(rowCount);
+    index.rankCount = sorted.rankCount;
+    index.size = rowCount;
+    return index;
+  }
+
+  private void updateStatusRanks() {
+    DictionaryColumn statuses = model.getStatusColumn();
+    String[] values = new String[statuses.getDictionarySize()];
+    for (int code = 0; code < values.length; code++) {
+      values[code] = statuses.decode(code);
+    }
+    statusRanks = collationRanks(values);
+  }
+
+  /**
+   * 行の集合をその列の順に並べる
+   * 行ごとに int のキーを作り、キーと行の位置を 1 つの long に詰めて並べる
+   */
+  private Sorted sortRows(int column, int[] rows) {
+    int[] keys = keys(column, rows);
+    long[] packed = new long[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      packed[i] = ((long) keys[i] << 32) | i;
+    }
+    Arrays.parallelSort(packed);
+
+    Sorted sorted = new Sorted(rows.length);
+    int rank = -1;
+    long previousKey = 0;
+    for (int i = 0; i < packed.length; i++) {
+      int position = (int) packed[i];
+      long key = packed[i] >> 32;
+      if (i == 0 || key != previousKey) {
+        rank++;
+        previousKey = key;
+      }
+      sorted.order[i] = rows[position];
+      sorted.ranks[i] = rank;
+    }
+    sorted.rankCount = rank + 1;
+    return sorted;
+  }
+
+  /**
+   * 行ごとの並べ替えのキー（同じ値なら同じキー、順序は compare と一致する）
+   */
+  private int[] keys(int column, int[] rows) {
+    int[] keys = new int[rows.length];
+    switch (column) {
+      case CustomerTableModel.COL_REGISTERED:
+      case CustomerTableModel.COL_LAST_PURCHASE: {
+        // 日付は日数。空欄は最小値なので昇順の先頭に来る
+        DateColumn dates = model.getDateColumn(column);
+        for (int i = 0; i < rows.length; i++) {
+          keys[i] = dates.getDay(rows[i]);
+        }
+        return keys;
+      }
+      case CustomerTableModel.COL_STATUS: {
+        DictionaryColumn statuses = model.getStatusColumn();
+        for (int i = 0; i < rows.length; i++) {
+          keys[i] = statusRanks[statuses.code(rows[i])];
+        }
+        return keys;
+      }
+      case CustomerTableModel.COL_ID: {
+        // 数字だけの ID は数値の順、それ以外はその後ろに照合順で並べる
+        StringColumn ids = model.getStringColumn(column);
+        boolean numeric = true;
+        for (int i = 0; i < rows.length; i++) {
+          keys[i] = ids.parseNonNegativeInt(rows[i]);
+          numeric &= keys[i] >= 0;
+        }
+        if (numeric) return keys;
+        return mixedIdKeys(ids, rows, keys);
+      }
+      default:
+        return stringKeys(model.getStringColumn(column), rows);
+    }
+  }
+
+  /**
+   * 数字以外を含む ID の列のキー
+   * 数値の ID を値の順位に詰め、数字以外の ID の照合順の順位をその後ろに続ける
+   * @param numbers 行ごとの数値（数字以外は -1）
+   */
+  private int[] mixedIdKeys(StringColumn ids, int[] rows, int[] numbers) {
+    int[] distinctNumbers = Arrays.stream(numbers).filter(number -> number >= 0).sorted().distinct().toArray();
+    List<Integer> textPositions = new ArrayList<>();
+    for (int i = 0; i < rows.length; i++) {
+      if (numbers[i] < 0) {
+        textPositions.add(i);
+      }
+    }
+    int[] textRows = new int[textPositions.size()];
+    for (int i = 0; i < textRows.length; i++) {
+      textRows[i] = rows[textPositions.get(i)];
+    }
+    int[] textKeys = stringKeys(ids, textRows);
+
+    int[] keys = new int[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      if (numbers[i] >= 0) {
+        keys[i] = Arrays.binarySearch(distinctNumbers, numbers[i]);
+      }
+    }
+    for (int i = 0; i < textRows.length; i++) {
+      keys[textPositions.get(i)] = distinctNumbers.length + textKeys[i];
+    }
+    return keys;
+  }
+
+  /**
+   * 文字列の列のキー
+   * 異なる値ごとに照合キーを一度だけ作って並べ、その順位をキーにする
+   */
+  private int[] stringKeys(StringColumn column, int[] rows) {
+    Map<String, Integer> distinct = new HashMap<>();
+    List<String> values = new ArrayList<>();
+    int[] valueIds = new int[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      String value = column.get(rows[i]);
+      Integer id = distinct.get(value);
+      if (id == null) {
+        id = values.size();
+        distinct.put(value, id);
+        values.add(value);
+      }
+      valueIds[i] = id;
+    }
+    int[] ranks = collationRanks(values.toArray(new String[0]));
+    for (int i = 0; i < rows.length; i++) {
+      valueIds[i] = ranks[valueIds[i]];
+    }
+    return valueIds;
+  }
+
+  /**
+   * 値ごとの照合順の順位（照合上等しい値は同じ順位）
+   */
+  private int[] collationRanks(String[] values) {
+    return collationRanks.rank(values);
+  }
+
+  /**
+   * 2 行をその列の順で比較する（差し込みの位置を探すのに使う）
+   */
+  private int compare(int column, int rowA, int rowB) {
+    switch (column) {
+      case CustomerTableModel.COL_REGISTERED:
+      case CustomerTableModel.COL_LAST_PURCHASE: {
+        DateColumn dates = model.getDateColumn(column);
+        return Integer.compare(dates.getDay(rowA), dates.getDay(rowB));
+      }
+      case CustomerTableModel.COL_STATUS: {
+        DictionaryColumn statuses = model.getStatusColumn();
+        return Integer.compare(statusRanks[statuses.code(rowA)], statusRanks[statuses.code(rowB)]);
+      }
+      case CustomerTableModel.COL_ID: {
+        StringColumn ids = model.getStringColumn(column);
+        int a = ids.parseNonNegativeInt(rowA);
+        int b = ids.parseNonNegativeInt(rowB);
+        if (a >= 0 || b >= 0) {
+          // 数値同士は値の順、数値は数字以外より前
+          return a >= 0 && b >= 0 ? Integer.compare(a, b) : (a >= 0 ? -1 : 1);
+        }
+        return collationRanks.compare(ids.get(rowA), ids.get(rowB));
+      }
+      default: {
+        StringColumn strings = model.getStringColumn(column);
+        return collationRanks.compare(strings.get(rowA), strings.get(rowB));
+      }
+    }
+  }
+
+  /**
+   * 行の集合を並べた結果（order[i] の行の順位が ranks[i]）
+   */
+  private static final class Sorted {
+    final int[] order;
+    final int[] ranks;
+    int rankCount;
+
+    Sorted(int length) {
+      order = new int[length];
+      ranks = new int[length];
+    }
+
+    // 行番号で引ける順位の配列にする
+    int[] rankByPosition(int capacity) {
+      int[] byRow = new int[capacity];
+      for (int i = 0; i < order.length; i++) {
+        byRow[order[i]] = ranks[i];
+      }
+      return byRow;
+    }
+  }
+
+  /**
+   * 1 列分のキャッシュ
+   */
+  private final class ColumnIndex {
+    final int column;
+    // その列の順に並べた行番号（作り直すたびに新しい配列にする）
+    int[] order;
+    // 行ごとの順位
+    int[] rank;
+    int rankCount;
+    // キャッシュに含まれる行数
+    int size;
+
+    ColumnIndex(int column) {
+      this.column = column;
+    }
+
+    /**
+     * 末尾に追加された行 [from, to) を並びに差し込む
+     */
+    void append(int from, int to) {
+      int added = to - from;
+      int[] rows = new int[added];
+      for (int i = 0; i < added; i++) {
+        rows[i] = from + i;
+      }
+      // 追加分だけを並べる
+      Sorted sorted = sortRows(column, rows);
+
+      // 既存の値のまとまり（同じ順位の行）ごとの開始位置
+      int[] groupStart = new int[rankCount + 1];
+      for (int i = 0, group = 0; i < size; i++) {
+        if (i == 0 || rank[order[i]] != rank[order[i - 1]]) {
+          groupStart[group++] = i;
+        }
+      }
+      groupStart[rankCount] = size;
+
+      // 追加する値ごとに、それより大きい最初のまとまりを代表の行との比較で二分探索する
+      // 同じ値の既存行があればその後ろに入り、同じ順位になる
+      int[] positions = new int[added];
+      boolean[] joinsGroup = new boolean[added];
+      int low = 0;
+      for (int i = 0; i < added; i++) {
+        if (i > 0 && sorted.ranks[i] == sorted.ranks[i - 1]) {
+          // 追加分の中で同じ値なら結果も同じ
+          positions[i] = positions[i - 1];
+          joinsGroup[i] = joinsGroup[i - 1];
+          continue;
+        }
+        int row = sorted.order[i];
+        int high = rankCount;
+        while (low < high) {
+          int middle = (low + high) >>> 1;
+          if (compare(column, order[groupStart[middle]], row) <= 0) {
+            low = middle + 1;
+          } else {
+            high = middle;
+          }
+        }
+        positions[i] = groupStart[low];
+        joinsGroup[i] = low > 0 && compare(column, order[groupStart[low - 1]], row) == 0;
+      }
+
+      // 併合しながら順位を振り直す
+      // 既存の行の直前に入る追加行はそのまとまりより必ず小さいので、比較は不要
+      int total = size + added;
+      int[] merged = new int[total];
+      if (rank.length < total) {
+        rank = Arrays.copyOf(rank, Math.max(total, rank.length + (rank.length >> 1)));
+      }
+      int newRank = -1;
+      boolean previousAdded = false;
+      int previousOldRank = 0;
+      int previousSortedRank = 0;
+      int existing = 0;
+      int next = 0;
+      for (int i = 0; i < total; i++) {
+        boolean takeAdded = next < added && (existing >= size || positions[next] <= existing);
+        int row;
+        boolean equal;
+        if (takeAdded) {
+          row = sorted.order[next];
+          int sortedRank = sorted.ranks[next];
+          equal = i > 0 && (previousAdded ? previousSortedRank == sortedRank : joinsGroup[next]);
+          previousSortedRank = sortedRank;
+          next++;
+        } else {
+          row = order[existing++];
+          int oldRank = rank[row];
+          equal = i > 0 && !previousAdded && previousOldRank == oldRank;
+          previousOldRank = oldRank;
+        }
+        if (!equal) {
+          newRank++;
+        }
+        merged[i] = row;
+        rank[row] = newRank;
+        previousAdded = takeAdded;
+      }
+      order = merged;
+      rankCount = newRank + 1;
+      size = total;
+    }
+
+    /**
+     * 降順の並び。同じ値の行の並び（モデルの行の順）は保ったまま、値のまとまりを逆順にする
+     */
+    int[] reverseGroups() {
+      int[] reversed = new int[size];
+      int out = 0;
+      int end = size;
+      while (end > 0) {
+        int start = end - 1;
+        int groupRank = rank[order[start]];
+        while (start > 0 && rank[order[start - 1]] == groupRank) {
+          start--;
+        }
+        System.arraycopy(order, start, reversed, out, end - start);
+        out += end - start;
+        end = start;
+      }
+      return reversed;
+    }
+
+    /**
+     * 与えられた並びをこの列の順位で安定に並べ替える（計数ソート）
+     */
+    int[] stableSort(int[] input, boolean descending) {
+      int[] counts = new int[rankCount + 1];
+      for (int row : input) {
+        int key = descending ? rankCount - 1 - rank[row] : rank[row];
+        counts[key + 1]++;
+      }
+      for (int i = 1; i < counts.length; i++) {
+        counts[i] += counts[i - 1];
+      }
+      int[] output = new int[input.length];
+      for (int row : input) {
+        int key = descending ? rankCount - 1 - rank[row] : rank[row];
+        output[counts[key]++] = row;
+      }
+      return output;
+    }
+  }
+}
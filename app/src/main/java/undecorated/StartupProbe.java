@@ -0,0 +1,91 @@
+package undecorated;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * 起動の各段階の時刻を記録するプローブ
+ * 記録は配列への書き込みだけなので、常に有効にしておける
+ *
+ * -Dstartup.trace=true              初回描画と全体の構築が終わった時点で各段階の時刻を出力する
+ * -Dstartup.exitAfterFirstPaint=true 出力後に終了する（AppCDS の学習実行や起動ベンチマーク用）
+ */
+public final class StartupProbe {
+  public static final int MAIN = 0;
+  public static final int LOOK_AND_FEEL = 1;
+  public static final int SHELL_VISIBLE = 2;
+  public static final int FIRST_PAINT = 3;
+  public static final int CONTENT_READY = 4;
+  private static final String[] PHASE_NAMES = { "main", "lookAndFeel", "shellVisible", "firstPaint", "contentReady" };
+
+  private static final long[] phaseNanos = new long[PHASE_NAMES.length];
+  private static long mainNanos;
+  private static boolean reported;
+
+  private StartupProbe() {
+  }
+
+  /**
+   * main の先頭で呼ぶ
+   */
+  public static synchronized void start() {
+    mainNanos = System.nanoTime();
+    phaseNanos[MAIN] = mainNanos;
+  }
+
+  /**
+   * 段階の到達を記録する。2 回目以降は無視する
+   */
+  public static synchronized void mark(int phase) {
+    if (phaseNanos[phase] == 0) {
+      phaseNanos[phase] = System.nanoTime();
+    }
+    if ((phase == FIRST_PAINT || phase == CONTENT_READY) && phaseNanos[FIRST_PAINT] != 0
+        && phaseNanos[CONTENT_READY] != 0) {
+      finish();
+    }
+  }
+
+  /**
+   * main からの経過時間（ミリ秒）。未到達なら -1
+   */
+  public static synchronized double elapsedMillis(int phase) {
+    return phaseNanos[phase] == 0 ? -1 : (phaseNanos[phase] - mainNanos) / 1_000_000.0;
+  }
+
+  private static void finish() {
+    if (reported) return;
+    reported = true;
+    if (Boolean.getBoolean("startup.trace") || Boolean.getBoolean("startup.exitAfterFirstPaint")) {
+      System.out.println(format());
+    }
+    if (Boolean.getBoolean("startup.exitAfterFirstPaint")) {
+      // 学習実行では終了時に AppCDS のアーカイブが書き出される
+      System.exit(0);
+    }
+  }
+
+  /**
+   * "startup jvmToMain=12.3 main=0.0 lookAndFeel=45.6 ..." の形式で各段階の時刻を返す（ミリ秒）
+   */
+  public static synchronized String format() {
+    StringBuilder builder = new StringBuilder("startup");
+    long jvmToMain = jvmToMainMillis();
+    if (jvmToMain >= 0) {
+      builder.append(" jvmToMain=").append(jvmToMain);
+    }
+    for (int phase = 0; phase < PHASE_NAMES.length; phase++) {
+      builder.append(' ').append(PHASE_NAMES[phase]).append('=')
+          .append(String.format(Locale.ROOT, "%.1f", elapsedMillis(phase)));
+    }
+    return builder.toString();
+  }
+
+  // JVM のプロセス開始から main までの時間（取得できなければ -1）
+  private static long jvmToMainMillis() {
+    return ProcessHandle.current().info().startInstant()
+        .map(start -> Instant.now().toEpochMilli() - start.toEpochMilli()
+            - (System.nanoTime() - mainNanos) / 1_000_000)
+        .orElse(-1L);
+  }
+}
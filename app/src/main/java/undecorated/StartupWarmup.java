@@ -0,0 +1,48 @@
+package undecorated;
+
+import java.awt.font.FontRenderContext;
+import javax.swing.UIManager;
+
+/**
+ * 起動時に EDT と並行して Look and Feel・フォント・よく使うクラスを読み込んでおく
+ * ここで失敗しても起動には影響しないので、例外は無視する
+ */
+final class StartupWarmup {
+  // 枠の表示後に組み立てるパネルで使うクラス
+  private static final String[] CLASSES = {
+      "javax.swing.JTable", "javax.swing.JSplitPane", "javax.swing.JToolBar", "javax.swing.JMenuBar",
+      "javax.swing.JList", "javax.swing.JScrollPane", "javax.swing.table.TableRowSorter",
+      "javax.swing.table.DefaultTableCellRenderer", "javax.swing.plaf.basic.BasicTableUI",
+      "javax.swing.plaf.basic.BasicSplitPaneUI", "javax.swing.plaf.basic.BasicListUI" };
+  // 画面で使う文字を含む文字列（グリフの読み込み用）
+  private static final String SAMPLE_TEXT = "業務管理システム顧客名会社名電話番号メール登録日最終購入日ステータス"
+      + "ダッシュボード売上製品在庫社員設定検索新規開く保存準備完了 0123456789/:-";
+
+  private StartupWarmup() {
+  }
+
+  static void start() {
+    Thread thread = new Thread(StartupWarmup::run, "startup-warmup");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private static void run() {
+    try {
+      ClassLoader loader = StartupWarmup.class.getClassLoader();
+      Class.forName(UIManager.getSystemLookAndFeelClassName(), true, loader);
+
+      // 画面と同じ FontRegistry のインスタンスで測るので、読み込んだグリフは EDT 側でもそのまま使われる
+      FontRenderContext context = new FontRenderContext(null, true, true);
+      FontRegistry.plain(14).getStringBounds(SAMPLE_TEXT, context);
+      FontRegistry.bold(14).getStringBounds(SAMPLE_TEXT, context);
+      FontRegistry.bold(18).getStringBounds(SAMPLE_TEXT, context);
+
+      for (String name : CLASSES) {
+        Class.forName(name, true, loader);
+      }
+    } catch (Throwable e) {
+      // 先読みできなくても EDT 側で読み込まれるだけなので無視する
+    }
+  }
+}
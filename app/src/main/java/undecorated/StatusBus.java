@@ -0,0 +1,122 @@
+package undecorated;
+
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * ステータスバーへの表示をまとめるバス
+ * どのスレッドからでも publish でき、大量のメッセージが来ても EDT での更新は 1 フレームに最大 1 回、
+ * 最後のメッセージだけを表示する
+ * 時計は 1 秒ごとに、キャッシュした日付部分と再利用するバッファで組み立てる
+ */
+public class StatusBus {
+  private static final int FRAME_MILLIS = 16;
+
+  private final StatusCell messageCell;
+  private final StatusCell clockCell;
+
+  private final AtomicReference<String> pendingMessage = new AtomicReference<>();
+  private final AtomicBoolean flushScheduled = new AtomicBoolean();
+  private final Timer flushTimer;
+  private final Timer clockTimer;
+  private long lastFlushNanos;
+
+  // 時計の表示用（EDT でのみ使用）
+  private final char[] clockChars = "yyyy/MM/dd HH:mm:ss".toCharArray();
+  private final TimeZone timeZone = TimeZone.getDefault();
+  private long cachedDay = Long.MIN_VALUE;
+
+  // 計測値
+  private final LongAdder publishedCount = new LongAdder();
+  private long appliedCount;
+
+  public StatusBus(StatusCell messageCell, StatusCell clockCell) {
+    this.messageCell = messageCell;
+    this.clockCell = clockCell;
+    this.flushTimer = new Timer(FRAME_MILLIS, e -> flush());
+    this.flushTimer.setRepeats(false);
+    this.clockTimer = new Timer(1000, e -> updateClock());
+  }
+
+  /**
+   * 時計の更新を開始する（EDT から呼ぶこと）
+   */
+  public void start() {
+    updateClock();
+    clockTimer.start();
+  }
+
+  public void stop() {
+    clockTimer.stop();
+    flushTimer.stop();
+  }
+
+  /**
+   * メッセージを表示する。どのスレッドから呼んでもよい
+   * 同じフレーム内に複数届いた場合は最後のものだけが表示される
+   */
+  public void publish(String message) {
+    pendingMessage.set(message);
+    publishedCount.increment();
+    if (flushScheduled.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(this::scheduleFlush);
+    }
+  }
+
+  /** publish された回数 */
+  public long getPublishedCount() {
+    return publishedCount.sum();
+  }
+
+  /** 実際にステータスバーを更新した回数 */
+  public long getAppliedCount() {
+    return appliedCount;
+  }
+
+  // 前回の更新から 1 フレーム経っていなければ、残りの時間だけ待ってから更新する
+  private void scheduleFlush() {
+    long elapsedMillis = (System.nanoTime() - lastFlushNanos) / 1_000_000;
+    if (elapsedMillis >= FRAME_MILLIS) {
+      flush();
+    } else {
+      flushTimer.setInitialDelay((int) (FRAME_MILLIS - elapsedMillis));
+      flushTimer.restart();
+    }
+  }
+
+  private void flush() {
+    flushScheduled.set(false);
+    String message = pendingMessage.getAndSet(null);
+    if (message == null) return;
+    lastFlushNanos = System.nanoTime();
+    appliedCount++;
+    messageCell.setText(message);
+  }
+
+  private void updateClock() {
+    long now = System.currentTimeMillis();
+    long local = now + timeZone.getOffset(now);
+    long day = Math.floorDiv(local, 86_400_000L);
+    if (day != cachedDay) {
+      // 日付部分は日が変わった時だけ書き直す
+      cachedDay = day;
+      DateColumn.formatTo((int) day, clockChars, 0);
+      clockChars[4] = '/';
+      clockChars[7] = '/';
+    }
+    int seconds = (int) (Math.floorMod(local, 86_400_000L) / 1000);
+    writeTwoDigits(11, seconds / 3600);
+    writeTwoDigits(14, seconds / 60 % 60);
+    writeTwoDigits(17, seconds % 60);
+    clockCell.setText(clockChars, 0, clockChars.length);
+  }
+
+  private void writeTwoDigits(int offset, int value) {
+    clockChars[offset] = (char) ('0' + value / 10);
+    clockChars[offset + 1] = (char) ('0' + value % 10);
+  }
+}
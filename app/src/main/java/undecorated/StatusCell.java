@@ -0,0 +1,128 @@
+package undecorated;
+
+import java.awt.*;
+import java.util.Map;
+import javax.swing.JComponent;
+import javax.swing.UIManager;
+
+/**
+ * ステータスバー用の軽量なテキスト表示コンポーネント
+ * 文字列は再利用する char 配列に保持し、内容が変わった時は自分の領域だけを再描画する
+ * 幅が広がった時だけ revalidate するので、時計のように幅が変わらない更新ではレイアウトが走らない
+ */
+public class StatusCell extends JComponent {
+  private static final long serialVersionUID = 1L;
+
+  private char[] chars = new char[64];
+  private int length;
+  private int textWidth;
+  private int preferredTextWidth;
+
+  public StatusCell() {
+    updateUI();
+  }
+
+  public StatusCell(String text) {
+    this();
+    setText(text);
+  }
+
+  @Override
+  public void updateUI() {
+    setFont(UIManager.getFont("Label.font"));
+    setForeground(UIManager.getColor("Label.foreground"));
+    preferredTextWidth = 0;
+    textWidth = measure();
+    revalidate();
+  }
+
+  /**
+   * 表示する文字列を設定する（EDT から呼ぶこと）
+   */
+  public void setText(CharSequence text) {
+    int newLength = text == null ? 0 : text.length();
+    if (newLength == length && contentEquals(text)) {
+      return;
+    }
+    if (newLength > chars.length) {
+      chars = new char[Math.max(newLength, chars.length * 2)];
+    }
+    for (int i = 0; i < newLength; i++) {
+      chars[i] = text.charAt(i);
+    }
+    length = newLength;
+    setText();
+  }
+
+  /**
+   * 表示する文字列を char 配列から設定する（EDT から呼ぶこと）
+   */
+  public void setText(char[] text, int offset, int count) {
+    if (count > chars.length) {
+      chars = new char[Math.max(count, chars.length * 2)];
+    }
+    System.arraycopy(text, offset, chars, 0, count);
+    length = count;
+    setText();
+  }
+
+  public String getText() {
+    return new String(chars, 0, length);
+  }
+
+  private void setText() {
+    textWidth = measure();
+    if (textWidth > preferredTextWidth) {
+      // 幅が足りない時だけレイアウトし直す
+      preferredTextWidth = textWidth;
+      revalidate();
+    }
+    repaint();
+  }
+
+  private boolean contentEquals(CharSequence text) {
+    for (int i = 0; i < length; i++) {
+      if (chars[i] != text.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private int measure() {
+    Font font = getFont();
+    if (font == null) return 0;
+    return getFontMetrics(font).charsWidth(chars, 0, length);
+  }
+
+  @Override
+  public Dimension getPreferredSize() {
+    if (isPreferredSizeSet()) {
+      return super.getPreferredSize();
+    }
+    Insets insets = getInsets();
+    FontMetrics metrics = getFontMetrics(getFont());
+    return new Dimension(Math.max(preferredTextWidth, textWidth) + insets.left + insets.right,
+        metrics.getHeight() + insets.top + insets.bottom);
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    if (isOpaque()) {
+      g.setColor(getBackground());
+      g.fillRect(0, 0, getWidth(), getHeight());
+    }
+    if (length == 0) return;
+    Graphics2D g2 = (Graphics2D) g;
+    Map<?, ?> hints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+    if (hints != null) {
+      g2.addRenderingHints(hints);
+    }
+    Insets insets = getInsets();
+    FontMetrics metrics = g2.getFontMetrics(getFont());
+    int y = insets.top + (getHeight() - insets.top - insets.bottom - metrics.getHeight()) / 2 + metrics.getAscent();
+    g2.setFont(getFont());
+    g2.setColor(getForeground());
+    g2.drawChars(chars, 0, length, insets.left, y);
+  }
+}
@@ -0,0 +1,387 @@
+package undecorated;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * 文字列を UTF-8 のバイト列として 1 本の配列に詰めて保持する列
+ * 行ごとの String オブジェクトを持たず、getValueAt などで必要になった時にだけデコードする
+ *
+ * 追加済みの行のバイト列は書き換えず、clear() でも新しい配列に切り替えるため、
+ * view() で取得したビューは別スレッドからでも安全に読める
+ */
+public class StringColumn {
+  private static final int INITIAL_CAPACITY = 16;
+  // 行の位置は int で持つので、バイト列は配列の最大長まで
+  static final int MAX_DATA_BYTES = Integer.MAX_VALUE - 8;
+
+  private byte[] data = new byte[INITIAL_CAPACITY * 16];
+  // offsets[row] から offsets[row + 1] までが行 row のバイト列
+  private int[] offsets = new int[INITIAL_CAPACITY + 1];
+  private int size;
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * 文字列を末尾に追加する（null は空文字として扱う）
+   * @throws IllegalStateException 列のバイト列が MAX_DATA_BYTES を超える場合（列は変わらない）
+   */
+  public void append(String value) {
+    if (size + 1 >= offsets.length) {
+      offsets = Arrays.copyOf(offsets, offsets.length * 2);
+    }
+    int position = offsets[size];
+    if (value != null) {
+      position = encode(value, position);
+    }
+    offsets[++size] = position;
+  }
+
+  /**
+   * 行の文字列をデコードして返す
+   */
+  public String get(int row) {
+    int start = offsets[row];
+    int length = offsets[row + 1] - start;
+    return length == 0 ? "" : new String(data, start, length, StandardCharsets.UTF_8);
+  }
+
+  public int byteLength(int row) {
+    return offsets[row + 1] - offsets[row];
+  }
+
+  /**
+   * 行の文字列を書き換える
+   * バイト列は 1 本の配列に詰めてあるので、以降の行をずらした配列を新しく作る（O(行数)）
+   * 多くの行を書き換える場合は BulkEdit でまとめること
+   */
+  public void set(int row, String value) {
+    Objects.checkIndex(row, size);
+    install(view().withValues(new int[] { row }, new String[] { value }));
+  }
+
+  /**
+   * ビューの内容を列の内容にする（BulkEdit が別スレッドで作った列を EDT で差し替える）
+   * ビューの配列はその後の追加で末尾に書き足されるが、ビューの範囲内は変わらない
+   */
+  void install(View view) {
+    data = view.data;
+    offsets = view.offsets;
+    size = view.size;
+  }
+
+  /**
+   * 行が 0 以上の整数（数字だけ）なら、その値をデコードせずに返す
+   * 空・数字以外を含む・int に収まらない場合は -1
+   */
+  public int parseNonNegativeInt(int row) {
+    int start = offsets[row];
+    int end = offsets[row + 1];
+    if (start == end) return -1;
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      int digit = data[i] - '0';
+      if (digit < 0 || digit > 9) return -1;
+      value = value * 10 + digit;
+      if (value > Integer.MAX_VALUE) return -1;
+    }
+    return (int) value;
+  }
+
+  /**
+   * 行数を size 行に戻す（CustomerTableModel が途中まで追加した行を取り消すのに使う）
+   * 取り消した行のバイト列は次の追加で上書きされる。取得済みのビューの範囲は変わらない
+   */
+  void truncate(int size) {
+    if (size < this.size) {
+      this.size = size;
+    }
+  }
+
+  public void clear() {
+    // 既存のビューが参照している配列は書き換えない
+    data = new byte[INITIAL_CAPACITY * 16];
+    offsets = new int[INITIAL_CAPACITY + 1];
+    size = 0;
+  }
+
+  /**
+   * 現時点までに追加された行の読み取り専用ビューを返す
+   * 配列をコピーしないので O(1) で取得できる
+   */
+  public View view() {
+    return new View(data, offsets, size);
+  }
+
+  /** 保持している配列のおおよそのヒープ使用量（バイト） */
+  public long estimatedBytes() {
+    return 16L + data.length + 16L + offsets.length * 4L;
+  }
+
+  // String.getBytes による一時配列を作らずに UTF-8 へ直接エンコードする
+  private int encode(String value, int position) {
+    int length = value.length();
+    long required = position + length * 3L;
+    if (required > MAX_DATA_BYTES) {
+      // 最大の見積もりでは収まらない場合だけ、正確なバイト数で判定する
+      required = position + utf8Length(value);
+      if (required > MAX_DATA_BYTES) {
+        throw new IllegalStateException("列のデータが大きすぎます: " + required + " バイト");
+      }
+    }
+    ensureData((int) required);
+    byte[] buffer = data;
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        buffer[position++] = (byte) c;
+      } else if (c < 0x800) {
+        buffer[position++] = (byte) (0xC0 | (c >> 6));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        int codePoint = Character.toCodePoint(c, value.charAt(++i));
+        buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else {
+        buffer[position++] = (byte) (0xE0 | (c >> 12));
+        buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        buffer[position++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return position;
+  }
+
+  private void ensureData(int required) {
+    if (required > data.length) {
+      long grown = data.length + (data.length >> 1);
+      data = Arrays.copyOf(data, (int) Math.max(required, Math.min(MAX_DATA_BYTES, grown)));
+    }
+  }
+
+  private static long utf8Length(String value) {
+    long bytes = 0;
+    int length = value.length();
+    for (int i = 0; i < length; i++) {
+      char c = value.charAt(i);
+      if (c < 0x80) {
+        bytes++;
+      } else if (c < 0x800) {
+        bytes += 2;
+      } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+        bytes += 4;
+        i++;
+      } else {
+        bytes += 3;
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * 列のある時点での読み取り専用ビュー
+   */
+  public static final class View {
+    private final byte[] data;
+    private final int[] offsets;
+    private final int size;
+
+    private View(byte[] data, int[] offsets, int size) {
+      this.data = data;
+      this.offsets = offsets;
+      this.size = size;
+    }
+
+    /**
+     * スナップショットのファイルから読む（writeTo の形式）
+     */
+    static View readFrom(ByteBuffer in) {
+      int size = SnapshotCache.readLength(in, 4);
+      int dataLength = SnapshotCache.readLength(in, 1);
+      byte[] data = new byte[dataLength];
+      in.get(data);
+      if ((long) (size + 1) * 4 > in.remaining()) {
+        throw new SnapshotCache.CorruptSnapshotException("行の位置が足りません");
+      }
+      int[] offsets = new int[size + 1];
+      in.asIntBuffer().get(offsets);
+      in.position(in.position() + offsets.length * 4);
+      for (int row = 0; row < size; row++) {
+        if (offsets[row] > offsets[row + 1]) {
+          throw new SnapshotCache.CorruptSnapshotException("行の位置が不正です: " + row);
+        }
+      }
+      if (offsets[0] != 0 || offsets[size] != dataLength) {
+        throw new SnapshotCache.CorruptSnapshotException("行の位置が不正です");
+      }
+      return new View(data, offsets, size);
+    }
+
+    /**
+     * writeTo で書くバイト数
+     */
+    long byteSize() {
+      return 8L + offsets[size] + 4L * (size + 1);
+    }
+
+    /**
+     * スナップショットのファイルに書く（行数、バイト列の長さ、バイト列、行の位置）
+     */
+    void writeTo(SnapshotCache.Output out) throws IOException {
+      out.putInt(size);
+      out.putInt(offsets[size]);
+      out.putBytes(data, 0, offsets[size]);
+      out.putInts(offsets, 0, size + 1);
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public String get(int row) {
+      int start = offsets[row];
+      int length = offsets[row + 1] - start;
+      return length == 0 ? "" : new String(data, start, length, StandardCharsets.UTF_8);
+    }
+
+    public int byteLength(int row) {
+      return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * 指定した行の文字列を置き換えた新しいビューを返す（このビューは変わらない）
+     * 置き換えない行のバイト列は区間ごとにまとめてコピーする
+     * @param rows 置き換える行（昇順・重複なし）
+     * @param values rows[i] の新しい値（null は空文字）
+     */
+    View withValues(int[] rows, String[] values) {
+      byte[][] encoded = new byte[rows.length][];
+      long length = offsets[size];
+      for (int i = 0; i < rows.length; i++) {
+        encoded[i] = values[i] == null ? new byte[0] : values[i].getBytes(StandardCharsets.UTF_8);
+        length += encoded[i].length - byteLength(rows[i]);
+      }
+      if (length > MAX_DATA_BYTES) {
+        throw new IllegalStateException("列のデータが大きすぎます: " + length + " バイト");
+      }
+      // 追加が続けられるように、元の配列と同じだけの余裕を残す
+      byte[] newData = new byte[(int) Math.min(MAX_DATA_BYTES,
+          length + Math.max(INITIAL_CAPACITY * 16, data.length - offsets[size]))];
+      int[] newOffsets = new int[offsets.length];
+      int position = 0;
+      int next = 0;
+      for (int i = 0; i <= rows.length; i++) {
+        int end = i < rows.length ? rows[i] : size;
+        // next から end の手前までは元のバイト列をそのままコピーする
+        int shift = position - offsets[next];
+        System.arraycopy(data, offsets[next], newData, position, offsets[end] - offsets[next]);
+        for (int row = next; row < end; row++) {
+          newOffsets[row + 1] = offsets[row + 1] + shift;
+        }
+        position += offsets[end] - offsets[next];
+        if (i == rows.length) break;
+        System.arraycopy(encoded[i], 0, newData, position, encoded[i].length);
+        position += encoded[i].length;
+        newOffsets[end + 1] = position;
+        next = end + 1;
+      }
+      return new View(newData, newOffsets, size);
+    }
+
+    /**
+     * 行の UTF-8 バイト列をデコードせずに out へコピーする
+     * @return コピーしたバイト数
+     */
+    public int copyBytes(int row, byte[] out, int offset) {
+      int start = offsets[row];
+      int length = offsets[row + 1] - start;
+      System.arraycopy(data, start, out, offset, length);
+      return length;
+    }
+
+    /**
+     * 行の値に needle が含まれるかを UTF-8 のまま判定する（ASCII の大文字小文字は区別しない）
+     * needle の末尾のバイトを先に比べ、一致しなければ needle の中での位置に応じて読み飛ばす（Horspool 法）
+     */
+    public boolean containsIgnoreAsciiCase(int row, Needle needle) {
+      byte[] bytes = needle.bytes;
+      int length = bytes.length;
+      int lastIndex = length - 1;
+      byte lastByte = bytes[lastIndex];
+      int last = offsets[row + 1] - length;
+      int i = offsets[row];
+      while (i <= last) {
+        byte b = toLowerAscii(data[i + lastIndex]);
+        if (b == lastByte) {
+          int j = 0;
+          while (j < lastIndex && toLowerAscii(data[i + j]) == bytes[j]) {
+            j++;
+          }
+          if (j == lastIndex) return true;
+        }
+        i += needle.shifts[b & 0xFF];
+      }
+      return false;
+    }
+
+    private static byte toLowerAscii(byte b) {
+      return b >= 'A' && b <= 'Z' ? (byte) (b + ('a' - 'A')) : b;
+    }
+
+    /**
+     * 行の値を UTF-16 の char 列として out に書き込む
+     * @return 書き込んだ文字数（out が足りない場合は -1）
+     */
+    public int decodeChars(int row, char[] out) {
+      int position = offsets[row];
+      int end = offsets[row + 1];
+      int count = 0;
+      while (position < end) {
+        int b = data[position++] & 0xFF;
+        int codePoint;
+        if (b < 0x80) {
+          codePoint = b;
+        } else if (b < 0xE0) {
+          codePoint = ((b & 0x1F) << 6) | (data[position++] & 0x3F);
+        } else if (b < 0xF0) {
+          codePoint = ((b & 0x0F) << 12) | ((data[position++] & 0x3F) << 6) | (data[position++] & 0x3F);
+        } else {
+          codePoint = ((b & 0x07) << 18) | ((data[position++] & 0x3F) << 12)
+              | ((data[position++] & 0x3F) << 6) | (data[position++] & 0x3F);
+        }
+        int required = codePoint > 0xFFFF ? 2 : 1;
+        if (count + required > out.length) {
+          return -1;
+        }
+        count += Character.toChars(codePoint, out, count);
+      }
+      return count;
+    }
+  }
+
+  /**
+   * containsIgnoreAsciiCase で探す値（検索 1 回ごとに作る）
+   */
+  public static final class Needle {
+    private final byte[] bytes;
+    // 末尾のバイトが b だった時に次に比べる位置までの距離
+    private final int[] shifts = new int[256];
+
+    /**
+     * @param bytes ASCII 部分を小文字にした UTF-8 バイト列（1 バイト以上）
+     */
+    public Needle(byte[] bytes) {
+      this.bytes = bytes;
+      Arrays.fill(shifts, bytes.length);
+      for (int i = 0; i < bytes.length - 1; i++) {
+        shifts[bytes[i] & 0xFF] = bytes.length - 1 - i;
+      }
+    }
+  }
+}
@@ -0,0 +1,281 @@
+package undecorated;
+
+import java.awt.*;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+
+/**
+ * TimeSeries を掃引式（心電図のモニターと同じ）に描くグラフ
+ * 時系列の位置 i を横方向の i 番目の列に対応させ、新しい値は左から右へ古い値を上書きしながら描く
+ * 最新の値の右の GAP 列は空けておき、どこが最新かを示す
+ *
+ * 値を追加した時は、追加した列と空ける列、左上の現在値の部分だけを再描画する
+ * 縦軸の上限が変わった時と大きさが変わった時だけ全体を再描画する
+ * 縦軸の上限は 1, 2, 5 × 10^n に切り上げ、一周するたびに持っている値に合わせて下げる
+ *
+ * 描画と値の追加では配列や文字列を作らない（現在値は再利用する char[] に書いて描く）
+ * EDT からのみ使うこと
+ */
+public class SweepChart extends JComponent {
+  private static final long serialVersionUID = 1L;
+
+  private static final int GAP = 4;
+  private static final int MAX_LABEL_CHARS = 64;
+  private static final Color BACKGROUND = Color.WHITE;
+  private static final Color GRID = new Color(235, 235, 235);
+  private static final Color LINE = new Color(40, 110, 200);
+  // 半透明の塗りつぶしは描画のたびにマスクを作るので、背景と混ぜた不透明な色を使う
+  private static final Color FILL = new Color(209, 223, 243);
+
+  private final TimeSeries series;
+  private final char[] title;
+  private final char[] unit;
+  private final long divisor;
+  private final int decimals;
+
+  // 縦軸の上限（値の単位）
+  private long scale = 1;
+  private int paintedWidth = -1;
+  private int paintedHeight = -1;
+
+  // 描画で使い回す
+  private final char[] label = new char[MAX_LABEL_CHARS];
+  private int labelLength;
+  private int labelWidth;
+  private final Rectangle clip = new Rectangle();
+  private final Insets insets = new Insets(0, 0, 0, 0);
+
+  // 計測値
+  private long fullRepaintCount;
+  private long sliceRepaintCount;
+
+  /**
+   * @param title グラフの名前
+   * @param unit 現在値の後に付ける単位
+   * @param divisor 値をこの数で割って表示する
+   * @param decimals 表示する小数点以下の桁数（0〜3）
+   */
+  public SweepChart(String title, String unit, long divisor, int decimals, TimeSeries series) {
+    this.series = series;
+    this.title = title.toCharArray();
+    this.unit = unit.toCharArray();
+    this.divisor = divisor;
+    this.decimals = decimals;
+    setOpaque(true);
+    setBorder(BorderFactory.createLineBorder(Color.LIGHT_GRAY));
+    setPreferredSize(new Dimension(320, 120));
+    formatLabel();
+  }
+
+  /**
+   * series に値を追加した後に呼ぶ。追加した部分を再描画する
+   */
+  public void sampleAdded() {
+    formatLabel();
+    int slot = series.getLastSlot();
+    long wanted = scale;
+    long last = series.getLast();
+    if (last > scale) {
+      wanted = niceCeiling(last);
+    } else if (slot == 0) {
+      // 一周したので、持っている値に合わせて上限を下げる
+      wanted = niceCeiling(series.getMax());
+    }
+    if (wanted != scale || getWidth() != paintedWidth || getHeight() != paintedHeight) {
+      scale = wanted;
+      fullRepaintCount++;
+      repaint();
+      return;
+    }
+    sliceRepaintCount++;
+    getInsets(insets);
+    int capacity = series.getCapacity();
+    // 空ける列の次の列も、左端の線が変わるので含める
+    int end = slot + GAP + 2;
+    repaintColumns(slot, Math.min(end, capacity));
+    if (end > capacity) {
+      repaintColumns(0, end - capacity);
+    }
+    repaint(insets.left, insets.top, labelWidth, labelHeight());
+  }
+
+  public long getFullRepaintCount() {
+    return fullRepaintCount;
+  }
+
+  public long getSliceRepaintCount() {
+    return sliceRepaintCount;
+  }
+
+  @Override
+  protected void paintComponent(Graphics g) {
+    getInsets(insets);
+    int left = insets.left;
+    int top = insets.top;
+    int width = getWidth() - insets.left - insets.right;
+    int height = getHeight() - insets.top - insets.bottom;
+    paintedWidth = getWidth();
+    paintedHeight = getHeight();
+    if (width <= 0 || height <= 0) return;
+    if (g.getClipBounds(clip) == null) {
+      clip.setBounds(0, 0, getWidth(), getHeight());
+    }
+
+    g.setColor(BACKGROUND);
+    g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+    int capacity = series.getCapacity();
+    int cursor = series.getLastSlot();
+    int first = Math.max(0, columnAt(clip.x - left, width, capacity) - 1);
+    int last = Math.min(capacity - 1, columnAt(clip.x + clip.width - left, width, capacity) + 1);
+    int bottom = top + height;
+    // 線の下を塗ってから格子と線を重ねる（列は 1〜2 ピクセルの幅なので、線の下は長方形で塗る）
+    g.setColor(FILL);
+    for (int column = first; column <= last; column++) {
+      if (!isDrawn(column, cursor, capacity)) continue;
+      int fillTop = Math.max(valueToY(series.get(column), top, height), previousY(column, cursor, top, height));
+      int x0 = left + columnX(column, width, capacity);
+      g.fillRect(x0, fillTop, left + columnX(column + 1, width, capacity) - x0, bottom - fillTop);
+    }
+    g.setColor(GRID);
+    for (int i = 1; i < 4; i++) {
+      int y = top + height * i / 4;
+      g.drawLine(clip.x, y, clip.x + clip.width, y);
+    }
+    g.setColor(LINE);
+    for (int column = first; column <= last; column++) {
+      if (!isDrawn(column, cursor, capacity)) continue;
+      g.drawLine(left + columnX(column, width, capacity), previousY(column, cursor, top, height),
+          left + columnX(column + 1, width, capacity), valueToY(series.get(column), top, height));
+    }
+
+    paintLabel(g, left, top);
+  }
+
+  private void paintLabel(Graphics g, int left, int top) {
+    FontMetrics metrics = g.getFontMetrics();
+    // 現在値の桁が増えた時だけ広げ、縮めない（再描画する範囲が狭すぎて前の表示が残らないように）
+    labelWidth = Math.max(labelWidth, metrics.charsWidth(label, 0, labelLength) + 8);
+    int height = labelHeight();
+    if (!clip.intersects(left, top, labelWidth, height)) return;
+    g.setColor(BACKGROUND);
+    g.fillRect(left, top, labelWidth, height);
+    g.setColor(Color.DARK_GRAY);
+    g.drawChars(label, 0, labelLength, left + 4, top + 2 + metrics.getAscent());
+  }
+
+  private int labelHeight() {
+    return getFontMetrics(getFont()).getHeight() + 4;
+  }
+
+  // 値が入っていて、空けておく列でなければ描く
+  private boolean isDrawn(int column, int cursor, int capacity) {
+    if (cursor < 0 || !series.has(column)) return false;
+    int ahead = (column - cursor + capacity) % capacity;
+    return ahead == 0 || ahead > GAP;
+  }
+
+  // 列の線の始まりの高さ（前の列を描かない場合は、その列の値の高さ）
+  private int previousY(int column, int cursor, int top, int height) {
+    int capacity = series.getCapacity();
+    int previous = column == 0 ? capacity - 1 : column - 1;
+    return valueToY(series.get(isDrawn(previous, cursor, capacity) ? previous : column), top, height);
+  }
+
+  private void repaintColumns(int from, int to) {
+    int width = getWidth() - insets.left - insets.right;
+    int capacity = series.getCapacity();
+    // 線の太さの分だけ前後に広げる
+    int x0 = insets.left + columnX(from, width, capacity) - 1;
+    int x1 = insets.left + columnX(to, width, capacity) + 1;
+    repaint(x0, insets.top, x1 - x0, getHeight() - insets.top - insets.bottom);
+  }
+
+  private int valueToY(long value, int top, int height) {
+    long clamped = Math.max(0, Math.min(value, scale));
+    return top + height - 1 - (int) (clamped * (height - 2) / scale);
+  }
+
+  private static int columnX(int column, int width, int capacity) {
+    return (int) ((long) column * width / capacity);
+  }
+
+  private static int columnAt(int x, int width, int capacity) {
+    return (int) ((long) Math.max(x, 0) * capacity / width);
+  }
+
+  /** value 以上で最小の 1, 2, 5 × 10^n（1 未満にはしない） */
+  static long niceCeiling(long value) {
+    long magnitude = 1;
+    while (true) {
+      if (value <= magnitude) return magnitude;
+      if (value <= magnitude * 2) return magnitude * 2;
+      if (value <= magnitude * 5) return magnitude * 5;
+      if (magnitude > Long.MAX_VALUE / 100) return Long.MAX_VALUE;
+      magnitude *= 10;
+    }
+  }
+
+  // 「名前 現在値 単位」を label に書く。MAX_LABEL_CHARS を超える分は書かない
+  private void formatLabel() {
+    int length = 0;
+    for (char c : title) {
+      length = append(c, length);
+    }
+    length = append(' ', length);
+    long value = series.getLast();
+    int scaleDigits = 1;
+    for (int i = 0; i < decimals; i++) {
+      scaleDigits *= 10;
+    }
+    // 小数点以下を四捨五入して、整数部と小数部に分ける
+    long scaled = (Math.abs(value) * scaleDigits + divisor / 2) / divisor;
+    if (value < 0) {
+      length = append('-', length);
+    }
+    length = appendGrouped(scaled / scaleDigits, length);
+    if (decimals > 0) {
+      length = append('.', length);
+      long fraction = scaled % scaleDigits;
+      for (int digit = scaleDigits / 10; digit > 0; digit /= 10) {
+        length = append((char) ('0' + fraction / digit % 10), length);
+      }
+    }
+    length = append(' ', length);
+    for (char c : unit) {
+      length = append(c, length);
+    }
+    labelLength = length;
+  }
+
+  // label の offset に c を書き、次の位置を返す（一杯なら書かない）
+  private int append(char c, int offset) {
+    if (offset >= MAX_LABEL_CHARS) return offset;
+    label[offset] = c;
+    return offset + 1;
+  }
+
+  // 3 桁ごとにカンマを入れて書く（一杯になった後の桁は書かない）
+  private int appendGrouped(long value, int offset) {
+    int digits = 1;
+    for (long rest = value / 10; rest > 0; rest /= 10) {
+      digits++;
+    }
+    int length = digits + (digits - 1) / 3;
+    int position = offset + length - 1;
+    for (int i = 0; i < digits; i++) {
+      if (i > 0 && i % 3 == 0) {
+        if (position < MAX_LABEL_CHARS) {
+          label[position] = ',';
+        }
+        position--;
+      }
+      if (position < MAX_LABEL_CHARS) {
+        label[position] = (char) ('0' + value % 10);
+      }
+      position--;
+      value /= 10;
+    }
+    return Math.min(offset + length, MAX_LABEL_CHARS);
+  }
+}
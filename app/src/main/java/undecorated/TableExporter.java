@@ -0,0 +1,386 @@
+package undecorated;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Consumer;
+import javax.swing.SwingWorker;
+
+/**
+ * 顧客テーブルを EDT の外でファイルに書き出すエクスポーター
+ *
+ * EDT ではモデルのスナップショットと表示順（並べ替え・絞り込み後の行番号）を取るだけで、
+ * 書き出しはワーカースレッドで行う。文字列は UTF-8 のバイト列のままデコードせずに、
+ * 使い回しのバッファへ詰めて FileChannel に書き込む
+ * 書き出しは一時ファイルに行い、完了した時だけ目的のファイルに置き換える（中止・失敗時は残さない）
+ *
+ * 形式
+ * CSV: UTF-8（BOM 付き）、見出し行あり。区切り文字・引用符・改行を含む値は引用符で囲む
+ * TSV: CSV と同じで、区切り文字がタブ
+ * BINARY: 列ごとの型をそのまま書く独自形式
+ *   "UDCB"、版 (int)、列数 (int)、行数 (int)、列名（可変長整数の長さ + UTF-8）、
+ *   ステータスの辞書（件数 + 値）、以降は行ごとに
+ *   文字列列 = 可変長整数の長さ + UTF-8、日付 = 可変長整数（空は 0、それ以外は ZigZag(epoch day) + 1）、
+ *   ステータス = 辞書コードの可変長整数
+ *   整数はすべてビッグエンディアン、可変長整数は 7 ビットずつ下位から
+ */
+public class TableExporter extends SwingWorker<Long, Long> {
+  public enum Format {
+    CSV, TSV, BINARY
+  }
+
+  public static final int BINARY_VERSION = 1;
+  private static final byte[] BINARY_MAGIC = { 'U', 'D', 'C', 'B' };
+  private static final byte[] UTF8_BOM = { (byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+  private static final int BUFFER_BYTES = 1 << 20;
+  // 進捗を知らせる間隔（行）
+  private static final int PROGRESS_ROWS = 1 << 16;
+
+  private final CustomerTableModel.Snapshot snapshot;
+  private final int[] rows;
+  private final File file;
+  private final Format format;
+  private final Consumer<String> statusSink;
+
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+  // 1 つの値を組み立てる作業領域
+  private byte[] scratch = new byte[256];
+  private long bytesWritten;
+  private long startNanos;
+  // 以下は EDT でのみ更新する
+  private long rowsReported;
+
+  /**
+   * @param snapshot 書き出すデータ（EDT で取得したもの）
+   * @param rows 書き出す行番号を表示順に並べた配列（null ならすべての行をモデルの順に）
+   * @param file 書き出し先
+   * @param format 形式
+   * @param statusSink 進捗メッセージの通知先（EDT で呼ばれる）
+   */
+  public TableExporter(CustomerTableModel.Snapshot snapshot, int[] rows, File file, Format format,
+      Consumer<String> statusSink) {
+    this.snapshot = snapshot;
+    this.rows = rows;
+    this.file = file;
+    this.format = format;
+    this.statusSink = statusSink;
+  }
+
+  /**
+   * ファイル名の拡張子から形式を決める（.bin は BINARY、.txt / .tsv は TSV、それ以外は CSV）
+   */
+  public static Format formatOf(File file) {
+    String name = file.getName().toLowerCase();
+    if (name.endsWith(".bin")) return Format.BINARY;
+    if (name.endsWith(".txt") || name.endsWith(".tsv")) return Format.TSV;
+    return Format.CSV;
+  }
+
+  public int getRowCount() {
+    return rows != null ? rows.length : snapshot.getRowCount();
+  }
+
+  @Override
+  protected Long doInBackground() throws Exception {
+    startNanos = System.nanoTime();
+    Path target = file.toPath().toAbsolutePath();
+    Path temporary = target.resolveSibling(target.getFileName() + ".part");
+    try {
+      try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+          StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+        writeTo(channel);
+      }
+      if (isCancelled()) {
+        Files.deleteIfExists(temporary);
+        return bytesWritten;
+      }
+      try {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException | RuntimeException e) {
+      Files.deleteIfExists(temporary);
+      throw e;
+    }
+    return bytesWritten;
+  }
+
+  /**
+   * すべての行をチャンネルに書き出す（中止された場合は途中で戻る）
+   * @return 書き出したバイト数
+   */
+  public long writeTo(FileChannel channel) throws IOException {
+    buffer.clear();
+    bytesWritten = 0;
+    int count = getRowCount();
+    if (format == Format.BINARY) {
+      writeBinaryHeader(channel, count);
+    } else {
+      writeTextHeader(channel);
+    }
+
+    StringColumn.View[] strings = new StringColumn.View[CustomerTableModel.COLUMN_NAMES.length];
+    DateColumn.View[] dates = new DateColumn.View[CustomerTableModel.COLUMN_NAMES.length];
+    for (int column = 0; column < strings.length; column++) {
+      strings[column] = snapshot.getStringColumn(column);
+      dates[column] = snapshot.getDateColumn(column);
+    }
+    DictionaryColumn.View statuses = snapshot.getStatusColumn();
+    byte[][] statusBytes = encodeDictionary(statuses, format == Format.BINARY ? 0 : delimiter());
+
+    for (int i = 0; i < count; i++) {
+      int row = rows != null ? rows[i] : i;
+      if (format == Format.BINARY) {
+        writeBinaryRow(channel, row, strings, dates, statuses);
+      } else {
+        writeTextRow(channel, row, strings, dates, statuses, statusBytes);
+      }
+      if ((i + 1) % PROGRESS_ROWS == 0) {
+        if (isCancelled()) return bytesWritten;
+        publish((long) i + 1);
+      }
+    }
+    flush(channel);
+    return bytesWritten;
+  }
+
+  @Override
+  protected void process(List<Long> chunks) {
+    if (isCancelled()) return;
+    rowsReported = chunks.get(chunks.size() - 1);
+    int count = getRowCount();
+    setProgress(count == 0 ? 100 : (int) (rowsReported * 100 / count));
+    statusSink.accept(String.format("エクスポート中: %,d / %,d 行 (%d%%) %.1f MB/s",
+        rowsReported, count, getProgress(), megabytesPerSecond(bytesWritten)));
+  }
+
+  @Override
+  protected void done() {
+    if (isCancelled()) {
+      statusSink.accept(String.format("エクスポートを中止しました: %,d 行まで", rowsReported));
+      return;
+    }
+    try {
+      long bytes = get();
+      double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+      statusSink.accept(String.format("エクスポート完了: %s %,d 行 %.1f MB (%.2f 秒, %.1f MB/s)",
+          file.getName(), getRowCount(), bytes / 1_048_576.0, seconds, megabytesPerSecond(bytes)));
+    } catch (Exception e) {
+      Throwable cause = e.getCause() != null ? e.getCause() : e;
+      cause.printStackTrace();
+      statusSink.accept("エクスポートに失敗しました: " + cause.getMessage());
+    }
+  }
+
+  private double megabytesPerSecond(long bytes) {
+    double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    return seconds <= 0 ? 0 : bytes / 1_048_576.0 / seconds;
+  }
+
+  private byte delimiter() {
+    return format == Format.TSV ? (byte) '\t' : (byte) ',';
+  }
+
+  // ---- テキスト形式 ----
+
+  private void writeTextHeader(FileChannel channel) throws IOException {
+    if (format == Format.CSV) {
+      // Excel が UTF-8 として開けるように BOM を付ける（CsvLoader は読み飛ばす）
+      put(channel, UTF8_BOM, 0, UTF8_BOM.length);
+    }
+    byte delimiter = delimiter();
+    for (int column = 0; column < CustomerTableModel.COLUMN_NAMES.length; column++) {
+      if (column > 0) {
+        putByte(channel, delimiter);
+      }
+      byte[] name = CustomerTableModel.COLUMN_NAMES[column].getBytes(StandardCharsets.UTF_8);
+      putField(channel, name, name.length, delimiter);
+    }
+    putByte(channel, (byte) '\n');
+  }
+
+  private void writeTextRow(FileChannel channel, int row, StringColumn.View[] strings, DateColumn.View[] dates,
+      DictionaryColumn.View statuses, byte[][] statusBytes) throws IOException {
+    byte delimiter = delimiter();
+    for (int column = 0; column < strings.length; column++) {
+      if (column > 0) {
+        putByte(channel, delimiter);
+      }
+      if (strings[column] != null) {
+        StringColumn.View view = strings[column];
+        int length = view.byteLength(row);
+        ensureScratch(length);
+        view.copyBytes(row, scratch, 0);
+        putField(channel, scratch, length, delimiter);
+      } else if (dates[column] != null) {
+        int day = dates[column].getDay(row);
+        if (day != DateColumn.NULL_DAY) {
+          putDate(channel, day);
+        }
+      } else {
+        byte[] value = statusBytes[statuses.code(row)];
+        put(channel, value, 0, value.length);
+      }
+    }
+    putByte(channel, (byte) '\n');
+  }
+
+  // 区切り文字・引用符・改行を含む値は引用符で囲み、中の引用符は "" にする
+  private void putField(FileChannel channel, byte[] value, int length, byte delimiter) throws IOException {
+    boolean quote = false;
+    for (int i = 0; i < length && !quote; i++) {
+      byte b = value[i];
+      quote = b == delimiter || b == '"' || b == '\n' || b == '\r';
+    }
+    if (!quote) {
+      put(channel, value, 0, length);
+      return;
+    }
+    putByte(channel, (byte) '"');
+    int start = 0;
+    for (int i = 0; i < length; i++) {
+      if (value[i] == '"') {
+        put(channel, value, start, i + 1 - start);
+        start = i;
+      }
+    }
+    put(channel, value, start, length - start);
+    putByte(channel, (byte) '"');
+  }
+
+  private void putDate(FileChannel channel, int day) throws IOException {
+    ensureSpace(channel, 10);
+    int date = DateColumn.fromEpochDay(day);
+    int year = date >>> 9;
+    int month = (date >>> 5) & 0xF;
+    int dayOfMonth = date & 0x1F;
+    buffer.put((byte) ('0' + year / 1000 % 10));
+    buffer.put((byte) ('0' + year / 100 % 10));
+    buffer.put((byte) ('0' + year / 10 % 10));
+    buffer.put((byte) ('0' + year % 10));
+    buffer.put((byte) '-');
+    buffer.put((byte) ('0' + month / 10));
+    buffer.put((byte) ('0' + month % 10));
+    buffer.put((byte) '-');
+    buffer.put((byte) ('0' + dayOfMonth / 10));
+    buffer.put((byte) ('0' + dayOfMonth % 10));
+  }
+
+  /**
+   * 辞書の値をあらかじめ UTF-8 にしておく（テキスト形式では必要なら引用符で囲んだ形にする）
+   * @param delimiter テキスト形式の区切り文字（バイナリ形式では 0）
+   */
+  private static byte[][] encodeDictionary(DictionaryColumn.View statuses, byte delimiter) {
+    byte[][] values = new byte[statuses.getDictionarySize()][];
+    for (int code = 0; code < values.length; code++) {
+      String value = statuses.decode(code);
+      if (delimiter != 0 && (value.indexOf(delimiter) >= 0 || value.indexOf('"') >= 0
+          || value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0)) {
+        value = '"' + value.replace("\"", "\"\"") + '"';
+      }
+      values[code] = value.getBytes(StandardCharsets.UTF_8);
+    }
+    return values;
+  }
+
+  // ---- バイナリ形式 ----
+
+  private void writeBinaryHeader(FileChannel channel, int count) throws IOException {
+    put(channel, BINARY_MAGIC, 0, BINARY_MAGIC.length);
+    ensureSpace(channel, 12);
+    buffer.putInt(BINARY_VERSION);
+    buffer.putInt(CustomerTableModel.COLUMN_NAMES.length);
+    buffer.putInt(count);
+    for (String name : CustomerTableModel.COLUMN_NAMES) {
+      putBinaryString(channel, name.getBytes(StandardCharsets.UTF_8));
+    }
+    DictionaryColumn.View statuses = snapshot.getStatusColumn();
+    putVarint(channel, statuses.getDictionarySize());
+    for (byte[] value : encodeDictionary(statuses, (byte) 0)) {
+      putBinaryString(channel, value);
+    }
+  }
+
+  private void writeBinaryRow(FileChannel channel, int row, StringColumn.View[] strings, DateColumn.View[] dates,
+      DictionaryColumn.View statuses) throws IOException {
+    for (int column = 0; column < strings.length; column++) {
+      if (strings[column] != null) {
+        StringColumn.View view = strings[column];
+        int length = view.byteLength(row);
+        ensureScratch(length);
+        view.copyBytes(row, scratch, 0);
+        putVarint(channel, length);
+        put(channel, scratch, 0, length);
+      } else if (dates[column] != null) {
+        int day = dates[column].getDay(row);
+        putVarint(channel, day == DateColumn.NULL_DAY ? 0 : ((day << 1) ^ (day >> 31)) + 1);
+      } else {
+        putVarint(channel, statuses.code(row));
+      }
+    }
+  }
+
+  private void putBinaryString(FileChannel channel, byte[] value) throws IOException {
+    putVarint(channel, value.length);
+    put(channel, value, 0, value.length);
+  }
+
+  private void putVarint(FileChannel channel, int value) throws IOException {
+    ensureSpace(channel, 5);
+    while ((value & ~0x7F) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+
+  // ---- バッファ ----
+
+  private void put(FileChannel channel, byte[] bytes, int offset, int length) throws IOException {
+    while (length > 0) {
+      if (!buffer.hasRemaining()) {
+        flush(channel);
+      }
+      int n = Math.min(length, buffer.remaining());
+      buffer.put(bytes, offset, n);
+      offset += n;
+      length -= n;
+    }
+  }
+
+  private void putByte(FileChannel channel, byte b) throws IOException {
+    if (!buffer.hasRemaining()) {
+      flush(channel);
+    }
+    buffer.put(b);
+  }
+
+  private void ensureSpace(FileChannel channel, int bytes) throws IOException {
+    if (buffer.remaining() < bytes) {
+      flush(channel);
+    }
+  }
+
+  private void ensureScratch(int length) {
+    if (length > scratch.length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+  }
+
+  private void flush(FileChannel channel) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      bytesWritten += channel.write(buffer);
+    }
+    buffer.clear();
+  }
+}
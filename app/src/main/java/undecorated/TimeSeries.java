@@ -0,0 +1,59 @@
+package undecorated;
+
+/**
+ * 最新の capacity 個の値だけを持つ時系列（long のリングバッファ）
+ * i 番目（0 から数えて）に追加した値は i % capacity の位置に入り、古い値を上書きする
+ * 追加しても配列を作り直さないので、記録し続けてもメモリは増えない
+ * EDT からのみ使うこと
+ */
+public class TimeSeries {
+  private final long[] values;
+  private long count;
+
+  public TimeSeries(int capacity) {
+    values = new long[capacity];
+  }
+
+  public void add(long value) {
+    values[(int) (count % values.length)] = value;
+    count++;
+  }
+
+  public int getCapacity() {
+    return values.length;
+  }
+
+  /** これまでに追加した値の数（上書きされたものも含む） */
+  public long getCount() {
+    return count;
+  }
+
+  /** 最後に追加した値の位置。まだなければ -1 */
+  public int getLastSlot() {
+    return count == 0 ? -1 : (int) ((count - 1) % values.length);
+  }
+
+  /** 指定した位置に値が入っているか */
+  public boolean has(int slot) {
+    return slot < count;
+  }
+
+  public long get(int slot) {
+    return values[slot];
+  }
+
+  /** 最後に追加した値。まだなければ 0 */
+  public long getLast() {
+    return count == 0 ? 0 : values[getLastSlot()];
+  }
+
+  /** 持っている値の最大値。まだなければ 0 */
+  public long getMax() {
+    long max = 0;
+    int size = (int) Math.min(count, values.length);
+    for (int slot = 0; slot < size; slot++) {
+      max = Math.max(max, values[slot]);
+    }
+    return max;
+  }
+}
@@ -0,0 +1,172 @@
+package undecorated;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Supplier;
+import javax.swing.JComponent;
+
+/**
+ * サイドバーの各モジュールの画面を管理するクラス（EDT からのみ使う）
+ * 画面は最初に選択された時に作成し、最近使ったものをメモリの上限まで LRU でキャッシュする
+ * 上限を超えた場合は古い画面から破棄し、その画面が持つデータを解放させる
+ * 表示中の画面と固定（pinned）された画面は破棄せず、上限の計算にも含めない
+ */
+public class ViewRegistry {
+  /**
+   * モジュールの画面
+   */
+  public interface ModuleView {
+    JComponent getComponent();
+
+    /**
+     * 画面が保持しているデータのおおよそのバイト数
+     */
+    long estimatedBytes();
+
+    /**
+     * キャッシュから破棄される時に呼ばれる。保持しているデータを解放する
+     */
+    void release();
+  }
+
+  private static final class Entry {
+    final Supplier<? extends ModuleView> factory;
+    final boolean pinned;
+    double lastBuildMillis = -1;
+
+    Entry(Supplier<? extends ModuleView> factory, boolean pinned) {
+      this.factory = factory;
+      this.pinned = pinned;
+    }
+  }
+
+  private final long budgetBytes;
+  private final Map<String, Entry> entries = new HashMap<>();
+  // 作成済みの画面（アクセス順、先頭が最も古い）
+  private final LinkedHashMap<String, ModuleView> cache = new LinkedHashMap<>(16, 0.75f, true);
+  private String current;
+
+  // 計測値
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  /**
+   * @param budgetBytes 破棄できる画面のデータの合計の上限（バイト）
+   */
+  public ViewRegistry(long budgetBytes) {
+    this.budgetBytes = budgetBytes;
+  }
+
+  /**
+   * モジュールを登録する
+   * @param pinned true なら一度作成した画面を破棄しない
+   */
+  public void register(String name, Supplier<? extends ModuleView> factory, boolean pinned) {
+    entries.put(name, new Entry(factory, pinned));
+  }
+
+  public boolean isRegistered(String name) {
+    return entries.containsKey(name);
+  }
+
+  /**
+   * モジュールの画面を返す。キャッシュになければ作成する
+   * 返した画面を表示中として扱い、上限を超えた分の古い画面を破棄する
+   */
+  public ModuleView show(String name) {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      throw new IllegalArgumentException("未登録のモジュール: " + name);
+    }
+    ModuleView view = cache.get(name);
+    if (view != null) {
+      hitCount++;
+    } else {
+      missCount++;
+      long start = System.nanoTime();
+      view = entry.factory.get();
+      entry.lastBuildMillis = (System.nanoTime() - start) / 1_000_000.0;
+      cache.put(name, view);
+    }
+    current = name;
+    evict();
+    return view;
+  }
+
+  /**
+   * 上限は破棄できる画面（表示中でも固定でもないもの）の合計に対して適用する
+   * 固定された画面の大きさを含めると、その分だけ他の画面が毎回破棄されてしまうため
+   */
+  private void evict() {
+    long total = 0;
+    for (Map.Entry<String, ModuleView> cached : cache.entrySet()) {
+      if (isEvictable(cached.getKey())) {
+        total += cached.getValue().estimatedBytes();
+      }
+    }
+    Iterator<Map.Entry<String, ModuleView>> iterator = cache.entrySet().iterator();
+    while (total > budgetBytes && iterator.hasNext()) {
+      Map.Entry<String, ModuleView> cached = iterator.next();
+      if (!isEvictable(cached.getKey())) continue;
+      total -= cached.getValue().estimatedBytes();
+      iterator.remove();
+      cached.getValue().release();
+      evictionCount++;
+    }
+  }
+
+  private boolean isEvictable(String name) {
+    return !name.equals(current) && !entries.get(name).pinned;
+  }
+
+  /**
+   * キャッシュされている画面のデータの合計（バイト）
+   */
+  public long getCachedBytes() {
+    long total = 0;
+    for (ModuleView view : cache.values()) {
+      total += view.estimatedBytes();
+    }
+    return total;
+  }
+
+  public boolean isCached(String name) {
+    return cache.containsKey(name);
+  }
+
+  public int getCachedCount() {
+    return cache.size();
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * 最後に作成した時の所要時間（ミリ秒）。未作成なら -1
+   */
+  public double getBuildMillis(String name) {
+    Entry entry = entries.get(name);
+    return entry == null ? -1 : entry.lastBuildMillis;
+  }
+
+  /**
+   * "views cached=3 hit=10 miss=3 evicted=0 bytes=1.2MB" の形式で計測値を返す
+   */
+  public String formatStats() {
+    return String.format(Locale.ROOT, "views cached=%d hit=%d miss=%d evicted=%d bytes=%.1fMB",
+        cache.size(), hitCount, missCount, evictionCount, getCachedBytes() / (1024.0 * 1024.0));
+  }
+}
@@ -0,0 +1,316 @@
+package undecorated;
+
+import java.awt.*;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+
+/**
+ * 装飾なしウィンドウの枠（リサイズ領域・タイトルバー・タイトルバーのボタン）のマウス操作を
+ * まとめて扱うディスパッチャー
+ *
+ * Toolkit の AWTEventListener としてウィンドウ内のすべてのマウスイベントを 1 回ずつ受け取り、
+ * 事前に計算した領域の表で当たり判定をして、移動・リサイズのエンジンへ直接渡す
+ * コンポーネントごとのリスナーでは、リサイズ枠の上にある子コンポーネントがイベントを先に
+ * 受け取ってしまい、枠の一部が反応しないことがあった
+ *
+ * 領域の表はウィンドウ座標の矩形で、ウィンドウやタイトルバー・ボタンの大きさが変わった時にだけ作り直す
+ * 優先順位はリサイズ領域 > ボタン > タイトルバー（ボタンの上ではドラッグを始めない）
+ * 枠の領域のイベントは、EdtMonitor に操作の種類（移動・リサイズ・ボタン）で分類させる
+ * （タイトルバーのドラッグもフレームが受けるので、送り先からは区別できない）
+ * EDT からのみ使うこと
+ */
+public class WindowChromeDispatcher implements AWTEventListener {
+  public static final int REGION_CLIENT = 0;
+  public static final int REGION_RESIZE = 1;
+  public static final int REGION_CAPTION = 2;
+  public static final int REGION_BUTTON = 3;
+
+  private static final int MODE_NONE = 0;
+  private static final int MODE_MOVE = 1;
+  private static final int MODE_RESIZE = 2;
+
+  // 矩形ごとに 5 つずつ: 種類, left, top, right, bottom（ウィンドウ座標）
+  private static final int STRIDE = 5;
+
+  private final JFrame frame;
+  private final int border;
+  private final FrameDragEngine dragEngine;
+  private final FrameResizeEngine resizeEngine;
+
+  private JComponent captionComponent;
+  private JComponent[] buttons = new JComponent[0];
+  private int[] regions = new int[0];
+  private boolean regionsValid;
+  private final ComponentAdapter layoutListener = new ComponentAdapter() {
+    @Override
+    public void componentResized(ComponentEvent e) {
+      regionsValid = false;
+    }
+
+    @Override
+    public void componentMoved(ComponentEvent e) {
+      // ウィンドウの移動では表は変わらない（ウィンドウ座標なので）
+      if (e.getComponent() != frame) {
+        regionsValid = false;
+      }
+    }
+  };
+
+  private int mode = MODE_NONE;
+  private int cursor = Cursor.DEFAULT_CURSOR;
+
+  // 計測値
+  private long eventCount;
+  private long routedCount;
+
+  /**
+   * @param frame 対象のウィンドウ
+   * @param border リサイズ領域の幅（ピクセル）
+   * @param topology モニターの配置（null なら端への吸着と画面外の制限を行わない）
+   */
+  public WindowChromeDispatcher(JFrame frame, int border, ScreenTopology topology) {
+    this.frame = frame;
+    this.border = border;
+    this.dragEngine = new FrameDragEngine(frame, topology);
+    this.resizeEngine = new FrameResizeEngine(frame, topology);
+    frame.addComponentListener(layoutListener);
+  }
+
+  /**
+   * ドラッグで移動できるタイトルバーを設定する
+   * @param caption タイトルバー
+   * @param captionButtons タイトルバー上のボタン（押してもドラッグを始めない）
+   */
+  public void setCaption(JComponent caption, JComponent... captionButtons) {
+    if (captionComponent != null) {
+      captionComponent.removeComponentListener(layoutListener);
+    }
+    for (JComponent button : buttons) {
+      button.removeComponentListener(layoutListener);
+    }
+    captionComponent = caption;
+    buttons = captionButtons.clone();
+    caption.addComponentListener(layoutListener);
+    for (JComponent button : buttons) {
+      button.addComponentListener(layoutListener);
+    }
+    regionsValid = false;
+  }
+
+  /**
+   * マウスイベントの受け取りを始める
+   */
+  public void install() {
+    Toolkit.getDefaultToolkit().addAWTEventListener(this,
+        AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK);
+  }
+
+  public void uninstall() {
+    Toolkit.getDefaultToolkit().removeAWTEventListener(this);
+  }
+
+  public FrameDragEngine getDragEngine() {
+    return dragEngine;
+  }
+
+  public FrameResizeEngine getResizeEngine() {
+    return resizeEngine;
+  }
+
+  /** 受け取ったこのウィンドウのマウスイベントの数 */
+  public long getEventCount() {
+    return eventCount;
+  }
+
+  /** 移動・リサイズのエンジンへ渡したイベントの数 */
+  public long getRoutedCount() {
+    return routedCount;
+  }
+
+  @Override
+  public void eventDispatched(AWTEvent event) {
+    if (!(event instanceof MouseEvent)) return;
+    MouseEvent e = (MouseEvent) event;
+    if (mode == MODE_NONE && !isInFrame(e.getComponent())) return;
+    eventCount++;
+    int screenX = e.getXOnScreen();
+    int screenY = e.getYOnScreen();
+    if (EdtMonitor.getInstance() != null) {
+      int category = monitorCategory(screenX - frame.getX(), screenY - frame.getY());
+      if (category >= 0) {
+        EdtMonitor.tagCurrentEvent(category);
+      }
+    }
+
+    switch (e.getID()) {
+      case MouseEvent.MOUSE_MOVED:
+        updateCursor(hitEdges(screenX - frame.getX(), screenY - frame.getY()));
+        break;
+      case MouseEvent.MOUSE_PRESSED:
+        if (e.getButton() == MouseEvent.BUTTON1) {
+          pressed(e, screenX, screenY);
+        }
+        break;
+      case MouseEvent.MOUSE_DRAGGED:
+        if (mode == MODE_MOVE) {
+          dragEngine.drag(screenX, screenY);
+          routed(e);
+        } else if (mode == MODE_RESIZE) {
+          resizeEngine.drag(screenX, screenY);
+          routed(e);
+        }
+        break;
+      case MouseEvent.MOUSE_RELEASED:
+        if (e.getButton() == MouseEvent.BUTTON1) {
+          released(e, screenX, screenY);
+        }
+        break;
+      case MouseEvent.MOUSE_CLICKED:
+        if (e.getButton() == MouseEvent.BUTTON1 && e.getClickCount() == 2
+            && hitTest(screenX - frame.getX(), screenY - frame.getY()) == REGION_CAPTION) {
+          toggleMaximized();
+          e.consume();
+        }
+        break;
+      case MouseEvent.MOUSE_EXITED:
+        // ウィンドウの外に出た時だけカーソルを戻す（リサイズ中は維持する）
+        int x = screenX - frame.getX();
+        int y = screenY - frame.getY();
+        if (mode == MODE_NONE && (x < 0 || y < 0 || x >= frame.getWidth() || y >= frame.getHeight())) {
+          updateCursor(FrameResizeEngine.EDGE_NONE);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void pressed(MouseEvent e, int screenX, int screenY) {
+    int x = screenX - frame.getX();
+    int y = screenY - frame.getY();
+    int edges = hitEdges(x, y);
+    if (edges != FrameResizeEngine.EDGE_NONE) {
+      updateCursor(edges);
+      resizeEngine.begin(edges, screenX, screenY);
+      mode = MODE_RESIZE;
+      routed(e);
+    } else if (hitTest(x, y) == REGION_CAPTION) {
+      dragEngine.begin(screenX, screenY);
+      mode = MODE_MOVE;
+      routed(e);
+    }
+  }
+
+  private void released(MouseEvent e, int screenX, int screenY) {
+    if (mode == MODE_MOVE) {
+      dragEngine.end(screenX, screenY);
+      routed(e);
+    } else if (mode == MODE_RESIZE) {
+      resizeEngine.end(screenX, screenY);
+      routed(e);
+      updateCursor(hitEdges(screenX - frame.getX(), screenY - frame.getY()));
+    }
+    mode = MODE_NONE;
+  }
+
+  // イベントの EdtMonitor での分類（操作中はその操作、そうでなければ点のある領域。枠の外なら -1）
+  private int monitorCategory(int x, int y) {
+    if (mode == MODE_MOVE) return EdtMonitor.CATEGORY_DRAG;
+    if (mode == MODE_RESIZE) return EdtMonitor.CATEGORY_RESIZE;
+    switch (hitTest(x, y)) {
+      case REGION_RESIZE:
+        return EdtMonitor.CATEGORY_RESIZE;
+      case REGION_CAPTION:
+        return EdtMonitor.CATEGORY_DRAG;
+      case REGION_BUTTON:
+        return EdtMonitor.CATEGORY_INPUT;
+      default:
+        return -1;
+    }
+  }
+
+  // 枠の操作として扱ったイベントは、下のコンポーネントが処理しないよう消費する
+  private void routed(MouseEvent e) {
+    routedCount++;
+    e.consume();
+  }
+
+  /**
+   * ウィンドウ座標の点がどの領域にあるかを返す（REGION_*）
+   */
+  public int hitTest(int x, int y) {
+    if (hitEdges(x, y) != FrameResizeEngine.EDGE_NONE) return REGION_RESIZE;
+    int[] table = regions();
+    for (int i = 0; i < table.length; i += STRIDE) {
+      if (x >= table[i + 1] && y >= table[i + 2] && x < table[i + 3] && y < table[i + 4]) {
+        return table[i];
+      }
+    }
+    return REGION_CLIENT;
+  }
+
+  /**
+   * ウィンドウ座標の点があるリサイズ領域の辺（FrameResizeEngine.EDGE_*）を返す
+   * 最大化中はリサイズしない
+   */
+  public int hitEdges(int x, int y) {
+    if ((frame.getExtendedState() & Frame.MAXIMIZED_BOTH) != 0) return FrameResizeEngine.EDGE_NONE;
+    int width = frame.getWidth();
+    int height = frame.getHeight();
+    if (x < 0 || y < 0 || x >= width || y >= height) return FrameResizeEngine.EDGE_NONE;
+    return FrameResizeEngine.detectEdges(x, y, width, height, border);
+  }
+
+  private void updateCursor(int edges) {
+    int newCursor = FrameResizeEngine.cursorFor(edges);
+    if (newCursor != cursor) {
+      cursor = newCursor;
+      frame.setCursor(Cursor.getPredefinedCursor(cursor));
+    }
+  }
+
+  private void toggleMaximized() {
+    if ((frame.getExtendedState() & Frame.MAXIMIZED_BOTH) == 0) {
+      frame.setExtendedState(frame.getExtendedState() | Frame.MAXIMIZED_BOTH);
+    } else {
+      frame.setExtendedState(frame.getExtendedState() & ~Frame.MAXIMIZED_BOTH);
+    }
+  }
+
+  private boolean isInFrame(Component component) {
+    return component == frame || (component != null && SwingUtilities.getWindowAncestor(component) == frame);
+  }
+
+  // 領域の表（ボタン、タイトルバーの順）。無効になっていれば作り直す
+  private int[] regions() {
+    if (regionsValid) return regions;
+    int[] table = new int[(buttons.length + 1) * STRIDE];
+    int count = 0;
+    for (JComponent button : buttons) {
+      count = addRegion(table, count, REGION_BUTTON, button);
+    }
+    if (captionComponent != null) {
+      count = addRegion(table, count, REGION_CAPTION, captionComponent);
+    }
+    regions = Arrays.copyOf(table, count);
+    regionsValid = true;
+    return regions;
+  }
+
+  private int addRegion(int[] table, int count, int kind, JComponent component) {
+    if (component.getParent() == null) return count;
+    Rectangle bounds = SwingUtilities.convertRectangle(component.getParent(), component.getBounds(), frame);
+    table[count] = kind;
+    table[count + 1] = bounds.x;
+    table[count + 2] = bounds.y;
+    table[count + 3] = bounds.x + bounds.width;
+    table[count + 4] = bounds.y + bounds.height;
+    return count + STRIDE;
+  }
+}
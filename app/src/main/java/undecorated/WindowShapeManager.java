@@ -0,0 +1,177 @@
+package undecorated;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.geom.RoundRectangle2D;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.SwingUtilities;
+
+/**
+ * ウィンドウの丸い角（setShape）をまとめて管理するクラス
+ * X11 では setShape のたびにネイティブのウィンドウ領域が作り直されるため、
+ * 形状をサイズと角の大きさでキャッシュし、連続したサイズ変更は 1 回にまとめ、
+ * リサイズドラッグ中は角を四角にしたまま更新を止めて、離した時に一度だけ適用する
+ */
+public class WindowShapeManager extends ComponentAdapter implements FrameResizeEngine.ResizeStateListener {
+  private static final int CACHE_SIZE = 8;
+
+  private final Window window;
+  private int arcSize;
+
+  private final Map<Long, Shape> shapeCache = new LinkedHashMap<Long, Shape>(16, 0.75f, true) {
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<Long, Shape> eldest) {
+      return size() > CACHE_SIZE;
+    }
+  };
+
+  private boolean resizing;
+  private boolean updateScheduled;
+  // 現在ネイティブに設定されている形状のキー（-1 なら形状なし）
+  private long appliedKey = -1;
+
+  // 計測値
+  private long requestCount;
+  private long nativeUpdateCount;
+  private long skippedWhileResizing;
+  private long skippedUnchanged;
+  private long coalescedCount;
+  private long cacheHits;
+  private long cacheMisses;
+
+  public WindowShapeManager(Window window, int arcSize) {
+    this.window = window;
+    this.arcSize = arcSize;
+  }
+
+  /**
+   * 現在のサイズで形状を適用し、以降のサイズ変更を監視する
+   */
+  public void install() {
+    window.addComponentListener(this);
+    applyNow();
+  }
+
+  public int getArcSize() {
+    return arcSize;
+  }
+
+  public void setArcSize(int arcSize) {
+    this.arcSize = arcSize;
+    requestUpdate();
+  }
+
+  @Override
+  public void componentResized(ComponentEvent e) {
+    requestUpdate();
+  }
+
+  /**
+   * 形状の更新を要求する
+   * 実際の更新は EDT の次のターンで 1 回だけ行う
+   */
+  public void requestUpdate() {
+    requestCount++;
+    if (resizing) {
+      skippedWhileResizing++;
+      return;
+    }
+    if (updateScheduled) {
+      coalescedCount++;
+      return;
+    }
+    updateScheduled = true;
+    SwingUtilities.invokeLater(this::applyNow);
+  }
+
+  @Override
+  public void resizeStarted() {
+    resizing = true;
+    // 古い形状のままだとウィンドウが切り取られるため、ドラッグ中は四角い角にする
+    if (appliedKey != -1) {
+      window.setShape(null);
+      appliedKey = -1;
+      nativeUpdateCount++;
+    }
+  }
+
+  @Override
+  public void resizeFinished() {
+    resizing = false;
+    applyNow();
+  }
+
+  private void applyNow() {
+    updateScheduled = false;
+    if (resizing) return;
+    int width = window.getWidth();
+    int height = window.getHeight();
+    long key = shapeKey(width, height, arcSize);
+    if (key == appliedKey) {
+      skippedUnchanged++;
+      return;
+    }
+    window.setShape(shapeFor(key, width, height));
+    appliedKey = key;
+    nativeUpdateCount++;
+  }
+
+  private Shape shapeFor(long key, int width, int height) {
+    Shape shape = shapeCache.get(key);
+    if (shape != null) {
+      cacheHits++;
+      return shape;
+    }
+    cacheMisses++;
+    shape = createShape(width, height, arcSize);
+    shapeCache.put(key, shape);
+    return shape;
+  }
+
+  /**
+   * 指定サイズの角丸形状を作成する
+   */
+  public static Shape createShape(int width, int height, int arcSize) {
+    return new RoundRectangle2D.Double(0, 0, width, height, arcSize, arcSize);
+  }
+
+  private static long shapeKey(int width, int height, int arcSize) {
+    return ((long) width << 40) | ((long) (height & 0xFFFFFF) << 16) | (arcSize & 0xFFFF);
+  }
+
+  /** 形状の更新が要求された回数 */
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  /** 実際に setShape を呼んだ回数 */
+  public long getNativeUpdateCount() {
+    return nativeUpdateCount;
+  }
+
+  /** 要求に対して省略できた setShape の回数 */
+  public long getAvoidedUpdateCount() {
+    return Math.max(0, requestCount - nativeUpdateCount);
+  }
+
+  public long getSkippedWhileResizing() {
+    return skippedWhileResizing;
+  }
+
+  public long getSkippedUnchanged() {
+    return skippedUnchanged;
+  }
+
+  public long getCoalescedCount() {
+    return coalescedCount;
+  }
+
+  public long getCacheHits() {
+    return cacheHits;
+  }
+
+  public long getCacheMisses() {
+    return cacheMisses;
+  }
+}
@@ -0,0 +1,100 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.Test;
+
+class BulkEditTest {
+  private final List<String> messages = new ArrayList<>();
+
+  @Test
+  void commitNowAppliesEditsAndRegistersNewStatus() {
+    CustomerTableModel model = model();
+    BulkEdit edit = model.beginBulkEdit(messages::add);
+    edit.set(0, CustomerTableModel.COL_STATUS, "仮登録");
+    edit.set(2, CustomerTableModel.COL_NAME, "高橋");
+    edit.set(1, CustomerTableModel.COL_REGISTERED, "2024/02/29");
+    edit.commitNow();
+
+    assertEquals("仮登録", model.getValueAt(0, CustomerTableModel.COL_STATUS));
+    assertEquals("高橋", model.getValueAt(2, CustomerTableModel.COL_NAME));
+    assertEquals("2024-02-29", model.getValueAt(1, CustomerTableModel.COL_REGISTERED));
+    assertEquals(3, model.getStatusColumn().getDictionarySize());
+    // 差し替えた辞書に登録されているので、以降の追加でも同じコードになる
+    model.addRow("4", "伊藤", "", "", "", "", "", "仮登録");
+    assertEquals(model.getStatusColumn().code(0), model.getStatusColumn().code(3));
+  }
+
+  @Test
+  void rollbackDiscardsPendingEdits() {
+    CustomerTableModel model = model();
+    BulkEdit edit = model.beginBulkEdit(messages::add);
+    edit.set(0, CustomerTableModel.COL_STATUS, "仮登録");
+    edit.rollback();
+    edit.commitNow();
+
+    assertEquals("有効", model.getValueAt(0, CustomerTableModel.COL_STATUS));
+    assertEquals(2, model.getStatusColumn().getDictionarySize());
+  }
+
+  @Test
+  void failedCommitLeavesModelAndDictionaryUnchanged() {
+    CustomerTableModel model = model();
+    BulkEdit edit = model.beginBulkEdit(messages::add);
+    edit.set(0, CustomerTableModel.COL_STATUS, "仮登録");
+    edit.set(99, CustomerTableModel.COL_STATUS, "仮登録");
+    assertThrows(IndexOutOfBoundsException.class, edit::commitNow);
+
+    assertEquals("有効", model.getValueAt(0, CustomerTableModel.COL_STATUS));
+    assertEquals(2, model.getStatusColumn().getDictionarySize());
+  }
+
+  @Test
+  void cancelledCommitDoesNotTouchDictionary() throws Exception {
+    CustomerTableModel model = model();
+    BulkEdit[] edit = new BulkEdit[1];
+    int[] sizeAfterCommit = new int[1];
+    SwingUtilities.invokeAndWait(() -> {
+      edit[0] = model.beginBulkEdit(messages::add);
+      edit[0].set(0, CustomerTableModel.COL_STATUS, "仮登録");
+      edit[0].commit();
+      sizeAfterCommit[0] = model.getStatusColumn().getDictionarySize();
+      edit[0].rollback();
+    });
+    assertThrows(CancellationException.class, () -> edit[0].get());
+    // done() が EDT で終わるのを待つ
+    SwingUtilities.invokeAndWait(() -> { });
+
+    assertEquals(2, sizeAfterCommit[0]);
+    assertEquals(2, model.getStatusColumn().getDictionarySize());
+    assertEquals("有効", model.getValueAt(0, CustomerTableModel.COL_STATUS));
+  }
+
+  @Test
+  void rejectsUnparseableDates() {
+    CustomerTableModel model = model();
+    BulkEdit edit = model.beginBulkEdit(messages::add);
+    assertThrows(IllegalArgumentException.class, () -> edit.set(0, CustomerTableModel.COL_REGISTERED, "2023-02-29"));
+    assertThrows(IllegalArgumentException.class, () -> edit.set(0, CustomerTableModel.COL_LAST_PURCHASE, "昨日"));
+    // 空は日付を消す指定として受け付ける
+    edit.set(0, CustomerTableModel.COL_REGISTERED, "");
+    edit.set(0, CustomerTableModel.COL_NAME, "昨日");
+    assertEquals(2, edit.getEditCount());
+    edit.commitNow();
+    assertEquals("", model.getValueAt(0, CustomerTableModel.COL_REGISTERED));
+    assertTrue(messages.isEmpty());
+  }
+
+  private static CustomerTableModel model() {
+    return new CustomerTableModel(new Object[][] {
+        { "1", "山田", "株式会社A", "03-0000-0001", "a@example.com", "2024-01-10", "2024-03-01", "有効" },
+        { "2", "佐藤", "株式会社B", "03-0000-0002", "b@example.com", "2023-05-20", "", "休止" },
+        { "3", "田中", "株式会社C", "03-0000-0003", "c@example.com", "", "", "有効" } });
+  }
+}
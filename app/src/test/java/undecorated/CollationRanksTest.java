@@ -0,0 +1,77 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.text.Collator;
+import java.util.Locale;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class CollationRanksTest {
+  // ASCII の記号・大文字小文字と、照合キーで扱う仮名・漢字・全角文字を混ぜる
+  private static final String ALPHABET = " -.@_09AZaz~'abcXYZ";
+  private static final String OTHER = "あいアイ亜株式会社ＡＢａｂ１２ーがか";
+
+  private final Collator collator = Collator.getInstance(Locale.JAPANESE);
+
+  @Test
+  void ranksFollowCollatorOrder() {
+    Random random = new Random(42);
+    for (int round = 0; round < 20; round++) {
+      String[] values = new String[300];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = randomValue(random);
+      }
+      int[] ranks = new CollationRanks(collator).rank(values);
+      for (int i = 0; i < values.length; i++) {
+        for (int j = 0; j < values.length; j++) {
+          assertEquals(Integer.signum(collator.compare(values[i], values[j])),
+              Integer.signum(Integer.compare(ranks[i], ranks[j])), values[i] + " / " + values[j]);
+        }
+      }
+    }
+  }
+
+  @Test
+  void ranksAreDense() {
+    int[] ranks = new CollationRanks(collator).rank(new String[] { "b", "a", "B", "a", "あ", "" });
+    // 空文字 < a < b < B < あ（照合上等しい a は同じ順位）
+    assertEquals(1, ranks[1]);
+    assertEquals(ranks[1], ranks[3]);
+    assertEquals(0, ranks[5]);
+    assertEquals(4, ranks[4]);
+  }
+
+  @Test
+  void compareMatchesCollator() {
+    CollationRanks ranks = new CollationRanks(collator);
+    Random random = new Random(7);
+    for (int i = 0; i < 20_000; i++) {
+      String a = randomValue(random);
+      String b = randomValue(random);
+      assertEquals(Integer.signum(collator.compare(a, b)), Integer.signum(ranks.compare(a, b)), a + " / " + b);
+    }
+  }
+
+  @Test
+  void handlesOnlyOneKindOfValue() {
+    assertEquals(0, new CollationRanks(collator).rank(new String[0]).length);
+    int[] ascii = new CollationRanks(collator).rank(new String[] { "c", "a", "b" });
+    assertEquals(2, ascii[0]);
+    assertEquals(0, ascii[1]);
+    int[] other = new CollationRanks(collator).rank(new String[] { "う", "あ", "い" });
+    assertEquals(2, other[0]);
+    assertEquals(0, other[1]);
+  }
+
+  private static String randomValue(Random random) {
+    int length = random.nextInt(5);
+    boolean ascii = random.nextInt(3) != 0;
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < length; i++) {
+      String source = ascii || random.nextInt(2) == 0 ? ALPHABET : OTHER;
+      builder.append(source.charAt(random.nextInt(source.length())));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,65 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class DateColumnTest {
+  @Test
+  void parsesBothSeparators() {
+    int expected = (int) LocalDate.of(2024, 3, 15).toEpochDay();
+    assertEquals(expected, DateColumn.parse("2024-03-15"));
+    assertEquals(expected, DateColumn.parse("2024/03/15"));
+  }
+
+  @Test
+  void acceptsLeapDays() {
+    assertEquals((int) LocalDate.of(2024, 2, 29).toEpochDay(), DateColumn.parse("2024-02-29"));
+    assertEquals((int) LocalDate.of(2000, 2, 29).toEpochDay(), DateColumn.parse("2000-02-29"));
+  }
+
+  @Test
+  void rejectsImpossibleDates() {
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-02-30"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2023-02-29"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("1900-02-29"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-04-31"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-13-01"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-00-10"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-01-00"));
+  }
+
+  @Test
+  void rejectsMalformedValues() {
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse(null));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse(""));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-3-15"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-03/15"));
+    assertEquals(DateColumn.NULL_DAY, DateColumn.parse("2024-0a-15"));
+  }
+
+  @Test
+  void matchesJavaTimeForEveryDayOfFourCenturies() {
+    LocalDate end = LocalDate.of(2400, 12, 31);
+    for (LocalDate date = LocalDate.of(1800, 1, 1); !date.isAfter(end); date = date.plusDays(1)) {
+      int epochDay = (int) date.toEpochDay();
+      assertEquals(epochDay, DateColumn.parse(date.toString()));
+      assertEquals(date.toString(), DateColumn.format(epochDay));
+      int packed = DateColumn.fromEpochDay(epochDay);
+      assertEquals(date.getYear(), packed >>> 9);
+      assertEquals(date.getMonthValue(), (packed >>> 5) & 0xF);
+      assertEquals(date.getDayOfMonth(), packed & 0x1F);
+    }
+  }
+
+  @Test
+  void columnStoresInvalidDatesAsEmpty() {
+    DateColumn column = new DateColumn();
+    column.append("2023-02-29");
+    column.append("2023-02-28");
+    assertEquals(DateColumn.NULL_DAY, column.getDay(0));
+    assertEquals("", column.get(0));
+    assertEquals("2023-02-28", column.get(1));
+  }
+}
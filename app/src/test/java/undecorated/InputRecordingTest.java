@@ -0,0 +1,85 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class InputRecordingTest {
+  @Test
+  void randomEventsRoundTrip() throws IOException {
+    Random random = new Random(23);
+    InputRecording recording = new InputRecording(new Rectangle(-1920, 40, 1200, 800));
+    long time = 0;
+    for (int i = 0; i < 10_000; i++) {
+      // 小さな差（1 バイト）から大きな差（複数バイト）まで、負の向きも含める
+      int range = 1 << random.nextInt(20);
+      time += random.nextInt(range);
+      recording.add(MouseEvent.MOUSE_FIRST + random.nextInt(MouseEvent.MOUSE_LAST - MouseEvent.MOUSE_FIRST + 1),
+          random.nextInt(4), random.nextInt(4), random.nextInt(),
+          random.nextInt(2 * range) - range - 1920, random.nextInt(2 * range) - range, time);
+    }
+    assertSameEvents(recording, roundTrip(recording));
+  }
+
+  @Test
+  void extremeValuesRoundTrip() throws IOException {
+    InputRecording recording = new InputRecording(new Rectangle(0, 0, 100, 100));
+    recording.add(MouseEvent.MOUSE_PRESSED, MouseEvent.BUTTON1, 1, Integer.MIN_VALUE,
+        Integer.MAX_VALUE, Integer.MIN_VALUE, 0);
+    recording.add(MouseEvent.MOUSE_DRAGGED, MouseEvent.BUTTON1, 0, -1,
+        Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE / 2);
+    recording.add(MouseEvent.MOUSE_RELEASED, MouseEvent.BUTTON1, 1, 0, 0, 0, Long.MAX_VALUE);
+    assertSameEvents(recording, roundTrip(recording));
+  }
+
+  @Test
+  void synthesizedDragRoundTrips() throws IOException {
+    InputRecording recording = InputRecording.synthesizeDrag(new Rectangle(100, 100, 1200, 800), 250, 8_000);
+    InputRecording read = roundTrip(recording);
+    assertSameEvents(recording, read);
+    assertEquals(recording.getDurationMicros(), read.getDurationMicros());
+  }
+
+  @Test
+  void truncatedOrForeignDataIsRejected() throws IOException {
+    InputRecording recording = InputRecording.synthesizeResize(new Rectangle(0, 0, 800, 600), 10, 8_000);
+    byte[] bytes = bytesOf(recording);
+    byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+    assertThrows(IOException.class, () -> InputRecording.readFrom(new ByteArrayInputStream(truncated)));
+    byte[] foreign = bytes.clone();
+    foreign[0] ^= 1;
+    assertThrows(IOException.class, () -> InputRecording.readFrom(new ByteArrayInputStream(foreign)));
+  }
+
+  private static InputRecording roundTrip(InputRecording recording) throws IOException {
+    return InputRecording.readFrom(new ByteArrayInputStream(bytesOf(recording)));
+  }
+
+  private static byte[] bytesOf(InputRecording recording) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    recording.writeTo(out);
+    return out.toByteArray();
+  }
+
+  private static void assertSameEvents(InputRecording expected, InputRecording actual) {
+    assertEquals(expected.getInitialBounds(), actual.getInitialBounds());
+    assertEquals(expected.size(), actual.size());
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.getId(i), actual.getId(i), "id " + i);
+      assertEquals(expected.getButton(i), actual.getButton(i), "button " + i);
+      assertEquals(expected.getClickCount(i), actual.getClickCount(i), "clickCount " + i);
+      assertEquals(expected.getModifiers(i), actual.getModifiers(i), "modifiers " + i);
+      assertEquals(expected.getScreenX(i), actual.getScreenX(i), "screenX " + i);
+      assertEquals(expected.getScreenY(i), actual.getScreenY(i), "screenY " + i);
+      assertEquals(expected.getTimeMicros(i), actual.getTimeMicros(i), "time " + i);
+    }
+  }
+}
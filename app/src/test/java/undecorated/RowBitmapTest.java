@@ -0,0 +1,129 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.BitSet;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class RowBitmapTest {
+  private static final int CHUNK = 1 << 16;
+  // 配列で持つ区間とビットマップで持つ区間の境目を含む、区間ごとの行数
+  private static final int[] CHUNK_SIZES = {
+      0, 1, 100, RowBitmap.ARRAY_MAX - 1, RowBitmap.ARRAY_MAX, RowBitmap.ARRAY_MAX + 1, 20_000, CHUNK - 1, CHUNK };
+
+  @Test
+  void buildsSameRowsAsBitSet() {
+    Random random = new Random(25);
+    for (int round = 0; round < 50; round++) {
+      BitSet expected = randomRows(random);
+      assertSameRows(expected, RowBitmap.fromBitSet(expected));
+      assertSameRows(expected, added(expected));
+    }
+  }
+
+  @Test
+  void rangeMatchesBitSet() {
+    for (int rowCount : new int[] {
+        0, 1, 63, 64, 65, RowBitmap.ARRAY_MAX, RowBitmap.ARRAY_MAX + 1, CHUNK - 1, CHUNK, CHUNK + 1, 3 * CHUNK + 4097 }) {
+      BitSet expected = new BitSet();
+      expected.set(0, rowCount);
+      assertSameRows(expected, RowBitmap.range(rowCount));
+    }
+  }
+
+  @Test
+  void operationsMatchBitSet() {
+    Random random = new Random(2025);
+    for (int round = 0; round < 200; round++) {
+      BitSet a = randomRows(random);
+      BitSet b = randomRows(random);
+      RowBitmap x = random.nextBoolean() ? RowBitmap.fromBitSet(a) : added(a);
+      RowBitmap y = random.nextBoolean() ? RowBitmap.fromBitSet(b) : added(b);
+
+      BitSet and = (BitSet) a.clone();
+      and.and(b);
+      assertSameRows(and, x.and(y));
+      assertEquals(and.cardinality(), x.andCardinality(y));
+      assertEquals(and.cardinality(), y.andCardinality(x));
+
+      BitSet or = (BitSet) a.clone();
+      or.or(b);
+      assertSameRows(or, x.or(y));
+
+      BitSet andNot = (BitSet) a.clone();
+      andNot.andNot(b);
+      assertSameRows(andNot, x.andNot(y));
+
+      // 演算は引数を書き換えない
+      assertSameRows(a, x);
+      assertSameRows(b, y);
+    }
+  }
+
+  @Test
+  void unionMatchesBitSet() {
+    Random random = new Random(7);
+    for (int round = 0; round < 50; round++) {
+      int count = 1 + random.nextInt(6);
+      RowBitmap[] bitmaps = new RowBitmap[count];
+      BitSet expected = new BitSet();
+      for (int i = 0; i < count; i++) {
+        BitSet rows = randomRows(random);
+        expected.or(rows);
+        bitmaps[i] = RowBitmap.fromBitSet(rows);
+      }
+      assertSameRows(expected, RowBitmap.union(bitmaps));
+    }
+  }
+
+  // 区間ごとに行数を選んだ行の集合（空の区間、配列の区間、ビットマップの区間が混ざる）
+  private static BitSet randomRows(Random random) {
+    BitSet rows = new BitSet();
+    int chunks = 1 + random.nextInt(5);
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      int count = CHUNK_SIZES[random.nextInt(CHUNK_SIZES.length)];
+      int base = chunk * CHUNK;
+      if (count * 2 > CHUNK) {
+        // 多い場合は全体を立ててから消す
+        rows.set(base, base + CHUNK);
+        for (int removed = CHUNK - count; removed > 0; ) {
+          int row = base + random.nextInt(CHUNK);
+          if (rows.get(row)) {
+            rows.clear(row);
+            removed--;
+          }
+        }
+      } else {
+        for (int added = 0; added < count; ) {
+          int row = base + random.nextInt(CHUNK);
+          if (!rows.get(row)) {
+            rows.set(row);
+            added++;
+          }
+        }
+      }
+    }
+    return rows;
+  }
+
+  private static RowBitmap added(BitSet rows) {
+    RowBitmap bitmap = new RowBitmap();
+    for (int row = rows.nextSetBit(0); row >= 0; row = rows.nextSetBit(row + 1)) {
+      bitmap.add(row);
+    }
+    return bitmap;
+  }
+
+  private static void assertSameRows(BitSet expected, RowBitmap actual) {
+    assertEquals(expected, actual.toBitSet());
+    assertArrayEquals(expected.stream().toArray(), actual.toArray());
+    assertEquals(expected.cardinality(), actual.cardinality());
+    assertEquals(expected.isEmpty(), actual.isEmpty());
+    int length = expected.length() + 2;
+    for (int row = Math.max(0, length - 200); row < length; row++) {
+      assertEquals(expected.get(row), actual.contains(row), "row " + row);
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnapshotCacheTest {
+  @TempDir
+  Path directory;
+
+  private final List<String> messages = new ArrayList<>();
+
+  @Test
+  void storedSnapshotLoadsBackWithSameValues() throws IOException {
+    CustomerTableModel model = model();
+    SnapshotCache cache = cache(1 << 20);
+    SnapshotCache.Key key = cache.keyOf(source("a.csv", "id,name\n"));
+    cache.store(key, model.snapshot());
+
+    CustomerTableModel loaded = new CustomerTableModel();
+    loaded.load(cache.load(key));
+    assertEquals(model.getRowCount(), loaded.getRowCount());
+    for (int row = 0; row < model.getRowCount(); row++) {
+      for (int column = 0; column < model.getColumnCount(); column++) {
+        assertEquals(model.getValueAt(row, column), loaded.getValueAt(row, column));
+      }
+    }
+    assertEquals(1, cache.getHitCount());
+    assertTrue(messages.isEmpty());
+  }
+
+  @Test
+  void fileFollowsDocumentedLayout() throws IOException {
+    SnapshotCache cache = cache(1 << 20);
+    Path source = source("b.csv", "id,name\n");
+    SnapshotCache.Key key = cache.keyOf(source);
+    cache.store(key, model().snapshot());
+
+    ByteBuffer in = ByteBuffer.wrap(Files.readAllBytes(snapshotFile()));
+    int size = in.limit();
+    assertEquals(('U' << 24) | ('D' << 16) | ('S' << 8) | 'C', in.getInt());
+    assertEquals(SnapshotCache.VERSION, in.getInt());
+    assertEquals(size, in.getLong());
+    byte[] path = new byte[in.getInt()];
+    in.get(path);
+    assertEquals(source.toAbsolutePath().normalize().toString(), new String(path, StandardCharsets.UTF_8));
+    assertEquals(Files.size(source), in.getLong());
+    assertEquals(Files.getLastModifiedTime(source).toMillis(), in.getLong());
+    assertEquals(key.contentCrc, in.getInt());
+    assertEquals(3, in.getInt());
+
+    CRC32C crc = new CRC32C();
+    crc.update(in.array(), 0, size - 4);
+    assertEquals((int) crc.getValue(), in.getInt(size - 4));
+  }
+
+  @Test
+  void changedContentMissesAndKeepsFile() throws IOException {
+    SnapshotCache cache = cache(1 << 20);
+    Path source = source("c.csv", "id,name\n");
+    cache.store(cache.keyOf(source), model().snapshot());
+    SnapshotCache.Key before = cache.keyOf(source);
+    Files.writeString(source, "id,NAME\n");
+    Files.setLastModifiedTime(source, Files.getLastModifiedTime(snapshotFile()));
+    SnapshotCache.Key after = cache.keyOf(source);
+
+    assertNotEquals(before.contentCrc, after.contentCrc);
+    assertNull(cache.load(after));
+    assertTrue(Files.exists(snapshotFile()));
+    assertEquals(0, cache.getCorruptCount());
+  }
+
+  @Test
+  void corruptSnapshotIsDeleted() throws IOException {
+    SnapshotCache cache = cache(1 << 20);
+    SnapshotCache.Key key = cache.keyOf(source("d.csv", "id\n"));
+    cache.store(key, model().snapshot());
+    Path file = snapshotFile();
+    byte[] bytes = Files.readAllBytes(file);
+    bytes[bytes.length - 10] ^= 0x40;
+    Files.write(file, bytes);
+
+    assertNull(cache.load(key));
+    assertFalse(Files.exists(file));
+    assertEquals(1, cache.getCorruptCount());
+    assertEquals(1, messages.size());
+  }
+
+  @Test
+  void truncatedSnapshotIsDeleted() throws IOException {
+    SnapshotCache cache = cache(1 << 20);
+    SnapshotCache.Key key = cache.keyOf(source("e.csv", "id\n"));
+    cache.store(key, model().snapshot());
+    Path file = snapshotFile();
+    byte[] bytes = Files.readAllBytes(file);
+    Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+    assertNull(cache.load(key));
+    assertFalse(Files.exists(file));
+    assertEquals(1, cache.getCorruptCount());
+  }
+
+  @Test
+  void olderVersionIsReplacedWithoutCountingAsCorrupt() throws IOException {
+    SnapshotCache cache = cache(1 << 20);
+    SnapshotCache.Key key = cache.keyOf(source("f.csv", "id\n"));
+    cache.store(key, model().snapshot());
+    Path file = snapshotFile();
+    byte[] bytes = Files.readAllBytes(file);
+    ByteBuffer.wrap(bytes).putInt(4, SnapshotCache.VERSION + 1);
+    Files.write(file, bytes);
+
+    assertNull(cache.load(key));
+    assertFalse(Files.exists(file));
+    assertEquals(0, cache.getCorruptCount());
+    assertEquals(1, cache.getMissCount());
+  }
+
+  @Test
+  void evictRemovesLeastRecentlyUsedFirst() throws IOException {
+    SnapshotCache probe = cache(1 << 20);
+    SnapshotCache.Key first = probe.keyOf(source("g.csv", "id\n"));
+    probe.store(first, model().snapshot());
+    long size = Files.size(snapshotFile());
+
+    SnapshotCache cache = cache(size + size / 2);
+    SnapshotCache.Key second = cache.keyOf(source("h.csv", "id\n"));
+    cache.store(second, model().snapshot());
+    Files.setLastModifiedTime(snapshotFile(first), FileTime.fromMillis(1_000));
+    cache.evict();
+
+    assertNull(cache.load(first));
+    assertNotNull(cache.load(second));
+  }
+
+  private SnapshotCache cache(long maxBytes) {
+    return new SnapshotCache(directory.resolve("cache"), maxBytes, messages::add);
+  }
+
+  private Path source(String name, String content) throws IOException {
+    Path file = directory.resolve(name);
+    Files.writeString(file, content);
+    return file;
+  }
+
+  // 保存されているスナップショットが 1 つだけの時、そのファイル
+  private Path snapshotFile() throws IOException {
+    try (Stream<Path> files = Files.list(directory.resolve("cache"))) {
+      List<Path> snapshots = files.filter(file -> file.toString().endsWith(".snapshot")).toList();
+      assertEquals(1, snapshots.size());
+      return snapshots.get(0);
+    }
+  }
+
+  // キーのパスを含むスナップショットのファイル
+  private Path snapshotFile(SnapshotCache.Key key) throws IOException {
+    try (Stream<Path> files = Files.list(directory.resolve("cache"))) {
+      for (Path file : files.filter(f -> f.toString().endsWith(".snapshot")).toList()) {
+        byte[] bytes = Files.readAllBytes(file);
+        if (new String(bytes, StandardCharsets.UTF_8).contains(key.path)) {
+          return file;
+        }
+      }
+    }
+    throw new AssertionError("スナップショットがありません: " + key.path);
+  }
+
+  private static CustomerTableModel model() {
+    return new CustomerTableModel(new Object[][] {
+        { "1", "山田", "株式会社A", "03-0000-0001", "a@example.com", "2024-01-10", "2024-03-01", "有効" },
+        { "2", "佐藤", "", "03-0000-0002", "b@example.com", "2023-05-20", "", "休止" },
+        { "3", "Smith", "Acme", "", "", "", "2024/02/29", "" } });
+  }
+}
@@ -0,0 +1,148 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import org.junit.jupiter.api.Test;
+
+class SortIndexTest {
+  private static final String[] NAMES = { "山田", "佐藤", "Smith", "smith", "田中", "ｱｲ", "アイ", "", "Ōno" };
+  private static final String[] COMPANIES = { "株式会社A", "B社", "b社", "Acme", "acme", "" };
+  private static final String[] STATUSES = { "有効", "休止", "解約", "" };
+
+  private final Collator collator = Collator.getInstance(Locale.JAPANESE);
+
+  @Test
+  void returnsNullWithoutActiveKeys() {
+    SortIndex index = new SortIndex(model(new Random(1), 10, false));
+    assertNull(index.sort(List.of()));
+    assertNull(index.sort(List.of(new RowSorter.SortKey(1, SortOrder.UNSORTED))));
+  }
+
+  @Test
+  void singleColumnMatchesStableSort() {
+    CustomerTableModel model = model(new Random(2), 2_000, false);
+    SortIndex index = new SortIndex(model);
+    for (int column = 0; column < model.getColumnCount(); column++) {
+      for (SortOrder order : new SortOrder[] { SortOrder.ASCENDING, SortOrder.DESCENDING }) {
+        List<RowSorter.SortKey> keys = List.of(new RowSorter.SortKey(column, order));
+        assertArrayEquals(expected(model, keys), index.sort(keys), "column " + column + " " + order);
+      }
+    }
+  }
+
+  @Test
+  void mixedIdsSortNumbersFirst() {
+    CustomerTableModel model = model(new Random(3), 1_000, true);
+    List<RowSorter.SortKey> keys = List.of(new RowSorter.SortKey(CustomerTableModel.COL_ID, SortOrder.ASCENDING));
+    assertArrayEquals(expected(model, keys), new SortIndex(model).sort(keys));
+  }
+
+  @Test
+  void multipleColumnsMatchStableSort() {
+    CustomerTableModel model = model(new Random(4), 2_000, false);
+    SortIndex index = new SortIndex(model);
+    List<RowSorter.SortKey> keys = List.of(
+        new RowSorter.SortKey(CustomerTableModel.COL_STATUS, SortOrder.ASCENDING),
+        new RowSorter.SortKey(CustomerTableModel.COL_COMPANY, SortOrder.DESCENDING),
+        new RowSorter.SortKey(CustomerTableModel.COL_REGISTERED, SortOrder.ASCENDING));
+    assertArrayEquals(expected(model, keys), index.sort(keys));
+  }
+
+  @Test
+  void appendedRowsAreMergedIntoCachedOrder() {
+    Random random = new Random(5);
+    CustomerTableModel model = model(random, 5_000, false);
+    SortIndex index = new SortIndex(model);
+    List<RowSorter.SortKey> keys = List.of(new RowSorter.SortKey(CustomerTableModel.COL_NAME, SortOrder.ASCENDING));
+    index.sort(keys);
+    for (int i = 0; i < 20; i++) {
+      model.appendRow(row(random, model.getRowCount(), false));
+    }
+    assertArrayEquals(expected(model, keys), index.sort(keys));
+    assertTrue(index.getIncrementalCount() > 0);
+  }
+
+  @Test
+  void newStatusValueRebuildsRanks() {
+    CustomerTableModel model = model(new Random(6), 500, false);
+    SortIndex index = new SortIndex(model);
+    List<RowSorter.SortKey> keys = List.of(new RowSorter.SortKey(CustomerTableModel.COL_STATUS, SortOrder.ASCENDING));
+    index.sort(keys);
+    model.appendRow(new Object[] { "1", "追加", "", "", "", "", "", "仮登録" });
+    assertArrayEquals(expected(model, keys), index.sort(keys));
+  }
+
+  // List.sort は安定なので、同じ値の行はモデルの行の順に並ぶ
+  private int[] expected(CustomerTableModel model, List<RowSorter.SortKey> keys) {
+    Comparator<Integer> comparator = (a, b) -> 0;
+    for (RowSorter.SortKey key : keys) {
+      Comparator<Integer> column = columnComparator(model, key.getColumn());
+      comparator = comparator.thenComparing(key.getSortOrder() == SortOrder.DESCENDING ? column.reversed() : column);
+    }
+    List<Integer> rows = new ArrayList<>();
+    for (int row = 0; row < model.getRowCount(); row++) {
+      rows.add(row);
+    }
+    rows.sort(comparator);
+    return rows.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  private Comparator<Integer> columnComparator(CustomerTableModel model, int column) {
+    switch (column) {
+      case CustomerTableModel.COL_REGISTERED:
+      case CustomerTableModel.COL_LAST_PURCHASE:
+        return Comparator.comparingInt(row -> model.getDateColumn(column).getDay(row));
+      case CustomerTableModel.COL_ID:
+        return (a, b) -> {
+          String x = (String) model.getValueAt(a, column);
+          String y = (String) model.getValueAt(b, column);
+          boolean numericX = x.matches("[0-9]+");
+          boolean numericY = y.matches("[0-9]+");
+          if (numericX && numericY) return Integer.compare(Integer.parseInt(x), Integer.parseInt(y));
+          if (numericX || numericY) return numericX ? -1 : 1;
+          return collator.compare(x, y);
+        };
+      default:
+        return (a, b) -> collator.compare((String) model.getValueAt(a, column), (String) model.getValueAt(b, column));
+    }
+  }
+
+  private static CustomerTableModel model(Random random, int rows, boolean mixedIds) {
+    CustomerTableModel model = new CustomerTableModel();
+    for (int i = 0; i < rows; i++) {
+      model.appendRow(row(random, i, mixedIds));
+    }
+    return model;
+  }
+
+  private static Object[] row(Random random, int index, boolean mixedIds) {
+    String id = mixedIds && random.nextInt(4) == 0
+        ? "C-" + random.nextInt(100)
+        : Integer.toString(random.nextInt(500));
+    String registered = random.nextInt(10) == 0 ? ""
+        : String.format("%04d-%02d-%02d", 2000 + random.nextInt(25), 1 + random.nextInt(12), 1 + random.nextInt(28));
+    return new Object[] {
+        id,
+        pick(random, NAMES) + random.nextInt(5),
+        pick(random, COMPANIES),
+        String.format("03-%04d-%04d", random.nextInt(100), random.nextInt(10_000)),
+        "user" + random.nextInt(1_000) + "@example.com",
+        registered,
+        random.nextBoolean() ? registered : "2024/01/" + String.format("%02d", 1 + random.nextInt(28)),
+        pick(random, STATUSES) };
+  }
+
+  private static String pick(Random random, String[] values) {
+    return values[random.nextInt(values.length)];
+  }
+}
@@ -0,0 +1,121 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JComponent;
+import javax.swing.JPanel;
+import org.junit.jupiter.api.Test;
+
+class ViewRegistryTest {
+  private final List<String> released = new ArrayList<>();
+
+  @Test
+  void evictsLeastRecentlyUsedViewsOverBudget() {
+    ViewRegistry registry = new ViewRegistry(250);
+    register(registry, "a", 100, false);
+    register(registry, "b", 100, false);
+    register(registry, "c", 100, false);
+    register(registry, "d", 100, false);
+
+    registry.show("a");
+    registry.show("b");
+    registry.show("c");
+    // a を使い直すので、最も前に使ったのは b
+    registry.show("a");
+    assertEquals(List.of(), released);
+    // 表示中の d を除いた b, c, a（300）が上限を超えるので、最も前に使った b を破棄する
+    registry.show("d");
+    assertEquals(List.of("b"), released);
+    assertFalse(registry.isCached("b"));
+    assertTrue(registry.isCached("a"));
+    assertTrue(registry.isCached("c"));
+
+    // 破棄した画面は作り直し、次に古い c を破棄する
+    registry.show("b");
+    assertEquals(List.of("b", "c"), released);
+    assertEquals(2, registry.getEvictionCount());
+    assertEquals(5, registry.getMissCount());
+    assertEquals(1, registry.getHitCount());
+    assertTrue(registry.getBuildMillis("b") >= 0);
+    assertEquals(-1, registry.getBuildMillis("unknown"));
+  }
+
+  @Test
+  void pinnedAndCurrentViewsAreNotCountedOrEvicted() {
+    ViewRegistry registry = new ViewRegistry(150);
+    register(registry, "pinned", 10_000, true);
+    register(registry, "a", 100, false);
+    register(registry, "b", 100, false);
+
+    registry.show("pinned");
+    registry.show("a");
+    registry.show("b");
+    assertEquals(List.of(), released);
+    registry.show("pinned");
+    // a と b（200）が上限を超えるので古い a だけを破棄する
+    assertEquals(List.of("a"), released);
+    assertTrue(registry.isCached("pinned"));
+    assertTrue(registry.isCached("b"));
+  }
+
+  @Test
+  void hitsReturnTheCachedView() {
+    ViewRegistry registry = new ViewRegistry(1_000);
+    register(registry, "a", 100, false);
+    ViewRegistry.ModuleView first = registry.show("a");
+    assertSame(first, registry.show("a"));
+    assertEquals(1, registry.getMissCount());
+    assertEquals(1, registry.getHitCount());
+  }
+
+  @Test
+  void evictedRecordViewReleasesItsRows() {
+    ViewRegistry registry = new ViewRegistry(0);
+    registry.register("社員管理", RecordModuleView::employees, false);
+    register(registry, "other", 0, false);
+
+    RecordModuleView view = (RecordModuleView) registry.show("社員管理");
+    assertEquals(500, view.getRowCount());
+    long bytes = view.estimatedBytes();
+    registry.show("other");
+    assertFalse(registry.isCached("社員管理"));
+    assertEquals(0, view.getRowCount());
+    assertTrue(view.estimatedBytes() < bytes / 4);
+  }
+
+  private void register(ViewRegistry registry, String name, long bytes, boolean pinned) {
+    registry.register(name, () -> new FakeView(name, bytes), pinned);
+  }
+
+  private final class FakeView implements ViewRegistry.ModuleView {
+    private final String name;
+    private final JPanel panel = new JPanel();
+    private long bytes;
+
+    FakeView(String name, long bytes) {
+      this.name = name;
+      this.bytes = bytes;
+    }
+
+    @Override
+    public JComponent getComponent() {
+      return panel;
+    }
+
+    @Override
+    public long estimatedBytes() {
+      return bytes;
+    }
+
+    @Override
+    public void release() {
+      released.add(name);
+      bytes = 0;
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package undecorated;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.event.MouseEvent;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class WindowChromeDispatcherTest {
+  private EdtMonitor monitor;
+  private JFrame frame;
+  private WindowChromeDispatcher dispatcher;
+
+  @BeforeEach
+  void setUp() {
+    System.setProperty("edt.monitor", "true");
+    monitor = EdtMonitor.install();
+    assertNotNull(monitor);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    if (frame != null) {
+      SwingUtilities.invokeAndWait(() -> {
+        dispatcher.uninstall();
+        frame.dispose();
+      });
+    }
+  }
+
+  @Test
+  void taggedCategoryOverridesEventSource() throws Exception {
+    // 処理中に指定した分類は、invokeLater のような送り先のないイベントにも効く
+    long before = count(EdtMonitor.TYPE_INVOCATION, EdtMonitor.CATEGORY_DRAG);
+    SwingUtilities.invokeAndWait(() -> EdtMonitor.tagCurrentEvent(EdtMonitor.CATEGORY_DRAG));
+    SwingUtilities.invokeAndWait(() -> { });
+    assertEquals(before + 1, count(EdtMonitor.TYPE_INVOCATION, EdtMonitor.CATEGORY_DRAG));
+  }
+
+  @Test
+  void captionDragIsCountedAsDrag() throws Exception {
+    createFrame();
+    long drags = count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_DRAG);
+    long dragButtons = count(EdtMonitor.TYPE_MOUSE_BUTTON, EdtMonitor.CATEGORY_DRAG);
+    long resizes = count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_RESIZE);
+
+    // タイトルバーの中ほど（ウィンドウ座標 200, 10）を押して右下へドラッグする
+    post(MouseEvent.MOUSE_PRESSED, 300, 110);
+    for (int i = 1; i <= 5; i++) {
+      post(MouseEvent.MOUSE_DRAGGED, 300 + i * 3, 110 + i);
+    }
+    post(MouseEvent.MOUSE_RELEASED, 315, 115);
+
+    assertEquals(drags + 5, count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_DRAG));
+    assertEquals(dragButtons + 2, count(EdtMonitor.TYPE_MOUSE_BUTTON, EdtMonitor.CATEGORY_DRAG));
+    assertEquals(resizes, count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_RESIZE));
+    assertEquals(7, dispatcher.getRoutedCount());
+  }
+
+  @Test
+  void edgeDragIsCountedAsResize() throws Exception {
+    createFrame();
+    long drags = count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_DRAG);
+    long resizes = count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_RESIZE);
+
+    // 右下の角（ウィンドウ座標 1198, 798）を押して広げる
+    post(MouseEvent.MOUSE_PRESSED, 1298, 898);
+    for (int i = 1; i <= 5; i++) {
+      post(MouseEvent.MOUSE_DRAGGED, 1298 + i * 2, 898 + i * 2);
+    }
+    post(MouseEvent.MOUSE_RELEASED, 1308, 908);
+
+    assertEquals(resizes + 5, count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_RESIZE));
+    assertEquals(drags, count(EdtMonitor.TYPE_MOUSE_MOTION, EdtMonitor.CATEGORY_DRAG));
+  }
+
+  // フレームは表示せず、ネイティブのウィンドウ操作は含まない（作成にはディスプレイが必要）
+  private void createFrame() throws Exception {
+    assumeFalse(GraphicsEnvironment.isHeadless(), "ウィンドウを作るのでディスプレイが必要");
+    SwingUtilities.invokeAndWait(() -> {
+      frame = new JFrame();
+      frame.setUndecorated(true);
+      frame.setBounds(100, 100, 1200, 800);
+      JPanel titleBar = new JPanel();
+      titleBar.setPreferredSize(new Dimension(1200, 30));
+      frame.add(titleBar, BorderLayout.NORTH);
+      frame.validate();
+      dispatcher = new WindowChromeDispatcher(frame, 5, null);
+      dispatcher.setCaption(titleBar);
+      dispatcher.install();
+    });
+  }
+
+  // 実際の入力と同じくシステムのイベントキューから処理させ、処理し終えるまで待つ（1 つずつ待つのでまとめられない）
+  private void post(int id, int screenX, int screenY) throws Exception {
+    int[] location = new int[2];
+    SwingUtilities.invokeAndWait(() -> {
+      location[0] = frame.getX();
+      location[1] = frame.getY();
+    });
+    int modifiers = id == MouseEvent.MOUSE_RELEASED ? 0 : MouseEvent.BUTTON1_DOWN_MASK;
+    int button = id == MouseEvent.MOUSE_DRAGGED ? MouseEvent.NOBUTTON : MouseEvent.BUTTON1;
+    EventQueue queue = Toolkit.getDefaultToolkit().getSystemEventQueue();
+    queue.postEvent(new MouseEvent(frame, id, System.currentTimeMillis(), modifiers,
+        screenX - location[0], screenY - location[1], screenX, screenY, 1, false, button));
+    SwingUtilities.invokeAndWait(() -> { });
+  }
+
+  private long count(int type, int category) throws Exception {
+    long[] count = new long[1];
+    SwingUtilities.invokeAndWait(() -> {
+      LatencyHistogram histogram = monitor.getHistogram(type, category);
+      count[0] = histogram == null ? 0 : histogram.getCount();
+    });
+    return count[0];
+  }
+}
@@ -0,0 +1,24 @@
+#!/bin/sh
+# 記録したマウス入力を Main のウィンドウに再生し、移動・リサイズの性能を出力する
+#
+# 使い方: benchmarks/replay.sh [記録ファイル...] [--repeat N] [--speed S] [--max-latency-ms N]
+#   記録ファイルはアプリで Ctrl+Shift+I を押して記録・保存したもの
+#   省略するとタイトルバーのドラッグと右下の角のリサイズを合成して再生する
+#   例: benchmarks/replay.sh --repeat 5 --max-latency-ms 20
+#
+# ディスプレイがない Linux では xvfb-run で 1920x1080 の画面を用意して実行する
+set -e
+cd "$(dirname "$0")/.."
+
+mvn -B -q package -DskipTests
+# benchmarks.jar にはアプリのクラスも含まれる
+jar=benchmarks/target/benchmarks.jar
+
+if [ -n "$DISPLAY" ]; then
+  java -cp "$jar" undecorated.InputReplayer "$@"
+elif command -v xvfb-run >/dev/null 2>&1; then
+  xvfb-run -a -s "-screen 0 1920x1080x24" java -cp "$jar" undecorated.InputReplayer "$@"
+else
+  echo "ディスプレイも xvfb-run もないため再生できません" >&2
+  exit 1
+fi
@@ -0,0 +1,25 @@
+#!/bin/sh
+# JMH ベンチマークをビルドして実行し、結果を benchmarks/results/ に JSON で保存する
+#
+# 使い方: benchmarks/run.sh [JMH のオプション...]
+#   例: benchmarks/run.sh TableModelBenchmark -p rows=100000
+#
+# ディスプレイがない Linux では xvfb-run があればその上で実行する
+# どちらもなければ、ウィンドウが必要な FrameInteractionBenchmark を除いて実行する
+set -e
+cd "$(dirname "$0")/.."
+
+mvn -B -q package -DskipTests
+mkdir -p benchmarks/results
+result="benchmarks/results/jmh-$(date +%Y%m%d-%H%M%S).json"
+
+if [ -n "$DISPLAY" ]; then
+  java -jar benchmarks/target/benchmarks.jar -rf json -rff "$result" "$@"
+elif command -v xvfb-run >/dev/null 2>&1; then
+  xvfb-run -a java -jar benchmarks/target/benchmarks.jar -rf json -rff "$result" "$@"
+else
+  echo "ディスプレイも xvfb-run もないため FrameInteractionBenchmark を除外します" >&2
+  java -Djava.awt.headless=true -jar benchmarks/target/benchmarks.jar -e FrameInteractionBenchmark \
+    -rf json -rff "$result" "$@"
+fi
+echo "結果: $result"
@@ -0,0 +1,69 @@
+package undecorated;
+
+import java.util.concurrent.TimeUnit;
+import javax.swing.JTable;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 一括編集の計測: 全行のステータスを書き換える
+ * setValueAt でセルごとに書き換える方法と、BulkEdit でまとめて反映する方法を比べる
+ * モデルには IndexedRowSorter を付けた JTable をつなぎ、イベントの処理も含めて計る
+ * 通知されたイベントの数は tableEvents に出る
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class BulkEditBenchmark {
+  private static final String[] VALUES = { "休眠", "アクティブ" };
+
+  @Param({ "100000" })
+  public int rows;
+
+  private CustomerTableModel model;
+  private long eventCount;
+  private int round;
+
+  /**
+   * 計測中に通知されたイベントの合計（呼び出し回数で割ると 1 回あたり）
+   */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Events {
+    public long tableEvents;
+  }
+
+  @Setup
+  public void setUp() {
+    model = CustomerDataGenerator.createModel(rows, 42);
+    JTable table = new JTable(model);
+    table.setRowSorter(new IndexedRowSorter(model));
+    model.addTableModelListener(e -> eventCount++);
+  }
+
+  /** setValueAt でセルごとに書き換える */
+  @Benchmark
+  public void setValueAtPerCell(Events events) {
+    long before = eventCount;
+    String value = VALUES[round++ & 1];
+    for (int row = 0; row < rows; row++) {
+      model.setValueAt(value, row, CustomerTableModel.COL_STATUS);
+    }
+    events.tableEvents += eventCount - before;
+  }
+
+  /** BulkEdit に溜めてまとめて反映する */
+  @Benchmark
+  public void bulkEditCommit(Events events) {
+    long before = eventCount;
+    String value = VALUES[round++ & 1];
+    BulkEdit edit = model.beginBulkEdit(message -> { });
+    for (int row = 0; row < rows; row++) {
+      edit.set(row, CustomerTableModel.COL_STATUS, value);
+    }
+    edit.commitNow();
+    events.tableEvents += eventCount - before;
+  }
+}
@@ -0,0 +1,70 @@
+package undecorated;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * CSV の解析速度の計測
+ * CsvLoader が各チャンクで行うのと同じく、メモリマップしたファイルを 1 スレッドで解析する
+ * ファイルサイズは準備時に出力するので、MB/s はサイズ / 1 回あたりの時間で求める
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class CsvParseBenchmark {
+  @Param({ "10000", "100000", "1000000" })
+  public int rows;
+
+  private Path file;
+  private FileChannel channel;
+  private MappedByteBuffer buffer;
+
+  @Setup
+  public void setUp() throws IOException {
+    file = Files.createTempFile("customers", ".csv");
+    CustomerDataGenerator generator = new CustomerDataGenerator(42);
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(String.join(",", CustomerTableModel.COLUMN_NAMES));
+      writer.newLine();
+      for (int i = 0; i < rows; i++) {
+        writer.write(String.join(",", generator.nextRow()));
+        writer.newLine();
+      }
+    }
+    channel = FileChannel.open(file, StandardOpenOption.READ);
+    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    System.out.printf("%n%,d rows, %,d bytes%n", rows, channel.size());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    channel.close();
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public int parse() {
+    CsvLoader.RowParser parser = new CsvLoader.RowParser((byte) ',');
+    int limit = buffer.limit();
+    int position = 0;
+    int parsed = 0;
+    while (position < limit) {
+      position = parser.parse(buffer, position, limit);
+      if (parser.takeRow() != null) {
+        parsed++;
+      }
+    }
+    return parsed;
+  }
+}
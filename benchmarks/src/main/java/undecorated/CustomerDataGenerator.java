@@ -0,0 +1,60 @@
+package undecorated;
+
+import java.util.Random;
+
+/**
+ * ベンチマーク用の顧客データを決まった乱数列で生成する
+ */
+public class CustomerDataGenerator {
+  private static final String[] SURNAMES = {
+      "田中", "佐藤", "鈴木", "高橋", "渡辺", "伊藤", "山本", "中村", "小林", "加藤",
+      "吉田", "山田", "佐々木", "山口", "松本", "井上", "木村", "林", "斎藤", "清水" };
+  private static final String[] GIVEN_NAMES = {
+      "太郎", "花子", "一郎", "直子", "健太", "美加", "龍太郎", "由美", "俊介", "恵",
+      "翔", "さくら", "大輔", "陽子", "拓也", "愛", "誠", "舞", "浩二", "結衣" };
+  private static final String[] COMPANY_SUFFIXES = { "商事", "工業", "建設", "製作所", "商店", "電機", "食品" };
+  private static final String[] STATUSES = { "アクティブ", "休眠", "新規" };
+  private static final String[] DOMAINS = { "example.com", "example.co.jp", "example.net" };
+
+  private final Random random;
+  private final int baseDay = DateColumn.toEpochDay(2018, 1, 1);
+  private int nextId = 1001;
+
+  public CustomerDataGenerator(long seed) {
+    this.random = new Random(seed);
+  }
+
+  /**
+   * 1 行分のデータを作成する（列の並びは CustomerTableModel と同じ）
+   */
+  public String[] nextRow() {
+    int surname = random.nextInt(SURNAMES.length);
+    int givenName = random.nextInt(GIVEN_NAMES.length);
+    int companyOwner = random.nextInt(SURNAMES.length);
+    int registered = baseDay + random.nextInt(365 * 6);
+    String status = STATUSES[random.nextInt(STATUSES.length)];
+    String lastPurchase = status.equals("新規") ? "" : DateColumn.format(registered + random.nextInt(400));
+    int id = nextId++;
+    return new String[] {
+        Integer.toString(id),
+        SURNAMES[surname] + " " + GIVEN_NAMES[givenName],
+        SURNAMES[companyOwner] + COMPANY_SUFFIXES[random.nextInt(COMPANY_SUFFIXES.length)],
+        String.format("0%d-%04d-%04d", 3 + random.nextInt(7), random.nextInt(10000), random.nextInt(10000)),
+        "user" + id + "@" + DOMAINS[random.nextInt(DOMAINS.length)],
+        DateColumn.format(registered),
+        lastPurchase,
+        status };
+  }
+
+  /**
+   * 指定行数の CustomerTableModel を作成する
+   */
+  public static CustomerTableModel createModel(int rows, long seed) {
+    CustomerDataGenerator generator = new CustomerDataGenerator(seed);
+    CustomerTableModel model = new CustomerTableModel();
+    for (int i = 0; i < rows; i++) {
+      model.appendRow(generator.nextRow());
+    }
+    return model;
+  }
+}
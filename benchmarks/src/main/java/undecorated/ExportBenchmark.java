@@ -0,0 +1,82 @@
+package undecorated;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 顧客テーブルのエクスポートの計測
+ * TableExporter（スナップショットから UTF-8 のまま書き出す）と、
+ * getValueAt で取り出した値を BufferedWriter に書く素朴な方法とを比べる
+ * 出力先は一時ファイルで、1 回ごとに先頭から書き直す
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+  @Param({ "100000", "1000000" })
+  public int rows;
+
+  private CustomerTableModel model;
+  private Path file;
+
+  @Setup
+  public void setUp() throws IOException {
+    model = CustomerDataGenerator.createModel(rows, 42);
+    file = Files.createTempFile("customers", ".export");
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  /** TableExporter で CSV に書き出す */
+  @Benchmark
+  public long exportCsv() throws IOException {
+    return export(TableExporter.Format.CSV);
+  }
+
+  /** TableExporter でバイナリ形式に書き出す */
+  @Benchmark
+  public long exportBinary() throws IOException {
+    return export(TableExporter.Format.BINARY);
+  }
+
+  /** 比較用: getValueAt の値を BufferedWriter で CSV に書く */
+  @Benchmark
+  public long exportCsvWithWriter() throws IOException {
+    int columns = model.getColumnCount();
+    try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writer.write(String.join(",", CustomerTableModel.COLUMN_NAMES));
+      writer.newLine();
+      for (int row = 0; row < rows; row++) {
+        for (int column = 0; column < columns; column++) {
+          if (column > 0) {
+            writer.write(',');
+          }
+          writer.write(String.valueOf(model.getValueAt(row, column)));
+        }
+        writer.newLine();
+      }
+    }
+    return Files.size(file);
+  }
+
+  private long export(TableExporter.Format format) throws IOException {
+    TableExporter exporter = new TableExporter(model.snapshot(), null, file.toFile(), format, message -> { });
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING)) {
+      return exporter.writeTo(channel);
+    }
+  }
+}
@@ -0,0 +1,131 @@
+package undecorated;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * ファセットの絞り込みの計測: 条件を 2 つの間で切り替える
+ * （ステータス 1 つ・登録月 3 つ・購入あり と、ステータス 2 つ・登録月 12 か月を除外）
+ *   bitmap: FacetIndex の積・和・差で行を求め、各ファセットの件数も数える（FacetController の専用スレッドの処理）
+ *   bitmapRows: bitmap に加えて、IndexedRowSorter に渡す BitSet と行番号の配列も作る
+ *   applyRows: 求めてある行番号の配列を IndexedRowSorter に設定する（EDT の処理）
+ *   scan: 比較用。RowFilter と同じく行ごとに列の値を取り出して条件を判定する（件数は数えない）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx3g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class FacetBenchmark {
+  @Param({ "1000000" })
+  public int rows;
+
+  private CustomerTableModel model;
+  private CustomerTableModel.Snapshot snapshot;
+  private FacetIndex index;
+  private FacetIndex.Query[] queries;
+  private RowBitmap[] results;
+  private IndexedRowSorter sorter;
+  private int turn;
+
+  @Setup
+  public void setUp() {
+    model = CustomerDataGenerator.createModel(rows, 42);
+    snapshot = model.snapshot();
+    index = new FacetIndex();
+    index.addRows(snapshot, rows);
+    FacetIndex.Counts all = index.count(FacetIndex.Query.EMPTY, null);
+
+    FacetIndex.Query first = FacetIndex.Query.EMPTY
+        .with(FacetIndex.STATUS, all.getKey(FacetIndex.STATUS, 0), true)
+        .with(FacetIndex.PURCHASE, FacetIndex.PURCHASED, true);
+    for (int i = 0; i < 3; i++) {
+      first = first.with(FacetIndex.REGISTERED_MONTH, all.getKey(FacetIndex.REGISTERED_MONTH, i * 7), true);
+    }
+    FacetIndex.Query second = FacetIndex.Query.EMPTY
+        .with(FacetIndex.STATUS, all.getKey(FacetIndex.STATUS, 0), true)
+        .with(FacetIndex.STATUS, all.getKey(FacetIndex.STATUS, 1), true)
+        .withExcluded(FacetIndex.REGISTERED_MONTH, true);
+    for (int i = 0; i < 12; i++) {
+      second = second.with(FacetIndex.REGISTERED_MONTH, all.getKey(FacetIndex.REGISTERED_MONTH, i), true);
+    }
+    queries = new FacetIndex.Query[] { first, second };
+    results = new RowBitmap[] { index.evaluate(first, null), index.evaluate(second, null) };
+    sorter = new IndexedRowSorter(model);
+  }
+
+  @Benchmark
+  public FacetIndex.Counts bitmap() {
+    FacetIndex.Query query = queries[turn ^= 1];
+    RowBitmap matched = index.evaluate(query, null);
+    if (matched.isEmpty()) throw new AssertionError();
+    return index.count(query, null);
+  }
+
+  @Benchmark
+  public int[] bitmapRows() {
+    FacetIndex.Query query = queries[turn ^= 1];
+    RowBitmap matched = index.evaluate(query, null);
+    index.count(query, null);
+    BitSet bits = matched.toBitSet();
+    if (bits.isEmpty()) throw new AssertionError();
+    return matched.toArray();
+  }
+
+  @State(Scope.Thread)
+  public static class Precomputed {
+    BitSet[] bits;
+    int[][] modelRows;
+
+    @Setup
+    public void setUp(FacetBenchmark benchmark) {
+      bits = new BitSet[] { benchmark.results[0].toBitSet(), benchmark.results[1].toBitSet() };
+      modelRows = new int[][] { benchmark.results[0].toArray(), benchmark.results[1].toArray() };
+    }
+  }
+
+  @Benchmark
+  public int applyRows(Precomputed precomputed) {
+    int i = turn ^= 1;
+    sorter.setFilter(precomputed.bits[i], precomputed.modelRows[i]);
+    return sorter.getViewRowCount();
+  }
+
+  @Benchmark
+  public BitSet scan() {
+    FacetIndex.Query query = queries[turn ^= 1];
+    DictionaryColumn.View statuses = snapshot.getStatusColumn();
+    DateColumn.View registered = snapshot.getDateColumn(CustomerTableModel.COL_REGISTERED);
+    DateColumn.View lastPurchase = snapshot.getDateColumn(CustomerTableModel.COL_LAST_PURCHASE);
+    int groups = FacetIndex.GROUP_NAMES.length;
+    int[][] selected = new int[groups][];
+    boolean[] excluded = new boolean[groups];
+    for (int group = 0; group < groups; group++) {
+      selected[group] = query.getSelected(group);
+      excluded[group] = query.isExcluded(group);
+    }
+    int[] keys = new int[groups];
+    BitSet result = new BitSet(rows);
+    for (int row = 0; row < rows; row++) {
+      keys[FacetIndex.STATUS] = statuses.code(row);
+      keys[FacetIndex.REGISTERED_MONTH] = FacetIndex.monthKey(registered.getDay(row));
+      keys[FacetIndex.PURCHASE] = lastPurchase.getDay(row) == DateColumn.NULL_DAY
+          ? FacetIndex.NOT_PURCHASED : FacetIndex.PURCHASED;
+      boolean include = true;
+      for (int group = 0; group < keys.length && include; group++) {
+        if (selected[group].length == 0) continue;
+        boolean found = false;
+        for (int key : selected[group]) {
+          found |= key == keys[group];
+        }
+        include = found != excluded[group];
+      }
+      if (include) {
+        result.set(row);
+      }
+    }
+    return result;
+  }
+}
@@ -0,0 +1,100 @@
+package undecorated;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseEvent;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 実際の JFrame を使った MoveListener のドラッグ処理と ResizeListener.detectCursor の計測
+ * dispatcher* は同じ処理を WindowChromeDispatcher（AWTEventListener として受け取る経路）で行う
+ * ウィンドウの作成にディスプレイが必要なので、Linux では Xvfb 上で実行する（benchmarks/run.sh 参照）
+ * フレームは表示しないため、ネイティブのウィンドウ操作は含まない
+ * フレームの作成と各操作は EDT で行うので、計測値には invokeAndWait で EDT に渡す時間（数マイクロ秒）も含まれる
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameInteractionBenchmark {
+  private static final int EVENTS = 256;
+
+  private JFrame frame;
+  private MoveListener moveListener;
+  private ResizeListener resizeListener;
+  private WindowChromeDispatcher dispatcher;
+  private final MouseEvent[] dragEvents = new MouseEvent[EVENTS];
+  private final Point[] points = new Point[EVENTS];
+  private int index;
+  // EDT で求めた戻り値
+  private int result;
+
+  @Setup
+  public void setUp() throws Exception {
+    SwingUtilities.invokeAndWait(this::createFrame);
+  }
+
+  private void createFrame() {
+    frame = new JFrame();
+    frame.setUndecorated(true);
+    frame.setBounds(100, 100, 1200, 800);
+    JPanel titleBar = new JPanel();
+    // 2 枚のモニターを横に並べた配置で、吸着・制限の計算も含めて計る
+    ScreenTopology topology = new ScreenTopology(new Rectangle(0, 0, 1920, 1040), new Rectangle(1920, 0, 2560, 1400));
+    moveListener = new MoveListener(frame, topology);
+    resizeListener = new ResizeListener(frame, topology);
+    titleBar.setPreferredSize(new java.awt.Dimension(1200, 30));
+    frame.add(titleBar, java.awt.BorderLayout.NORTH);
+    frame.validate();
+    dispatcher = new WindowChromeDispatcher(frame, 5, topology);
+    dispatcher.setCaption(titleBar);
+    for (int i = 0; i < EVENTS; i++) {
+      int x = 200 + (i % 32);
+      int y = 10 + (i / 32);
+      dragEvents[i] = new MouseEvent(titleBar, MouseEvent.MOUSE_DRAGGED, 0, MouseEvent.BUTTON1_DOWN_MASK,
+          x, y, x + 100, y + 100, 0, false, MouseEvent.BUTTON1);
+      points[i] = new Point(i * 7 % 1200, i * 13 % 800);
+    }
+    MouseEvent press = new MouseEvent(titleBar, MouseEvent.MOUSE_PRESSED, 0, MouseEvent.BUTTON1_DOWN_MASK,
+        200, 10, 300, 110, 1, false, MouseEvent.BUTTON1);
+    moveListener.mousePressed(press);
+    dispatcher.eventDispatched(press);
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    SwingUtilities.invokeAndWait(frame::dispose);
+  }
+
+  @Benchmark
+  public void moveDrag() throws Exception {
+    MouseEvent event = dragEvents[index++ & (EVENTS - 1)];
+    SwingUtilities.invokeAndWait(() -> moveListener.mouseDragged(event));
+  }
+
+  @Benchmark
+  public int detectCursor() throws Exception {
+    Point point = points[index++ & (EVENTS - 1)];
+    SwingUtilities.invokeAndWait(() -> result = resizeListener.detectCursor(point));
+    return result;
+  }
+
+  @Benchmark
+  public void dispatcherDrag() throws Exception {
+    MouseEvent event = dragEvents[index++ & (EVENTS - 1)];
+    SwingUtilities.invokeAndWait(() -> dispatcher.eventDispatched(event));
+  }
+
+  @Benchmark
+  public int dispatcherHitTest() throws Exception {
+    Point point = points[index++ & (EVENTS - 1)];
+    SwingUtilities.invokeAndWait(() -> result = dispatcher.hitTest(point.x, point.y));
+    return result;
+  }
+}
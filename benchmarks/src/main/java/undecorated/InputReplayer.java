@@ -0,0 +1,313 @@
+package undecorated;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.event.AWTEventListener;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseEvent;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import javax.swing.JFrame;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+/**
+ * InputRecording を元の時間間隔のままウィンドウへ再生し、移動・リサイズの性能を計るハーネス
+ *
+ * イベントは再生用のスレッドからシステムのイベントキューに投入するので、実際のマウス入力と同じく
+ * EventQueue のまとめ（coalesce）、LightweightDispatcher の振り分けを経て WindowChromeDispatcher と
+ * 移動・リサイズのエンジンに届く
+ * 1 回の再生ごとに、setBounds・setShape の回数、ウィンドウの位置・大きさが変わった間隔（フレーム）、
+ * イベントを投入してから処理されるまでの遅れを出力する
+ *
+ * ウィンドウが必要なので、ディスプレイのない Linux では Xvfb 上で実行する（benchmarks/replay.sh 参照）
+ * Main のパッケージプライベートなメソッドを使うので、アプリと同じパッケージに置いている
+ *
+ * 使い方: InputReplayer [記録ファイル...] [--repeat N] [--speed S] [--max-latency-ms N]
+ *   記録ファイルを省略すると、タイトルバーのドラッグと右下の角のリサイズを合成して再生する
+ *   --speed は再生の速さの倍率（2 なら間隔を半分にする）
+ *   --max-latency-ms を指定すると、遅れの p95 がそれを超えた再生があった場合に終了コード 1 で終わる
+ */
+public class InputReplayer {
+  private static final int SYNTHETIC_STEPS = 250;
+  private static final long SYNTHETIC_INTERVAL_MICROS = 8_000;
+  // 再生の前後にウィンドウの状態が落ち着くのを待つ時間
+  private static final long SETTLE_MILLIS = 500;
+
+  private final JFrame frame;
+  private final WindowChromeDispatcher dispatcher;
+  private final WindowShapeManager shapeManager;
+  private final ConcurrentLinkedQueue<Posted> posted = new ConcurrentLinkedQueue<>();
+  // ウィンドウの位置。EDT で読んで書き、再生用のスレッドはここから読む
+  private volatile Point frameLocation = new Point();
+
+  // 以下は EDT でのみ読み書きする
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final FrameRateMeter frames = new FrameRateMeter();
+  private long handledCount;
+
+  /**
+   * 投入したイベント（処理された時に遅れを求めるのに使う）
+   */
+  private static final class Posted {
+    final int id;
+    final int screenX;
+    final int screenY;
+    final long nanos;
+
+    Posted(int id, int screenX, int screenY, long nanos) {
+      this.id = id;
+      this.screenX = screenX;
+      this.screenY = screenY;
+      this.nanos = nanos;
+    }
+  }
+
+  /**
+   * 1 回の再生の結果
+   */
+  public static final class Result {
+    int events;
+    long handled;
+    double recordedMillis;
+    double elapsedMillis;
+    long moveBounds;
+    long resizeBounds;
+    long shapes;
+    long shapeRequests;
+    String frames;
+    double latencyP50Millis;
+    double latencyP95Millis;
+    double latencyP99Millis;
+    double latencyMaxMillis;
+
+    public double getLatencyP95Millis() {
+      return latencyP95Millis;
+    }
+
+    public String format() {
+      return String.format(Locale.ROOT,
+          "events=%d handled=%d (coalesced %d) time=%.0fms (recorded %.0fms)%n"
+              + "  setBounds move=%d resize=%d  setShape=%d (requests %d)%n"
+              + "  frames %s%n"
+              + "  input latency p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms",
+          events, handled, Math.max(0, events - handled), elapsedMillis, recordedMillis,
+          moveBounds, resizeBounds, shapes, shapeRequests, frames,
+          latencyP50Millis, latencyP95Millis, latencyP99Millis, latencyMaxMillis);
+    }
+  }
+
+  /**
+   * EDT で作成すること
+   */
+  public InputReplayer(JFrame frame, WindowChromeDispatcher dispatcher, WindowShapeManager shapeManager) {
+    this.frame = frame;
+    this.dispatcher = dispatcher;
+    this.shapeManager = shapeManager;
+    frame.addComponentListener(new ComponentAdapter() {
+      @Override
+      public void componentMoved(ComponentEvent e) {
+        frameLocation = frame.getLocation();
+        frames.frame();
+      }
+
+      @Override
+      public void componentResized(ComponentEvent e) {
+        frames.frame();
+      }
+    });
+    AWTEventListener listener = this::handled;
+    Toolkit.getDefaultToolkit().addAWTEventListener(listener,
+        AWTEvent.MOUSE_EVENT_MASK | AWTEvent.MOUSE_MOTION_EVENT_MASK);
+  }
+
+  /**
+   * 記録を再生し、終わるまで待つ（EDT 以外のスレッドから呼ぶ）
+   * 再生の前にウィンドウを記録開始時の位置と大きさに戻す
+   * @param speed 再生の速さの倍率
+   */
+  public Result replay(InputRecording recording, double speed)
+      throws InterruptedException, InvocationTargetException {
+    Rectangle initial = recording.getInitialBounds();
+    long[] baseline = new long[2];
+    SwingUtilities.invokeAndWait(() -> frame.setBounds(initial));
+    settle();
+    SwingUtilities.invokeAndWait(() -> {
+      frameLocation = frame.getLocation();
+      dispatcher.getDragEngine().resetStats();
+      dispatcher.getResizeEngine().resetStats();
+      baseline[0] = shapeManager.getNativeUpdateCount();
+      baseline[1] = shapeManager.getRequestCount();
+      latency.reset();
+      handledCount = 0;
+      frames.begin();
+    });
+    posted.clear();
+
+    EventQueue queue = Toolkit.getDefaultToolkit().getSystemEventQueue();
+    long start = System.nanoTime();
+    for (int i = 0; i < recording.size(); i++) {
+      long deadline = start + (long) (recording.getTimeMicros(i) * 1000 / speed);
+      for (long wait = deadline - System.nanoTime(); wait > 0; wait = deadline - System.nanoTime()) {
+        LockSupport.parkNanos(wait);
+      }
+      int id = recording.getId(i);
+      int screenX = recording.getScreenX(i);
+      int screenY = recording.getScreenY(i);
+      // ウィンドウの位置は EDT で変わるので、EDT で最後に読んだ位置を使う
+      // 実際の入力でもウィンドウ座標は受信時点の位置から求められる
+      Point location = frameLocation;
+      MouseEvent event = new MouseEvent(frame, id, System.currentTimeMillis(), recording.getModifiers(i),
+          screenX - location.x, screenY - location.y, screenX, screenY,
+          recording.getClickCount(i), false, recording.getButton(i));
+      posted.add(new Posted(id, screenX, screenY, System.nanoTime()));
+      queue.postEvent(event);
+    }
+    double elapsedMillis = (System.nanoTime() - start) / 1_000_000.0;
+    settle();
+
+    Result result = new Result();
+    result.events = recording.size();
+    result.recordedMillis = recording.getDurationMicros() / 1000.0 / speed;
+    result.elapsedMillis = elapsedMillis;
+    SwingUtilities.invokeAndWait(() -> {
+      frames.end();
+      result.handled = handledCount;
+      result.moveBounds = dispatcher.getDragEngine().getApplyCount();
+      result.resizeBounds = dispatcher.getResizeEngine().getApplyCount();
+      result.shapes = shapeManager.getNativeUpdateCount() - baseline[0];
+      result.shapeRequests = shapeManager.getRequestCount() - baseline[1];
+      result.frames = frames.formatLast();
+      result.latencyP50Millis = latency.percentile(50) / 1000.0;
+      result.latencyP95Millis = latency.percentile(95) / 1000.0;
+      result.latencyP99Millis = latency.percentile(99) / 1000.0;
+      result.latencyMaxMillis = latency.getMaxMicros() / 1000.0;
+    });
+    return result;
+  }
+
+  // 投入したイベントが処理されたら、投入からの時間を記録する
+  // まとめられて届かなかった古いイベントは読み飛ばす
+  private void handled(AWTEvent event) {
+    if (!(event instanceof MouseEvent) || posted.isEmpty()) return;
+    MouseEvent e = (MouseEvent) event;
+    int id = e.getID();
+    if (id == MouseEvent.MOUSE_ENTERED || id == MouseEvent.MOUSE_EXITED) return;
+    for (Posted head = posted.peek(); head != null; head = posted.peek()) {
+      if (head.id == id && head.screenX == e.getXOnScreen() && head.screenY == e.getYOnScreen()) {
+        posted.poll();
+        latency.record((System.nanoTime() - head.nanos) / 1000);
+        handledCount++;
+        return;
+      }
+      if (head.id != MouseEvent.MOUSE_DRAGGED && head.id != MouseEvent.MOUSE_MOVED) {
+        // まとめられるのは移動とドラッグだけなので、それ以外が先頭なら別の入力によるイベント
+        return;
+      }
+      posted.poll();
+    }
+  }
+
+  // EDT が空くのを待ち、ウィンドウの変更が反映されるまで少し待つ
+  private static void settle() throws InterruptedException, InvocationTargetException {
+    SwingUtilities.invokeAndWait(() -> { });
+    Toolkit.getDefaultToolkit().sync();
+    Thread.sleep(SETTLE_MILLIS);
+    SwingUtilities.invokeAndWait(() -> { });
+  }
+
+  public static void main(String[] args) throws Exception {
+    List<String> files = new ArrayList<>();
+    int repeat = 1;
+    double speed = 1.0;
+    double maxLatencyMillis = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < args.length; i++) {
+      switch (args[i]) {
+        case "--repeat":
+          repeat = Integer.parseInt(args[++i]);
+          break;
+        case "--speed":
+          speed = Double.parseDouble(args[++i]);
+          break;
+        case "--max-latency-ms":
+          maxLatencyMillis = Double.parseDouble(args[++i]);
+          break;
+        default:
+          files.add(args[i]);
+          break;
+      }
+    }
+
+    // Main.main と同じ計測を組み込む。再描画の計測は再生では既定で有効にする（-Drepaint.monitor=false で無効）
+    if (System.getProperty("repaint.monitor") == null) {
+      System.setProperty("repaint.monitor", "true");
+    }
+    EdtMonitor.install();
+    RepaintMonitor.install();
+    Main[] holder = new Main[1];
+    SwingUtilities.invokeAndWait(() -> {
+      try {
+        UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
+      } catch (Exception e) {
+        e.printStackTrace();
+      }
+      holder[0] = new Main();
+    });
+    Main main = holder[0];
+    settle();
+    InputReplayer[] replayer = new InputReplayer[1];
+    SwingUtilities.invokeAndWait(() ->
+        replayer[0] = new InputReplayer(main.getFrame(), main.getChromeDispatcher(), main.getShapeManager()));
+
+    boolean failed = false;
+    for (int round = 1; round <= repeat; round++) {
+      List<String> names = new ArrayList<>();
+      List<InputRecording> recordings = new ArrayList<>();
+      if (files.isEmpty()) {
+        // 合成した操作は、その時点のウィンドウの位置と大きさから作る
+        Rectangle[] bounds = new Rectangle[1];
+        SwingUtilities.invokeAndWait(() -> bounds[0] = main.getFrame().getBounds());
+        names.add("synthetic-drag");
+        recordings.add(InputRecording.synthesizeDrag(bounds[0], SYNTHETIC_STEPS, SYNTHETIC_INTERVAL_MICROS));
+        names.add("synthetic-resize");
+        recordings.add(InputRecording.synthesizeResize(bounds[0], SYNTHETIC_STEPS, SYNTHETIC_INTERVAL_MICROS));
+      } else {
+        for (String file : files) {
+          names.add(file);
+          recordings.add(InputRecording.read(Paths.get(file)));
+        }
+      }
+      for (int i = 0; i < recordings.size(); i++) {
+        Result result = replayer[0].replay(recordings.get(i), speed);
+        System.out.println("[" + round + "] " + names.get(i) + ": " + result.format());
+        if (result.getLatencyP95Millis() > maxLatencyMillis) {
+          System.out.println(String.format(Locale.ROOT, "  p95 %.2fms > %.2fms",
+              result.getLatencyP95Millis(), maxLatencyMillis));
+          failed = true;
+        }
+      }
+    }
+
+    SwingUtilities.invokeAndWait(() -> {
+      EdtMonitor monitor = EdtMonitor.getInstance();
+      if (monitor != null) {
+        System.out.println(monitor.formatSummary());
+        System.out.print(monitor.formatDetails());
+      }
+      RepaintMonitor repaintMonitor = RepaintMonitor.getInstance();
+      if (repaintMonitor != null) {
+        System.out.println(repaintMonitor.formatStats());
+      }
+    });
+    System.exit(failed ? 1 : 0);
+  }
+}
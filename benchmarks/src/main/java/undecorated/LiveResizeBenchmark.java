@@ -0,0 +1,81 @@
+package undecorated;
+
+import java.awt.BorderLayout;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JComponent;
+import javax.swing.JLayer;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JTree;
+import javax.swing.JSplitPane;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * リサイズドラッグ中の 1 フレーム（大きさの変更・レイアウト・描画）の計測
+ * snapshot は LiveResizeLayer のスナップショット描画、layout は毎回レイアウトし直す従来の動作
+ * 中身は顧客管理画面に近い、ツリーとテーブルを並べた分割ペイン
+ * ウィンドウは作らず、レイヤーを BufferedImage に描くのでヘッドレスで実行できる
+ * （スナップショットも VolatileImage ではなく BufferedImage になる）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class LiveResizeBenchmark {
+  private static final int WIDTH = 1200;
+  private static final int HEIGHT = 800;
+
+  @Param({ "snapshot", "layout" })
+  public String mode;
+
+  private LiveResizeLayer layerUI;
+  private JLayer<JComponent> layer;
+  private BufferedImage target;
+  private int step;
+
+  @Setup
+  public void setUp() {
+    CustomerTableModel model = CustomerDataGenerator.createModel(2_000, 42);
+    JTable table = new JTable(model);
+    table.setAutoCreateRowSorter(true);
+    JSplitPane splitPane = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, new JScrollPane(new JTree()),
+        new JScrollPane(table));
+    splitPane.setDividerLocation(200);
+    JPanel content = new JPanel(new BorderLayout());
+    content.add(splitPane, BorderLayout.CENTER);
+
+    layerUI = new LiveResizeLayer(null);
+    layerUI.setSnapshotMode("snapshot".equals(mode));
+    layer = layerUI.wrap(content);
+    // ウィンドウに入れない代わりに、レイアウトが行われるよう表示可能な状態にしておく
+    layer.addNotify();
+    layer.setSize(WIDTH, HEIGHT);
+    layer.validate();
+    target = new BufferedImage(WIDTH + 64, HEIGHT + 64, BufferedImage.TYPE_INT_RGB);
+    layerUI.resizeStarted();
+  }
+
+  @TearDown
+  public void tearDown() {
+    layerUI.resizeFinished();
+    layer.removeNotify();
+  }
+
+  @Benchmark
+  public void resizeFrame() {
+    step = (step + 1) & 63;
+    layer.setSize(WIDTH + step, HEIGHT + step);
+    layer.validate();
+    Graphics2D g = target.createGraphics();
+    try {
+      layer.paint(g);
+    } finally {
+      g.dispose();
+    }
+  }
+}
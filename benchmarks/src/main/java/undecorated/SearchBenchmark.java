@@ -0,0 +1,44 @@
+package undecorated;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * SearchIndex のクエリ応答時間の計測
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+  @Param({ "10000", "1000000" })
+  public int rows;
+
+  @Param({ "田", "田中", "田中 太", "商事", "佐々木", "user12345", "USER9", "03-12", "example.net" })
+  public String query;
+
+  private SearchIndex index;
+
+  @Setup
+  public void setUp() {
+    CustomerTableModel model = CustomerDataGenerator.createModel(rows, 42);
+    StringColumn.View[] views = new StringColumn.View[SearchIndex.INDEXED_COLUMNS.length];
+    for (int i = 0; i < views.length; i++) {
+      views[i] = model.getStringColumn(SearchIndex.INDEXED_COLUMNS[i]).view();
+    }
+    // 読み込み時と同じく 5,000 行ずつ登録する
+    index = new SearchIndex();
+    for (int to = Math.min(rows, 5_000); ; to = Math.min(rows, to + 5_000)) {
+      index.addRows(views, to);
+      if (to == rows) break;
+    }
+  }
+
+  @Benchmark
+  public BitSet search() {
+    return index.search(query);
+  }
+}
@@ -0,0 +1,72 @@
+package undecorated;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 選択の集計の計測: 選択範囲の端を step 行ずつ広げたり戻したりする
+ * 選択のたびに全体を集計し直す方法と、変わった行だけを足し引きする方法を比べる
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g" })
+@State(Scope.Benchmark)
+public class SelectionAggregateBenchmark {
+  @Param({ "1000000" })
+  public int rows;
+
+  @Param({ "100000" })
+  public int selected;
+
+  @Param({ "100" })
+  public int step;
+
+  private CustomerTableModel.Snapshot snapshot;
+  private BitSet selection;
+  private BitSet grownSelection;
+  private BitSet edge;
+  private final BitSet none = new BitSet();
+  private SelectionAggregator.Aggregate aggregate;
+  private boolean grown;
+
+  @Setup
+  public void setUp() {
+    snapshot = CustomerDataGenerator.createModel(rows, 42).snapshot();
+    selection = new BitSet();
+    selection.set(0, selected);
+    grownSelection = new BitSet();
+    grownSelection.set(0, selected + step);
+    // 端の step 行だけ（0 番目が selected 行目）
+    edge = new BitSet();
+    edge.set(0, step);
+    aggregate = new SelectionAggregator.Aggregate(snapshot.getStatusColumn().getDictionarySize());
+    aggregate.addChanged(snapshot, null, selection, selection, 0, 0, selected);
+  }
+
+  /** 選択が変わるたびに、選択全体を集計し直す */
+  @Benchmark
+  public SelectionAggregator.Aggregate rescan() {
+    grown = !grown;
+    int count = grown ? selected + step : selected;
+    SelectionAggregator.Aggregate result =
+        new SelectionAggregator.Aggregate(snapshot.getStatusColumn().getDictionarySize());
+    BitSet current = grown ? grownSelection : selection;
+    result.addChanged(snapshot, null, current, current, 0, 0, count);
+    return result;
+  }
+
+  /** 変わった端の行だけを足し引きする */
+  @Benchmark
+  public SelectionAggregator.Aggregate incremental() {
+    grown = !grown;
+    if (grown) {
+      aggregate.addChanged(snapshot, null, edge, edge, selected, 0, step);
+    } else {
+      aggregate.addChanged(snapshot, null, edge, none, selected, 0, step);
+    }
+    return aggregate;
+  }
+}
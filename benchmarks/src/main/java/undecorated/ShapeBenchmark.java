@@ -0,0 +1,46 @@
+package undecorated;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * setRoundedCorners で使う角丸形状の作成コストの計測
+ * ネイティブのウィンドウ領域の作成に近い処理として、Area への変換と曲線の平坦化も計測する
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class ShapeBenchmark {
+  private int width = 1200;
+
+  @Benchmark
+  public Shape createShape() {
+    width = width == 1200 ? 1201 : 1200;
+    return WindowShapeManager.createShape(width, 800, 15);
+  }
+
+  @Benchmark
+  public Area createArea() {
+    width = width == 1200 ? 1201 : 1200;
+    return new Area(WindowShapeManager.createShape(width, 800, 15));
+  }
+
+  @Benchmark
+  public int flattenShape() {
+    width = width == 1200 ? 1201 : 1200;
+    PathIterator iterator = WindowShapeManager.createShape(width, 800, 15).getPathIterator(null, 0.5);
+    double[] coords = new double[6];
+    int segments = 0;
+    for (; !iterator.isDone(); iterator.next()) {
+      iterator.currentSegment(coords);
+      segments++;
+    }
+    return segments;
+  }
+}
@@ -0,0 +1,106 @@
+package undecorated;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * アプリを何度も起動して、起動の各段階（StartupProbe）までの時間を計測する
+ * 通常の起動と AppCDS のアーカイブを使った起動を比較し、中央値を JSON で出力する
+ * ウィンドウを表示するので、Linux では Xvfb 上で実行する
+ *
+ * JMH ではなく単体のプログラムとして実行する:
+ *   xvfb-run -a java -cp benchmarks/target/benchmarks.jar undecorated.StartupBenchmark \
+ *     [起動回数] [アプリの jar] [結果の JSON]
+ */
+public class StartupBenchmark {
+  public static void main(String[] args) throws Exception {
+    int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+    File jar = new File(args.length > 1 ? args[1] : "app/target/java-swing-undecorated-app-1.0-SNAPSHOT.jar");
+    File output = new File(args.length > 2 ? args[2] : "benchmarks/results/startup.json");
+    String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+
+    File archive = File.createTempFile("startup", ".jsa");
+    archive.delete();
+    // AppCDS の学習実行
+    launch(java, jar, "-XX:ArchiveClassesAtExit=" + archive.getPath());
+
+    Map<String, Map<String, List<Double>>> results = new LinkedHashMap<>();
+    results.put("default", new LinkedHashMap<>());
+    results.put("appcds", new LinkedHashMap<>());
+    for (int i = 0; i < runs; i++) {
+      record(results.get("default"), launch(java, jar, "-Xshare:auto"));
+      record(results.get("appcds"), launch(java, jar, "-XX:SharedArchiveFile=" + archive.getPath()));
+    }
+    archive.delete();
+
+    StringBuilder json = new StringBuilder("{\n");
+    int modeIndex = 0;
+    for (Map.Entry<String, Map<String, List<Double>>> mode : results.entrySet()) {
+      json.append("  \"").append(mode.getKey()).append("\": {");
+      int phaseIndex = 0;
+      for (Map.Entry<String, List<Double>> phase : mode.getValue().entrySet()) {
+        double median = median(phase.getValue());
+        json.append(phaseIndex++ == 0 ? "\n" : ",\n")
+            .append("    \"").append(phase.getKey()).append("\": ").append(String.format(Locale.ROOT, "%.1f", median));
+        System.out.printf("%-8s %-14s median %8.1f ms%n", mode.getKey(), phase.getKey(), median);
+      }
+      json.append("\n  }").append(++modeIndex < results.size() ? ",\n" : "\n");
+    }
+    json.append("}\n");
+    if (output.getParentFile() != null) {
+      Files.createDirectories(output.getParentFile().toPath());
+    }
+    try (PrintWriter writer = new PrintWriter(output, StandardCharsets.UTF_8)) {
+      writer.print(json);
+    }
+    System.out.println("結果: " + output);
+  }
+
+  /**
+   * アプリを起動し、StartupProbe が出力した各段階の時刻とプロセス全体の時間を返す
+   */
+  private static Map<String, Double> launch(String java, File jar, String option) throws IOException, InterruptedException {
+    long start = System.nanoTime();
+    Process process = new ProcessBuilder(java, option, "-Dstartup.exitAfterFirstPaint=true", "-jar", jar.getPath())
+        .redirectErrorStream(true)
+        .start();
+    Map<String, Double> phases = new LinkedHashMap<>();
+    try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+      for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+        if (!line.startsWith("startup ")) continue;
+        for (String pair : line.substring("startup ".length()).split(" ")) {
+          String[] keyValue = pair.split("=");
+          phases.put(keyValue[0], Double.parseDouble(keyValue[1]));
+        }
+      }
+    }
+    if (process.waitFor() != 0 || phases.isEmpty()) {
+      throw new IllegalStateException("起動に失敗しました: " + option);
+    }
+    phases.put("process", (System.nanoTime() - start) / 1_000_000.0);
+    return phases;
+  }
+
+  private static void record(Map<String, List<Double>> mode, Map<String, Double> phases) {
+    for (Map.Entry<String, Double> phase : phases.entrySet()) {
+      mode.computeIfAbsent(phase.getKey(), key -> new ArrayList<>()).add(phase.getValue());
+    }
+  }
+
+  private static double median(List<Double> values) {
+    double[] sorted = values.stream().mapToDouble(Double::doubleValue).toArray();
+    Arrays.sort(sorted);
+    return sorted[sorted.length / 2];
+  }
+}
@@ -0,0 +1,96 @@
+package undecorated;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import javax.swing.RowSorter;
+import javax.swing.SortOrder;
+import javax.swing.table.TableRowSorter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 顧客テーブルモデルの getValueAt・ソート・絞り込みの計測
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx4g", "-Djava.awt.headless=true" })
+@State(Scope.Benchmark)
+public class TableModelBenchmark {
+  @Param({ "10000", "100000", "1000000" })
+  public int rows;
+
+  private CustomerTableModel model;
+  private TableRowSorter<CustomerTableModel> sorter;
+  private SortIndex sortIndex;
+  private BitSet everyTenthRow;
+
+  @Setup
+  public void setUp() {
+    model = CustomerDataGenerator.createModel(rows, 42);
+    sorter = new TableRowSorter<>(model);
+    sortIndex = new SortIndex(model);
+    everyTenthRow = new BitSet(rows);
+    for (int row = 0; row < rows; row += 10) {
+      everyTenthRow.set(row);
+    }
+  }
+
+  /** 1 列分すべての行を getValueAt で読む */
+  @Benchmark
+  public void getValueAtColumn(Blackhole blackhole) {
+    for (int row = 0; row < rows; row++) {
+      blackhole.consume(model.getValueAt(row, CustomerTableModel.COL_NAME));
+    }
+  }
+
+  /** 全列すべての行を getValueAt で読む */
+  @Benchmark
+  public void getValueAtAllColumns(Blackhole blackhole) {
+    int columns = model.getColumnCount();
+    for (int row = 0; row < rows; row++) {
+      for (int column = 0; column < columns; column++) {
+        blackhole.consume(model.getValueAt(row, column));
+      }
+    }
+  }
+
+  /** 顧客名で並べ替える */
+  @Benchmark
+  public int sortByName() {
+    sorter.setSortKeys(Collections.singletonList(new RowSorter.SortKey(CustomerTableModel.COL_NAME, SortOrder.ASCENDING)));
+    int first = sorter.convertRowIndexToModel(0);
+    sorter.setSortKeys(null);
+    return first;
+  }
+
+  /** 顧客名の並べ替えの索引を作る（照合順位の計算と並べ替え） */
+  @Benchmark
+  public int sortIndexBuildByName() {
+    int[] order = new SortIndex(model).sort(Collections.singletonList(
+        new RowSorter.SortKey(CustomerTableModel.COL_NAME, SortOrder.ASCENDING)));
+    return order[0];
+  }
+
+  /** キャッシュ済みの索引で 状態・登録日（降順）・顧客名 の 3 列で並べ替える */
+  @Benchmark
+  public int sortIndexMultiColumn() {
+    int[] order = sortIndex.sort(Arrays.asList(
+        new RowSorter.SortKey(CustomerTableModel.COL_STATUS, SortOrder.ASCENDING),
+        new RowSorter.SortKey(CustomerTableModel.COL_REGISTERED, SortOrder.DESCENDING),
+        new RowSorter.SortKey(CustomerTableModel.COL_NAME, SortOrder.ASCENDING)));
+    return order[0];
+  }
+
+  /** 検索結果の行ビットマップで絞り込む */
+  @Benchmark
+  public int filterByBitmap() {
+    sorter.setRowFilter(new SearchController.BitSetRowFilter(everyTenthRow));
+    int viewRows = sorter.getViewRowCount();
+    sorter.setRowFilter(null);
+    return viewRows;
+  }
+}
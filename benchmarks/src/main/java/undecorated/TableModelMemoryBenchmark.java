@@ -0,0 +1,54 @@
+package undecorated;
+
+import java.util.Vector;
+import javax.swing.table.DefaultTableModel;
+
+/**
+ * DefaultTableModel と CustomerTableModel のヒープ使用量を比較する
+ *
+ * JMH ではなく単体のプログラムとして実行する:
+ *   java -Xmx8g -cp benchmarks/target/benchmarks.jar undecorated.TableModelMemoryBenchmark 1000000
+ */
+public class TableModelMemoryBenchmark {
+  public static void main(String[] args) {
+    int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+    long baseline = usedHeap();
+    DefaultTableModel defaultModel = createDefaultModel(rows);
+    long defaultBytes = usedHeap() - baseline;
+    System.out.println("rows: " + defaultModel.getRowCount());
+    defaultModel = null;
+
+    baseline = usedHeap();
+    CustomerTableModel columnarModel = CustomerDataGenerator.createModel(rows, 42);
+    long columnarBytes = usedHeap() - baseline;
+
+    System.out.printf("DefaultTableModel   : %,d bytes (%.1f bytes/row)%n", defaultBytes, defaultBytes / (double) rows);
+    System.out.printf("CustomerTableModel  : %,d bytes (%.1f bytes/row, estimated %,d)%n",
+        columnarBytes, columnarBytes / (double) rows, columnarModel.estimatedBytes());
+    System.out.printf("ratio               : %.2fx%n", defaultBytes / (double) columnarBytes);
+  }
+
+  private static DefaultTableModel createDefaultModel(int rows) {
+    CustomerDataGenerator generator = new CustomerDataGenerator(42);
+    DefaultTableModel model = new DefaultTableModel(CustomerTableModel.COLUMN_NAMES, 0);
+    for (int i = 0; i < rows; i++) {
+      // DefaultTableModel.addRow(Object[]) と同じく行ごとに Vector を作る
+      String[] row = generator.nextRow();
+      Vector<Object> vector = new Vector<>(row.length);
+      for (String value : row) {
+        vector.add(value);
+      }
+      model.addRow(vector);
+    }
+    return model;
+  }
+
+  private static long usedHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return runtime.totalMemory() - runtime.freeMemory();
+  }
+}
@@ -0,0 +1,79 @@
+package undecorated;
+
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.JViewport;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * 100 万行の顧客テーブルをスクロールした時の 1 フレーム（表示位置の変更と表示範囲の描画）の計測
+ * default は DefaultTableCellRenderer、cached は CachedTextCellRenderer
+ * 1 フレームごとに 3 行ずつ下へ進め、末尾まで来たら先頭に戻る
+ * ウィンドウは作らず、スクロールペインを BufferedImage に描くのでヘッドレスで実行できる
+ * （ウィンドウ上のスクロールでは表示済みの部分を複写するが、ここでは毎回表示範囲全体を描く）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "-Xmx2g" })
+@State(Scope.Thread)
+public class TableScrollBenchmark {
+  private static final int WIDTH = 1200;
+  private static final int HEIGHT = 800;
+  private static final int ROWS_PER_FRAME = 3;
+
+  @Param({ "1000000" })
+  public int rows;
+
+  @Param({ "default", "cached" })
+  public String renderer;
+
+  private JScrollPane scrollPane;
+  private JViewport viewport;
+  private JTable table;
+  private BufferedImage target;
+  private final Point position = new Point();
+  private int maxY;
+
+  @Setup
+  public void setUp() {
+    CustomerTableModel model = CustomerDataGenerator.createModel(rows, 42);
+    table = new JTable(model);
+    table.setRowHeight(25);
+    table.setAutoResizeMode(JTable.AUTO_RESIZE_ALL_COLUMNS);
+    if ("cached".equals(renderer)) {
+      table.setDefaultRenderer(String.class, new CachedTextCellRenderer());
+    }
+    scrollPane = new JScrollPane(table);
+    // ウィンドウに入れない代わりに、レイアウトが行われるよう表示可能な状態にしておく
+    scrollPane.addNotify();
+    scrollPane.setSize(WIDTH, HEIGHT);
+    scrollPane.validate();
+    viewport = scrollPane.getViewport();
+    maxY = table.getHeight() - viewport.getHeight();
+    target = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+  }
+
+  @TearDown
+  public void tearDown() {
+    scrollPane.removeNotify();
+  }
+
+  @Benchmark
+  public void scrollFrame() {
+    int y = position.y + ROWS_PER_FRAME * table.getRowHeight();
+    position.y = y > maxY ? 0 : y;
+    viewport.setViewPosition(position);
+    Graphics2D g = target.createGraphics();
+    try {
+      scrollPane.paint(g);
+    } finally {
+      g.dispose();
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package undecorated;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * リサイズ領域の判定と境界計算（ResizeListener.detectCursor / resizeFrame の中身）の計測
+ * constrainMove / constrainResize は 4 枚のモニターを並べた ScreenTopology での吸着・制限の計算
+ * ウィンドウを作らないのでヘッドレス環境でも実行できる
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class WindowBoundsBenchmark {
+  private static final int WIDTH = 1200;
+  private static final int HEIGHT = 800;
+  private static final int BORDER = 5;
+  private static final int POINTS = 1024;
+
+  private final int[] xs = new int[POINTS];
+  private final int[] ys = new int[POINTS];
+  private final int[] edges = new int[POINTS];
+  private final int[] out = new int[4];
+  private int index;
+  private final ScreenTopology topology = new ScreenTopology(
+      new java.awt.Rectangle(0, 0, 1920, 1040), new java.awt.Rectangle(1920, -200, 2560, 1400),
+      new java.awt.Rectangle(-1280, 100, 1280, 984), new java.awt.Rectangle(0, 1080, 1920, 1040));
+
+  @Setup
+  public void setUp() {
+    java.util.Random random = new java.util.Random(42);
+    for (int i = 0; i < POINTS; i++) {
+      // 半分は枠の近く、半分は内側
+      xs[i] = i % 2 == 0 ? random.nextInt(BORDER * 2) : random.nextInt(WIDTH);
+      ys[i] = i % 4 < 2 ? random.nextInt(HEIGHT) : HEIGHT - random.nextInt(BORDER * 2);
+      edges[i] = FrameResizeEngine.detectEdges(xs[i], ys[i], WIDTH, HEIGHT, BORDER);
+    }
+  }
+
+  @Benchmark
+  public int detectEdges() {
+    int i = index++ & (POINTS - 1);
+    return FrameResizeEngine.detectEdges(xs[i], ys[i], WIDTH, HEIGHT, BORDER);
+  }
+
+  @Benchmark
+  public void computeBounds(Blackhole blackhole) {
+    int i = index++ & (POINTS - 1);
+    FrameResizeEngine.computeBounds(edges[i] == 0 ? FrameResizeEngine.EDGE_EAST : edges[i],
+        100, 100, WIDTH, HEIGHT, xs[i] - BORDER, ys[i] - HEIGHT, 300, 200,
+        Integer.MAX_VALUE, Integer.MAX_VALUE, out);
+    blackhole.consume(out);
+  }
+
+  @Benchmark
+  public void constrainMove(Blackhole blackhole) {
+    int i = index++ & (POINTS - 1);
+    out[0] = xs[i] * 5 - 2000;
+    out[1] = ys[i] * 3 - 500;
+    out[2] = WIDTH;
+    out[3] = HEIGHT;
+    topology.constrainMove(out);
+    blackhole.consume(out);
+  }
+
+  @Benchmark
+  public void constrainResize(Blackhole blackhole) {
+    int i = index++ & (POINTS - 1);
+    out[0] = 100;
+    out[1] = 100;
+    out[2] = WIDTH + xs[i] * 2;
+    out[3] = HEIGHT + ys[i];
+    topology.constrainResize(FrameResizeEngine.EDGE_SOUTH | FrameResizeEngine.EDGE_EAST, out,
+        out[0] + out[2], out[1] + out[3], 300, 200);
+    blackhole.consume(out);
+  }
+}